@@ -0,0 +1,51 @@
+package tsml.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+/**
+ * Synthetic data shared by the benchmarks. Random walks are used rather than white noise so that elastic distances
+ * and shapelets behave as they would on real series.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    static double[] randomWalk(Random random, int length) {
+        double[] series = new double[length];
+        double value = 0;
+        for (int i = 0; i < length; i++) {
+            value += random.nextGaussian();
+            series[i] = value;
+        }
+        return series;
+    }
+
+    /**
+     * @return univariate instances with the class attribute last, as the distance measures require.
+     */
+    static Instances randomWalks(long seed, int numInstances, int length, int numClasses) {
+        Random random = new Random(seed);
+        ArrayList<Attribute> attributes = new ArrayList<>(length + 1);
+        for (int i = 0; i < length; i++)
+            attributes.add(new Attribute("t" + i));
+        ArrayList<String> classes = new ArrayList<>(numClasses);
+        for (int i = 0; i < numClasses; i++)
+            classes.add(String.valueOf(i));
+        attributes.add(new Attribute("class", classes));
+
+        Instances data = new Instances("RandomWalks", attributes, numInstances);
+        data.setClassIndex(length);
+        for (int i = 0; i < numInstances; i++) {
+            double[] values = new double[length + 1];
+            System.arraycopy(randomWalk(random, length), 0, values, 0, length);
+            values[length] = i % numClasses;
+            data.add(new DenseInstance(1.0, values));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,80 @@
+package tsml.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Cost of converting a single TimeSeriesInstance to a weka Instance, as done for every prediction through the
+ * TimeSeriesInstance API, with and without the train header, and through a HeaderConverter as the classifiers do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"150", "500"})
+    public int length;
+
+    @Param({"1", "3"})
+    public int numChannels;
+
+    private TimeSeriesInstances data;
+    private Instances header;
+    private Converter.HeaderConverter converter;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        double[][][] series = new double[100][numChannels][];
+        int[] labels = new int[series.length];
+        for (int i = 0; i < series.length; i++) {
+            for (int j = 0; j < numChannels; j++)
+                series[i][j] = BenchmarkData.randomWalk(random, length);
+            labels[i] = i % 2;
+        }
+        data = new TimeSeriesInstances(series, labels, new String[] {"0", "1"});
+        header = new Instances(Converter.toArff(data), 0);
+        converter = new Converter.HeaderConverter(header);
+    }
+
+    private TimeSeriesInstance next() {
+        index = (index + 1) % data.numInstances();
+        return data.get(index);
+    }
+
+    @Benchmark
+    public Instance toArff() {
+        return Converter.toArff(next());
+    }
+
+    @Benchmark
+    public Instance toArffWithHeader() {
+        return Converter.toArff(next(), header);
+    }
+
+    @Benchmark
+    public Instance toArffWithConverter() {
+        return converter.toArff(next());
+    }
+}
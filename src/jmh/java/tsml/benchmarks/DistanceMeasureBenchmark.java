@@ -0,0 +1,149 @@
+package tsml.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import tsml.classifiers.distance_based.distances.dtw.EAPrunedDTWDistance;
+import tsml.classifiers.distance_based.distances.erp.EAPrunedERPDistance;
+import tsml.classifiers.distance_based.distances.erp.ERPDistance;
+import tsml.classifiers.distance_based.distances.lcss.LCSSDistance;
+import tsml.classifiers.distance_based.distances.msm.EAPrunedMSMDistance;
+import tsml.classifiers.distance_based.distances.msm.MSMDistance;
+import tsml.classifiers.distance_based.distances.twed.EAPrunedTWEDistance;
+import tsml.classifiers.distance_based.distances.twed.TWEDistance;
+import tsml.classifiers.distance_based.distances.wdtw.EAPrunedWDTWDistance;
+import tsml.classifiers.distance_based.distances.wdtw.WDTWDistance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Time for a single distance between two series under each elastic measure. With early abandoning the limit is
+ * half of the true distance, so the measure has to notice it can stop part way through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceMeasureBenchmark {
+
+    @Param({"DTW", "WDTW", "ERP", "LCSS", "MSM", "TWE", "EAPrunedDTW", "EAPrunedWDTW", "EAPrunedERP", "EAPrunedMSM",
+        "EAPrunedTWE"})
+    public String distance;
+
+    @Param({"false", "true"})
+    public boolean earlyAbandon;
+
+    @Param({"150", "500"})
+    public int length;
+
+    private DistanceMeasure measure;
+    private Instance a;
+    private Instance b;
+    private double[] aSeries;
+    private double[] bSeries;
+    private double limit;
+
+    @Setup
+    public void setup() {
+        Instances data = BenchmarkData.randomWalks(0, 2, length, 2);
+        measure = create(distance);
+        measure.setInstances(data);
+        a = data.get(0);
+        b = data.get(1);
+        aSeries = Arrays.copyOf(a.toDoubleArray(), length);
+        bSeries = Arrays.copyOf(b.toDoubleArray(), length);
+        limit = earlyAbandon ? measure.distance(a, b) / 2 : Double.POSITIVE_INFINITY;
+    }
+
+    static DistanceMeasure create(String name) {
+        switch (name) {
+            case "DTW": {
+                DTWDistance measure = new DTWDistance();
+                measure.setWindowSize(-1);
+                return measure;
+            }
+            case "WDTW": {
+                WDTWDistance measure = new WDTWDistance();
+                measure.setG(0.05);
+                return measure;
+            }
+            case "ERP": {
+                ERPDistance measure = new ERPDistance();
+                measure.setWindowSize(-1);
+                measure.setG(0.5);
+                return measure;
+            }
+            case "LCSS": {
+                LCSSDistance measure = new LCSSDistance();
+                measure.setWindowSize(-1);
+                measure.setEpsilon(0.5);
+                return measure;
+            }
+            case "MSM": {
+                MSMDistance measure = new MSMDistance();
+                measure.setC(0.5);
+                return measure;
+            }
+            case "TWE": {
+                TWEDistance measure = new TWEDistance();
+                measure.setLambda(0.5);
+                measure.setNu(0.01);
+                return measure;
+            }
+            case "EAPrunedDTW": {
+                DTWDistance measure = new EAPrunedDTWDistance();
+                measure.setWindowSize(-1);
+                return measure;
+            }
+            case "EAPrunedWDTW": {
+                WDTWDistance measure = new EAPrunedWDTWDistance();
+                measure.setG(0.05);
+                return measure;
+            }
+            case "EAPrunedERP": {
+                ERPDistance measure = new EAPrunedERPDistance();
+                measure.setWindowSize(-1);
+                measure.setG(0.5);
+                return measure;
+            }
+            case "EAPrunedMSM": {
+                MSMDistance measure = new EAPrunedMSMDistance();
+                measure.setC(0.5);
+                return measure;
+            }
+            case "EAPrunedTWE": {
+                TWEDistance measure = new EAPrunedTWEDistance();
+                measure.setLambda(0.5);
+                measure.setNu(0.01);
+                return measure;
+            }
+            default:
+                throw new IllegalArgumentException("unknown distance measure: " + name);
+        }
+    }
+
+    @Benchmark
+    public double distance() {
+        return measure.distance(a, b, limit);
+    }
+
+    @Benchmark
+    public double distanceArrays() {
+        return measure.distance(aSeries, bSeries, limit);
+    }
+}
@@ -0,0 +1,124 @@
+package tsml.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import experiments.data.DatasetLoading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tsml.classifiers.EnhancedAbstractClassifier;
+import tsml.classifiers.TrainTimeContractable;
+import tsml.classifiers.dictionary_based.TDE;
+import tsml.classifiers.dictionary_based.cBOSS;
+import tsml.classifiers.distance_based.proximity.ProximityForest;
+import tsml.classifiers.frequency_based.RISE;
+import tsml.classifiers.hybrids.HIVE_COTE;
+import tsml.classifiers.interval_based.CIF;
+import tsml.classifiers.interval_based.TSF;
+import tsml.classifiers.shapelet_based.ShapeletTransformClassifier;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+/**
+ * Single instance distributionForInstance latency for trained classifiers on baked in UCR problems, through both the
+ * weka Instance and the TimeSeriesInstance APIs. Classifiers are trained once per trial under a short contract where
+ * they support one, since only prediction is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredictionLatencyBenchmark {
+
+    @Param({"TDE", "CIF", "STC", "ProximityForest", "TSF", "HIVE_COTE"})
+    public String classifierName;
+
+    @Param({"ItalyPowerDemand", "GunPoint"})
+    public String dataset;
+
+    @Param({"1"})
+    public long trainContractMinutes;
+
+    private EnhancedAbstractClassifier classifier;
+    private Instances test;
+    private TimeSeriesInstances tsTest;
+    private int index;
+
+    @Setup
+    public void setup() throws Exception {
+        Instances[] split = DatasetLoading.sampleDataset(DatasetLoading.BAKED_IN_TSC_DATA_PATH, dataset, 0);
+        classifier = create(classifierName);
+        classifier.setSeed(0);
+        if (classifier instanceof TrainTimeContractable)
+            ((TrainTimeContractable) classifier).setTrainTimeLimit(TimeUnit.MINUTES, trainContractMinutes);
+        classifier.buildClassifier(Converter.fromArff(split[0]));
+        test = new Instances(split[1]);
+        tsTest = Converter.fromArff(split[1]);
+    }
+
+    static EnhancedAbstractClassifier create(String name) throws Exception {
+        switch (name) {
+            case "TDE":
+                return new TDE();
+            case "CIF":
+                return new CIF();
+            case "STC":
+                return new ShapeletTransformClassifier();
+            case "ProximityForest":
+                return new ProximityForest();
+            case "TSF":
+                return new TSF();
+            case "HIVE_COTE":
+                return hiveCote();
+            default:
+                throw new IllegalArgumentException("unknown classifier: " + name);
+        }
+    }
+
+    /**
+     * HIVE-COTE 1.0's components, but with the frequency_based RISE in place of the legacy RISE, which fails to build,
+     * and out of bag train estimates for RISE and TSF.
+     */
+    static HIVE_COTE hiveCote() throws Exception {
+        ShapeletTransformClassifier stc = new ShapeletTransformClassifier();
+        stc.setEstimateOwnPerformance(true);
+        RISE rise = new RISE();
+        rise.setEstimateOwnPerformance(true);
+        rise.setEstimatorMethod("OOB");
+        cBOSS boss = new cBOSS();
+        boss.setEstimateOwnPerformance(true);
+        TSF tsf = new TSF();
+        tsf.setEstimateOwnPerformance(true);
+        tsf.setEstimatorMethod("OOB");
+
+        HIVE_COTE hc = new HIVE_COTE();
+        hc.setClassifiers(new Classifier[]{stc, rise, boss, tsf}, new String[]{"STC", "RISE", "cBOSS", "TSF"}, null);
+        return hc;
+    }
+
+    @Benchmark
+    public double[] distributionForInstance() throws Exception {
+        index = (index + 1) % test.numInstances();
+        return classifier.distributionForInstance(test.get(index));
+    }
+
+    @Benchmark
+    public double[] distributionForTimeSeriesInstance() throws Exception {
+        index = (index + 1) % tsTest.numInstances();
+        TimeSeriesInstance inst = tsTest.get(index);
+        return classifier.distributionForInstance(inst);
+    }
+}
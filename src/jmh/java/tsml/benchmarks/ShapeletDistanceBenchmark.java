@@ -0,0 +1,78 @@
+package tsml.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tsml.transformers.shapelet_tools.distance_functions.CachedShapeletDistance;
+import tsml.transformers.shapelet_tools.distance_functions.ImprovedOnlineShapeletDistance;
+import tsml.transformers.shapelet_tools.distance_functions.OnlineShapeletDistance;
+import tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance;
+import tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType;
+import tsml.transformers.shapelet_tools.distance_functions.SlidingShapeletDistance;
+import weka.core.Instances;
+
+/**
+ * Time for the distance between one shapelet candidate and one series, i.e. the inner step of the shapelet search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeletDistanceBenchmark {
+
+    @Param({"NORMAL", "ONLINE", "IMPROVED_ONLINE", "CACHED", "SLIDING"})
+    public DistanceType distanceType;
+
+    @Param({"150", "500"})
+    public int length;
+
+    @Param({"0.1", "0.5"})
+    public double shapeletProportion;
+
+    private ShapeletDistance distance;
+    private Instances data;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.randomWalks(0, 2, length, 2);
+        distance = create(distanceType);
+        distance.init(data);
+        int shapeletLength = (int) (length * shapeletProportion);
+        distance.setCandidate(data.get(0), length / 4, shapeletLength, 0);
+        distance.setSeries(0);
+    }
+
+    static ShapeletDistance create(DistanceType type) {
+        switch (type) {
+            case NORMAL:
+                return new ShapeletDistance();
+            case ONLINE:
+                return new OnlineShapeletDistance();
+            case IMPROVED_ONLINE:
+                return new ImprovedOnlineShapeletDistance();
+            case CACHED:
+                return new CachedShapeletDistance();
+            case SLIDING:
+                return new SlidingShapeletDistance();
+            default:
+                throw new IllegalArgumentException("not a univariate shapelet distance: " + type);
+        }
+    }
+
+    @Benchmark
+    public double calculate() {
+        return distance.calculate(data.get(1), 1);
+    }
+}
@@ -0,0 +1,76 @@
+package tsml.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.utilities.Converter;
+import tsml.transformers.Catch22;
+import tsml.transformers.FFT;
+import tsml.transformers.MatrixProfile;
+import tsml.transformers.PAA;
+import tsml.transformers.SAX;
+import tsml.transformers.Transformer;
+import weka.core.Instances;
+
+/**
+ * Time to transform a single series, after the transform has seen the format of the data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+
+    @Param({"Catch22", "FFT", "MatrixProfile", "SAX", "PAA"})
+    public String transform;
+
+    @Param({"150", "500"})
+    public int length;
+
+    private Transformer transformer;
+    private TimeSeriesInstance series;
+
+    @Setup
+    public void setup() {
+        Instances data = BenchmarkData.randomWalks(0, 2, length, 2);
+        transformer = create(transform);
+        // several transforms size their output here, so it must be called before transforming single instances.
+        transformer.determineOutputFormat(data);
+        series = Converter.fromArff(data).get(0);
+    }
+
+    static Transformer create(String name) {
+        switch (name) {
+            case "Catch22":
+                return new Catch22();
+            case "FFT":
+                return new FFT();
+            case "MatrixProfile":
+                return new MatrixProfile();
+            case "SAX":
+                return new SAX();
+            case "PAA":
+                return new PAA();
+            default:
+                throw new IllegalArgumentException("unknown transform: " + name);
+        }
+    }
+
+    @Benchmark
+    public TimeSeriesInstance transform() {
+        return transformer.transform(series);
+    }
+}
@@ -21,6 +21,7 @@ import static utilities.GenericTools.indexOfMax;
 
 import tsml.classifiers.Interpretable;
 import weka.classifiers.Classifier;
+import weka.core.BatchPredictor;
 import weka.core.Instance;
 import weka.core.Instances;
 
@@ -33,7 +34,8 @@ import weka.core.Instances;
  * include some specific parameter identifier)
  * 
  * distributionForInstance(Instance) MUST be defined, even if the classifier only really returns 
- * a one-hot distribution
+ * a one-hot distribution. Classifiers that are a BatchPredictor and predict more efficiently in batches are
+ * given the instances in batches instead
  * 
  * @author James Large (james.large@uea.ac.uk)
  */
@@ -65,7 +67,11 @@ public class SingleTestSetEvaluator extends Evaluator {
         res.setSplit("train"); //todo revisit, or leave with the assumption that calling method will set this to test when needed
 
         res.turnOffZeroTimingsErrors();
-        for (Instance testinst : insts) {
+        if (!vis && classifier instanceof BatchPredictor
+                && ((BatchPredictor) classifier).implementsMoreEfficientBatchPrediction()) {
+            addBatchPredictions((BatchPredictor) classifier, insts, res);
+        }
+        else for (Instance testinst : insts) {
             double trueClassVal = testinst.classValue();
             if (setClassMissing)
                 testinst.setClassMissing();
@@ -87,6 +93,36 @@ public class SingleTestSetEvaluator extends Evaluator {
         return res;
     }
 
+    /**
+     * Gathers the predictions in batches of the classifier's preferred batch size (all at once if not set), each
+     * prediction's time being its share of the time taken for its batch
+     */
+    private void addBatchPredictions(BatchPredictor classifier, Instances insts, ClassifierResults res) throws Exception {
+        int batchSize = insts.numInstances();
+        try {
+            batchSize = Integer.parseInt(classifier.getBatchSize());
+        } catch (NumberFormatException e) { }
+        if (batchSize <= 0)
+            batchSize = insts.numInstances();
+
+        for (int start = 0; start < insts.numInstances(); start += batchSize) {
+            Instances batch = new Instances(insts, start, Math.min(batchSize, insts.numInstances() - start));
+            double[] trueClassVals = new double[batch.numInstances()];
+            for (int i = 0; i < batch.numInstances(); i++) {
+                trueClassVals[i] = batch.instance(i).classValue();
+                if (setClassMissing)
+                    batch.instance(i).setClassMissing();
+            }
+
+            long startTime = System.nanoTime();
+            double[][] dists = classifier.distributionsForInstances(batch);
+            long predTime = (System.nanoTime() - startTime) / batch.numInstances();
+
+            for (int i = 0; i < batch.numInstances(); i++)
+                res.addPrediction(trueClassVals[i], dists[i], indexOfMax(dists[i]), predTime, "");
+        }
+    }
+
     /**
      * Utility method, will build on the classifier on the train set and evaluate on the test set 
      */
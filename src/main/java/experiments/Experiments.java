@@ -107,6 +107,7 @@ public class Experiments  {
     public static int numCVFolds = 10;
 
     private static String WORKSPACE_DIR = "Workspace";
+    private static String TRANSFORM_CACHE_DIR = "TransformCache";
     private static String PREDICTIONS_DIR = "Predictions";
 
     /**
@@ -610,6 +611,14 @@ public class Experiments  {
             }
         }
 
+        if (expSettings.transformCaching) {
+            if (classifier instanceof TransformCacheable)
+                // [supportingFilePath]/TransformCache/, shared by the folds and resamples of this classifier and dataset
+                ((TransformCacheable) classifier).setTransformCachePath(expSettings.supportingFilePath + TRANSFORM_CACHE_DIR + "/");
+            else
+                LOGGER.log(Level.WARNING, "Transform caching requested, but the classifier (" + classifier.getClass().getName() + ") does not extend TransformCacheable.");
+        }
+
         if(classifier instanceof TrainTimeContractable && expSettings.contractTrainTimeNanos>0)
             ((TrainTimeContractable) classifier).setTrainTimeLimit(TimeUnit.NANOSECONDS,expSettings.contractTrainTimeNanos);
         if(classifier instanceof TestTimeContractable && expSettings.contractTestTimeNanos >0)
@@ -916,6 +925,11 @@ public class Experiments  {
                 + "The classifier by default will write its interpretability files to workspace path parallel to the --resultsPath, unless another path is optionally supplied to --supportingFilePath.")
         public boolean interpret = false;
 
+        @Parameter(names={"-tc","--transformCache"}, arity=1, description = "(boolean) Turns on caching of transforms on disk, if the classifier implements the TransformCacheable interface. "
+                + "Fitted transforms and transformed data are written to a TransformCache directory under the --supportingFilePath, keyed by the transform configuration and the data, "
+                + "so any experiment there applying the same transform to the same data reads it back instead of recomputing it. Supply the same --supportingFilePath to share transforms between classifiers.")
+        public boolean transformCaching = false;
+
         @Parameter(names={"-sp","--supportingFilePath"}, description = "(String) Specifies the directory to write any files that may be produced by the classifier if it is a FileProducer. This includes but may not be "
                 + "limited to: parameter evaluations, checkpoints, and logs. By default, these files are written to a generated subdirectory in the same location that the train and testFold[fold] files are written, relative"
                 + "the --resultsPath. If a path is supplied via this parameter however, the files shall be written to that precisely that directory, as opposed to e.g. [-sp]/[--classifierName]/Predictions... "
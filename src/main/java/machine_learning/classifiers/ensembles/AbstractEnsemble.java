@@ -369,27 +369,8 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
         //that will build the classifier and return train results for it, either 
         //generated by the classifier itself or the trainEstimator
         List<Callable<ClassifierResults>> moduleBuilds = new ArrayList<>();
-        for (EnsembleModule module : modules) {
-            final Classifier classifier = module.getClassifier();
-            final Evaluator eval = trainEstimator.cloneEvaluator();
-            
-            Callable<ClassifierResults> moduleBuild = () -> {
-                ClassifierResults trainResults = null;
-                
-                if (EnhancedAbstractClassifier.classifierIsEstimatingOwnPerformance(classifier)) { 
-                    classifier.buildClassifier(trainInsts);
-                    trainResults = ((EnhancedAbstractClassifier)classifier).getTrainResults();
-                }
-                else { 
-                    trainResults = eval.evaluate(classifier, trainInsts);
-                    classifier.buildClassifier(trainInsts);
-                }
-                
-                return trainResults;
-            };
-            
-            moduleBuilds.add(moduleBuild);
-        }
+        for (EnsembleModule module : modules)
+            moduleBuilds.add(moduleBuild(module.getClassifier(), trainInsts));
         
         
         //complete the operations, either threaded via the executor service or 
@@ -406,8 +387,36 @@ public abstract class AbstractEnsemble extends EnhancedAbstractClassifier implem
                 results.add(moduleBuild.call());
         }
         
+        setModuleTrainResults(results);
+    }
+    
+    /**
+     * The operation to build and evaluate a module's classifier on the data, returning the train results for it, 
+     * either generated by the classifier itself or the trainEstimator
+     */
+    protected Callable<ClassifierResults> moduleBuild(Classifier classifier, Instances data) {
+        final Evaluator eval = trainEstimator.cloneEvaluator();
         
-        //gather back the train results, write them if needed 
+        return () -> {
+            ClassifierResults trainResults = null;
+            
+            if (EnhancedAbstractClassifier.classifierIsEstimatingOwnPerformance(classifier)) { 
+                classifier.buildClassifier(data);
+                trainResults = ((EnhancedAbstractClassifier)classifier).getTrainResults();
+            }
+            else { 
+                trainResults = eval.evaluate(classifier, data);
+                classifier.buildClassifier(data);
+            }
+            
+            return trainResults;
+        };
+    }
+    
+    /**
+     * Gather back the train results of the modules, in module order, and write them if needed 
+     */
+    protected void setModuleTrainResults(List<ClassifierResults> results) throws Exception {
         for (int i = 0; i < modules.length; i++) {
             modules[i].trainResults = results.get(i);
             
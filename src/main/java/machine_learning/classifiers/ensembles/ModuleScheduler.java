@@ -0,0 +1,452 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package machine_learning.classifiers.ensembles;
+
+import evaluation.storage.ClassifierResults;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import machine_learning.classifiers.ensembles.AbstractEnsemble.EnsembleModule;
+import tsml.classifiers.EnhancedAbstractClassifier;
+import tsml.classifiers.MultiThreadable;
+import tsml.classifiers.TrainTimeContractable;
+import utilities.InstanceTools;
+import utilities.ThreadingUtilities;
+import utilities.serialisation.KryoSerialiser;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+/**
+ * Builds the modules of an ensemble so that together they keep to a train time contract, making the most of the
+ * threads available.
+ *
+ * 1) The cost of each module is estimated from a short probe: a copy of the module is built and evaluated, as it
+ *      would be in the ensemble, on two stratified subsamples of the train data, and the time taken extrapolated
+ *      to the full train data. probeProportion of the contract is reserved for the probes, contractable modules
+ *      being contracted to their share of it. A probe taking over twice its share, or running past the end of the
+ *      reserve, is abandoned, and if any probe is abandoned or fails the time is shared equally between the
+ *      contractable modules instead, taking the non contractable modules to cost nothing. tsml classifiers do not
+ *      stop when interrupted, so only a build held to the probe's contract can be abandoned safely: a module which
+ *      is not contractable, or whose train estimate is made by the ensemble rather than itself, is not probed and
+ *      the time is shared equally.
+ * 2) The thread time before the deadline, less that expected for the non contractable modules, which are built in
+ *      full, is shared between the contractable modules. Each module whose estimated cost is less than an equal
+ *      share gets all it needs, and the rest share what is left equally, so no module is starved by a costly one.
+ * 3) Threads are allocated to the modules by the time they are expected to use. If there are at least as many
+ *      threads as modules, all modules are built at once, and each thread beyond one per module goes to the multi
+ *      threadable module which would otherwise finish last, so the modules finish together. Otherwise the modules
+ *      are built one per thread in turn, non contractable modules first as their time cannot be controlled, then
+ *      the least costly first, so any time they leave goes to the modules which can use it.
+ * 4) The contract time of a module is set as it starts, sharing the thread time then left as in 2), less that
+ *      expected for the modules still building. So when a module finishes early the time it leaves is given to the
+ *      modules which start after it. Modules already building keep the contract they started with.
+ */
+public class ModuleScheduler {
+
+    //the probe times are extrapolated with the scaling in the number of train cases between the two probes,
+    //bounded to a sensible range, or this if that cannot be found
+    private static final double DEFAULT_SCALING_EXPONENT = 1.5;
+    private static final double MIN_SCALING_EXPONENT = 1;
+    private static final double MAX_SCALING_EXPONENT = 2;
+    //copies the modules for probing, as some are not Serializable, e.g. STC
+    private static final KryoSerialiser COPIER = new KryoSerialiser();
+    //the immutable types of transient field values which are carried over to the copies
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+            Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class));
+    //a probe is abandoned once it has taken this many times its share of the probing time
+    private static final int PROBE_OVERRUN_FACTOR = 2;
+    //the time taken by a probe which failed or was abandoned
+    private static final long PROBE_FAILED = -1;
+
+    private final AbstractEnsemble ensemble;
+    private final int numThreads;
+    private final long contractNanos;
+
+    //proportion of the contract spent probing the cost of the modules
+    private double probeProportion = 0.05;
+    //proportion of the train data in the smaller probe, the larger has twice as much
+    private double probeDataProportion = 0.1;
+    //no module is given a contract below this, as a contract of 0 is usually taken as no contract at all
+    private long minModuleContractNanos = TimeUnit.SECONDS.toNanos(1);
+
+    //the state of the current build, indexed by module
+    private EnsembleModule[] modules;
+    private double[] costs;
+    //the thread time each module is expected to use, in nanos
+    private double[] demands;
+    private int[] threads;
+    private long[] ends;
+    private boolean[] started;
+    private boolean[] finished;
+    private int usableThreads;
+    private long deadline;
+
+    /**
+     * @param ensemble the ensemble whose modules are built, which defines how each is built and evaluated
+     * @param numThreads the number of threads to use in total
+     * @param contractNanos the time to build all modules in, including the probes
+     */
+    public ModuleScheduler(AbstractEnsemble ensemble, int numThreads, long contractNanos) {
+        this.ensemble = ensemble;
+        this.numThreads = Math.max(1, numThreads);
+        this.contractNanos = contractNanos;
+    }
+
+    /**
+     * Build and evaluate the modules on the data within the contract, setting the contract time and number of
+     * threads of each module as it starts. One build at a time per scheduler.
+     *
+     * @return the train results of each module, in module order
+     */
+    public List<ClassifierResults> trainModules(EnsembleModule[] modules, Instances data) throws Exception {
+        this.modules = modules;
+        long startTime = System.nanoTime();
+        deadline = startTime + contractNanos;
+
+        //the probes may not run into the time left for the modules
+        costs = probeCosts(data, startTime + (long) (probeProportion * contractNanos));
+        ends = new long[modules.length];
+        started = new boolean[modules.length];
+        finished = new boolean[modules.length];
+
+        double available = (double) numThreads * Math.max(0, deadline - System.nanoTime());
+        for (int i = 0; i < modules.length; i++)
+            if (!modules[i].isTrainTimeContractable())
+                available -= costs[i];
+        double level = shareLevel(Math.max(0, available), costs, findSharing());
+        demands = new double[modules.length];
+        boolean[] multiThreadable = new boolean[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            demands[i] = modules[i].isTrainTimeContractable() ? Math.min(costs[i], level) : costs[i];
+            multiThreadable[i] = modules[i].isMultiThreadable();
+        }
+        threads = allocateThreads(numThreads, demands, multiThreadable);
+        usableThreads = Math.min(numThreads, Arrays.stream(threads).sum());
+
+        Integer[] order = new Integer[modules.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparing((Integer i) -> modules[i].isTrainTimeContractable())
+                .thenComparing(i -> costs[i]));
+
+        List<Callable<ClassifierResults>> moduleBuilds = new ArrayList<>();
+        for (int i : order) {
+            Callable<ClassifierResults> moduleBuild = ensemble.moduleBuild(modules[i].getClassifier(), data);
+            moduleBuilds.add(() -> {
+                start(i);
+                try {
+                    return moduleBuild.call();
+                } finally {
+                    finish(i);
+                }
+            });
+        }
+
+        //the executor starts the builds in the order given
+        List<ClassifierResults> orderedResults = new ArrayList<>();
+        int numWorkers = Math.min(numThreads, modules.length);
+        if (numWorkers > 1) {
+            ExecutorService executor = ThreadingUtilities.buildExecutorService(numWorkers);
+            orderedResults = ThreadingUtilities.computeAll(executor, moduleBuilds, true);
+        }
+        else {
+            for (Callable<ClassifierResults> moduleBuild : moduleBuilds)
+                orderedResults.add(moduleBuild.call());
+        }
+
+        ClassifierResults[] results = new ClassifierResults[modules.length];
+        for (int j = 0; j < order.length; j++)
+            results[order[j]] = orderedResults.get(j);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * @param probeDeadline the time by which probing must finish
+     * @return the estimated time to build and evaluate each module on the data with one thread, in nanos. If any
+     * probe fails the contractable modules are taken to cost more than there is time for, and the rest nothing, so
+     * the time is shared equally between the contractable modules
+     */
+    protected double[] probeCosts(Instances data, long probeDeadline) {
+        for (EnsembleModule module : modules) {
+            if (!module.isTrainTimeContractable()
+                    || !EnhancedAbstractClassifier.classifierIsEstimatingOwnPerformance(module.getClassifier())) {
+                ensemble.printLineDebug(" Not probing, as the build of " + module.getModuleName() + " cannot be held "
+                        + "to a contract, sharing the contract equally between the contractable modules");
+                return evenCosts();
+            }
+        }
+        int numInstances = data.numInstances();
+        Instances small = InstanceTools.subSampleFixedProportion(data, probeDataProportion, ensemble.getSeed());
+        Instances large = InstanceTools.subSampleFixedProportion(data, 2 * probeDataProportion, ensemble.getSeed());
+        long probeLimit = (long) (probeProportion * contractNanos / (2 * modules.length));
+
+        double[] estimates = new double[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            long smallTime = probe(modules[i], small, probeLimit, probeDeadline);
+            //no more time is spent on a module which has already used its share
+            long largeTime = smallTime != PROBE_FAILED && smallTime < probeLimit
+                    && large.numInstances() > small.numInstances() ? probe(modules[i], large, probeLimit, probeDeadline)
+                    : 0;
+            estimates[i] = smallTime == PROBE_FAILED || largeTime == PROBE_FAILED ? Double.NaN
+                    : extrapolate(smallTime, small.numInstances(), largeTime, large.numInstances(), numInstances);
+            if (Double.isNaN(estimates[i])) {
+                ensemble.printLineDebug(" Probing " + modules[i].getModuleName()
+                        + " failed, sharing the contract equally between the contractable modules");
+                return evenCosts();
+            }
+            ensemble.printLineDebug(" Probed " + modules[i].getModuleName() + ": " + smallTime + " nanos on "
+                    + small.numInstances() + " cases, " + largeTime + " nanos on " + large.numInstances()
+                    + " cases, estimated " + (long) estimates[i] + " nanos on " + numInstances + " cases");
+        }
+        return estimates;
+    }
+
+    /**
+     * @return costs which share the time equally between the contractable modules
+     */
+    private double[] evenCosts() {
+        double[] costs = new double[modules.length];
+        for (int i = 0; i < modules.length; i++)
+            costs[i] = modules[i].isTrainTimeContractable() ? Double.POSITIVE_INFINITY : 0;
+        return costs;
+    }
+
+    /**
+     * Build and evaluate a copy of the module on the sample with one thread, contracted to the limit. The probe
+     * runs on a daemon thread of its own, and is abandoned if it takes over PROBE_OVERRUN_FACTOR times the limit or
+     * runs past the probe deadline. The contract is what stops an abandoned probe, as the classifiers ignore
+     * interrupts, so modules which cannot be held to it are not probed.
+     *
+     * @return the time taken in nanos, or PROBE_FAILED if the probe failed or was abandoned
+     */
+    private long probe(EnsembleModule module, Instances sample, long limit, long probeDeadline) {
+        if (sample.numInstances() == 0 || probeDeadline - System.nanoTime() <= 0)
+            return PROBE_FAILED;
+        ExecutorService executor = ThreadingUtilities.buildExecutorService(1, 1, TimeUnit.SECONDS,
+                ThreadingUtilities.daemonThreadFactory());
+        try {
+            Classifier copy = copy(module.getClassifier());
+            ((TrainTimeContractable) copy).setTrainTimeLimit(Math.max(limit, 1));
+            if (copy instanceof MultiThreadable)
+                ((MultiThreadable) copy).enableMultiThreading(1);
+
+            Callable<ClassifierResults> moduleBuild = ensemble.moduleBuild(copy, new Instances(sample));
+            long startTime = System.nanoTime();
+            Future<ClassifierResults> future = executor.submit(moduleBuild);
+            try {
+                long timeout = Math.min(Math.max(limit, 1) * PROBE_OVERRUN_FACTOR, probeDeadline - startTime);
+                future.get(Math.max(timeout, 1), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                ensemble.printLineDebug(" Probe of " + module.getModuleName() + " on " + sample.numInstances()
+                        + " cases abandoned after " + (System.nanoTime() - startTime) + " nanos");
+                return PROBE_FAILED;
+            }
+            return System.nanoTime() - startTime;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PROBE_FAILED;
+        } catch (Exception e) {
+            ensemble.printLineDebug(" Probe of " + module.getModuleName() + " on " + sample.numInstances()
+                    + " cases failed: " + e);
+            return PROBE_FAILED;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return a deep copy of the unbuilt classifier. Kryo makes the copy with the no argument constructor, so its
+     * transient fields take their default values. Those holding configuration, i.e. primitives, strings, enums and
+     * lambdas such as the function giving the number of intervals in TSF, are then set from the classifier
+     */
+    static Classifier copy(Classifier classifier) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        COPIER.serialise(classifier, out);
+        Classifier copy = (Classifier) COPIER.deserialise(new ByteArrayInputStream(out.toByteArray()));
+        for (Class<?> type = classifier.getClass(); type != null; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isTransient(modifiers) || Modifier.isStatic(modifiers))
+                    continue;
+                field.setAccessible(true);
+                Object value = field.get(classifier);
+                if (field.getType().isPrimitive() || isImmutable(value))
+                    field.set(copy, value);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return whether the value can be shared between a classifier and its copy
+     */
+    private static boolean isImmutable(Object value) {
+        return value != null && (IMMUTABLE_TYPES.contains(value.getClass()) || value instanceof Enum
+                || value.getClass().isSynthetic());
+    }
+
+    /**
+     * @return the time for numInstances cases extrapolated from the probe times, or NaN if neither probe worked
+     */
+    static double extrapolate(long smallTime, int smallSize, long largeTime, int largeSize, int numInstances) {
+        if (smallTime <= 0 && largeTime <= 0)
+            return Double.NaN;
+        if (largeTime <= 0)
+            return smallTime * Math.pow((double) numInstances / smallSize, DEFAULT_SCALING_EXPONENT);
+
+        double exponent = DEFAULT_SCALING_EXPONENT;
+        if (smallTime > 0)
+            exponent = Math.log((double) largeTime / smallTime) / Math.log((double) largeSize / smallSize);
+        exponent = Math.min(MAX_SCALING_EXPONENT, Math.max(MIN_SCALING_EXPONENT, exponent));
+        return largeTime * Math.pow((double) numInstances / largeSize, exponent);
+    }
+
+    /**
+     * @param demands the thread time each module is expected to use
+     * @param multiThreadable whether each module can use more than one thread
+     * @return the number of threads each module builds with
+     */
+    static int[] allocateThreads(int numThreads, double[] demands, boolean[] multiThreadable) {
+        int[] allocated = new int[demands.length];
+        Arrays.fill(allocated, 1);
+
+        for (int spare = numThreads - demands.length; spare > 0; spare--) {
+            int slowest = -1;
+            for (int i = 0; i < demands.length; i++) {
+                if (multiThreadable[i]
+                        && (slowest < 0 || demands[i] / allocated[i] > demands[slowest] / allocated[slowest]))
+                    slowest = i;
+            }
+            if (slowest < 0)
+                break;
+            allocated[slowest]++;
+        }
+        return allocated;
+    }
+
+    /**
+     * Share the thread time available between the modules sharing it: each whose cost is below the level returned
+     * gets its cost, the rest get the level.
+     *
+     * @param sharing whether each module shares the time
+     * @return the level, infinite if every module can have its cost
+     */
+    static double shareLevel(double available, double[] costs, boolean[] sharing) {
+        List<Double> sharingCosts = new ArrayList<>();
+        for (int j = 0; j < costs.length; j++)
+            if (sharing[j])
+                sharingCosts.add(costs[j]);
+        sharingCosts.sort(null);
+
+        for (int k = 0; k < sharingCosts.size(); k++) {
+            double level = available / (sharingCosts.size() - k);
+            if (sharingCosts.get(k) > level)
+                return level;
+            available -= sharingCosts.get(k);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return whether each module shares the thread time left, i.e. is contractable and yet to start
+     */
+    private boolean[] findSharing() {
+        boolean[] sharing = new boolean[modules.length];
+        for (int j = 0; j < modules.length; j++)
+            sharing[j] = !started[j] && modules[j].isTrainTimeContractable();
+        return sharing;
+    }
+
+    private synchronized void start(int i) {
+        long now = System.nanoTime();
+        long remaining = Math.max(0, deadline - now);
+
+        //thread time already spoken for, by the modules building and the non contractable modules to come
+        double committed = 0;
+        for (int j = 0; j < modules.length; j++) {
+            if (started[j] && !finished[j])
+                committed += (double) threads[j] * Math.max(0, ends[j] - now);
+            else if (!started[j] && !modules[j].isTrainTimeContractable())
+                committed += costs[j];
+        }
+
+        Classifier classifier = modules[i].getClassifier();
+        if (classifier instanceof MultiThreadable)
+            ((MultiThreadable) classifier).enableMultiThreading(threads[i]);
+
+        if (classifier instanceof TrainTimeContractable) {
+            //share as in the plan, the module itself still yet to start
+            double level = shareLevel(Math.max(0, (double) usableThreads * remaining - committed), costs,
+                    findSharing());
+            //a module expected to need less than the level may still have it, in case its cost was underestimated
+            long contract = (long) Math.min(remaining, level / threads[i]);
+            contract = Math.max(contract, minModuleContractNanos);
+            ((TrainTimeContractable) classifier).setTrainTimeLimit(contract);
+            ends[i] = now + (long) Math.min(contract, Math.min(costs[i], level) / threads[i]);
+            ensemble.printLineDebug(" Starting " + modules[i].getModuleName() + " " + remaining
+                    + " nanos before the deadline with " + threads[i] + " threads and contract " + contract + " nanos, expected to take " + (ends[i] - now) + " nanos");
+        }
+        else {
+            ends[i] = now + (long) (costs[i] / threads[i]);
+            ensemble.printLineDebug(" Starting " + modules[i].getModuleName() + " " + remaining
+                    + " nanos before the deadline with " + threads[i] + " threads, expected to take " + (ends[i] - now) + " nanos");
+        }
+        started[i] = true;
+    }
+
+    private synchronized void finish(int i) {
+        finished[i] = true;
+        long now = System.nanoTime();
+        if (now < ends[i])
+            ensemble.printLineDebug(" " + modules[i].getModuleName() + " finished " + (ends[i] - now) + " nanos early");
+    }
+
+    public double getProbeProportion() {
+        return probeProportion;
+    }
+
+    public void setProbeProportion(double probeProportion) {
+        this.probeProportion = probeProportion;
+    }
+
+    public double getProbeDataProportion() {
+        return probeDataProportion;
+    }
+
+    public void setProbeDataProportion(double probeDataProportion) {
+        this.probeDataProportion = probeDataProportion;
+    }
+
+    public long getMinModuleContractNanos() {
+        return minModuleContractNanos;
+    }
+
+    public void setMinModuleContractNanos(long minModuleContractNanos) {
+        this.minModuleContractNanos = minModuleContractNanos;
+    }
+}
@@ -0,0 +1,96 @@
+package machine_learning.classifiers.ensembles;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Purpose: test how the module scheduler shares time and threads between modules, extrapolates the probe times and
+ * copies modules for probing.
+ */
+public class ModuleSchedulerTest {
+
+    @Test
+    public void testShareLevel() {
+        final boolean[] all = {true, true, true};
+        // enough time for every module
+        Assert.assertEquals(Double.POSITIVE_INFINITY, ModuleScheduler.shareLevel(100, new double[] {10, 20, 30}, all),
+            0);
+        // the cheapest gets its cost, the other two share the rest
+        Assert.assertEquals(25, ModuleScheduler.shareLevel(60, new double[] {10, 40, 30}, all), 1e-9);
+        // only the modules sharing count
+        Assert.assertEquals(30, ModuleScheduler.shareLevel(60, new double[] {10, 40, 30},
+            new boolean[] {false, true, true}), 1e-9);
+        // when the costs are unknown the time is shared equally
+        final double inf = Double.POSITIVE_INFINITY;
+        Assert.assertEquals(20, ModuleScheduler.shareLevel(60, new double[] {inf, inf, inf}, all), 1e-9);
+    }
+
+    @Test
+    public void testAllocateThreads() {
+        // fewer threads than modules, one each
+        Assert.assertArrayEquals(new int[] {1, 1, 1},
+            ModuleScheduler.allocateThreads(2, new double[] {10, 20, 30}, new boolean[] {true, true, true}));
+        // the spare threads go to the module which would otherwise finish last
+        Assert.assertArrayEquals(new int[] {1, 1, 4},
+            ModuleScheduler.allocateThreads(6, new double[] {10, 20, 80}, new boolean[] {true, true, true}));
+        Assert.assertArrayEquals(new int[] {1, 2, 3},
+            ModuleScheduler.allocateThreads(6, new double[] {10, 40, 60}, new boolean[] {true, true, true}));
+        // but never to a module which cannot use them
+        Assert.assertArrayEquals(new int[] {1, 4, 1},
+            ModuleScheduler.allocateThreads(6, new double[] {10, 40, 80}, new boolean[] {true, true, false}));
+        Assert.assertArrayEquals(new int[] {1, 1},
+            ModuleScheduler.allocateThreads(6, new double[] {10, 20}, new boolean[] {false, false}));
+    }
+
+    @Test
+    public void testExtrapolate() {
+        // quadratic scaling between the probes carries on to the full data
+        Assert.assertEquals(10000, ModuleScheduler.extrapolate(25, 10, 100, 20, 200), 1e-6);
+        // the scaling is bounded, here to linear
+        Assert.assertEquals(1000, ModuleScheduler.extrapolate(100, 10, 100, 20, 200), 1e-6);
+        // the default scaling when only the smaller probe worked
+        Assert.assertEquals(100 * Math.pow(4, 1.5), ModuleScheduler.extrapolate(100, 10, 0, 20, 40), 1e-6);
+        Assert.assertTrue(Double.isNaN(ModuleScheduler.extrapolate(0, 10, 0, 20, 40)));
+    }
+
+    private enum Mode {
+        FAST, SLOW
+    }
+
+    public static class TransientClassifier extends AbstractClassifier {
+        private transient int numIntervals = 1;
+        private transient String name = "default";
+        private transient Mode mode = Mode.SLOW;
+        private transient IntUnaryOperator finder = numAtts -> numAtts;
+        // not configuration, so left to its default
+        private transient List<Integer> built;
+
+        @Override
+        public void buildClassifier(final Instances data) {}
+    }
+
+    @Test
+    public void testCopyKeepsTransientConfiguration() throws Exception {
+        final TransientClassifier classifier = new TransientClassifier();
+        classifier.numIntervals = 5;
+        classifier.name = "configured";
+        classifier.mode = Mode.FAST;
+        classifier.finder = numAtts -> numAtts / 2;
+        classifier.built = new ArrayList<>();
+        final Classifier copy = ModuleScheduler.copy(classifier);
+        Assert.assertNotSame(classifier, copy);
+        final TransientClassifier transientCopy = (TransientClassifier) copy;
+        Assert.assertEquals(5, transientCopy.numIntervals);
+        Assert.assertEquals("configured", transientCopy.name);
+        Assert.assertEquals(Mode.FAST, transientCopy.mode);
+        Assert.assertEquals(5, transientCopy.finder.applyAsInt(10));
+        Assert.assertNull(transientCopy.built);
+    }
+}
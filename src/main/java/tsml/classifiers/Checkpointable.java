@@ -16,11 +16,10 @@ package tsml.classifiers;
 
 import tsml.classifiers.distance_based.utils.classifiers.CopierUtils;
 import utilities.FileUtils;
+import utilities.serialisation.Serialisation;
 
 import java.io.*;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * Interface that allows the user to allow a classifier to checkpoint, i.e. 
@@ -28,6 +27,7 @@ save its current state and then load it again to continue building the model on
 a separate run.
 
 By default this involves simply saving and loading a serialised the object 
+(see utilities.serialisation.Serialisation for the format and compression)
 
 known classifiers: none
 
@@ -55,19 +55,15 @@ public interface Checkpointable extends Serializable {
     //Override both if not using Java serialisation
     default void saveToFile(String filename) throws Exception {
         try (FileUtils.FileLock fileLocker = new FileUtils.FileLock(filename);
-             FileOutputStream fos = new FileOutputStream(fileLocker.getFile());
-             GZIPOutputStream gos = new GZIPOutputStream(fos);
-             ObjectOutputStream out = new ObjectOutputStream(gos)) {
-            out.writeObject(this);
+             FileOutputStream out = new FileOutputStream(fileLocker.getFile())) {
+            Serialisation.write(this, out);
         }
     }
     default void loadFromFile(String filename) throws Exception{
         Object obj = null;
         try (FileUtils.FileLock fileLocker = new FileUtils.FileLock(filename);
-             FileInputStream fis = new FileInputStream(fileLocker.getFile());
-             GZIPInputStream gis = new GZIPInputStream(fis);
-             ObjectInputStream in = new ObjectInputStream(gis)) {
-            obj = in.readObject();
+             FileInputStream in = new FileInputStream(fileLocker.getFile())) {
+            obj = Serialisation.read(in);
         }
         if(obj != null) {
             copyFromSerObject(obj);
@@ -24,6 +24,9 @@ import java.util.Random;
 import evaluation.storage.ClassifierResults;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
 import weka.core.*;
 
 /**
@@ -188,6 +191,9 @@ abstract public class EnhancedAbstractClassifier extends AbstractClassifier impl
     public void buildClassifier(final Instances trainData) throws
                                                                 Exception {
         trainResults = new ClassifierResults();
+        // built through the weka API, so any header kept from a TimeSeriesInstances build no longer describes the data.
+        tsTrainHeader = null;
+        tsConverter = null;
         rand.setSeed(seed);
         numClasses = trainData.numClasses();
         trainResults.setClassifierName(getClassifierName());
@@ -197,6 +203,51 @@ abstract public class EnhancedAbstractClassifier extends AbstractClassifier impl
         }
     }
 
+    /**
+     * Header (no instances) of the data given to buildClassifier(TimeSeriesInstances). Test TimeSeriesInstance
+     * objects are converted against it with a single array copy, rather than rebuilding the attribute information
+     * on every call. It is set once the build has finished and cleared by buildClassifier(Instances), so a rebuild
+     * through the weka API does not leave a stale header behind.
+     */
+    protected Instances tsTrainHeader;
+    // converts test instances against tsTrainHeader, built on demand
+    private transient Converter.HeaderConverter tsConverter;
+
+    @Override
+    public void buildClassifier(final TimeSeriesInstances trainData) throws Exception {
+        final Instances converted = Converter.toArff(trainData);
+        buildClassifier(converted);
+        tsTrainHeader = new Instances(converted, 0);
+        tsConverter = null;
+    }
+
+    @Override
+    public double[] distributionForInstance(final TimeSeriesInstance instance) throws Exception {
+        return distributionForInstance(toArff(instance));
+    }
+
+    @Override
+    public double classifyInstance(final TimeSeriesInstance instance) throws Exception {
+        return classifyInstance(toArff(instance));
+    }
+
+    /**
+     * @param instance
+     * @return the instance as a weka Instance belonging to the train header, if there is one.
+     * @throws IllegalArgumentException if the instance does not fit the train header, e.g. a longer series.
+     */
+    protected Instance toArff(final TimeSeriesInstance instance) {
+        if(tsTrainHeader == null) {
+            return Converter.toArff(instance);
+        }
+        Converter.HeaderConverter converter = tsConverter;
+        if(converter == null || converter.getHeader() != tsTrainHeader) {
+            converter = new Converter.HeaderConverter(tsTrainHeader);
+            tsConverter = converter;
+        }
+        return converter.toArff(instance);
+    }
+
     public EnhancedAbstractClassifier() {
         this(false);
     }
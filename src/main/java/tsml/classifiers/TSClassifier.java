@@ -25,7 +25,7 @@ public interface TSClassifier{
         double[][] out = new double[data.numInstances()][];
         int i=0;
         for(TimeSeriesInstance inst : data)
-            out[i++] = getClassifier().distributionForInstance(Converter.toArff(inst));
+            out[i++] = distributionForInstance(inst);
         return out;
     }
 
@@ -33,7 +33,7 @@ public interface TSClassifier{
         double[] out = new double[data.numInstances()];
         int i=0;
         for(TimeSeriesInstance inst : data)
-            out[i++] = getClassifier().classifyInstance(Converter.toArff(inst));
+            out[i++] = classifyInstance(inst);
         return out;
     }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package tsml.classifiers;
+
+/**
+ * Interface for classifiers whose transforms can be cached on disk (see FileCachedTransformer), so repeated
+ * experiments applying the same transform to the same data skip the transform stage.
+ */
+public interface TransformCacheable {
+
+    /**
+     * @param path the directory to cache transforms in, or null to not cache
+     */
+    boolean setTransformCachePath(String path);
+}
@@ -16,7 +16,9 @@ package tsml.classifiers.dictionary_based;
 
 import experiments.data.DatasetLoading;
 import tsml.classifiers.EnhancedAbstractClassifier;
+import tsml.classifiers.TransformCacheable;
 import tsml.transformers.BagOfPatterns;
+import tsml.transformers.FileCachedTransformer;
 import tsml.transformers.SAX;
 import utilities.ClassifierTools;
 import machine_learning.classifiers.kNN;
@@ -36,7 +38,7 @@ import java.util.List;
  * 
  * @author James
  */
-public class BagOfPatternsClassifier extends EnhancedAbstractClassifier implements TechnicalInformationHandler {
+public class BagOfPatternsClassifier extends EnhancedAbstractClassifier implements TechnicalInformationHandler, TransformCacheable {
 
     @Override
     public TechnicalInformation getTechnicalInformation() {
@@ -65,6 +67,7 @@ public class BagOfPatternsClassifier extends EnhancedAbstractClassifier implemen
     private List<String> alphabet;
     
     private final boolean useParamSearch; //does user want parameter search to be performed
+    private String transformCachePath = null; //directory to cache the fitted bop and transformed data in, if any
     
     /**
      * No params given, do parameter search
@@ -116,6 +119,12 @@ public class BagOfPatternsClassifier extends EnhancedAbstractClassifier implemen
     public int[] getParameterArray() {
         return new int[] { PAA_intervalsPerWindow, SAX_alphabetSize, windowSize};
     }
+
+    @Override
+    public boolean setTransformCachePath(String path) {
+        transformCachePath = path;
+        return true;
+    }
     
     /**
      * Performs cross validation on given data for varying parameter values, returns 
@@ -208,7 +217,16 @@ public class BagOfPatternsClassifier extends EnhancedAbstractClassifier implemen
                     + windowSize + " (series length "+ (data.numAttributes()-1) + ")");
         
         //real work
-        matrix = bop.fitTransform(data); //transform
+        if (transformCachePath != null) {
+            FileCachedTransformer cachedBop = new FileCachedTransformer(bop, transformCachePath);
+            long cacheStartTime = System.currentTimeMillis();
+            matrix = cachedBop.fitTransform(data);
+            bop = (BagOfPatterns) cachedBop.getTransformer();
+            //on a cache hit, count the time the transform originally took rather than the time to read it back
+            startTime -= cachedBop.getTransformTime() / 1000000 - (System.currentTimeMillis() - cacheStartTime);
+        }
+        else
+            matrix = bop.fitTransform(data); //transform
         knn.buildClassifier(matrix); //give to 1nn
         trainResults.setBuildTime(System.currentTimeMillis()-startTime);
         
@@ -16,7 +16,9 @@ package tsml.classifiers.dictionary_based;
 
 import experiments.data.DatasetLoading;
 import tsml.classifiers.EnhancedAbstractClassifier;
+import tsml.classifiers.TransformCacheable;
 import tsml.transformers.BagOfPatterns;
+import tsml.transformers.FileCachedTransformer;
 import utilities.ClassifierTools;
 import weka.core.Capabilities;
 import weka.core.Instance;
@@ -41,7 +43,7 @@ year="2013"
 
  * @author James Large
  */
-public class SAXVSM extends EnhancedAbstractClassifier implements TechnicalInformationHandler{
+public class SAXVSM extends EnhancedAbstractClassifier implements TechnicalInformationHandler, TransformCacheable {
 
     Instances transformedData;
     Instances corpus;
@@ -52,6 +54,7 @@ public class SAXVSM extends EnhancedAbstractClassifier implements TechnicalInfor
     private int windowSize;
     
     private final boolean useParamSearch; //does user want parameter search to be performed
+    private String transformCachePath = null; //directory to cache the fitted bop and transformed data in, if any
  
      public TechnicalInformation getTechnicalInformation() {
         TechnicalInformation 	result;
@@ -103,6 +106,12 @@ public class SAXVSM extends EnhancedAbstractClassifier implements TechnicalInfor
     public int getWindowSize() {
         return windowSize;
     }
+
+    @Override
+    public boolean setTransformCachePath(String path) {
+        transformCachePath = path;
+        return true;
+    }
     
     /**
      * @return { numIntervals(word length), alphabetSize, slidingWindowSize } 
@@ -199,7 +208,16 @@ public class SAXVSM extends EnhancedAbstractClassifier implements TechnicalInfor
             throw new Exception("SAXVSM_BuildClassifier: Invalid sliding window size: " 
                     + windowSize + " (series length "+ (data.numAttributes()-1) + ")");
         
-        transformedData = bop.fitTransform(data);
+        if (transformCachePath != null) {
+            FileCachedTransformer cachedBop = new FileCachedTransformer(bop, transformCachePath);
+            long cacheStartTime = System.currentTimeMillis();
+            transformedData = cachedBop.fitTransform(data);
+            bop = (BagOfPatterns) cachedBop.getTransformer();
+            //on a cache hit, count the time the transform originally took rather than the time to read it back
+            startTime -= cachedBop.getTransformTime() / 1000000 - (System.currentTimeMillis() - cacheStartTime);
+        }
+        else
+            transformedData = bop.fitTransform(data);
         
         corpus = tfxidf(transformedData);
         trainResults.setBuildTime(System.currentTimeMillis()-startTime);
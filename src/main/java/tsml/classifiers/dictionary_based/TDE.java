@@ -20,6 +20,8 @@ import tsml.classifiers.*;
 import utilities.ClassifierTools;
 import utilities.samplers.RandomIndexSampler;
 import utilities.samplers.Sampler;
+import utilities.serialisation.Compression;
+import utilities.serialisation.Serialisation;
 import weka.classifiers.functions.GaussianProcesses;
 import weka.core.*;
 
@@ -277,9 +279,8 @@ public class TDE extends EnhancedAbstractClassifier implements TrainTimeContract
                 if (!checkpointIDs[n].contains(i)) {
                     System.out.println("Loading IndividualTDE" + n + "-" + i + ".ser");
 
-                    FileInputStream fis = new FileInputStream(checkpointPath + "IndividualTDE" + n + "-" + i + ".ser");
-                    try (ObjectInputStream in = new ObjectInputStream(fis)) {
-                        Object indv = in.readObject();
+                    try (FileInputStream in = new FileInputStream(checkpointPath + "IndividualTDE" + n + "-" + i + ".ser")) {
+                        Object indv = Serialisation.read(in);
 
                         if (!(indv instanceof IndividualTDE))
                             throw new Exception("The SER file " + n + "-" + i + " is not an instance of IndividualTDE");
@@ -590,12 +591,9 @@ public class TDE extends EnhancedAbstractClassifier implements TrainTimeContract
             checkpointTime = System.nanoTime();
 
             if (saveIndiv) {
-                FileOutputStream fos = new FileOutputStream(checkpointPath + "IndividualTDE"
-                        + seriesNo + "-" + classifier.getEnsembleID() + ".ser");
-                try (ObjectOutputStream out = new ObjectOutputStream(fos)) {
-                    out.writeObject(classifier);
-                    out.close();
-                    fos.close();
+                try (FileOutputStream out = new FileOutputStream(checkpointPath + "IndividualTDE"
+                        + seriesNo + "-" + classifier.getEnsembleID() + ".ser")) {
+                    Serialisation.write(classifier, out, Compression.NONE);
                 }
             }
 
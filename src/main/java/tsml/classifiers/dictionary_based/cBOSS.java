@@ -20,8 +20,6 @@ import tsml.classifiers.*;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutorService;
@@ -30,6 +28,8 @@ import java.util.concurrent.Executors;
 import tsml.classifiers.MemoryContractable;
 import utilities.*;
 import utilities.samplers.*;
+import utilities.serialisation.Compression;
+import utilities.serialisation.Serialisation;
 import weka.classifiers.functions.GaussianProcesses;
 import weka.core.*;
 import evaluation.storage.ClassifierResults;
@@ -350,9 +350,8 @@ public class cBOSS extends EnhancedAbstractClassifier implements TrainTimeContra
             for (int i = 0; i < saved.numClassifiers[n]; i++) {
                 System.out.println("Loading cBOSSIndividual" + seed + n + "-" + i + ".ser");
 
-                FileInputStream fis = new FileInputStream(checkpointPath + "cBOSSIndividual" + seed + n + "-" + i + ".ser");
-                try (ObjectInputStream in = new ObjectInputStream(fis)) {
-                    Object indv = in.readObject();
+                try (FileInputStream in = new FileInputStream(checkpointPath + "cBOSSIndividual" + seed + n + "-" + i + ".ser")) {
+                    Object indv = Serialisation.read(in);
 
                     if (!(indv instanceof IndividualBOSS))
                         throw new Exception("The SER file " + n + "-" + i + " is not an instance of cBOSSIndividual");
@@ -815,11 +814,8 @@ public class cBOSS extends EnhancedAbstractClassifier implements TrainTimeContra
                         //save the last build individual classifier
                         IndividualBOSS indiv = classifiers[seriesNo].get(classifierNo);
 
-                        FileOutputStream fos = new FileOutputStream(checkpointPath + "cBOSSIndividual" + seed + seriesNo + "-" + classifierNo + ".ser");
-                        try (ObjectOutputStream out = new ObjectOutputStream(fos)) {
-                            out.writeObject(indiv);
-                            out.close();
-                            fos.close();
+                        try (FileOutputStream out = new FileOutputStream(checkpointPath + "cBOSSIndividual" + seed + seriesNo + "-" + classifierNo + ".ser")) {
+                            Serialisation.write(indiv, out, Compression.NONE);
                         }
                     }
                 }
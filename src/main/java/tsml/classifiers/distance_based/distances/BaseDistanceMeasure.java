@@ -1,8 +1,13 @@
 package tsml.classifiers.distance_based.distances;
 
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.junit.Assert;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
 import tsml.classifiers.distance_based.utils.strings.StrUtils;
+import utilities.InstanceTools;
+import weka.core.DenseInstance;
 import weka.core.DistanceFunction;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -39,6 +44,9 @@ public abstract class BaseDistanceMeasure implements DistanceMeasure {
     // whether to invert the distance measure. false --> the smaller the distance the more similar. true --> the
     // larger the distance the more similar
     private boolean invert;
+    // the headers raw series are wrapped in by toInstance(), by series length. A header is never changed once built,
+    // so is shared between threads
+    private static final ConcurrentMap<Integer, Instances> SERIES_HEADERS = new ConcurrentHashMap<>();
 
     @Override
     public String toString() {
@@ -107,7 +115,61 @@ public abstract class BaseDistanceMeasure implements DistanceMeasure {
         return findDistance(a, b, limit);
     }
 
-    protected abstract double findDistance(final Instance a, final Instance b, final double limit);
+    /**
+     * find the distance between two instances. By default the series are extracted from the instances (dropping the
+     * class value) and passed to the primitive findDistance(double[], double[], double). Measures which cannot work on
+     * raw series (e.g. those which transform the instance first) override this instead.
+     */
+    protected double findDistance(final Instance a, final Instance b, final double limit) {
+        return findDistance(extractSeries(a), extractSeries(b), limit);
+    }
+
+    @Override
+    public final double distance(final double[] a, final double[] b) {
+        return distance(a, b, getMaxDistance());
+    }
+
+    @Override
+    public final double distance(double[] a, double[] b, final double limit) {
+        // put a as the longest time series
+        if(longestInstanceFirst && b.length > a.length) {
+            double[] tmp = a;
+            a = b;
+            b = tmp;
+        }
+        return findDistance(a, b, limit);
+    }
+
+    /**
+     * find the distance between two raw series, neither of which contain a class value. Measures which only work on
+     * instances can implement this by wrapping each series with toInstance() and passing them to
+     * findDistance(Instance, Instance, double).
+     */
+    protected abstract double findDistance(final double[] a, final double[] b, final double limit);
+
+    /**
+     * wrap a raw series as an instance with a class value of 0 at the end. The header is built once per series length
+     * and shared.
+     */
+    protected static Instance toInstance(final double[] series) {
+        final Instances header = SERIES_HEADERS.computeIfAbsent(series.length,
+            length -> new Instances(InstanceTools.toWekaInstances(new double[][] {new double[length]},
+                new double[] {0}), 0));
+        final Instance instance = new DenseInstance(1, Arrays.copyOf(series, series.length + 1));
+        instance.setDataset(header);
+        return instance;
+    }
+
+    /**
+     * get the series values of an instance, excluding the class value at the end.
+     */
+    protected static double[] extractSeries(final Instance instance) {
+        final double[] series = new double[instance.numAttributes() - 1];
+        for(int i = 0; i < series.length; i++) {
+            series[i] = instance.value(i);
+        }
+        return series;
+    }
 
     @Override
     public final double distance(final Instance a, final Instance b, final double limit, final PerformanceStats stats) {
@@ -21,6 +21,11 @@ public interface DistanceMeasure extends Serializable, DistanceFunction, ParamHa
 
     double distance(final Instance a, final Instance b, final double limit);
 
+    // distance between two raw series. Neither series should contain a class value
+    double distance(final double[] a, final double[] b);
+
+    double distance(final double[] a, final double[] b, final double limit);
+
     @Override
     double distance(final Instance a, final Instance b, final PerformanceStats stats)
         throws Exception;
@@ -18,4 +18,12 @@ public abstract class DoubleMatrixBasedDistanceMeasure extends MatrixBasedDistan
     public void cleanDistanceMatrix() {
         matrix = null;
     }
+
+    /**
+     * cheaper than Math.min, which handles NaN and -0.0 at the cost of a few extra branches per cell. Costs are only
+     * ever NaN for series with missing values, which the elastic measures don't support.
+     */
+    protected static double min(double a, double b) {
+        return a <= b ? a : b;
+    }
 }
@@ -0,0 +1,30 @@
+package tsml.classifiers.distance_based.distances;
+
+import java.io.Serializable;
+import weka.core.DistanceFunction;
+import weka.core.Instances;
+
+/**
+ * A lower bound on the distance between a query series and each series of some fitted (e.g. train) data. Anything
+ * which only depends upon the fitted series (e.g. envelopes) is precomputed in fit(), so bounding a query against a
+ * fitted series is cheap in comparison to finding the distance itself.
+ */
+public interface LowerBound extends Serializable {
+
+    /**
+     * whether this lower bound is valid for the given distance function, i.e. never exceeds the distance it produces.
+     */
+    boolean isCompatible(DistanceFunction distanceFunction);
+
+    /**
+     * fit to the given data, precomputing anything needed to bound queries against each instance. The distance
+     * function must be compatible.
+     */
+    void fit(DistanceFunction distanceFunction, Instances data);
+
+    /**
+     * find the lower bound between the query series (without class value) and the fitted series at the given index.
+     * Once the bound exceeds the limit it may be abandoned, in which case any value above the limit is returned.
+     */
+    double lowerBound(double[] query, int index, double limit);
+}
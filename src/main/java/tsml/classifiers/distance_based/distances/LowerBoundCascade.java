@@ -0,0 +1,67 @@
+package tsml.classifiers.distance_based.distances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import weka.core.DistanceFunction;
+import weka.core.Instances;
+
+/**
+ * A sequence of lower bounds, ordered from cheapest to most expensive (and typically tightest). Each bound is only
+ * computed if all the cheaper ones are within the limit, and the tightest bound found is returned. The first (cheapest)
+ * bound can also be used on its own to order candidates before searching them.
+ */
+public class LowerBoundCascade implements LowerBound {
+
+    private static final long serialVersionUID = 0;
+    private final List<LowerBound> lowerBounds;
+
+    public LowerBoundCascade(LowerBound... lowerBounds) {
+        this(Arrays.asList(lowerBounds));
+    }
+
+    public LowerBoundCascade(List<LowerBound> lowerBounds) {
+        if(lowerBounds.isEmpty()) {
+            throw new IllegalArgumentException("cascade must contain at least one lower bound");
+        }
+        this.lowerBounds = new ArrayList<>(lowerBounds);
+    }
+
+    public List<LowerBound> getLowerBounds() {
+        return Collections.unmodifiableList(lowerBounds);
+    }
+
+    @Override public boolean isCompatible(final DistanceFunction distanceFunction) {
+        for(LowerBound lowerBound : lowerBounds) {
+            if(!lowerBound.isCompatible(distanceFunction)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override public void fit(final DistanceFunction distanceFunction, final Instances data) {
+        for(LowerBound lowerBound : lowerBounds) {
+            lowerBound.fit(distanceFunction, data);
+        }
+    }
+
+    @Override public double lowerBound(final double[] query, final int index, final double limit) {
+        double max = 0;
+        for(LowerBound lowerBound : lowerBounds) {
+            max = Math.max(max, lowerBound.lowerBound(query, index, limit));
+            if(max > limit) {
+                break;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * the cheapest lower bound in the cascade, never abandoned.
+     */
+    public double cheapestLowerBound(final double[] query, final int index) {
+        return lowerBounds.get(0).lowerBound(query, index, Double.POSITIVE_INFINITY);
+    }
+}
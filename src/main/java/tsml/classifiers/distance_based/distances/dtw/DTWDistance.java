@@ -4,7 +4,6 @@ package tsml.classifiers.distance_based.distances.dtw;
 import tsml.classifiers.distance_based.distances.DoubleMatrixBasedDistanceMeasure;
 import tsml.classifiers.distance_based.distances.WarpingParameter;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import weka.core.Instance;
 
 /**
  * DTW distance measure.
@@ -17,10 +16,10 @@ public class DTWDistance extends DoubleMatrixBasedDistanceMeasure implements DTW
     public static final String WINDOW_SIZE_PERCENTAGE_FLAG = WarpingParameter.WINDOW_SIZE_PERCENTAGE_FLAG;
     private final WarpingParameter warpingParameter = new WarpingParameter();
 
-    @Override protected double findDistance(final Instance a, final Instance b, final double limit) {
+    @Override protected double findDistance(final double[] a, final double[] b, final double limit) {
 
-        int aLength = a.numAttributes() - 1;
-        int bLength = b.numAttributes() - 1;
+        int aLength = a.length;
+        int bLength = b.length;
 
         final boolean generateDistanceMatrix = isGenerateDistanceMatrix();
         final double[][] matrix = generateDistanceMatrix ? new double[aLength][bLength] : null;
@@ -33,9 +32,11 @@ public class DTWDistance extends DoubleMatrixBasedDistanceMeasure implements DTW
         double[] row = new double[bLength];
         double[] prevRow = new double[bLength];
         // top left cell of matrix will simply be the sq diff
-        // min can be init'd to the top left cell
-        double min = Math.pow(a.value(0) - b.value(0), 2);
-        row[0] = min;
+        // rowMin can be init'd to the top left cell
+        final double a0 = a[0];
+        double diff = a0 - b[0];
+        double rowMin = diff * diff;
+        row[0] = rowMin;
         // start and end of window
         // start at the next cell of the first row
         int start = 1;
@@ -48,15 +49,16 @@ public class DTWDistance extends DoubleMatrixBasedDistanceMeasure implements DTW
         }
         // the first row is populated from the sq diff + the cell before
         for(int j = start; j <= end; j++) {
-            double cost = row[j - 1] + Math.pow(a.value(0) - b.value(j), 2);
+            diff = a0 - b[j];
+            double cost = row[j - 1] + diff * diff;
             row[j] = cost;
-            min = Math.min(min, cost);
+            rowMin = Math.min(rowMin, cost);
         }
         if(generateDistanceMatrix) {
             System.arraycopy(row, 0, matrix[0], 0, row.length);
         }
         // early abandon if work has been done populating the first row for >1 entry
-        if(min > limit) {
+        if(rowMin > limit) {
             return Double.POSITIVE_INFINITY;
         }
         for(int i = 1; i < aLength; i++) {
@@ -67,7 +69,7 @@ public class DTWDistance extends DoubleMatrixBasedDistanceMeasure implements DTW
                 row = temp;
             }
             // reset the insideLimit var each row. if all values for a row are above the limit then early abandon
-            min = Double.POSITIVE_INFINITY;
+            rowMin = Double.POSITIVE_INFINITY;
             // start and end of window
             start = Math.max(0, i - windowSize);
             end = Math.min(bLength - 1, i + windowSize);
@@ -79,27 +81,33 @@ public class DTWDistance extends DoubleMatrixBasedDistanceMeasure implements DTW
             if(end + 1 < bLength) {
                 row[end + 1] = Double.POSITIVE_INFINITY;
             }
+            final double ai = a[i];
             // if assessing the left most column then only top is the option - not left or left-top
             if(start == 0) {
-                final double cost = prevRow[start] + Math.pow(a.value(i) - b.value(0), 2);
+                diff = ai - b[0];
+                final double cost = prevRow[start] + diff * diff;
                 row[start] = cost;
-                min = Math.min(min, cost);
+                rowMin = Math.min(rowMin, cost);
                 // shift to next cell
                 start++;
             }
+            // carry the left and top-left cells between iterations rather than reading them back from the rows
+            double left = row[start - 1];
+            double topLeft = prevRow[start - 1];
             for(int j = start; j <= end; j++) {
                 // compute squared distance of feature vectors
-                final double topLeft = prevRow[j - 1];
-                final double left = row[j - 1];
                 final double top = prevRow[j];
-                final double cost = Math.min(top, Math.min(left, topLeft)) + Math.pow(a.value(i) - b.value(j), 2);
+                diff = ai - b[j];
+                final double cost = min(top, min(left, topLeft)) + diff * diff;
                 row[j] = cost;
-                min = Math.min(min, cost);
+                rowMin = min(rowMin, cost);
+                left = cost;
+                topLeft = top;
             }
             if(generateDistanceMatrix) {
                 System.arraycopy(row, 0, matrix[i], 0, row.length);
             }
-            if(min > limit) {
+            if(rowMin > limit) {
                 return Double.POSITIVE_INFINITY;
             }
         }
@@ -1,5 +1,6 @@
 package tsml.classifiers.distance_based.distances.dtw;
 
+import tsml.classifiers.distance_based.distances.LowerBoundCascade;
 import tsml.classifiers.distance_based.distances.WarpingDistanceMeasure;
 import tsml.classifiers.distance_based.distances.transformed.BaseTransformDistanceMeasure;
 import tsml.classifiers.distance_based.distances.transformed.TransformDistanceMeasure;
@@ -73,6 +74,48 @@ public class DTWDistanceConfigs {
         }
     }
 
+    public static class EAPrunedDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildEAPrunedDTWSpace(data);
+        }
+    }
+
+    public static class FullWindowEAPrunedDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildFullWindowEAPrunedDTWSpace();
+        }
+    }
+
+    public static class RestrictedContinuousEAPrunedDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildRestrictedContinuousEAPrunedDTWSpace(data);
+        }
+    }
+
+    public static class EAPrunedDDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildEAPrunedDDTWSpace(data);
+        }
+    }
+
+    public static class FullWindowEAPrunedDDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildFullWindowEAPrunedDDTWSpace();
+        }
+    }
+
+    public static class RestrictedContinuousEAPrunedDDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildRestrictedContinuousEAPrunedDDTWSpace(data);
+        }
+    }
+
     /**
      * param space containing full derivative DTW params (i.e. full window)
      *
@@ -93,6 +136,15 @@ public class DTWDistanceConfigs {
         return new BaseTransformDistanceMeasure("DDTWDistance", Derivative.getGlobalCachedTransformer(), new DTWDistance());
     }
 
+    /**
+     * build the cascade of lower bounds for DTW, cheapest first: LB_Kim, LB_Keogh then LB_Enhanced
+     *
+     * @return
+     */
+    public static LowerBoundCascade newDTWLowerBoundCascade() {
+        return new LowerBoundCascade(new KimLowerBound(), new KeoghLowerBound(), new EnhancedLowerBound());
+    }
+
     /**
      * Build DTW space with corresponding params. This includes ED and Full DTW
      * @param instances
@@ -190,4 +242,51 @@ public class DTWDistanceConfigs {
         return params;
     }
 
+    /**
+     * build DDTW which prunes and early abandons
+     *
+     * @return
+     */
+    public static TransformDistanceMeasure newEAPrunedDDTWDistance() {
+        return new BaseTransformDistanceMeasure("EAPrunedDDTWDistance", Derivative.getGlobalCachedTransformer(),
+                new EAPrunedDTWDistance());
+    }
+
+    /**
+     * The same as the DTW spaces, but with the pruned and early abandoning DTW. The distances are identical
+     * whenever they are within the limit given to the distance measure.
+     *
+     * @param instances
+     * @return
+     */
+    public static ParamSpace buildEAPrunedDTWSpace(Instances instances) {
+        return new ParamSpace().add(DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedDTWDistance()),
+                buildDTWParams(instances));
+    }
+
+    public static ParamSpace buildFullWindowEAPrunedDTWSpace() {
+        return new ParamSpace().add(DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedDTWDistance()),
+                buildFullWindowDTWParams());
+    }
+
+    public static ParamSpace buildRestrictedContinuousEAPrunedDTWSpace(Instances data) {
+        return new ParamSpace().add(DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedDTWDistance()),
+                buildRestrictedContinuousDTWParams(data));
+    }
+
+    public static ParamSpace buildEAPrunedDDTWSpace(Instances instances) {
+        return new ParamSpace().add(DISTANCE_MEASURE_FLAG, newArrayList(newEAPrunedDDTWDistance()),
+                buildDTWParams(instances));
+    }
+
+    public static ParamSpace buildFullWindowEAPrunedDDTWSpace() {
+        return new ParamSpace().add(DISTANCE_MEASURE_FLAG, newArrayList(newEAPrunedDDTWDistance()),
+                buildFullWindowDTWParams());
+    }
+
+    public static ParamSpace buildRestrictedContinuousEAPrunedDDTWSpace(Instances data) {
+        return new ParamSpace().add(DISTANCE_MEASURE_FLAG, newArrayList(newEAPrunedDDTWDistance()),
+                buildRestrictedContinuousDTWParams(data));
+    }
+
 }
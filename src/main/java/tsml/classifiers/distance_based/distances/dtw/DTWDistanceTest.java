@@ -1,17 +1,25 @@
 package tsml.classifiers.distance_based.distances.dtw;
 
+import experiments.data.DatasetLoading;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import tsml.classifiers.distance_based.distances.erp.ERPDistance;
+import tsml.classifiers.distance_based.distances.transformed.BaseTransformDistanceMeasure;
 import tsml.classifiers.distance_based.distances.erp.ERPDistanceConfigs;
 import tsml.classifiers.distance_based.distances.erp.ERPDistanceTest;
 import tsml.classifiers.distance_based.distances.erp.ERPDistanceTest.DistanceTester;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSpace;
 import tsml.classifiers.distance_based.utils.collections.params.iteration.GridSearchIterator;
+import tsml.transformers.Derivative;
 import utilities.InstanceTools;
+import utilities.ThreadingUtilities;
 import weka.core.Instance;
 import weka.core.Instances;
 
@@ -71,6 +79,90 @@ public class DTWDistanceTest {
         Assert.assertEquals(distance, 212, 0);
     }
 
+    @Test
+    public void testArrays() {
+        df.setWindowSize(2);
+        double distance = df.distance(new double[] {1,2,3,4,5}, new double[] {6,11,15,2,7});
+        Assert.assertEquals(distance, 212, 0);
+    }
+
+    @Test
+    public void testArraysMatchInstances() {
+        final Instances data = ERPDistanceTest.buildRandomDataset(new Random(0), -5, 5, 50, 5, 2);
+        df.setInstances(data);
+        df.setWindowSize(5);
+        // cycle through more instances than the extracted series cache holds
+        for(int i = 0; i < data.size(); i++) {
+            for(int j = 0; j < data.size(); j++) {
+                final Instance a = data.get(i);
+                final Instance b = data.get(j);
+                final double[] aSeries = Arrays.copyOf(a.toDoubleArray(), a.numAttributes() - 1);
+                final double[] bSeries = Arrays.copyOf(b.toDoubleArray(), b.numAttributes() - 1);
+                Assert.assertEquals(df.distance(aSeries, bSeries), df.distance(a, b), 0);
+                Assert.assertEquals(origDtw(a, b, Double.POSITIVE_INFINITY, 5), df.distance(a, b), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testArraysThroughInstanceMeasure() {
+        // the transform measure only implements the instance form, so raw series are wrapped as instances
+        final Instances data = ERPDistanceTest.buildRandomDataset(new Random(0), -5, 5, 10, 5, 2);
+        final BaseTransformDistanceMeasure ddtw = new BaseTransformDistanceMeasure("DDTWDistance", new Derivative(),
+                new DTWDistance());
+        ddtw.setInstances(data);
+        for(int i = 0; i < data.size(); i++) {
+            for(int j = 0; j < data.size(); j++) {
+                final Instance a = data.get(i);
+                final Instance b = data.get(j);
+                final double[] aSeries = Arrays.copyOf(a.toDoubleArray(), a.numAttributes() - 1);
+                final double[] bSeries = Arrays.copyOf(b.toDoubleArray(), b.numAttributes() - 1);
+                Assert.assertEquals(ddtw.distance(a, b), ddtw.distance(aSeries, bSeries), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws Exception {
+        // one measure used by several threads at once, as by a multithreaded KNN
+        final Instances data = ERPDistanceTest.buildRandomDataset(new Random(0), -5, 5, 20, 10, 2);
+        final DTWDistance df = new DTWDistance();
+        df.setWindowSize(3);
+        df.setInstances(data);
+        final double[][] expected = new double[data.size()][data.size()];
+        for(int i = 0; i < data.size(); i++) {
+            for(int j = 0; j < data.size(); j++) {
+                expected[i][j] = df.distance(data.get(i), data.get(j));
+            }
+        }
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            final int offset = t;
+            tasks.add(() -> {
+                for(int r = 0; r < 50; r++) {
+                    for(int i = 0; i < data.size(); i++) {
+                        final int j = (i + offset + r) % data.size();
+                        Assert.assertEquals(expected[i][j], df.distance(data.get(i), data.get(j)), 0);
+                    }
+                }
+                return null;
+            });
+        }
+        ThreadingUtilities.runTasks(4, tasks);
+    }
+
+    @Test
+    public void testEAPruned() throws Exception {
+        final Instances data = DatasetLoading.loadItalyPowerDemand();
+        for(int window : new int[] {0, 3, -1}) {
+            final DTWDistance full = new DTWDistance();
+            full.setWindowSize(window);
+            final EAPrunedDTWDistance pruned = new EAPrunedDTWDistance();
+            pruned.setWindowSize(window);
+            ERPDistanceTest.testPrunedDistances(full, pruned, data, window < 0);
+        }
+    }
+
     private static DistanceTester buildDistanceFinder() {
         return new DistanceTester() {
             private ParamSpace space;
@@ -0,0 +1,97 @@
+package tsml.classifiers.distance_based.distances.dtw;
+
+import tsml.classifiers.distance_based.distances.LowerBound;
+import utilities.InstanceTools;
+import weka.core.DistanceFunction;
+import weka.core.Instances;
+
+/**
+ * Base class for lower bounds on DTWDistance. The fitted series and the window size DTW would use for each are kept
+ * after fitting, subclasses precompute anything further via fitSeries().
+ * <p>
+ * The fitted data is transient, as with the train data in KNN, so must be refitted after deserialisation.
+ */
+public abstract class DTWLowerBound implements LowerBound {
+
+    private static final long serialVersionUID = 0;
+    private transient double[][] series;
+    private transient int[] windowSizes;
+
+    @Override public boolean isCompatible(final DistanceFunction distanceFunction) {
+        // subclasses of DTWDistance (e.g. EAPrunedDTWDistance) produce identical distances so are also bounded
+        return distanceFunction instanceof DTWDistance;
+    }
+
+    @Override public void fit(final DistanceFunction distanceFunction, final Instances data) {
+        if(!isCompatible(distanceFunction)) {
+            throw new IllegalArgumentException(getClass().getSimpleName() + " cannot bound " + distanceFunction);
+        }
+        final DTWDistance dtw = (DTWDistance) distanceFunction;
+        series = new double[data.size()][];
+        windowSizes = new int[data.size()];
+        for(int i = 0; i < data.size(); i++) {
+            series[i] = InstanceTools.ConvertInstanceToArrayRemovingClassValue(data.get(i));
+            windowSizes[i] = Math.min(series[i].length - 1, dtw.findWindowSize(series[i].length));
+            fitSeries(i, series[i], windowSizes[i]);
+        }
+    }
+
+    /**
+     * precompute anything needed to bound against the fitted series at the given index.
+     */
+    protected void fitSeries(int index, double[] series, int windowSize) {
+
+    }
+
+    protected double[] getSeries(int index) {
+        return series[index];
+    }
+
+    protected int getWindowSize(int index) {
+        return windowSizes[index];
+    }
+
+    protected int size() {
+        return series.length;
+    }
+
+    /**
+     * find the upper and lower envelope of a series, i.e. the max and min value within the window either side of each
+     * point. This uses a pair of monotonic queues (Lemire, 2009) so is linear in the length of the series regardless of
+     * the window size.
+     */
+    public static void findEnvelope(final double[] series, final int windowSize, final double[] upper,
+        final double[] lower) {
+        final int length = series.length;
+        // indices of decreasing values for the max, increasing values for the min
+        final int[] maxQueue = new int[length];
+        final int[] minQueue = new int[length];
+        int maxHead = 0, maxTail = 0, minHead = 0, minTail = 0;
+        int next = 0;
+        for(int i = 0; i < length; i++) {
+            // bring the leading edge of the window up to i + windowSize
+            final int end = Math.min(length - 1, i + windowSize);
+            for(; next <= end; next++) {
+                final double value = series[next];
+                while(maxTail > maxHead && series[maxQueue[maxTail - 1]] <= value) {
+                    maxTail--;
+                }
+                maxQueue[maxTail++] = next;
+                while(minTail > minHead && series[minQueue[minTail - 1]] >= value) {
+                    minTail--;
+                }
+                minQueue[minTail++] = next;
+            }
+            // drop anything which has fallen behind the trailing edge of the window
+            final int start = i - windowSize;
+            while(maxQueue[maxHead] < start) {
+                maxHead++;
+            }
+            while(minQueue[minHead] < start) {
+                minHead++;
+            }
+            upper[i] = series[maxQueue[maxHead]];
+            lower[i] = series[minQueue[minHead]];
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package tsml.classifiers.distance_based.distances.dtw;
+
+import experiments.data.DatasetLoading;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.distance_based.distances.LowerBound;
+import utilities.InstanceTools;
+import tsml.classifiers.distance_based.distances.LowerBoundCascade;
+import weka.core.Instances;
+
+/**
+ * Purpose: test the lower bounds never exceed the DTW distance
+ */
+public class DTWLowerBoundTest {
+
+    @Test
+    public void testEnvelope() {
+        final Random random = new Random(0);
+        for(int length : new int[] {1, 2, 10, 50}) {
+            final double[] series = new double[length];
+            for(int i = 0; i < length; i++) {
+                series[i] = random.nextGaussian();
+            }
+            for(int windowSize : new int[] {0, 1, 3, length - 1, length + 5}) {
+                final double[] upper = new double[length];
+                final double[] lower = new double[length];
+                DTWLowerBound.findEnvelope(series, windowSize, upper, lower);
+                for(int i = 0; i < length; i++) {
+                    double max = Double.NEGATIVE_INFINITY;
+                    double min = Double.POSITIVE_INFINITY;
+                    for(int j = Math.max(0, i - windowSize); j <= Math.min(length - 1, i + windowSize); j++) {
+                        max = Math.max(max, series[j]);
+                        min = Math.min(min, series[j]);
+                    }
+                    Assert.assertEquals(max, upper[i], 0);
+                    Assert.assertEquals(min, lower[i], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLowerBounds() throws Exception {
+        final Instances data = DatasetLoading.loadItalyPowerDemand();
+        final Instances train = new Instances(data, 0, 30);
+        for(int window : new int[] {0, 1, 3, -1}) {
+            final DTWDistance dtw = new DTWDistance();
+            dtw.setWindowSize(window);
+            dtw.setInstances(train);
+            final LowerBoundCascade cascade = DTWDistanceConfigs.newDTWLowerBoundCascade();
+            Assert.assertTrue(cascade.isCompatible(dtw));
+            cascade.fit(dtw, train);
+            for(int i = 30; i < 60; i++) {
+                final double[] query = InstanceTools.ConvertInstanceToArrayRemovingClassValue(data.get(i));
+                for(int j = 0; j < train.size(); j++) {
+                    final double distance = dtw.distance(data.get(i), train.get(j));
+                    for(LowerBound lowerBound : cascade.getLowerBounds()) {
+                        final double bound = lowerBound.lowerBound(query, j, Double.POSITIVE_INFINITY);
+                        Assert.assertTrue(lowerBound.getClass().getSimpleName() + " " + bound + " > " + distance,
+                            bound <= distance);
+                    }
+                    final double bound = cascade.lowerBound(query, j, distance);
+                    Assert.assertTrue(bound <= distance);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNotCompatible() {
+        final LowerBoundCascade cascade = DTWDistanceConfigs.newDTWLowerBoundCascade();
+        Assert.assertFalse(cascade.isCompatible(DTWDistanceConfigs.newDDTWDistance()));
+        Assert.assertTrue(cascade.isCompatible(new EAPrunedDTWDistance()));
+    }
+}
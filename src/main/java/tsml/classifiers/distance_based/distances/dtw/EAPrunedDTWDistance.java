@@ -0,0 +1,125 @@
+package tsml.classifiers.distance_based.distances.dtw;
+
+/**
+ * DTW distance measure which prunes and early abandons the cost matrix, after EAPrunedDTW (Herrmann and Webb, 2021).
+ * <p>
+ * Costs only ever grow along a warping path, so a cell above the limit can never lead to a distance within it. Each row
+ * is therefore only computed from the first cell of the previous row within the limit (anything before is unreachable)
+ * up to the point where neither the previous row nor the cell to the left can be within the limit (the pruning point).
+ * When a row has no cells within the limit the distance is abandoned. If the series are of equal length the cost of
+ * the diagonal is also used as a limit, as that path is always inside the window.
+ * <p>
+ * Distances within the limit are identical to DTWDistance. Distances beyond it are positive infinity.
+ */
+public class EAPrunedDTWDistance extends DTWDistance {
+
+    @Override protected double findDistance(final double[] a, final double[] b, double limit) {
+        if(isGenerateDistanceMatrix()) {
+            // pruned cells are never computed, so the full matrix is needed
+            return super.findDistance(a, b, limit);
+        }
+
+        final int aLength = a.length;
+        final int bLength = b.length;
+        final int windowSize = findWindowSize(aLength);
+
+        if(aLength == bLength) {
+            limit = Math.min(limit, diagonal(a, b));
+        }
+
+        double[] row = new double[bLength];
+        double[] prevRow = new double[bLength];
+        // the first row can only be reached from the left
+        final double a0 = a[0];
+        double diff = a0 - b[0];
+        double cost = diff * diff;
+        if(cost > limit) {
+            return Double.POSITIVE_INFINITY;
+        }
+        row[0] = cost;
+        // first cell of the row within the limit
+        int nextStart = 0;
+        // one past the last cell of the row within the limit
+        int pruningPoint = 1;
+        int end = Math.min(bLength - 1, windowSize);
+        for(int j = 1; j <= end; j++) {
+            diff = a0 - b[j];
+            cost += diff * diff;
+            if(cost > limit) {
+                break;
+            }
+            row[j] = cost;
+            pruningPoint = j + 1;
+        }
+        for(int i = 1; i < aLength; i++) {
+            {
+                double[] temp = prevRow;
+                prevRow = row;
+                row = temp;
+            }
+            final int prevStart = nextStart;
+            final int prevPruningPoint = pruningPoint;
+            final int start = Math.max(i - windowSize, prevStart);
+            end = Math.min(bLength - 1, i + windowSize);
+            nextStart = start;
+            pruningPoint = 0;
+            final double ai = a[i];
+            // cells before start are outside the window or above the limit
+            double left = Double.POSITIVE_INFINITY;
+            double topLeft = start > prevStart && start <= prevPruningPoint ? prevRow[start - 1] : Double.POSITIVE_INFINITY;
+            int j = start;
+            // below the previous row's cells within the limit all three neighbours are available
+            for(; j <= end && j < prevPruningPoint; j++) {
+                final double top = prevRow[j];
+                diff = ai - b[j];
+                cost = min(top, min(left, topLeft)) + diff * diff;
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                left = cost;
+                topLeft = top;
+            }
+            // at the previous pruning point the top is above the limit, but the top left may not be
+            if(j <= end && j == prevPruningPoint) {
+                diff = ai - b[j];
+                cost = min(left, topLeft) + diff * diff;
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                left = cost;
+                j++;
+            }
+            // past the previous pruning point only the left can be within the limit
+            for(; j <= end && j == pruningPoint; j++) {
+                diff = ai - b[j];
+                cost = left + diff * diff;
+                if(cost > limit) {
+                    break;
+                }
+                row[j] = cost;
+                pruningPoint = j + 1;
+                left = cost;
+            }
+            if(pruningPoint == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        // the last cell is only populated if it was within the limit
+        return pruningPoint == bLength ? row[bLength - 1] : Double.POSITIVE_INFINITY;
+    }
+
+    private static double diagonal(final double[] a, final double[] b) {
+        double sum = 0;
+        for(int i = 0; i < a.length; i++) {
+            final double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,89 @@
+package tsml.classifiers.distance_based.distances.dtw;
+
+/**
+ * LB_Enhanced lower bound for DTW (Tan et al., 2019). Every warping path crosses each of the L shaped bands at the start
+ * and end of the cost matrix, so the cheapest cell in each band bounds the cost of that part of the path. The bands are
+ * tighter than LB_Keogh near the ends of the series, LB_Keogh is used for the remainder.
+ * <p>
+ * The bound is only valid for series of equal length, otherwise 0 is returned.
+ */
+public class EnhancedLowerBound extends KeoghLowerBound {
+
+    private static final long serialVersionUID = 0;
+    // the number of bands to use at each end of the series
+    private int numBands;
+
+    public EnhancedLowerBound() {
+        this(5);
+    }
+
+    public EnhancedLowerBound(int numBands) {
+        setNumBands(numBands);
+    }
+
+    public int getNumBands() {
+        return numBands;
+    }
+
+    public void setNumBands(final int numBands) {
+        if(numBands < 1) {
+            throw new IllegalArgumentException("must have at least 1 band: " + numBands);
+        }
+        this.numBands = numBands;
+    }
+
+    @Override public double lowerBound(final double[] a, final int index, final double limit) {
+        final double[] b = getSeries(index);
+        if(a.length != b.length) {
+            return 0;
+        }
+        final int length = a.length;
+        final int lastIndex = length - 1;
+        final double first = a[0] - b[0];
+        if(length == 1) {
+            return first * first;
+        }
+        final int windowSize = getWindowSize(index);
+        // at least the first and last cells are used, so LB_Keogh must not cover them
+        final int bands = Math.max(1, Math.min(lastIndex / 2, numBands));
+        // the terms are summed in the order a warping path passes through them, the same order DTW sums the path in.
+        // Each term is no more than the path's cost at that point, so the bound can't round above the distance.
+        double sum = first * first;
+        for(int i = 1; i < bands; i++) {
+            // the band at the start runs along row i and column i
+            sum += bandMin(a, b, i, -1, windowSize);
+        }
+        // between the bands each point of a must still be matched within the envelope of b
+        sum = lowerBound(a, getUpperEnvelope(index), getLowerEnvelope(index), bands, lastIndex - bands + 1, sum, limit);
+        if(sum > limit) {
+            return sum;
+        }
+        for(int i = bands - 1; i >= 1; i--) {
+            // the band at the end runs along row and column lastIndex - i
+            sum += bandMin(a, b, lastIndex - i, 1, windowSize);
+        }
+        final double last = a[lastIndex] - b[lastIndex];
+        return sum + last * last;
+    }
+
+    /**
+     * find the cheapest cell in the band along row i and column i. The band extends from the diagonal cell in the
+     * given direction (-1 towards the start of the series, 1 towards the end) up to the window size.
+     */
+    private static double bandMin(final double[] a, final double[] b, final int i, final int direction,
+        final int windowSize) {
+        double diff = a[i] - b[i];
+        double min = diff * diff;
+        for(int offset = 1; offset <= windowSize; offset++) {
+            final int j = i + offset * direction;
+            if(j < 0 || j >= a.length) {
+                break;
+            }
+            diff = a[i] - b[j];
+            min = Math.min(min, diff * diff);
+            diff = a[j] - b[i];
+            min = Math.min(min, diff * diff);
+        }
+        return min;
+    }
+}
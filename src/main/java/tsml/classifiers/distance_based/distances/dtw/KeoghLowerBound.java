@@ -0,0 +1,73 @@
+package tsml.classifiers.distance_based.distances.dtw;
+
+import weka.core.DistanceFunction;
+import weka.core.Instances;
+
+/**
+ * LB_Keogh lower bound for DTW (Keogh and Ratanamahatana, 2005). Each point of the query must be matched to a point of
+ * the fitted series within the window, so costs at least its squared distance outside of the fitted series' envelope.
+ * The envelopes are precomputed when fitting.
+ * <p>
+ * The bound is only valid for series of equal length, otherwise 0 is returned.
+ */
+public class KeoghLowerBound extends DTWLowerBound {
+
+    private static final long serialVersionUID = 0;
+    private transient double[][] upperEnvelopes;
+    private transient double[][] lowerEnvelopes;
+
+    @Override public void fit(final DistanceFunction distanceFunction, final Instances data) {
+        upperEnvelopes = new double[data.size()][];
+        lowerEnvelopes = new double[data.size()][];
+        super.fit(distanceFunction, data);
+    }
+
+    @Override protected void fitSeries(final int index, final double[] series, final int windowSize) {
+        final double[] upper = new double[series.length];
+        final double[] lower = new double[series.length];
+        findEnvelope(series, windowSize, upper, lower);
+        upperEnvelopes[index] = upper;
+        lowerEnvelopes[index] = lower;
+    }
+
+    protected double[] getUpperEnvelope(int index) {
+        return upperEnvelopes[index];
+    }
+
+    protected double[] getLowerEnvelope(int index) {
+        return lowerEnvelopes[index];
+    }
+
+    @Override public double lowerBound(final double[] query, final int index, final double limit) {
+        final double[] upper = upperEnvelopes[index];
+        final double[] lower = lowerEnvelopes[index];
+        if(query.length != upper.length) {
+            return 0;
+        }
+        return lowerBound(query, upper, lower, 0, query.length, 0, limit);
+    }
+
+    /**
+     * sum the squared distance of the query outside of the envelope between the start (inclusive) and end (exclusive)
+     * indices, adding to the given sum. Abandons once the sum exceeds the limit.
+     */
+    static double lowerBound(final double[] query, final double[] upper, final double[] lower, final int start,
+        final int end, double sum, final double limit) {
+        for(int i = start; i < end; i++) {
+            final double value = query[i];
+            final double diff;
+            if(value > upper[i]) {
+                diff = value - upper[i];
+            } else if(value < lower[i]) {
+                diff = lower[i] - value;
+            } else {
+                continue;
+            }
+            sum += diff * diff;
+            if(sum > limit) {
+                return sum;
+            }
+        }
+        return sum;
+    }
+}
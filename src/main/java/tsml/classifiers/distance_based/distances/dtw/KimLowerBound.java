@@ -0,0 +1,24 @@
+package tsml.classifiers.distance_based.distances.dtw;
+
+/**
+ * LB_Kim lower bound for DTW (Kim et al., 2001), in the constant time form used by the UCR suite: every warping path
+ * matches the first points and the last points, so their costs bound the distance. Unlike the original, the min and
+ * max of each series are not used as their cells may overlap with the first / last cells and each other.
+ * <p>
+ * This is valid for series of differing length.
+ */
+public class KimLowerBound extends DTWLowerBound {
+
+    private static final long serialVersionUID = 0;
+
+    @Override public double lowerBound(final double[] query, final int index, final double limit) {
+        final double[] series = getSeries(index);
+        final double first = query[0] - series[0];
+        if(query.length == 1 && series.length == 1) {
+            // the first and last cell are the same cell
+            return first * first;
+        }
+        final double last = query[query.length - 1] - series[series.length - 1];
+        return first * first + last * last;
+    }
+}
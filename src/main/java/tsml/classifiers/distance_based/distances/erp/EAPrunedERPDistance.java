@@ -0,0 +1,128 @@
+package tsml.classifiers.distance_based.distances.erp;
+
+/**
+ * ERP distance measure which prunes and early abandons the cost matrix in the same manner as EAPrunedDTWDistance.
+ * Matching against the gap value g is the penalty for moving left or down, otherwise the recurrence is that of DTW.
+ * <p>
+ * Distances within the limit are identical to ERPDistance. Distances beyond it are positive infinity.
+ */
+public class EAPrunedERPDistance extends ERPDistance {
+
+    @Override public double findDistance(final double[] a, final double[] b, double limit) {
+        if(isGenerateDistanceMatrix()) {
+            // pruned cells are never computed, so the full matrix is needed
+            return super.findDistance(a, b, limit);
+        }
+
+        final int aLength = a.length;
+        final int bLength = b.length;
+        final int windowSize = findWindowSize(aLength);
+        final double g = getG();
+
+        if(aLength == bLength) {
+            // the diagonal is always inside the window, so bounds the distance
+            double diagonal = 0;
+            for(int i = 1; i < aLength; i++) {
+                diagonal += (a[i] - b[i]) * (a[i] - b[i]);
+            }
+            limit = Math.min(limit, diagonal);
+        }
+
+        double[] row = new double[bLength];
+        double[] prevRow = new double[bLength];
+        // top left cell of matrix is always 0, so never above the limit
+        double cost = 0;
+        row[0] = cost;
+        // first cell of the row within the limit
+        int nextStart = 0;
+        // one past the last cell of the row within the limit
+        int pruningPoint = 1;
+        int end = Math.min(bLength - 1, windowSize);
+        for(int j = 1; j <= end; j++) {
+            final double gap = b[j] - g;
+            cost += gap * gap;
+            if(cost > limit) {
+                break;
+            }
+            row[j] = cost;
+            pruningPoint = j + 1;
+        }
+        for(int i = 1; i < aLength; i++) {
+            {
+                double[] temp = prevRow;
+                prevRow = row;
+                row = temp;
+            }
+            final int prevStart = nextStart;
+            final int prevPruningPoint = pruningPoint;
+            final int start = Math.max(i - windowSize, prevStart);
+            end = Math.min(bLength - 1, i + windowSize);
+            nextStart = start;
+            pruningPoint = 0;
+            final double v1 = a[i];
+            final double leftPenalty = (v1 - g) * (v1 - g);
+            double leftCell = Double.POSITIVE_INFINITY;
+            double topLeftCell =
+                start > prevStart && start <= prevPruningPoint ? prevRow[start - 1] : Double.POSITIVE_INFINITY;
+            int j = start;
+            // all three neighbours available
+            for(; j <= end && j < prevPruningPoint; j++) {
+                final double v2 = b[j];
+                final double topCell = prevRow[j];
+                cost = select(topLeftCell + (v1 - v2) * (v1 - v2), leftCell + (v2 - g) * (v2 - g),
+                    topCell + leftPenalty);
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                leftCell = cost;
+                topLeftCell = topCell;
+            }
+            // left and top left only
+            if(j <= end && j == prevPruningPoint) {
+                final double v2 = b[j];
+                cost = select(topLeftCell + (v1 - v2) * (v1 - v2), leftCell + (v2 - g) * (v2 - g),
+                    Double.POSITIVE_INFINITY);
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                leftCell = cost;
+                j++;
+            }
+            // left only
+            for(; j <= end && j == pruningPoint; j++) {
+                final double v2 = b[j];
+                cost = leftCell + (v2 - g) * (v2 - g);
+                if(cost > limit) {
+                    break;
+                }
+                row[j] = cost;
+                pruningPoint = j + 1;
+                leftCell = cost;
+            }
+            if(pruningPoint == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return pruningPoint == bLength ? row[bLength - 1] : Double.POSITIVE_INFINITY;
+    }
+
+    // picks between the moves exactly as ERPDistance does, so ties resolve the same way
+    private static double select(final double topLeft, final double left, final double top) {
+        if(topLeft > left && left < top) {
+            // del
+            return left;
+        } else if(topLeft > top && top < left) {
+            // ins
+            return top;
+        } else {
+            // match
+            return topLeft;
+        }
+    }
+}
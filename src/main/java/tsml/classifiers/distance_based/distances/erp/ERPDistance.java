@@ -5,7 +5,6 @@ import tsml.classifiers.distance_based.distances.WarpingDistanceMeasure;
 import tsml.classifiers.distance_based.distances.WarpingParameter;
 import tsml.classifiers.distance_based.utils.collections.params.ParamHandlerUtils;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import weka.core.Instance;
 
 /**
  * ERP distance measure.
@@ -29,10 +28,10 @@ public class ERPDistance extends DoubleMatrixBasedDistanceMeasure implements War
     }
 
     @Override
-    public double findDistance(final Instance a, final Instance b, final double limit) {
+    public double findDistance(final double[] a, final double[] b, final double limit) {
 
-        int aLength = a.numAttributes() - 1;
-        int bLength = b.numAttributes() - 1;
+        int aLength = a.length;
+        int bLength = b.length;
 
         final boolean generateDistanceMatrix = isGenerateDistanceMatrix();
         final double[][] matrix = generateDistanceMatrix ? new double[aLength][bLength] : null;
@@ -54,7 +53,8 @@ public class ERPDistance extends DoubleMatrixBasedDistanceMeasure implements War
         row[0] = 0; // top left cell of matrix is always 0
         // populate first row
         for(int j = start; j <= end; j++) {
-            final double cost = row[j - 1] + Math.pow(b.value(j) - g, 2);
+            final double gap = b[j] - g;
+            final double cost = row[j - 1] + gap * gap;
             row[j] = cost;
             // no need to update min as top left cell is already zero, can't get lower
         }
@@ -83,23 +83,28 @@ public class ERPDistance extends DoubleMatrixBasedDistanceMeasure implements War
             if(end + 1 < bLength) {
                 row[end + 1] = Double.POSITIVE_INFINITY;
             }
+            final double v1 = a[i];
+            // the penalty for matching a[i] to the gap value is the same along the whole row
+            final double leftPenalty = (v1 - g) * (v1 - g);
             // when l == 0 neither left nor top left can be picked, therefore it must use top
             if(start == 0) {
-                final double cost = prevRow[start] + Math.pow(a.value(i) - g, 2);
+                final double cost = prevRow[start] + leftPenalty;
                 row[start] = cost;
                 min = Math.min(min, cost);
                 start++;
             }
+            // carry the left and top-left cells between iterations rather than reading them back from the rows
+            double leftCell = row[start - 1];
+            double topLeftCell = prevRow[start - 1];
             for(int j = start; j <= end; j++) {
                 // compute squared distance of feature vectors
-                final double v1 = a.value(i);
-                final double v2 = b.value(j);
-                final double leftPenalty = Math.pow(v1 - g, 2);
-                final double topPenalty = Math.pow(v2 - g, 2);
-                final double topLeftPenalty = Math.pow(v1 - v2, 2);
-                final double topLeft = prevRow[j - 1] + topLeftPenalty;
-                final double left = row[j - 1] + topPenalty;
-                final double top = prevRow[j] + leftPenalty;
+                final double v2 = b[j];
+                final double topPenalty = (v2 - g) * (v2 - g);
+                final double topLeftPenalty = (v1 - v2) * (v1 - v2);
+                final double topCell = prevRow[j];
+                final double topLeft = topLeftCell + topLeftPenalty;
+                final double left = leftCell + topPenalty;
+                final double top = topCell + leftPenalty;
                 final double cost;
 
                 if(topLeft > left && left < top) {
@@ -114,7 +119,9 @@ public class ERPDistance extends DoubleMatrixBasedDistanceMeasure implements War
                 }
                 row[j] = cost;
 
-                min = Math.min(min, cost);
+                min = min(min, cost);
+                leftCell = cost;
+                topLeftCell = topCell;
             }
             if(generateDistanceMatrix) {
                 System.arraycopy(row, 0, matrix[i], 0, row.length);
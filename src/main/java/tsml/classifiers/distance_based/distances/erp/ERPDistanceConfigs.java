@@ -38,6 +38,20 @@ public class ERPDistanceConfigs {
         }
     }
 
+    public static class EAPrunedERPSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildEAPrunedERPSpace(data);
+        }
+    }
+
+    public static class RestrictedContinuousEAPrunedERPSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildRestrictedContinuousEAPrunedERPSpace(data);
+        }
+    }
+
     public static ParamSpace buildERPSpace(Instances instances) {
         return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new ERPDistance()),
                 buildERPParams(instances));
@@ -87,4 +101,14 @@ public class ERPDistanceConfigs {
         return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new ERPDistance()),
                 buildContinuousERPParams(instances));
     }
+
+    public static ParamSpace buildEAPrunedERPSpace(Instances instances) {
+        return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedERPDistance()),
+                buildERPParams(instances));
+    }
+
+    public static ParamSpace buildRestrictedContinuousEAPrunedERPSpace(Instances data) {
+        return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedERPDistance()),
+                buildRestrictedContinuousERPParams(data));
+    }
 }
@@ -1,12 +1,14 @@
 package tsml.classifiers.distance_based.distances.erp;
 
 import experiments.data.DatasetLoading;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
 import tsml.classifiers.distance_based.distances.dtw.DTWDistanceTest;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSpace;
@@ -165,6 +167,57 @@ public class ERPDistanceTest {
         testDistanceFunctionsOnRandomDataset(buildDistanceFinder());
     }
 
+    @Test
+    public void testEAPruned() throws Exception {
+        final Instances data = DatasetLoading.loadItalyPowerDemand();
+        for(int window : new int[] {0, 3, -1}) {
+            for(double g : new double[] {0, 0.5}) {
+                final ERPDistance full = new ERPDistance();
+                full.setWindowSize(window);
+                full.setG(g);
+                final EAPrunedERPDistance pruned = new EAPrunedERPDistance();
+                pruned.setWindowSize(window);
+                pruned.setG(g);
+                testPrunedDistances(full, pruned, data, window < 0);
+            }
+        }
+    }
+
+    /**
+     * check a pruned distance measure gives the same distances as the measure it prunes, over pairs of instances from
+     * the data and optionally pairs of random series of differing lengths. The latter need a window wide enough to
+     * reach the last cell.
+     */
+    public static void testPrunedDistances(DistanceMeasure full, DistanceMeasure pruned, Instances data,
+        boolean unequalLengths) {
+        final int size = Math.min(data.size(), 20);
+        for(int i = 0; i < size; i++) {
+            for(int j = 0; j < size; j++) {
+                final Instance a = data.get(i);
+                final Instance b = data.get(j);
+                assertPrunedDistance(full.distance(a, b), pruned, Arrays.copyOf(a.toDoubleArray(), a.numAttributes() - 1),
+                    Arrays.copyOf(b.toDoubleArray(), b.numAttributes() - 1));
+            }
+        }
+        final Random random = new Random(0);
+        for(int i = 0; unequalLengths && i < 20; i++) {
+            final double[] a = buildRandomArray(random, 30, -5, 5);
+            final double[] b = buildRandomArray(random, 20 + random.nextInt(11), -5, 5);
+            assertPrunedDistance(full.distance(a, b), pruned, a, b);
+        }
+    }
+
+    /**
+     * the pruned distance must be exact with no limit or a limit at or above the distance, and must abandon with a
+     * limit just below it
+     */
+    private static void assertPrunedDistance(double distance, DistanceMeasure pruned, double[] a, double[] b) {
+        Assert.assertEquals(distance, pruned.distance(a, b), 0);
+        Assert.assertEquals(distance, pruned.distance(a, b, distance), 0);
+        Assert.assertEquals(distance, pruned.distance(a, b, distance * 1.5), 0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, pruned.distance(a, b, Math.nextDown(distance)), 0);
+    }
+
     public static double[] buildRandomArray(Random random, int length, double min, double max) {
         double diff = Math.abs(min - max);
         min = Math.min(min, max);
@@ -50,6 +50,10 @@ public class IntervalDistanceMeasure extends BaseDistanceMeasure {
         setName(distanceFunction.toString() + "I");
     }
 
+    @Override protected double findDistance(final double[] a, final double[] b, final double limit) {
+        return findDistance(toInstance(a), toInstance(b), limit);
+    }
+
     @Override protected double findDistance(Instance a, Instance b, final double limit) {
         if(interval != null) {
             a = new IntervalInstance(interval, a);
@@ -4,7 +4,6 @@ import tsml.classifiers.distance_based.distances.IntMatrixBasedDistanceMeasure;
 import tsml.classifiers.distance_based.distances.WarpingParameter;
 import tsml.classifiers.distance_based.utils.collections.params.ParamHandlerUtils;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import weka.core.Instance;
 
 /**
  * LCSS distance measure.
@@ -37,10 +36,10 @@ public class LCSSDistance extends IntMatrixBasedDistanceMeasure {
     }
 
     @Override
-    public double findDistance(final Instance a, final Instance b, double limit) {
+    public double findDistance(final double[] a, final double[] b, double limit) {
 
-        int aLength = a.numAttributes() - 1;
-        int bLength = b.numAttributes() - 1;
+        int aLength = a.length;
+        int bLength = b.length;
 
 
         final boolean generateDistanceMatrix = isGenerateDistanceMatrix();
@@ -61,10 +60,10 @@ public class LCSSDistance extends IntMatrixBasedDistanceMeasure {
 
         int[] row = new int[bLength];
         int[] prevRow = new int[bLength];
-        // init min to top left cell
-        double min = approxEqual(a.value(0), b.value(0), epsilon) ? 1 : 0;
+        // init rowMin to top left cell
+        double rowMin = approxEqual(a[0], b[0], epsilon) ? 1 : 0;
         // top left cell of matrix will simply be the sq diff
-        row[0] = (int) min;
+        row[0] = (int) rowMin;
         // start and end of window
         // start at the next cell of the first row
         int start = 1;
@@ -78,19 +77,19 @@ public class LCSSDistance extends IntMatrixBasedDistanceMeasure {
         // the first row is populated from the cell before
         for(int j = start; j <= end; j++) {
             final int cost;
-            if(approxEqual(a.value(0), b.value(j), epsilon)) {
+            if(approxEqual(a[0], b[j], epsilon)) {
                 cost = 1;
             } else {
                 cost = row[j - 1];
             }
             row[j] = cost;
-            min = Math.min(min, cost);
+            rowMin = Math.min(rowMin, cost);
         }
         if(generateDistanceMatrix) {
             System.arraycopy(row, 0, matrix[0], 0, row.length);
         }
         // early abandon if work has been done populating the first row for >1 entry
-        if(min > limit) {
+        if(rowMin > limit) {
             return Double.POSITIVE_INFINITY;
         }
         for(int i = 1; i < aLength; i++) {
@@ -101,7 +100,7 @@ public class LCSSDistance extends IntMatrixBasedDistanceMeasure {
                 row = temp;
             }
             // reset the insideLimit var each row. if all values for a row are above the limit then early abandon
-            min = Double.POSITIVE_INFINITY;
+            rowMin = Double.POSITIVE_INFINITY;
             // start and end of window
             start = Math.max(0, i - windowSize);
             end = Math.min(bLength - 1, i + windowSize);
@@ -113,23 +112,24 @@ public class LCSSDistance extends IntMatrixBasedDistanceMeasure {
             if(end + 1 < bLength) {
                 row[end + 1] = Integer.MIN_VALUE;
             }
+            final double ai = a[i];
             // if assessing the left most column then only top is the option - not left or left-top
             if(start == 0) {
                 final int cost;
-                if(approxEqual(a.value(i), b.value(start), epsilon)) {
+                if(approxEqual(ai, b[start], epsilon)) {
                     cost = 1;
                 } else {
                     cost = prevRow[start];
                 }
                 row[start] = cost;
-                min = Math.min(min, cost);
+                rowMin = Math.min(rowMin, cost);
                 // shift to next cell
                 start++;
             }
             for(int j = start; j <= end; j++) {
                 final int cost;
                 final int topLeft = prevRow[j - 1];
-                if(approxEqual(a.value(i), b.value(j), epsilon)) {
+                if(approxEqual(ai, b[j], epsilon)) {
                     cost = topLeft + 1;
                 } else {
                     final int top = prevRow[j];
@@ -138,12 +138,12 @@ public class LCSSDistance extends IntMatrixBasedDistanceMeasure {
                     cost = Math.max(top, Math.max(left, topLeft));
                 }
                 row[j] = cost;
-                min = Math.min(min, cost);
+                rowMin = Math.min(rowMin, cost);
             }
             if(generateDistanceMatrix) {
                 System.arraycopy(row, 0, matrix[i], 0, row.length);
             }
-            if(min > limit) {
+            if(rowMin > limit) {
                 return Double.POSITIVE_INFINITY;
             }
         }
@@ -0,0 +1,118 @@
+package tsml.classifiers.distance_based.distances.msm;
+
+/**
+ * MSM distance measure which prunes and early abandons the cost matrix in the same manner as EAPrunedDTWDistance. The
+ * split and merge costs are non-negative, so a cell above the limit still can't lead to a distance within it.
+ * <p>
+ * Distances within the limit are identical to MSMDistance. Distances beyond it are positive infinity.
+ */
+public class EAPrunedMSMDistance extends MSMDistance {
+
+    @Override public double findDistance(final double[] a, final double[] b, double limit) {
+        if(isGenerateDistanceMatrix()) {
+            // pruned cells are never computed, so the full matrix is needed
+            return super.findDistance(a, b, limit);
+        }
+
+        final int aLength = a.length;
+        final int bLength = b.length;
+
+        if(aLength == bLength) {
+            // matching each point along the diagonal bounds the distance
+            double diagonal = 0;
+            for(int i = 0; i < aLength; i++) {
+                diagonal += Math.abs(a[i] - b[i]);
+            }
+            limit = Math.min(limit, diagonal);
+        }
+
+        double[] row = new double[bLength];
+        double[] prevRow = new double[bLength];
+        // the first row can only be reached from the left
+        final double a0 = a[0];
+        double cost = Math.abs(a0 - b[0]);
+        if(cost > limit) {
+            return Double.POSITIVE_INFINITY;
+        }
+        row[0] = cost;
+        // first cell of the row within the limit
+        int nextStart = 0;
+        // one past the last cell of the row within the limit
+        int pruningPoint = 1;
+        for(int j = 1; j < bLength; j++) {
+            cost += findCost(b[j], a0, b[j - 1]);
+            if(cost > limit) {
+                break;
+            }
+            row[j] = cost;
+            pruningPoint = j + 1;
+        }
+        for(int i = 1; i < aLength; i++) {
+            {
+                double[] temp = prevRow;
+                prevRow = row;
+                row = temp;
+            }
+            final int prevPruningPoint = pruningPoint;
+            // no window, so the row starts where the previous one first came within the limit
+            final int start = nextStart;
+            pruningPoint = 0;
+            final double ai = a[i];
+            final double aiPrev = a[i - 1];
+            double leftCell = Double.POSITIVE_INFINITY;
+            double topLeftCell = Double.POSITIVE_INFINITY;
+            double bjPrev = start > 0 ? b[start - 1] : 0;
+            int j = start;
+            // all three neighbours available
+            for(; j < prevPruningPoint; j++) {
+                final double bj = b[j];
+                final double topCell = prevRow[j];
+                final double topLeft = topLeftCell + Math.abs(ai - bj);
+                final double top = topCell + findCost(ai, aiPrev, bj);
+                final double left = leftCell + findCost(bj, ai, bjPrev);
+                cost = min(top, min(left, topLeft));
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                leftCell = cost;
+                topLeftCell = topCell;
+                bjPrev = bj;
+            }
+            // left and top left only
+            if(j < bLength) {
+                final double bj = b[j];
+                final double topLeft = topLeftCell + Math.abs(ai - bj);
+                final double left = leftCell + findCost(bj, ai, bjPrev);
+                cost = min(left, topLeft);
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                leftCell = cost;
+                bjPrev = bj;
+                j++;
+            }
+            // left only
+            for(; j < bLength && j == pruningPoint; j++) {
+                final double bj = b[j];
+                cost = leftCell + findCost(bj, ai, bjPrev);
+                if(cost > limit) {
+                    break;
+                }
+                row[j] = cost;
+                pruningPoint = j + 1;
+                leftCell = cost;
+                bjPrev = bj;
+            }
+            if(pruningPoint == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return pruningPoint == bLength ? row[bLength - 1] : Double.POSITIVE_INFINITY;
+    }
+}
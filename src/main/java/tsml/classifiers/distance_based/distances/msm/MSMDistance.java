@@ -3,7 +3,6 @@ package tsml.classifiers.distance_based.distances.msm;
 import tsml.classifiers.distance_based.distances.DoubleMatrixBasedDistanceMeasure;
 import tsml.classifiers.distance_based.utils.collections.params.ParamHandlerUtils;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import weka.core.Instance;
 
 /**
  * MSM distance measure.
@@ -30,7 +29,7 @@ public class MSMDistance
         this.c = c;
     }
 
-    private double findCost(double newPoint, double x, double y) {
+    protected double findCost(double newPoint, double x, double y) {
         double dist = 0;
 
         if(((x <= newPoint) && (newPoint <= y)) ||
@@ -44,10 +43,10 @@ public class MSMDistance
     }
 
     @Override
-    public double findDistance(Instance a, Instance b, final double limit) {
+    public double findDistance(final double[] a, final double[] b, final double limit) {
 
-        int aLength = a.numAttributes() - 1;
-        int bLength = b.numAttributes() - 1;
+        int aLength = a.length;
+        int bLength = b.length;
 
         final boolean generateDistanceMatrix = isGenerateDistanceMatrix();
         final double[][] matrix = generateDistanceMatrix ? new double[aLength][bLength] : null;
@@ -58,8 +57,8 @@ public class MSMDistance
         double[] row = new double[bLength];
         double[] prevRow = new double[bLength];
         // top left cell of matrix will simply be the sq diff
-        double min = Math.abs(a.value(0) - b.value(0));
-        row[0] = min;
+        double rowMin = Math.abs(a[0] - b[0]);
+        row[0] = rowMin;
         // start and end of window
         // start at the next cell of the first row
         int start = 1;
@@ -72,15 +71,15 @@ public class MSMDistance
         }
         // the first row is populated from the sq diff + the cell before
         for(int j = start; j <= end; j++) {
-            double cost = row[j - 1] + findCost(b.value(j), a.value(0), b.value(j - 1));
+            double cost = row[j - 1] + findCost(b[j], a[0], b[j - 1]);
             row[j] = cost;
-            min = Math.min(min, cost);
+            rowMin = Math.min(rowMin, cost);
         }
         if(generateDistanceMatrix) {
             System.arraycopy(row, 0, matrix[0], 0, row.length);
         }
         // early abandon if work has been done populating the first row for >1 entry
-        if(min > limit) {
+        if(rowMin > limit) {
             return Double.POSITIVE_INFINITY;
         }
         for(int i = 1; i < aLength; i++) {
@@ -91,7 +90,7 @@ public class MSMDistance
                 row = temp;
             }
             // reset the insideLimit var each row. if all values for a row are above the limit then early abandon
-            min = Double.POSITIVE_INFINITY;
+            rowMin = Double.POSITIVE_INFINITY;
             // start and end of window
             start = Math.max(0, i - windowSize);
             end = Math.min(bLength - 1, i + windowSize);
@@ -104,30 +103,39 @@ public class MSMDistance
                 row[end + 1] = Double.POSITIVE_INFINITY;
             }
             // if assessing the left most column then only top is the option - not left or left-top
-            final double ai = a.value(i);
-            final double aiPrev = a.value(i - 1);
+            final double ai = a[i];
+            final double aiPrev = a[i - 1];
             if(start == 0) {
-                final double cost = prevRow[start] + findCost(ai, aiPrev, b.value(start));
+                final double cost = prevRow[start] + findCost(ai, aiPrev, b[start]);
                 row[start] = cost;
-                min = Math.min(min, cost);
+                rowMin = Math.min(rowMin, cost);
                 // shift to next cell
                 start++;
             }
+            // carry the left and top-left cells and the previous b value between iterations rather than reading them
+            // back from the arrays
+            double leftCell = row[start - 1];
+            double topLeftCell = prevRow[start - 1];
+            double bjPrev = b[start - 1];
             for(int j = start; j <= end; j++) {
-                final double bj = b.value(j);
+                final double bj = b[j];
+                final double topCell = prevRow[j];
                 // compute squared distance of feature vectors
-                final double topLeft = prevRow[j - 1] + Math.abs(ai - bj);
-                final double top = prevRow[j] + findCost(ai, aiPrev, bj);
-                final double left = row[j - 1] + findCost(bj, ai, b.value(j - 1));
-                final double cost = Math.min(top, Math.min(left, topLeft));
+                final double topLeft = topLeftCell + Math.abs(ai - bj);
+                final double top = topCell + findCost(ai, aiPrev, bj);
+                final double left = leftCell + findCost(bj, ai, bjPrev);
+                final double cost = min(top, min(left, topLeft));
 
                 row[j] = cost;
-                min = Math.min(min, cost);
+                rowMin = min(rowMin, cost);
+                leftCell = cost;
+                topLeftCell = topCell;
+                bjPrev = bj;
             }
             if(generateDistanceMatrix) {
                 System.arraycopy(row, 0, matrix[i], 0, row.length);
             }
-            if(min > limit) {
+            if(rowMin > limit) {
                 return Double.POSITIVE_INFINITY;
             }
         }
@@ -26,6 +26,13 @@ public class MSMDistanceConfigs {
         }
     }
 
+    public static class EAPrunedMSMSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildEAPrunedMSMSpace();
+        }
+    }
+
     public static ParamSpace buildMSMSpace() {
         return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new MSMDistance()),
                 buildMSMParams());
@@ -153,4 +160,8 @@ public class MSMDistanceConfigs {
                 buildContinuousMSMParams());
     }
 
+    public static ParamSpace buildEAPrunedMSMSpace() {
+        return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedMSMDistance()),
+                buildMSMParams());
+    }
 }
@@ -1,5 +1,6 @@
 package tsml.classifiers.distance_based.distances.msm;
 
+import experiments.data.DatasetLoading;
 import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
@@ -62,6 +63,18 @@ public class MSMDistanceTest {
         ERPDistanceTest.testDistanceFunctionsOnRandomDataset(buildDistanceFinder());
     }
 
+    @Test
+    public void testEAPruned() throws Exception {
+        final Instances data = DatasetLoading.loadItalyPowerDemand();
+        for(double c : new double[] {0.01, 1, 10}) {
+            final MSMDistance full = new MSMDistance();
+            full.setC(c);
+            final EAPrunedMSMDistance pruned = new EAPrunedMSMDistance();
+            pruned.setC(c);
+            ERPDistanceTest.testPrunedDistances(full, pruned, data, true);
+        }
+    }
+
     private static double findCost(double newPoint, double x, double y, double c) {
         double dist = 0;
 
@@ -49,6 +49,10 @@ public class BaseTransformDistanceMeasure extends BaseDistanceMeasure implements
         }
     }
 
+    @Override protected double findDistance(final double[] a, final double[] b, final double limit) {
+        return findDistance(toInstance(a), toInstance(b), limit);
+    }
+
     @Override
     public double findDistance(final Instance a, final Instance b, final double limit) {
         try {
@@ -0,0 +1,157 @@
+package tsml.classifiers.distance_based.distances.twed;
+
+/**
+ * TWED distance measure which prunes and early abandons the cost matrix in the same manner as EAPrunedDTWDistance. The
+ * cost matrix has an extra border row and column, so the last cell is at [aLength][bLength].
+ * <p>
+ * Distances within the limit are identical to TWEDistance. Distances beyond it are positive infinity.
+ */
+public class EAPrunedTWEDistance extends TWEDistance {
+
+    @Override public double findDistance(final double[] a, final double[] b, double limit) {
+        if(isGenerateDistanceMatrix()) {
+            // pruned cells are never computed, so the full matrix is needed
+            return super.findDistance(a, b, limit);
+        }
+
+        final int aLength = a.length;
+        final int bLength = b.length;
+        final double lambda = getLambda();
+        final double nu = getNu();
+
+        if(aLength == bLength) {
+            // matching each point along the diagonal bounds the distance
+            double diagonal = 0;
+            for(int i = 1; i <= aLength; i++) {
+                diagonal = matchCost(diagonal, a, b, i, i);
+            }
+            limit = Math.min(limit, diagonal);
+        }
+
+        double[] jCosts = new double[bLength + 1];
+        double[] row = new double[bLength + 1];
+        double[] prevRow = new double[bLength + 1];
+        double diff, cost;
+        jCosts[1] = b[0] * b[0];
+        for(int j = 2; j <= bLength; j++) {
+            diff = b[j - 2] - b[j - 1];
+            jCosts[j] = diff * diff;
+        }
+        // the first row can only be reached from the left. The top left is always 0 so never above the limit
+        cost = 0;
+        row[0] = cost;
+        // first cell of the row within the limit
+        int nextStart = 0;
+        // one past the last cell of the row within the limit
+        int pruningPoint = 1;
+        for(int j = 1; j <= bLength; j++) {
+            cost += jCosts[j];
+            if(cost > limit) {
+                break;
+            }
+            row[j] = cost;
+            pruningPoint = j + 1;
+        }
+        for(int i = 1; i <= aLength; i++) {
+            {
+                double[] tmp = row;
+                row = prevRow;
+                prevRow = tmp;
+            }
+            final int prevPruningPoint = pruningPoint;
+            // no window, so the row starts where the previous one first came within the limit
+            int j = nextStart;
+            pruningPoint = 0;
+            final double iCost;
+            if(i == 1) {
+                iCost = a[0] * a[0];
+            } else {
+                diff = a[i - 2] - a[i - 1];
+                iCost = diff * diff;
+            }
+            double leftCell = Double.POSITIVE_INFINITY;
+            double topLeftCell = Double.POSITIVE_INFINITY;
+            // the first column can only be reached from the top
+            if(j == 0) {
+                cost = prevRow[0] + iCost;
+                row[0] = cost;
+                if(cost <= limit) {
+                    pruningPoint = 1;
+                } else {
+                    nextStart++;
+                }
+                leftCell = cost;
+                topLeftCell = prevRow[0];
+                j++;
+            }
+            // all three neighbours available
+            for(; j < prevPruningPoint; j++) {
+                final double topCell = prevRow[j];
+                final double match = matchCost(topLeftCell, a, b, i, j);
+                final double deleteA = iCost + topCell + lambda + nu;
+                final double deleteB = jCosts[j] + leftCell + lambda + nu;
+                cost = min(match, min(deleteA, deleteB));
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                leftCell = cost;
+                topLeftCell = topCell;
+            }
+            // left and top left only
+            if(j <= bLength && j == prevPruningPoint) {
+                final double match = matchCost(topLeftCell, a, b, i, j);
+                final double deleteB = jCosts[j] + leftCell + lambda + nu;
+                cost = min(match, deleteB);
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                leftCell = cost;
+                j++;
+            }
+            // left only
+            for(; j <= bLength && j == pruningPoint; j++) {
+                cost = jCosts[j] + leftCell + lambda + nu;
+                if(cost > limit) {
+                    break;
+                }
+                row[j] = cost;
+                pruningPoint = j + 1;
+                leftCell = cost;
+            }
+            if(pruningPoint == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return pruningPoint == bLength + 1 ? row[bLength] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * cost of reaching cell [i][j] by matching a[i - 1] with b[j - 1], from the top left cell. This mirrors the
+     * special cases of TWEDistance for the first row and column.
+     */
+    private double matchCost(final double topLeftCell, final double[] a, final double[] b, final int i, final int j) {
+        final double dist;
+        final double htrans;
+        if(i == 1) {
+            final double diff = a[0] - b[j - 1];
+            dist = diff * diff;
+            htrans = Math.abs((1 - j));
+        } else if(j == 1) {
+            final double diff = a[i - 1] - b[0];
+            dist = diff * diff;
+            htrans = i - 1;
+        } else {
+            final double diff = a[i - 1] - b[j - 1];
+            final double prevDiff = a[i - 2] - b[j - 2];
+            dist = diff * diff + prevDiff * prevDiff;
+            htrans = Math.abs(i - j) * 2;
+        }
+        return topLeftCell + getNu() * htrans + dist;
+    }
+}
@@ -3,7 +3,6 @@ package tsml.classifiers.distance_based.distances.twed;
 import tsml.classifiers.distance_based.distances.DoubleMatrixBasedDistanceMeasure;
 import tsml.classifiers.distance_based.utils.collections.params.ParamHandlerUtils;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import weka.core.Instance;
 
 /**
  * TWED distance measure.
@@ -20,10 +19,10 @@ public class TWEDistance
     public static final String LAMBDA_FLAG = "l";
 
     @Override
-    public double findDistance(final Instance a, final Instance b, final double limit) {
+    public double findDistance(final double[] a, final double[] b, final double limit) {
 
-        final int aLength = a.numAttributes() - 1;
-        final int bLength = b.numAttributes() - 1;
+        final int aLength = a.length;
+        final int bLength = b.length;
 
         final boolean generateDistanceMatrix = isGenerateDistanceMatrix();
         final double[][] matrix = generateDistanceMatrix ? new double[aLength][bLength] : null;
@@ -34,11 +33,11 @@ public class TWEDistance
         double[] jCosts = new double[bLength + 1];
         double[] row = new double[bLength + 1];
         double[] prevRow = new double[bLength + 1];
-        double dist, htrans, top, left, topLeft, cost, iCost;
+        double dist, htrans, top, left, topLeft, cost, iCost, diff, prevDiff;
         // border of the cost matrix initialization
         // top left is already 0 so don't bother checking for early abandon
         row[0] = 0;
-        jCosts[1] = Math.pow(b.value(0), 2);
+        jCosts[1] = b[0] * b[0];
         row[1] = jCosts[1];
         // start at the next cell
         int start = 2;
@@ -51,7 +50,8 @@ public class TWEDistance
         }
         for(int j = start; j <= end; j++) {
             //CHANGE AJB 8/1/16: Only use power of 2 for speed up,
-            cost = Math.pow(b.value(j - 2) - b.value(j - 1), 2);
+            diff = b[j - 2] - b[j - 1];
+            cost = diff * diff;
             jCosts[j] = cost;
             row[j] = row[j - 1] + jCosts[j];
         }
@@ -74,27 +74,28 @@ public class TWEDistance
         if(end + 1 < bLength + 1) {
             row[end + 1] = Double.POSITIVE_INFINITY;
         }
-        iCost = Math.pow(a.value(0), 2);
-        double min = Double.POSITIVE_INFINITY;
+        iCost = a[0] * a[0];
+        double rowMin = Double.POSITIVE_INFINITY;
         if(start == 0) {
             row[0] = prevRow[0] + iCost;
-            min = row[0];
+            rowMin = row[0];
             start++;
         }
         for(int j = start; j <= end; j++) {
-            dist = Math.pow(a.value(0) - b.value(j - 1), 2);
+            diff = a[0] - b[j - 1];
+            dist = diff * diff;
             htrans = Math.abs((1 - j));
             left = prevRow[j - 1] + nu * htrans + dist;
             top = iCost + prevRow[j] + lambda + nu;
             topLeft = jCosts[j] + row[j - 1] + lambda + nu;
             cost = Math.min(left, Math.min(top, topLeft));
             row[j] = cost;
-            min = Math.min(min, cost);
+            rowMin = Math.min(rowMin, cost);
         }
         if(generateDistanceMatrix) {
             System.arraycopy(row, 0, matrix[1], 0, row.length);
         }
-        if(end > start && min > limit) {
+        if(end > start && rowMin > limit) {
             return Double.POSITIVE_INFINITY;
         }
         for(int i = 2; i <= aLength; i++) {
@@ -103,7 +104,7 @@ public class TWEDistance
                 row = prevRow;
                 prevRow = tmp;
             }
-            min = Double.POSITIVE_INFINITY;
+            rowMin = Double.POSITIVE_INFINITY;
             // start and end of window
             start = Math.max(0, 1 - windowSize);
             end = Math.min(bLength, 1 + windowSize);
@@ -115,38 +116,50 @@ public class TWEDistance
             if(end + 1 < bLength + 1) {
                 row[end + 1] = Double.POSITIVE_INFINITY;
             }
-            iCost = Math.pow(a.value(i - 2) - a.value(i - 1), 2);
+            final double ai = a[i - 1];
+            final double aiPrev = a[i - 2];
+            diff = aiPrev - ai;
+            iCost = diff * diff;
             if(start == 0) {
                 cost = prevRow[0] + iCost;
                 row[0] = cost;
-                min = Math.min(min, cost);
+                rowMin = Math.min(rowMin, cost);
                 start++;
             }
             if(start == 1) {
-                dist = Math.pow(a.value(i - 1) - b.value(0), 2);
+                diff = ai - b[0];
+                dist = diff * diff;
                 htrans = i - 1;
                 left = prevRow[0] + nu * htrans + dist;
                 top = iCost + prevRow[1] + lambda + nu;
                 topLeft = jCosts[1] + row[0] + lambda + nu;
                 cost = Math.min(left, Math.min(top, topLeft));
                 row[1] = cost;
-                min = Math.min(min, cost);
+                rowMin = Math.min(rowMin, cost);
                 start++;
             }
+            // carry the previous cells between iterations rather than reading them back from the rows
+            double leftCell = row[start - 1];
+            double topLeftCell = prevRow[start - 1];
             for(int j = start; j <= end; j++) {
-                dist = Math.pow(a.value(i - 1) - b.value(j - 1), 2) + Math.pow(a.value(i - 2) - b.value(j - 2), 2);
+                final double topCell = prevRow[j];
+                diff = ai - b[j - 1];
+                prevDiff = aiPrev - b[j - 2];
+                dist = diff * diff + prevDiff * prevDiff;
                 htrans = Math.abs(i - j) * 2;
-                left = prevRow[j - 1] + nu * htrans + dist;
-                top = iCost + prevRow[j] + lambda + nu;
-                topLeft = jCosts[j] + row[j - 1] + lambda + nu;
-                cost = Math.min(left, Math.min(top, topLeft));
+                left = topLeftCell + nu * htrans + dist;
+                top = iCost + topCell + lambda + nu;
+                topLeft = jCosts[j] + leftCell + lambda + nu;
+                cost = min(left, min(top, topLeft));
                 row[j] = cost;
-                min = Math.min(min, cost);
+                rowMin = min(rowMin, cost);
+                leftCell = cost;
+                topLeftCell = topCell;
             }
             if(generateDistanceMatrix) {
                 System.arraycopy(row, 0, matrix[i], 0, row.length);
             }
-            if(min > limit) {
+            if(rowMin > limit) {
                 return Double.POSITIVE_INFINITY;
             }
         }
@@ -29,6 +29,13 @@ public class TWEDistanceConfigs {
         }
     }
 
+    public static class EAPrunedTWEDSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildEAPrunedTWEDSpace();
+        }
+    }
+
     public static ParamSpace buildTWEDSpace() {
         return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new TWEDistance()),
                 buildTWEDParams());
@@ -91,4 +98,9 @@ public class TWEDistanceConfigs {
         return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new TWEDistance()),
                 buildContinuousTWEDParams());
     }
+
+    public static ParamSpace buildEAPrunedTWEDSpace() {
+        return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedTWEDistance()),
+                buildTWEDParams());
+    }
 }
@@ -1,5 +1,6 @@
 package tsml.classifiers.distance_based.distances.twed;
 
+import experiments.data.DatasetLoading;
 import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
@@ -64,6 +65,20 @@ public class TWEDistanceTest {
         ERPDistanceTest.testDistanceFunctionsOnBeef(buildDistanceFinder());
     }
 
+    @Test
+    public void testEAPruned() throws Exception {
+        final Instances data = DatasetLoading.loadItalyPowerDemand();
+        for(double[] params : new double[][] {{0, 0.00001}, {0.5, 0.01}, {1, 1}}) {
+            final TWEDistance full = new TWEDistance();
+            full.setLambda(params[0]);
+            full.setNu(params[1]);
+            final EAPrunedTWEDistance pruned = new EAPrunedTWEDistance();
+            pruned.setLambda(params[0]);
+            pruned.setNu(params[1]);
+            ERPDistanceTest.testPrunedDistances(full, pruned, data, true);
+        }
+    }
+
     private static double origTwed(Instance a, Instance b, double limit, double lambda, double nu) {
 
         int aLength = a.numAttributes() - 1;
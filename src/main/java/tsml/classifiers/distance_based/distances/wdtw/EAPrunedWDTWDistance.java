@@ -0,0 +1,116 @@
+package tsml.classifiers.distance_based.distances.wdtw;
+
+/**
+ * WDTW distance measure which prunes and early abandons the cost matrix. See EAPrunedDTWDistance, the only difference
+ * here being each cell's cost is weighted by its distance from the diagonal.
+ * <p>
+ * Distances within the limit are identical to WDTWDistance. Distances beyond it are positive infinity.
+ */
+public class EAPrunedWDTWDistance extends WDTWDistance {
+
+    @Override public double findDistance(final double[] a, final double[] b, double limit) {
+        if(isGenerateDistanceMatrix()) {
+            // pruned cells are never computed, so the full matrix is needed
+            return super.findDistance(a, b, limit);
+        }
+
+        final int aLength = a.length;
+        final int bLength = b.length;
+        final int windowSize = findWindowSize(aLength);
+        final double[] weights = generateWeights(aLength);
+
+        if(aLength == bLength) {
+            // the diagonal is always inside the window, so bounds the distance
+            double diagonal = 0;
+            for(int i = 0; i < aLength; i++) {
+                final double diff = a[i] - b[i];
+                diagonal += weights[0] * (diff * diff);
+            }
+            limit = Math.min(limit, diagonal);
+        }
+
+        double[] row = new double[bLength];
+        double[] prevRow = new double[bLength];
+        // the first row can only be reached from the left
+        final double a0 = a[0];
+        double diff = a0 - b[0];
+        double cost = weights[0] * (diff * diff);
+        if(cost > limit) {
+            return Double.POSITIVE_INFINITY;
+        }
+        row[0] = cost;
+        // first cell of the row within the limit
+        int nextStart = 0;
+        // one past the last cell of the row within the limit
+        int pruningPoint = 1;
+        int end = Math.min(bLength - 1, windowSize);
+        for(int j = 1; j <= end; j++) {
+            diff = a0 - b[j];
+            cost += weights[j] * (diff * diff);
+            if(cost > limit) {
+                break;
+            }
+            row[j] = cost;
+            pruningPoint = j + 1;
+        }
+        for(int i = 1; i < aLength; i++) {
+            {
+                double[] temp = prevRow;
+                prevRow = row;
+                row = temp;
+            }
+            final int prevStart = nextStart;
+            final int prevPruningPoint = pruningPoint;
+            final int start = Math.max(i - windowSize, prevStart);
+            end = Math.min(bLength - 1, i + windowSize);
+            nextStart = start;
+            pruningPoint = 0;
+            final double ai = a[i];
+            double left = Double.POSITIVE_INFINITY;
+            double topLeft = start > prevStart && start <= prevPruningPoint ? prevRow[start - 1] : Double.POSITIVE_INFINITY;
+            int j = start;
+            // all three neighbours available
+            for(; j <= end && j < prevPruningPoint; j++) {
+                final double top = prevRow[j];
+                diff = ai - b[j];
+                cost = min(top, min(left, topLeft)) + weights[Math.abs(i - j)] * (diff * diff);
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                left = cost;
+                topLeft = top;
+            }
+            // left and top left only
+            if(j <= end && j == prevPruningPoint) {
+                diff = ai - b[j];
+                cost = min(left, topLeft) + weights[Math.abs(i - j)] * (diff * diff);
+                row[j] = cost;
+                if(cost <= limit) {
+                    pruningPoint = j + 1;
+                } else if(nextStart == j) {
+                    nextStart++;
+                }
+                left = cost;
+                j++;
+            }
+            // left only
+            for(; j <= end && j == pruningPoint; j++) {
+                diff = ai - b[j];
+                cost = left + weights[Math.abs(i - j)] * (diff * diff);
+                if(cost > limit) {
+                    break;
+                }
+                row[j] = cost;
+                pruningPoint = j + 1;
+                left = cost;
+            }
+            if(pruningPoint == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return pruningPoint == bLength ? row[bLength - 1] : Double.POSITIVE_INFINITY;
+    }
+}
@@ -4,7 +4,6 @@ import tsml.classifiers.distance_based.distances.DoubleMatrixBasedDistanceMeasur
 import tsml.classifiers.distance_based.distances.WarpingParameter;
 import tsml.classifiers.distance_based.utils.collections.params.ParamHandlerUtils;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
-import weka.core.Instance;
 
 /**
  * WDTW distance measure.
@@ -15,7 +14,8 @@ public class WDTWDistance
     extends DoubleMatrixBasedDistanceMeasure implements WDTW {
 
     private double g = 0.05;
-    private double[] weightVector = new double[0];
+    // published only once filled, so threads sharing this measure never see partially generated weights
+    private volatile double[] weightVector = new double[0];
     private final WarpingParameter warpingParameter = new WarpingParameter();
 
     @Override
@@ -26,22 +26,17 @@ public class WDTWDistance
     @Override
     public void setG(double g) {
         this.g = g;
+        // the weights depend on g
+        weightVector = new double[0];
     }
 
     @Override
-    public double findDistance(final Instance a, final Instance b, final double limit) {
+    public double findDistance(final double[] a, final double[] b, final double limit) {
 
-        int aLength = a.numAttributes() - 1;
-        int bLength = b.numAttributes() - 1;
+        int aLength = a.length;
+        int bLength = b.length;
 
-        // generate weights
-        if(aLength != weightVector.length) {
-            final double halfLength = (double) aLength / 2;
-            weightVector = new double[aLength];
-            for(int i = 0; i < aLength; i++) {
-                weightVector[i] = 1d / (1d + Math.exp(-g * (i - halfLength)));
-            }
-        }
+        final double[] weights = generateWeights(aLength);
 
         final boolean generateDistanceMatrix = isGenerateDistanceMatrix();
         final double[][] matrix = generateDistanceMatrix ? new double[aLength][bLength] : null;
@@ -54,8 +49,10 @@ public class WDTWDistance
         double[] row = new double[bLength];
         double[] prevRow = new double[bLength];
         // top left cell of matrix will simply be the sq diff
-        double min = weightVector[0] * Math.pow(a.value(0) - b.value(0), 2);
-        row[0] = min;
+        final double a0 = a[0];
+        double diff = a0 - b[0];
+        double rowMin = weights[0] * (diff * diff);
+        row[0] = rowMin;
         // start and end of window
         // start at the next cell of the first row
         int start = 1;
@@ -68,15 +65,16 @@ public class WDTWDistance
         }
         // the first row is populated from the sq diff + the cell before
         for(int j = start; j <= end; j++) {
-            double cost = row[j - 1] + weightVector[j] * Math.pow(a.value(0) - b.value(j), 2);
+            diff = a0 - b[j];
+            double cost = row[j - 1] + weights[j] * (diff * diff);
             row[j] = cost;
-            min = Math.min(min, cost);
+            rowMin = Math.min(rowMin, cost);
         }
         if(generateDistanceMatrix) {
             System.arraycopy(row, 0, matrix[0], 0, row.length);
         }
         // early abandon if work has been done populating the first row for >1 entry
-        if(min > limit) {
+        if(rowMin > limit) {
             return Double.POSITIVE_INFINITY;
         }
         for(int i = 1; i < aLength; i++) {
@@ -87,7 +85,7 @@ public class WDTWDistance
                 row = temp;
             }
             // reset the insideLimit var each row. if all values for a row are above the limit then early abandon
-            min = Double.POSITIVE_INFINITY;
+            rowMin = Double.POSITIVE_INFINITY;
             // start and end of window
             start = Math.max(0, i - windowSize);
             end = Math.min(bLength - 1, i + windowSize);
@@ -99,29 +97,33 @@ public class WDTWDistance
             if(end + 1 < bLength) {
                 row[end + 1] = Double.POSITIVE_INFINITY;
             }
+            final double ai = a[i];
             // if assessing the left most column then only top is the option - not left or left-top
             if(start == 0) {
-                final double cost =
-                    prevRow[start] + weightVector[Math.abs(i - start)] * Math.pow(a.value(i) - b.value(start), 2);
+                diff = ai - b[start];
+                final double cost = prevRow[start] + weights[Math.abs(i - start)] * (diff * diff);
                 row[start] = cost;
-                min = Math.min(min, cost);
+                rowMin = Math.min(rowMin, cost);
                 // shift to next cell
                 start++;
             }
+            // carry the left and top-left cells between iterations rather than reading them back from the rows
+            double left = row[start - 1];
+            double topLeft = prevRow[start - 1];
             for(int j = start; j <= end; j++) {
                 // compute squared distance of feature vectors
-                final double topLeft = prevRow[j - 1];
-                final double left = row[j - 1];
                 final double top = prevRow[j];
-                final double cost =
-                    Math.min(top, Math.min(left, topLeft)) + weightVector[Math.abs(i - j)] * Math.pow(a.value(i) - b.value(j), 2);
+                diff = ai - b[j];
+                final double cost = min(top, min(left, topLeft)) + weights[Math.abs(i - j)] * (diff * diff);
                 row[j] = cost;
-                min = Math.min(min, cost);
+                rowMin = min(rowMin, cost);
+                left = cost;
+                topLeft = top;
             }
             if(generateDistanceMatrix) {
                 System.arraycopy(row, 0, matrix[i], 0, row.length);
             }
-            if(min > limit) {
+            if(rowMin > limit) {
                 return Double.POSITIVE_INFINITY;
             }
         }
@@ -129,6 +131,23 @@ public class WDTWDistance
         return row[bLength - 1];
     }
 
+    /**
+     * generate the weights for the given length, unless they already exist
+     * @return the weights
+     */
+    protected double[] generateWeights(final int aLength) {
+        double[] weights = weightVector;
+        if(aLength != weights.length) {
+            final double halfLength = (double) aLength / 2;
+            weights = new double[aLength];
+            for(int i = 0; i < aLength; i++) {
+                weights[i] = 1d / (1d + Math.exp(-g * (i - halfLength)));
+            }
+            weightVector = weights;
+        }
+        return weights;
+    }
+
     @Override
     public ParamSet getParams() {
         return super.getParams().add(WDTW.G_FLAG, g);
@@ -45,6 +45,27 @@ public class WDTWDistanceConfigs {
         }
     }
 
+    public static class EAPrunedWDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildEAPrunedWDTWSpace();
+        }
+    }
+
+    public static class ContinuousEAPrunedWDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildContinuousEAPrunedWDTWSpace();
+        }
+    }
+
+    public static class ContinuousEAPrunedWDDTWSpaceBuilder implements ParamSpaceBuilder {
+
+        @Override public ParamSpace build(final Instances data) {
+            return buildContinuousEAPrunedWDDTWSpace();
+        }
+    }
+
     public static ParamSpace buildWDTWSpace() {
         return new ParamSpace()
                        .add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new WDTWDistance()),
@@ -99,4 +120,24 @@ public class WDTWDistanceConfigs {
                   buildContinuousWDTWParams());
         return space;
     }
+
+    public static TransformDistanceMeasure newEAPrunedWDDTWDistance() {
+        return new BaseTransformDistanceMeasure("EAPrunedWDDTWDistance", Derivative.getGlobalCachedTransformer(),
+                new EAPrunedWDTWDistance());
+    }
+
+    public static ParamSpace buildEAPrunedWDTWSpace() {
+        return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedWDTWDistance()),
+                buildWDTWParams());
+    }
+
+    public static ParamSpace buildContinuousEAPrunedWDTWSpace() {
+        return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(new EAPrunedWDTWDistance()),
+                buildContinuousWDTWParams());
+    }
+
+    public static ParamSpace buildContinuousEAPrunedWDDTWSpace() {
+        return new ParamSpace().add(DistanceMeasure.DISTANCE_MEASURE_FLAG, newArrayList(newEAPrunedWDDTWDistance()),
+                buildContinuousWDTWParams());
+    }
 }
@@ -1,5 +1,6 @@
 package tsml.classifiers.distance_based.distances.wdtw;
 
+import experiments.data.DatasetLoading;
 import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
@@ -63,6 +64,18 @@ public class WDTWDistanceTest {
         ERPDistanceTest.testDistanceFunctionsOnRandomDataset(buildDistanceFinder());
     }
 
+    @Test
+    public void testEAPruned() throws Exception {
+        final Instances data = DatasetLoading.loadItalyPowerDemand();
+        for(double g : new double[] {0, 0.05, 0.5}) {
+            final WDTWDistance full = new WDTWDistance();
+            full.setG(g);
+            final EAPrunedWDTWDistance pruned = new EAPrunedWDTWDistance();
+            pruned.setG(g);
+            ERPDistanceTest.testPrunedDistances(full, pruned, data, true);
+        }
+    }
+
     private static double[] generateWeights(int seriesLength, double g) {
         double halfLength = (double) seriesLength / 2;
         double[] weightVector = new double[seriesLength];
@@ -3,6 +3,7 @@ package tsml.classifiers.distance_based.knn;
 import evaluation.storage.ClassifierResults;
 import tsml.classifiers.*;
 import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import tsml.classifiers.distance_based.distances.LowerBoundCascade;
 import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
 import tsml.classifiers.distance_based.utils.collections.params.ParamHandlerUtils;
 import tsml.classifiers.distance_based.utils.system.timing.TimedTrain;
@@ -12,15 +13,19 @@ import tsml.classifiers.distance_based.utils.classifiers.Rebuildable;
 import tsml.classifiers.distance_based.utils.system.timing.StopWatch;
 import tsml.classifiers.distance_based.utils.strings.StrUtils;
 import tsml.classifiers.distance_based.utils.classifiers.BaseClassifier;
+import tsml.classifiers.distance_based.utils.classifiers.CopierUtils;
 import utilities.*;
 import tsml.classifiers.distance_based.utils.collections.pruned.PrunedMultimap;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
+import weka.core.BatchPredictor;
 import weka.core.DistanceFunction;
 import weka.core.Instance;
 import weka.core.Instances;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
@@ -29,7 +34,7 @@ import java.util.logging.Logger;
  * Contributors: goastler
  */
 public class KNN extends BaseClassifier implements Rebuildable, Checkpointable, WatchedMemory,
-    TimedTrain {
+    TimedTrain, MultiThreadable, BatchPredictor {
 
     /**
      * flag for k variable. This is used in representing parameters in the form of a string.
@@ -81,6 +86,16 @@ public class KNN extends BaseClassifier implements Rebuildable, Checkpointable,
     private transient boolean skipFinalCheckpoint = false;
     // whether to random tie break (defaults to true / yes and drawing neighbours are put into a majority vote)
     private boolean randomTieBreak = true;
+    // lower bounds to skip distance measurements with, null for none
+    private LowerBoundCascade lowerBoundCascade = null;
+    // whether the lower bounds are valid for the distance function and have been fit to the train data
+    private transient boolean lowerBoundsFitted = false;
+    // the number of threads to search for neighbours with
+    private int numThreads = 1;
+    // the preferred number of instances passed to distributionsForInstances, see BatchPredictor
+    private String batchSize = "100";
+    // a distance function for each thread, as they hold state between distance calls. Built on demand.
+    private transient List<DistanceFunction> threadDistanceFunctions;
 
     public boolean isSkipFinalCheckpoint() {
         return skipFinalCheckpoint;
@@ -213,6 +228,17 @@ public class KNN extends BaseClassifier implements Rebuildable, Checkpointable,
         super.buildClassifier(trainData);
         // let the distance function know about the instances
         distanceFunction.setInstances(trainData);
+        threadDistanceFunctions = null;
+        // precompute the lower bounds against each train instance, if they bound the distance function
+        lowerBoundsFitted = false;
+        if(lowerBoundCascade != null) {
+            if(lowerBoundCascade.isCompatible(distanceFunction)) {
+                lowerBoundCascade.fit(distanceFunction, trainData);
+                lowerBoundsFitted = true;
+            } else {
+                getLogger().info("lower bounds are not compatible with " + distanceFunction + ", ignoring");
+            }
+        }
         // save our model data
         this.trainData = trainData;
         // we're fully built now
@@ -247,6 +273,13 @@ public class KNN extends BaseClassifier implements Rebuildable, Checkpointable,
         private final PrunedMultimap<Double, Instance> prunedMap;
         // the target instance we're trying to find the closest neighbour to
         private final Instance instance;
+        // the index of the target instance in the train data, or -1 if not a train instance
+        private final int index;
+        // the series of the target instance, extracted on demand for lower bounding
+        private double[] series;
+        // the pruning limit shared between searchers looking through separate parts of the train data for the same
+        // instance, stored as the bits of a double. Null if not shared.
+        private final AtomicLong sharedLimit;
         // distance limit if we're early abandoning
         private double limit = Double.POSITIVE_INFINITY;
         // timer to record comparison time
@@ -258,7 +291,28 @@ public class KNN extends BaseClassifier implements Rebuildable, Checkpointable,
             return instance;
         }
 
+        public int getIndex() {
+            return index;
+        }
+
+        public double[] getSeries() {
+            if(series == null) {
+                series = InstanceTools.ConvertInstanceToArrayRemovingClassValue(instance);
+            }
+            return series;
+        }
+
         public NeighbourSearcher(Instance instance) {
+            this(instance, -1);
+        }
+
+        public NeighbourSearcher(Instance instance, int index) {
+            this(instance, index, null);
+        }
+
+        private NeighbourSearcher(Instance instance, int index, AtomicLong sharedLimit) {
+            this.index = index;
+            this.sharedLimit = sharedLimit;
             this.prunedMap =
                 new PrunedMultimap<>(((Comparator<Double> & Serializable) Double::compare));
             // set the map to look for the k closest neighbours but keep neighbours which draw (e.g. both have a
@@ -269,6 +323,17 @@ public class KNN extends BaseClassifier implements Rebuildable, Checkpointable,
 
         // add an instance, finding the distance between the target instance and the given instance
         public double add(Instance neighbour) {
+            return add(neighbour, getLimit());
+        }
+
+        // add an instance, finding the distance between the target instance and the given instance, abandoning beyond
+        // the given limit
+        public double add(Instance neighbour, double limit) {
+            return add(neighbour, limit, distanceFunction);
+        }
+
+        // add an instance, finding the distance with the given distance function. Each thread must use its own.
+        public double add(Instance neighbour, double limit, DistanceFunction distanceFunction) {
             StopWatch timer = new StopWatch();
             timer.start();
             final double distance = distanceFunction.distance(this.instance, neighbour, limit);
@@ -281,13 +346,34 @@ public class KNN extends BaseClassifier implements Rebuildable, Checkpointable,
         public void add(Instance neighbour, double distance, long distanceMeasurementTime) {
             comparisonTimer.start();
             prunedMap.put(distance, neighbour);
+            if(sharedLimit != null && prunedMap.size() >= k) {
+                // tighten the shared limit if this searcher has found a closer kth neighbour
+                final double kthDistance = prunedMap.lastKey();
+                long bits = sharedLimit.get();
+                while(kthDistance < Double.longBitsToDouble(bits) &&
+                          !sharedLimit.compareAndSet(bits, Double.doubleToLongBits(kthDistance))) {
+                    bits = sharedLimit.get();
+                }
+            }
             if(earlyAbandon) {
-                limit = prunedMap.lastKey();
+                // only abandon beyond the kth neighbour, otherwise neighbours are lost while fewer than k are found
+                limit = getPruningLimit();
             }
             comparisonTimer.add(distanceMeasurementTime);
             comparisonTimer.stop();
         }
 
+        // add the neighbours found by another searcher for the same instance, e.g. over a different part of the data
+        public void addAll(NeighbourSearcher other) {
+            comparisonTimer.start();
+            prunedMap.putAll(other.prunedMap);
+            if(earlyAbandon && !prunedMap.isEmpty()) {
+                limit = getPruningLimit();
+            }
+            comparisonTimer.add(other.comparisonTimer);
+            comparisonTimer.stop();
+        }
+
         public double[] predict() {
             predictTimer.resetAndStart();
             final PrunedMultimap<Double, Instance> nearestNeighbourMap = prunedMap;
@@ -315,20 +401,197 @@ public class KNN extends BaseClassifier implements Rebuildable, Checkpointable,
         }
 
         public double getLimit() {
+            if(earlyAbandon && sharedLimit != null) {
+                return Math.min(limit, Double.longBitsToDouble(sharedLimit.get()));
+            }
             return limit;
         }
+
+        /**
+         * the distance beyond which a neighbour can't be one of the k nearest, irrelevant of early abandoning.
+         * @return
+         */
+        public double getPruningLimit() {
+            double pruningLimit = Double.POSITIVE_INFINITY;
+            if(prunedMap.size() >= k) {
+                pruningLimit = prunedMap.lastKey();
+            }
+            if(sharedLimit != null) {
+                pruningLimit = Math.min(pruningLimit, Double.longBitsToDouble(sharedLimit.get()));
+            }
+            return pruningLimit;
+        }
     }
 
     @Override
     public double[] distributionForInstance(final Instance testInstance) throws
                                                                      Exception {
         final NeighbourSearcher searcher = new NeighbourSearcher(testInstance);
-        for(final Instance trainInstance : trainData) {
-            searcher.add(trainInstance);
-        }
+        search(searcher, numThreads > 1);
         return searcher.predict();
     }
 
+    /**
+     * find the distribution for several instances. If multithreading, the instances are spread over the threads rather
+     * than the search for each instance, keeping every thread busy.
+     * @param testData
+     * @return
+     * @throws Exception
+     */
+    @Override
+    public double[][] distributionsForInstances(final Instances testData) throws Exception {
+        final double[][] distributions = new double[testData.size()][];
+        if(numThreads > 1) {
+            final List<DistanceFunction> distanceFunctions = getThreadDistanceFunctions();
+            final List<Callable<Void>> tasks = new ArrayList<>(numThreads);
+            for(int i = 0; i < numThreads; i++) {
+                final DistanceFunction threadDistanceFunction = distanceFunctions.get(i);
+                final int offset = i;
+                tasks.add(() -> {
+                    for(int j = offset; j < testData.size(); j += numThreads) {
+                        final NeighbourSearcher searcher = new NeighbourSearcher(testData.get(j));
+                        search(searcher, false, threadDistanceFunction);
+                        distributions[j] = searcher.predict();
+                    }
+                    return null;
+                });
+            }
+            ThreadingUtilities.computeAll(numThreads, tasks);
+        } else {
+            for(int i = 0; i < testData.size(); i++) {
+                distributions[i] = distributionForInstance(testData.get(i));
+            }
+        }
+        return distributions;
+    }
+
+    /**
+     * batch prediction only gains when multithreading, spreading the instances over the threads
+     * @return whether using more than one thread
+     */
+    @Override
+    public boolean implementsMoreEfficientBatchPrediction() {
+        return numThreads > 1;
+    }
+
+    @Override
+    public void setBatchSize(final String size) {
+        batchSize = size;
+    }
+
+    @Override
+    public String getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * search the train data for the nearest neighbours to the searcher's instance, skipping the searcher's own
+     * instance if it is a train instance. If using lower bounds the train data is searched in order of the cheapest
+     * lower bound, so close neighbours are likely found early and the remaining candidates can be skipped when their
+     * lower bounds exceed the distance to the kth neighbour. Candidates skipped are further than the kth neighbour, so
+     * the neighbours found are the same as a full search.
+     * <p>
+     * If parallel, the train data is split between the threads, each searching their part with their own searcher. The
+     * kth neighbour's distance is shared between them for pruning / early abandoning, and their neighbours are merged
+     * into the given searcher at the end.
+     */
+    protected void search(final NeighbourSearcher searcher, boolean parallel) throws Exception {
+        search(searcher, parallel, distanceFunction);
+    }
+
+    /**
+     * search as above, using the given distance function if searching on this thread alone
+     */
+    private void search(final NeighbourSearcher searcher, boolean parallel, DistanceFunction distanceFunction)
+        throws Exception {
+        final int size = trainData.size();
+        final Integer[] order = new Integer[size];
+        for(int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        final double[] cheapestLowerBounds;
+        if(lowerBoundsFitted) {
+            final double[] query = searcher.getSeries();
+            cheapestLowerBounds = new double[size];
+            for(int i = 0; i < size; i++) {
+                cheapestLowerBounds[i] = lowerBoundCascade.cheapestLowerBound(query, i);
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> cheapestLowerBounds[i]));
+        } else {
+            cheapestLowerBounds = null;
+        }
+        if(!parallel || size < numThreads) {
+            search(searcher, order, cheapestLowerBounds, 0, 1, distanceFunction);
+            return;
+        }
+        final List<DistanceFunction> distanceFunctions = getThreadDistanceFunctions();
+        final AtomicLong sharedLimit = new AtomicLong(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+        final List<NeighbourSearcher> partialSearchers = new ArrayList<>(numThreads);
+        final List<Callable<Void>> tasks = new ArrayList<>(numThreads);
+        for(int i = 0; i < numThreads; i++) {
+            final NeighbourSearcher partialSearcher =
+                new NeighbourSearcher(searcher.getInstance(), searcher.getIndex(), sharedLimit);
+            partialSearchers.add(partialSearcher);
+            // interleave the candidates so each thread starts with those likely to be closest
+            final int offset = i;
+            final DistanceFunction threadDistanceFunction = distanceFunctions.get(i);
+            tasks.add(() -> {
+                search(partialSearcher, order, cheapestLowerBounds, offset, numThreads, threadDistanceFunction);
+                return null;
+            });
+        }
+        ThreadingUtilities.computeAll(numThreads, tasks);
+        for(final NeighbourSearcher partialSearcher : partialSearchers) {
+            searcher.addAll(partialSearcher);
+        }
+    }
+
+    private void search(final NeighbourSearcher searcher, final Integer[] order, final double[] cheapestLowerBounds,
+        final int offset, final int stride, final DistanceFunction distanceFunction) {
+        final double[] query = cheapestLowerBounds == null ? null : searcher.getSeries();
+        for(int j = offset; j < order.length; j += stride) {
+            final int i = order[j];
+            if(i == searcher.getIndex()) {
+                continue;
+            }
+            if(cheapestLowerBounds != null) {
+                final double limit = searcher.getPruningLimit();
+                if(cheapestLowerBounds[i] > limit) {
+                    // all remaining candidates have a larger lower bound
+                    break;
+                }
+                if(lowerBoundCascade.lowerBound(query, i, limit) > limit) {
+                    continue;
+                }
+            }
+            searcher.add(trainData.get(i), searcher.getLimit(), distanceFunction);
+        }
+    }
+
+    @Override public void enableMultiThreading(final int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * get a distance function for each thread to search with, the first being the distance function itself. Distance
+     * functions are not thread safe (e.g. they cache the last series extracted) so the rest are copies of it.
+     * @return
+     */
+    protected synchronized List<DistanceFunction> getThreadDistanceFunctions() throws Exception {
+        if(threadDistanceFunctions == null || threadDistanceFunctions.size() != numThreads) {
+            threadDistanceFunctions = new ArrayList<>(numThreads);
+            threadDistanceFunctions.add(distanceFunction);
+            for(int i = 1; i < numThreads; i++) {
+                threadDistanceFunctions.add(CopierUtils.deepCopyValue(distanceFunction));
+            }
+        }
+        return threadDistanceFunctions;
+    }
+
     public int getK() {
         return k;
     }
@@ -337,12 +600,34 @@ public class KNN extends BaseClassifier implements Rebuildable, Checkpointable,
         this.k = k;
     }
 
+    public LowerBoundCascade getLowerBoundCascade() {
+        return lowerBoundCascade;
+    }
+
+    /**
+     * set the lower bounds used to skip distance measurements. These are ignored if they do not bound the distance
+     * function.
+     * @param lowerBoundCascade
+     */
+    public void setLowerBoundCascade(final LowerBoundCascade lowerBoundCascade) {
+        this.lowerBoundCascade = lowerBoundCascade;
+    }
+
+    /**
+     * whether the lower bounds have been fit to the train data and are being used to skip distance measurements.
+     * @return
+     */
+    public boolean isLowerBounding() {
+        return lowerBoundsFitted;
+    }
+
     public DistanceFunction getDistanceFunction() {
         return distanceFunction;
     }
 
     public void setDistanceFunction(final DistanceFunction distanceFunction) {
         this.distanceFunction = distanceFunction;
+        threadDistanceFunctions = null;
     }
 
 }
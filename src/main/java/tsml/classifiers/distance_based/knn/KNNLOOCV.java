@@ -2,7 +2,6 @@ package tsml.classifiers.distance_based.knn;
 
 import evaluation.storage.ClassifierResults;
 import tsml.classifiers.TrainTimeContractable;
-import tsml.classifiers.distance_based.distances.BaseDistanceMeasure;
 import tsml.classifiers.distance_based.distances.dtw.DTWDistanceConfigs;
 import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
 import tsml.classifiers.distance_based.distances.erp.ERPDistanceConfigs;
@@ -22,13 +21,14 @@ import tsml.classifiers.distance_based.utils.classifiers.CompileTimeClassifierBu
 import tsml.classifiers.distance_based.utils.collections.iteration.LinearListIterator;
 import utilities.*;
 import tsml.classifiers.distance_based.utils.collections.cache.BiCache;
-import tsml.classifiers.distance_based.utils.collections.cache.SymmetricBiCache;
+import tsml.classifiers.distance_based.utils.collections.cache.DistanceMatrixCache;
 import weka.core.DistanceFunction;
 import weka.core.Instance;
 import weka.core.Instances;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -197,6 +197,7 @@ public class KNNLOOCV
             classifier.setNeighbourIteratorBuilder(new LinearNeighbourIteratorBuilder(classifier));
             classifier.setCvSearcherIteratorBuilder(new LinearNeighbourIteratorBuilder(classifier));
             classifier.setRandomTieBreak(false);
+            classifier.setLowerBoundCascade(DTWDistanceConfigs.newDTWLowerBoundCascade());
             return classifier;
         }
 
@@ -256,13 +257,20 @@ public class KNNLOOCV
     protected int neighbourCount;
     protected int comparisonCount;
     protected StopWatch trainEstimateTimer = new StopWatch();
+    // distances found previously, e.g. by another classifier over the same data. Null if not caching
+    protected DistanceMatrixCache distanceCache;
+    // whether to use the distance cache shared by all classifiers with the same data and distance function
+    protected boolean sharedDistanceCache = false;
+    // distances found previously keyed by instance, only used when there is no distance cache. Null if not set
+    @Deprecated
     protected BiCache<Instance, Instance, Double> biCache;
+    // whether each train instance has been left out, in which case its distance to every other instance is known
+    protected boolean[] leftOut;
     protected NeighbourSearcher leftOutSearcher = null;
     protected Iterator<NeighbourSearcher> leftOutSearcherIterator;
     protected Iterator<NeighbourSearcher> cvSearcherIterator;
     protected NeighbourIteratorBuilder neighbourIteratorBuilder = new RandomNeighbourIteratorBuilder(this);
     protected NeighbourIteratorBuilder cvSearcherIteratorBuilder = new RandomNeighbourIteratorBuilder(this);
-    protected boolean customCache = false;
     private boolean regenerateTrainEstimate = true;
 
     public KNNLOOCV() {
@@ -322,34 +330,40 @@ public class KNNLOOCV
         if(leftOutSearcher == null) {
             leftOutSearcher = leftOutSearcherIterator.next();
             leftOutSearcherIterator.remove();
+            leftOut[leftOutSearcher.getIndex()] = true;
         }
         comparisonCount++;
         final NeighbourSearcher searcher = cvSearcherIterator.next();
         cvSearcherIterator.remove();
         final Instance instance = searcher.getInstance();
         final Instance leftOutInstance = leftOutSearcher.getInstance();
-        if(!leftOutInstance.equals(instance)) {
-            boolean seen;
-            if(customCache) {
-                seen = biCache.contains(leftOutInstance, instance);
-            } else {
-                seen = biCache.remove(leftOutInstance, instance);
-            }
-            if(seen) {
-                // we've already seen this instance
+        final int index = searcher.getIndex();
+        final int leftOutIndex = leftOutSearcher.getIndex();
+        if(index != leftOutIndex) {
+            if(leftOut[index]) {
+                // we've already seen this instance, its distance to the left out instance was found when it was left out
                 logger.info(() -> comparisonCount + ") " + "already seen i" + instance.hashCode() + " and i" + leftOutInstance.hashCode());
+            } else if(isLowerBoundPruned(searcher, leftOutSearcher)) {
+                // neither instance can be a nearest neighbour of the other
+                logger.info(() -> comparisonCount + ") i" + instance.hashCode() + " and i" + leftOutInstance.hashCode() +
+                                 ": lower bound pruned");
             } else {
                 final long distanceMeasurementTimeStamp = System.nanoTime();
-                Double distance = customCache ? biCache.get(instance, leftOutInstance) : null;
+                double distance = findCachedDistance(searcher, leftOutSearcher);
                 final long timeTakenInNanos = System.nanoTime() - distanceMeasurementTimeStamp;
-                if(distance == null) {
-                    distance = searcher.add(leftOutInstance);
+                if(Double.isNaN(distance)) {
+                    // the distance is shared by both searchers, so only abandon beyond both of their limits
+                    final double limit = Math.max(searcher.getLimit(), leftOutSearcher.getLimit());
+                    distance = searcher.add(leftOutInstance, limit);
+                    // only cache true distances, not those which have been abandoned
+                    if(distance <= limit) {
+                        cacheDistance(searcher, leftOutSearcher, distance);
+                    }
                 } else {
                     searcher.add(leftOutInstance, distance, timeTakenInNanos);
                 }
                 leftOutSearcher.add(instance, distance, 0); // we get this for free!
-                biCache.put(instance, leftOutInstance, distance);
-                final Double finalDistance = distance;
+                final double finalDistance = distance;
                 logger.info(() -> comparisonCount + ") i" + instance.hashCode() + " and i" + leftOutInstance.hashCode() +
                                  ": " + finalDistance);
             }
@@ -376,6 +390,126 @@ public class KNNLOOCV
         longestNeighbourEvalTimeInNanos = System.nanoTime() - timeStamp;
     }
 
+    /**
+     * @return the cached distance between the searchers' instances, or NaN if not cached
+     */
+    private double findCachedDistance(NeighbourSearcher searcher, NeighbourSearcher leftOutSearcher) {
+        if(distanceCache != null) {
+            return distanceCache.get(searcher.getIndex(), leftOutSearcher.getIndex());
+        }
+        if(biCache != null) {
+            final Double distance = biCache.get(searcher.getInstance(), leftOutSearcher.getInstance());
+            if(distance != null) {
+                return distance;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private void cacheDistance(NeighbourSearcher searcher, NeighbourSearcher leftOutSearcher, double distance) {
+        if(distanceCache != null) {
+            distanceCache.put(searcher.getIndex(), leftOutSearcher.getIndex(), distance);
+        } else if(biCache != null) {
+            biCache.put(searcher.getInstance(), leftOutSearcher.getInstance(), distance);
+        }
+    }
+
+    /**
+     * whether the lower bound between the searchers' instances exceeds the distance to both of their kth neighbours,
+     * in which case the distance needn't be found.
+     */
+    private boolean isLowerBoundPruned(NeighbourSearcher searcher, NeighbourSearcher leftOutSearcher) {
+        if(!isLowerBounding()) {
+            return false;
+        }
+        final double limit = Math.max(searcher.getPruningLimit(), leftOutSearcher.getPruningLimit());
+        return isLowerBoundPruned(searcher.getSeries(), leftOutSearcher.getIndex(), limit);
+    }
+
+    private boolean isLowerBoundPruned(final double[] series, final int index, final double limit) {
+        if(!isLowerBounding() || limit == Double.POSITIVE_INFINITY) {
+            return false;
+        }
+        return getLowerBoundCascade().lowerBound(series, index, limit) > limit;
+    }
+
+    /**
+     * whether to find the train estimate in one go across several threads. This needs every train instance's
+     * neighbours, i.e. no neighbour limit, and must be from scratch.
+     */
+    private boolean isParallelTrainEstimate() throws Exception {
+        return getNumThreads() > 1 && hasNextBuildTick() && !hasNeighbourLimit() && distanceCache == null
+                   && biCache == null && neighbourCount == 0 && comparisonCount == 0;
+    }
+
+    /**
+     * find the neighbours of every train instance at once across several threads. Each thread takes every
+     * numThreads-th train instance and finds its distance to each later train instance, giving the distance to both
+     * instances' searchers as the incremental search does, so each distance is only found once.
+     */
+    private void searchAllInParallel() throws Exception {
+        final int numThreads = getNumThreads();
+        final List<DistanceFunction> distanceFunctions = getThreadDistanceFunctions();
+        if(isLowerBounding()) {
+            // extract the series up front rather than have the threads race to extract them on demand
+            for(final NeighbourSearcher searcher : searchers) {
+                searcher.getSeries();
+            }
+        }
+        final List<Callable<Void>> tasks = new ArrayList<>(numThreads);
+        for(int i = 0; i < numThreads; i++) {
+            final DistanceFunction distanceFunction = distanceFunctions.get(i);
+            final int offset = i;
+            tasks.add(() -> {
+                for(int j = offset; j < searchers.size(); j += numThreads) {
+                    for(int k = j + 1; k < searchers.size(); k++) {
+                        compareInParallel(searchers.get(j), searchers.get(k), distanceFunction);
+                    }
+                }
+                return null;
+            });
+        }
+        ThreadingUtilities.computeAll(numThreads, tasks);
+        // all searches are complete
+        leftOutSearcherIterator = Collections.emptyIterator();
+        cvSearcherIterator = Collections.emptyIterator();
+        leftOutSearcher = null;
+        neighbourCount = searchers.size();
+        comparisonCount = searchers.size() * searchers.size();
+        regenerateTrainEstimate = true;
+    }
+
+    /**
+     * find the distance between a pair of train instances and give it to both of their searchers, unless the lower
+     * bound shows neither can be a nearest neighbour of the other. The searchers may be in use by other threads, so
+     * they are locked while reading their limits or adding to them, the earlier instance's first so threads cannot
+     * deadlock.
+     */
+    private void compareInParallel(final NeighbourSearcher searcher, final NeighbourSearcher other,
+        final DistanceFunction distanceFunction) {
+        final double limit;
+        final double pruningLimit;
+        synchronized(searcher) {
+            synchronized(other) {
+                // the distance is shared by both searchers, so only abandon beyond both of their limits
+                limit = Math.max(searcher.getLimit(), other.getLimit());
+                pruningLimit = Math.max(searcher.getPruningLimit(), other.getPruningLimit());
+            }
+        }
+        if(isLowerBounding() && isLowerBoundPruned(searcher.getSeries(), other.getIndex(), pruningLimit)) {
+            return;
+        }
+        final long distanceMeasurementTimeStamp = System.nanoTime();
+        final double distance = distanceFunction.distance(searcher.getInstance(), other.getInstance(), limit);
+        final long timeTakenInNanos = System.nanoTime() - distanceMeasurementTimeStamp;
+        synchronized(searcher) {
+            synchronized(other) {
+                searcher.add(other.getInstance(), distance, timeTakenInNanos);
+                other.add(searcher.getInstance(), distance, 0);
+            }
+        }
+    }
+
     public NeighbourIteratorBuilder getNeighbourIteratorBuilder() {
         return neighbourIteratorBuilder;
     }
@@ -453,15 +587,12 @@ public class KNNLOOCV
                 searchers = new ArrayList<>(trainData.size());
                 // build a neighbour searcher for every train instance
                 for(int i = 0; i < trainData.size(); i++) {
-                    final NeighbourSearcher searcher = new NeighbourSearcher(trainData.get(i));
+                    final NeighbourSearcher searcher = new NeighbourSearcher(trainData.get(i), i);
                     searchers.add(i, searcher);
                 }
-                if(distanceFunction instanceof BaseDistanceMeasure) {
-                    if(((BaseDistanceMeasure) distanceFunction).isSymmetric()) {
-                        biCache = new SymmetricBiCache<>();
-                    } else {
-                        biCache = new BiCache<>();
-                    }
+                leftOut = new boolean[trainData.size()];
+                if(sharedDistanceCache) {
+                    distanceCache = DistanceMatrixCache.getShared(trainData, distanceFunction);
                 }
                 leftOutSearcherIterator = neighbourIteratorBuilder.build();
                 regenerateTrainEstimate = true; // build the first train estimate irrelevant of any progress made
@@ -483,6 +614,9 @@ public class KNNLOOCV
         }
         trainTimer.stop(false);
         trainEstimateTimer.start(false);
+        if(isParallelTrainEstimate()) {
+            searchAllInParallel();
+        }
         while(hasNextBuildTick()) {
             nextBuildTick();
             checkpointIfIntervalExpired();
@@ -538,17 +672,59 @@ public class KNNLOOCV
         this.neighbourLimit = neighbourLimit;
     }
 
+    public DistanceMatrixCache getDistanceCache() {
+        return distanceCache;
+    }
+
+    /**
+     * set the cache of distances between the train instances, indexed by their position in the train data.
+     * @param distanceCache
+     */
+    public void setDistanceCache(final DistanceMatrixCache distanceCache) {
+        this.distanceCache = distanceCache;
+    }
+
+    /**
+     * @deprecated use getDistanceCache
+     */
+    @Deprecated
     public BiCache<Instance, Instance, Double> getBiCache() {
         return biCache;
     }
 
+    /**
+     * set a cache of distances keyed by the train instances, read and written in place of a distance cache when none
+     * is set.
+     * @param biCache
+     * @deprecated use setDistanceCache, which keys by index and does not box the distances
+     */
+    @Deprecated
     public void setBiCache(final BiCache<Instance, Instance, Double> biCache) {
         this.biCache = biCache;
-        customCache = biCache != null;
     }
 
+    /**
+     * go back to not caching distances.
+     * @deprecated use setDistanceCache(null) and setSharedDistanceCache(false)
+     */
+    @Deprecated
     public void setDefaultCache() {
         setBiCache(null);
+        setDistanceCache(null);
+        setSharedDistanceCache(false);
+    }
+
+    public boolean isSharedDistanceCache() {
+        return sharedDistanceCache;
+    }
+
+    /**
+     * use the distance cache shared by all classifiers with the same train data and distance function. This replaces
+     * any distance cache at build time.
+     * @param sharedDistanceCache
+     */
+    public void setSharedDistanceCache(final boolean sharedDistanceCache) {
+        this.sharedDistanceCache = sharedDistanceCache;
     }
 
     public NeighbourIteratorBuilder getCvSearcherIteratorBuilder() {
@@ -0,0 +1,170 @@
+package tsml.classifiers.distance_based.knn;
+
+import evaluation.storage.ClassifierResults;
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistanceConfigs;
+import tsml.classifiers.distance_based.utils.collections.cache.SymmetricBiCache;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Purpose: test searching with lower bounds / multiple threads finds the same neighbours as a full search
+ */
+public class KNNTest {
+
+    private static KNN buildKnn(int k, int window, boolean lowerBound) {
+        final DTWDistance dtw = new DTWDistance();
+        dtw.setWindowSize(window);
+        final KNN knn = new KNN(dtw);
+        knn.setK(k);
+        knn.setRandomTieBreak(false);
+        knn.setSeed(0);
+        if(lowerBound) {
+            knn.setLowerBoundCascade(DTWDistanceConfigs.newDTWLowerBoundCascade());
+        }
+        return knn;
+    }
+
+    @Test
+    public void testLowerBoundPredictions() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        for(int k : new int[] {1, 3}) {
+            for(int window : new int[] {2, -1}) {
+                final KNN full = buildKnn(k, window, false);
+                full.buildClassifier(data[0]);
+                final KNN bounded = buildKnn(k, window, true);
+                bounded.buildClassifier(data[0]);
+                Assert.assertTrue(bounded.isLowerBounding());
+                for(Instance instance : data[1]) {
+                    Assert.assertArrayEquals(full.distributionForInstance(instance),
+                        bounded.distributionForInstance(instance), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLowerBoundTrainEstimate() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final KNNLOOCV full = KNNLOOCV.Factory.buildDtw1nnV1();
+        full.setLowerBoundCascade(null);
+        full.setSeed(0);
+        full.setEstimatorMethod("CV");
+        full.setEstimateOwnPerformance(true);
+        full.buildClassifier(data[0]);
+        final KNNLOOCV bounded = KNNLOOCV.Factory.buildDtw1nnV1();
+        bounded.setSeed(0);
+        bounded.setEstimatorMethod("CV");
+        bounded.setEstimateOwnPerformance(true);
+        bounded.buildClassifier(data[0]);
+        Assert.assertTrue(bounded.isLowerBounding());
+        final ClassifierResults fullResults = full.getTrainResults();
+        final ClassifierResults boundedResults = bounded.getTrainResults();
+        for(int i = 0; i < data[0].size(); i++) {
+            Assert.assertArrayEquals(fullResults.getProbabilityDistribution(i),
+                boundedResults.getProbabilityDistribution(i), 0);
+        }
+    }
+
+    @Test
+    public void testParallelPredictions() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        for(int k : new int[] {1, 3}) {
+            for(boolean lowerBound : new boolean[] {false, true}) {
+                final KNN serial = buildKnn(k, -1, lowerBound);
+                serial.buildClassifier(data[0]);
+                final KNN parallel = buildKnn(k, -1, lowerBound);
+                parallel.enableMultiThreading(3);
+                parallel.buildClassifier(data[0]);
+                final double[][] distributions = parallel.distributionsForInstances(data[1]);
+                for(int i = 0; i < data[1].size(); i++) {
+                    final double[] distribution = serial.distributionForInstance(data[1].get(i));
+                    Assert.assertArrayEquals(distribution, parallel.distributionForInstance(data[1].get(i)), 0);
+                    Assert.assertArrayEquals(distribution, distributions[i], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelTrainEstimate() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        for(int k : new int[] {1, 3}) {
+            for(boolean lowerBound : new boolean[] {false, true}) {
+                final KNNLOOCV serial = buildLoocv(k, lowerBound);
+                serial.buildClassifier(data[0]);
+                final KNNLOOCV parallel = buildLoocv(k, lowerBound);
+                parallel.enableMultiThreading(3);
+                parallel.buildClassifier(data[0]);
+                for(int i = 0; i < data[0].size(); i++) {
+                    Assert.assertArrayEquals(serial.getTrainResults().getProbabilityDistribution(i),
+                        parallel.getTrainResults().getProbabilityDistribution(i), 0);
+                }
+            }
+        }
+    }
+
+    private static KNNLOOCV buildLoocv(int k, boolean lowerBound) {
+        final KNNLOOCV knn = KNNLOOCV.Factory.buildDtw1nnV1();
+        knn.setK(k);
+        knn.setSeed(0);
+        knn.setEstimatorMethod("CV");
+        knn.setEstimateOwnPerformance(true);
+        if(lowerBound) {
+            knn.setLowerBoundCascade(DTWDistanceConfigs.newDTWLowerBoundCascade());
+        }
+        return knn;
+    }
+
+    @Test
+    public void testSharedDistanceCache() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final KNNLOOCV uncached = KNNLOOCV.Factory.buildDtw1nnV1();
+        uncached.setSeed(0);
+        uncached.setEstimatorMethod("CV");
+        uncached.setEstimateOwnPerformance(true);
+        uncached.buildClassifier(data[0]);
+        KNNLOOCV previous = null;
+        for(int i = 0; i < 2; i++) {
+            final KNNLOOCV cached = KNNLOOCV.Factory.buildDtw1nnV1();
+            cached.setSeed(0);
+            cached.setEstimatorMethod("CV");
+            cached.setEstimateOwnPerformance(true);
+            cached.setSharedDistanceCache(true);
+            cached.buildClassifier(data[0]);
+            for(int j = 0; j < data[0].size(); j++) {
+                Assert.assertArrayEquals(uncached.getTrainResults().getProbabilityDistribution(j),
+                    cached.getTrainResults().getProbabilityDistribution(j), 0);
+            }
+            if(previous != null) {
+                Assert.assertSame(previous.getDistanceCache(), cached.getDistanceCache());
+            }
+            previous = cached;
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation") // the deprecated cache must keep working until removed
+    public void testBiCache() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final KNNLOOCV uncached = buildLoocv(1, false);
+        uncached.buildClassifier(data[0]);
+        final SymmetricBiCache<Instance, Double> biCache = new SymmetricBiCache<>();
+        for(int i = 0; i < 2; i++) {
+            final KNNLOOCV cached = buildLoocv(1, false);
+            cached.setBiCache(biCache);
+            cached.buildClassifier(data[0]);
+            Assert.assertSame(biCache, cached.getBiCache());
+            for(int j = 0; j < data[0].size(); j++) {
+                Assert.assertArrayEquals(uncached.getTrainResults().getProbabilityDistribution(j),
+                    cached.getTrainResults().getProbabilityDistribution(j), 0);
+            }
+        }
+        // every pair was found once and cached
+        Assert.assertTrue(biCache.contains(data[0].get(1), data[0].get(0)));
+        Assert.assertTrue(biCache.contains(data[0].get(0), data[0].get(1)));
+    }
+}
@@ -6,12 +6,14 @@ import evaluation.evaluators.OutOfBagEvaluator;
 import evaluation.storage.ClassifierResults;
 import experiments.data.DatasetLoading;
 import org.junit.Assert;
+import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.distance_based.utils.classifiers.BaseClassifier;
 import tsml.classifiers.distance_based.utils.classifiers.Configurer;
 import tsml.classifiers.distance_based.utils.classifiers.EnumBasedConfigurer;
 import tsml.classifiers.distance_based.utils.classifiers.checkpointing.BaseCheckpointer;
 import tsml.classifiers.distance_based.utils.classifiers.checkpointing.Checkpointed;
 import tsml.classifiers.distance_based.utils.classifiers.checkpointing.Checkpointer;
+import tsml.classifiers.distance_based.utils.classifiers.checkpointing.IncrementallyCheckpointed;
 import tsml.classifiers.distance_based.utils.classifiers.contracting.ContractedTest;
 import tsml.classifiers.distance_based.utils.classifiers.contracting.ContractedTrain;
 import tsml.classifiers.distance_based.utils.system.logging.LogUtils;
@@ -24,20 +26,24 @@ import tsml.classifiers.distance_based.utils.system.timing.TimedTrain;
 import tsml.classifiers.distance_based.utils.system.timing.TimedTrainEstimate;
 import utilities.ArrayUtilities;
 import utilities.ClassifierTools;
+import utilities.ThreadingUtilities;
 import utilities.Utilities;
 import weka.core.Instance;
 import weka.core.Instances;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 /**
  * Purpose: // todo - docs - type the purpose of the code here
  * <p>
+ * Checkpointing needs -Dtsml.serialiser=kryo, as the trees' splits are not Serializable.
+ * <p>
  * Contributors: goastler
  */
-public class ProximityForest extends BaseClassifier implements ContractedTrain, ContractedTest, TimedTrain, TimedTrainEstimate, TimedTest, WatchedMemory, Checkpointed {
+public class ProximityForest extends BaseClassifier implements ContractedTrain, ContractedTest, TimedTrain, TimedTrainEstimate, TimedTest, WatchedMemory, Checkpointed, IncrementallyCheckpointed<ProximityForest.Constituent>, MultiThreadable {
 
     public static void main(String[] args) throws Exception {
         for(int i = 1; i < 2; i++) {
@@ -200,12 +206,23 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
     private transient final Checkpointer checkpointer = new BaseCheckpointer(this);
     // whether to rebuild the tree after a train estimate has been produced. This is for evaluation methods like OOB where the evaluated tree may not need rebuilding
     private boolean rebuildConstituentAfterEvaluation;
+    // the number of trees to build at once
+    private int numThreads = 1;
 
     @Override public Checkpointer getCheckpointer() {
         return checkpointer;
     }
 
-    private static class Constituent implements Serializable {
+    // the trees are checkpointed as they are built, so a checkpoint only writes the trees built since the last
+    @Override public List<Constituent> getCheckpointParts() {
+        return constituents;
+    }
+
+    @Override public void setCheckpointParts(final List<Constituent> parts) {
+        constituents = parts;
+    }
+
+    static class Constituent implements Serializable {
         private ProximityTree proximityTree;
         private Evaluator evaluator;
         private ClassifierResults evaluationResults;
@@ -268,43 +285,53 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
             LogUtils.logTimeContract(trainTimer.getTime(), trainTimeLimitNanos, logger, "train");
             // reset the tree build timer
             trainStageTimer.resetAndStart();
-            final int treeIndex = constituents.size();
-            // setup a new tree
-            final ProximityTree tree = new ProximityTree();
-//            tree.setLogger(logger);
-            final Constituent constituent = new Constituent();
-            constituent.setProximityTree(tree);
-            constituents.add(constituent);
-            proximityTreeConfig.configure(tree);
-            tree.setSeed(rand.nextInt());
-            // estimate the performance of the tree
+            // the trees in this batch are built at the same time, so all must finish by the end of the contract
+            final long deadline = System.nanoTime() + trainTimeLimitNanos - trainTimer.getTime();
+            // build a tree per thread, up to the tree limit
+            int numTrees = numThreads;
+            if(hasNumTreeLimit()) {
+                numTrees = Math.min(numTrees, numTreeLimit - constituents.size());
+            }
+            final List<Constituent> batch = new ArrayList<>(numTrees);
+            final long[] evaluationTimes = new long[numTrees];
+            final List<Callable<Void>> tasks = new ArrayList<>(numTrees);
+            for(int i = 0; i < numTrees; i++) {
+                final int batchIndex = i;
+                final int treeIndex = constituents.size() + i;
+                // setup a new tree. The seeds are drawn here in tree order so the forest is the same however many
+                // threads build it
+                final ProximityTree tree = new ProximityTree();
+                final Constituent constituent = new Constituent();
+                constituent.setProximityTree(tree);
+                batch.add(constituent);
+                proximityTreeConfig.configure(tree);
+                tree.setSeed(rand.nextInt());
+                if(!estimator.equals(EstimatorMethod.NONE)) {
+                    // build train estimate based on method
+                    final Evaluator evaluator = buildEvaluator();
+                    evaluator.setSeed(rand.nextInt());
+                    constituent.setEvaluator(evaluator);
+                }
+                tasks.add(() -> {
+                    evaluationTimes[batchIndex] = buildConstituent(constituent, treeIndex, trainData, deadline);
+                    return null;
+                });
+            }
+            ThreadingUtilities.runTasks(numThreads, tasks);
+            constituents.addAll(batch);
             if(!estimator.equals(EstimatorMethod.NONE)) {
-                trainEstimateTimer.start();
-                // build train estimate based on method
-                final Evaluator evaluator = buildEvaluator();
-                evaluator.setSeed(rand.nextInt());
-                constituent.setEvaluator(evaluator);
-                logger.info(() -> "evaluating tree " + treeIndex);
-                // evaluate the tree
-                final ClassifierResults results = evaluator.evaluate(tree, trainData);
-                constituent.setEvaluationResults(results);
+                // the trees were evaluated at the same time, so the batch took as long as the slowest evaluation
+                long longestEvaluationTime = 0;
+                for(long evaluationTime : evaluationTimes) {
+                    longestEvaluationTime = Math.max(longestEvaluationTime, evaluationTime);
+                }
+                trainEstimateTimer.add(longestEvaluationTime);
                 // rebuild the train results as the train estimate has been changed
                 setRebuildTrainEstimateResults(true);
-                // set meta data
-                ResultUtils.setInfo(results, tree, trainData);
-                results.setErrorEstimateMethod(getEstimatorMethod());
-                trainEstimateTimer.stop();
-                results.setErrorEstimateTime(trainStageTimer.getTime());
             }
-            // build the tree if not producing train estimate OR rebuild after evaluation
-            if(estimator.equals(EstimatorMethod.NONE) || rebuildConstituentAfterEvaluation) {
-                logger.info(() -> "building tree " + treeIndex);
-                tree.setRebuild(true);
-                tree.buildClassifier(trainData);
-            }
-            // tree fully built
+            // trees fully built
             trainStageTimer.stop();
-            // update longest tree build time
+            // update longest tree build time. The batch is timed as a whole as its trees are built at the same time
             longestTrainStageTimeNanos = Math.max(longestTrainStageTimeNanos, trainStageTimer.getTime());
             // optional checkpoint
             checkpointIfIntervalExpired();
@@ -375,6 +402,71 @@ public class ProximityForest extends BaseClassifier implements ContractedTrain,
         memoryWatcher.stop();
         ResultUtils.setInfo(trainResults, this, trainData);
         checkpointIfWorkDone();
+        awaitCheckpoints();
+    }
+
+    /**
+     * evaluate and / or build a constituent's tree. The trees in a batch share what is left of the train contract, so
+     * under a contract each tree is given the time remaining until the deadline as its own contract. The tree then
+     * stops building nodes when the forest's contract runs out rather than overrunning it.
+     *
+     * @param constituent the constituent holding the tree and its evaluator
+     * @param treeIndex the index of the tree in the forest
+     * @param trainData the train data
+     * @param deadline the System.nanoTime() by which the tree must be built, if contracted
+     * @return the time taken to evaluate the tree, or 0 if not evaluated
+     * @throws Exception
+     */
+    private long buildConstituent(Constituent constituent, int treeIndex, Instances trainData, long deadline)
+            throws Exception {
+        final long startTime = System.nanoTime();
+        final Logger logger = getLogger();
+        final ProximityTree tree = constituent.getProximityTree();
+        long evaluationTime = 0;
+        // estimate the performance of the tree
+        if(!estimator.equals(EstimatorMethod.NONE)) {
+            final Evaluator evaluator = constituent.getEvaluator();
+            logger.info(() -> "evaluating tree " + treeIndex);
+            // evaluate the tree
+            limitTreeTrainTime(tree, deadline);
+            final ClassifierResults results = evaluator.evaluate(tree, trainData);
+            constituent.setEvaluationResults(results);
+            // set meta data
+            ResultUtils.setInfo(results, tree, trainData);
+            results.setErrorEstimateMethod(getEstimatorMethod());
+            evaluationTime = System.nanoTime() - startTime;
+            results.setErrorEstimateTime(evaluationTime);
+        }
+        // build the tree if not producing train estimate OR rebuild after evaluation
+        if(estimator.equals(EstimatorMethod.NONE) || rebuildConstituentAfterEvaluation) {
+            logger.info(() -> "building tree " + treeIndex);
+            limitTreeTrainTime(tree, deadline);
+            tree.setRebuild(true);
+            tree.buildClassifier(trainData);
+        }
+        return evaluationTime;
+    }
+
+    private void limitTreeTrainTime(ProximityTree tree, long deadline) {
+        if(hasTrainTimeLimit()) {
+            // at least 1ns as a limit of 0 is no limit
+            tree.setTrainTimeLimit(Math.max(1, deadline - System.nanoTime()));
+        }
+    }
+
+    /**
+     * build numThreads trees at once. The seeds of each tree are still drawn in tree order, so a seeded forest is the
+     * same whatever the number of threads.
+     *
+     * @param numThreads the number of threads to use
+     */
+    @Override // MultiThreadable
+    public void enableMultiThreading(final int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
     }
 
     @Override
@@ -0,0 +1,38 @@
+package tsml.classifiers.distance_based.proximity;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+/**
+ * Purpose: test a seeded proximity forest is the same whatever the number of threads building the trees
+ */
+public class ProximityForestTest {
+
+    private static ProximityForest buildForest(int numThreads) {
+        final ProximityForest forest = new ProximityForest();
+        ProximityForest.Config.PF_R5_OOB.configure(forest);
+        forest.setNumTreeLimit(10);
+        forest.setSeed(0);
+        forest.enableMultiThreading(numThreads);
+        return forest;
+    }
+
+    @Test
+    public void testSameForestWithMultipleThreads() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final ProximityForest serial = buildForest(1);
+        serial.buildClassifier(data[0]);
+        final ProximityForest parallel = buildForest(3);
+        parallel.buildClassifier(data[0]);
+        for(int i = 0; i < data[0].size(); i++) {
+            Assert.assertArrayEquals(serial.getTrainResults().getProbabilityDistribution(i),
+                parallel.getTrainResults().getProbabilityDistribution(i), 0);
+        }
+        for(int i = 0; i < data[1].size(); i++) {
+            Assert.assertArrayEquals(serial.distributionForInstance(data[1].get(i)),
+                parallel.distributionForInstance(data[1].get(i)), 0);
+        }
+    }
+}
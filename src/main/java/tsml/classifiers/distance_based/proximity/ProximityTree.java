@@ -3,6 +3,7 @@ package tsml.classifiers.distance_based.proximity;
 import com.google.common.collect.Lists;
 import experiments.data.DatasetLoading;
 import org.junit.Assert;
+import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.distance_based.distances.DistanceMeasure;
 import tsml.classifiers.distance_based.distances.dtw.DTWDistanceConfigs;
 import tsml.classifiers.distance_based.distances.ed.EDistanceConfigs;
@@ -27,6 +28,7 @@ import tsml.classifiers.distance_based.utils.collections.tree.BaseTree;
 import tsml.classifiers.distance_based.utils.collections.tree.BaseTreeNode;
 import tsml.classifiers.distance_based.utils.collections.tree.Tree;
 import tsml.classifiers.distance_based.utils.collections.tree.TreeNode;
+import tsml.classifiers.distance_based.utils.collections.views.InstancesView;
 import tsml.classifiers.distance_based.utils.classifiers.contracting.ContractedTest;
 import tsml.classifiers.distance_based.utils.classifiers.contracting.ContractedTrain;
 import tsml.classifiers.distance_based.utils.classifiers.results.ResultUtils;
@@ -42,14 +44,18 @@ import tsml.transformers.IntervalTransform;
 import tsml.transformers.TransformPipeline;
 import utilities.ArrayUtilities;
 import utilities.ClassifierTools;
+import utilities.ThreadingUtilities;
 import utilities.Utilities;
 import weka.core.DistanceFunction;
 import weka.core.Instance;
 import weka.core.Instances;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import static tsml.classifiers.distance_based.utils.collections.CollectionUtils.newArrayList;
 
@@ -58,7 +64,7 @@ import static tsml.classifiers.distance_based.utils.collections.CollectionUtils.
  * <p>
  * Contributors: goastler
  */
-public class ProximityTree extends BaseClassifier implements ContractedTest, ContractedTrain, TimedTrain, TimedTest, WatchedMemory, Checkpointed {
+public class ProximityTree extends BaseClassifier implements ContractedTest, ContractedTrain, TimedTrain, TimedTest, WatchedMemory, Checkpointed, MultiThreadable {
 
     public static void main(String[] args) throws Exception {
         for(int i = 0; i < 1; i++) {
@@ -133,6 +139,9 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
     }
 
     private static final long serialVersionUID = 1;
+    // the fewest instances worth handing to a thread when finding the distances to the exemplars. Below this the
+    // cost of copying the distance function outweighs the distances
+    private static final int MIN_INSTANCES_PER_THREAD = 16;
     // train timer
     private final StopWatch trainTimer = new StopWatch();
     // test / predict timer
@@ -184,6 +193,12 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
     private boolean randomR;
     // whether to use patience in the R parameter
     private boolean rPatience;
+    // the train data, shared by every node. The data at each node is a list of indices into this rather than a copy
+    private transient Instances trainData;
+    // the number of threads to find the distances to the exemplars with
+    private int numThreads = 1;
+    // the pool of threads finding the distances, made for each build and shut down afterwards
+    private transient ExecutorService executor;
 
     public boolean hasMaxHeight() {
         return maxHeight > 0;
@@ -255,16 +270,46 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
                 nodeBuildQueue = new LinkedList<>();
                 maxTimePerInstanceForNodeBuilding = 0;
                 // setup the root node
-                final TreeNode<Split> root = new BaseTreeNode<>(new Split(trainData), null);
+                final TreeNode<Split> root = new BaseTreeNode<>(new Split(IntStream.range(0, trainData.size()).toArray()), null);
                 // add the root node to the tree
                 tree.setRoot(root);
                 // add the root node to the build queue
                 nodeBuildQueue.add(root);
             }
         }
+        // the nodes index into the train data
+        this.trainData = trainData;
         // update the timings
         trainTimer.lap();
         LogUtils.logTimeContract(trainTimer.getTime(), trainTimeLimit, logger, "train");
+        if(numThreads > 1) {
+            executor = ThreadingUtilities.buildExecutorService(numThreads);
+        }
+        try {
+            buildNodes();
+        } finally {
+            if(executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        // stop resource monitoring
+        this.trainData = null;
+        trainTimer.stop();
+        memoryWatcher.stop();
+        ResultUtils.setInfo(trainResults, this, trainData);
+        // checkpoint if work has been done since (i.e. tree has been built further)
+        checkpointIfWorkDone();
+        awaitCheckpoints();
+    }
+
+    /**
+     * build the nodes in the build queue until none remain or the train time limit is reached
+     *
+     * @throws Exception
+     */
+    private void buildNodes() throws Exception {
+        final Logger logger = getLogger();
         while(
                 // there's remaining nodes to be built
                 !nodeBuildQueue.isEmpty()
@@ -272,7 +317,7 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
                 // there is enough time for another split to be built
                 insideTrainTimeLimit( trainTimer.getTime() +
                                      maxTimePerInstanceForNodeBuilding *
-                                     nodeBuildQueue.peekFirst().getElement().getData().size())
+                                     nodeBuildQueue.peekFirst().getElement().getDataIndices().length)
         ) {
             // time how long it takes to build the node
             trainStageTimer.resetAndStart();
@@ -297,12 +342,6 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
             trainTimer.lap();
             LogUtils.logTimeContract(trainTimer.getTime(), trainTimeLimit, logger, "train");
         }
-        // stop resource monitoring
-        trainTimer.stop();
-        memoryWatcher.stop();
-        ResultUtils.setInfo(trainResults, this, trainData);
-        // checkpoint if work has been done since (i.e. tree has been built further)
-        checkpointIfWorkDone();
     }
 
     /**
@@ -312,12 +351,12 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
      * @return
      */
     private List<TreeNode<Split>> setupChildNodes(TreeNode<Split> parent) {
-        final List<Instances> partitions = parent.getElement().getPartitionedData();
+        final List<Partition> partitions = parent.getElement().getPartitions();
         List<TreeNode<Split>> children = new ArrayList<>(partitions.size());
         // for each child
-        for(Instances partition : partitions) {
-            // setup the node
-            children.add(new BaseTreeNode<>(new Split(partition), parent));
+        for(Partition partition : partitions) {
+            // setup the node over the same train data indices as the partition
+            children.add(new BaseTreeNode<>(new Split(partition.getDataIndices()), parent));
         }
         return children;
     }
@@ -359,8 +398,7 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
 
     private long findNodeBuildTime(TreeNode<Split> node, long time) {
         // assume that the time taken to build a node is proportional to the amount of instances at the node
-        final Instances data = node.getElement().getData();
-        final long timePerInstance = time / data.size();
+        final long timePerInstance = time / node.getElement().getDataIndices().length;
         return Math.max(maxTimePerInstanceForNodeBuilding, timePerInstance + 1); // add 1 to account for precision
         // error in div operation
     }
@@ -511,8 +549,12 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
         this.randomR = randomR;
     }
 
-    private Split buildSplit(Split unbuiltSplit) {
+    private Split buildSplit(Split unbuiltSplit) throws Exception {
+        // view the data at the node once for all the split attempts
         final Instances data = unbuiltSplit.getData();
+        // the distances found so far between the data and the exemplars, so a split attempt with the same distance
+        // function and exemplars as an earlier one need not find them again
+        final Map<String, Map<Instance, double[]>> distanceCache = new HashMap<>();
         double bestSplitScore = Double.NEGATIVE_INFINITY;
         Split bestSplit = null;
         int r = this.r;
@@ -522,8 +564,8 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
         // need to find the best of R splits
         for(int i = 0; i < r; i++) {
             // construct a new split
-            Split split = new Split(data);
-            split.partitionData();
+            Split split = new Split(unbuiltSplit.getDataIndices());
+            split.partitionData(data, distanceCache);
             final double score = split.getScore();
             if(score > bestSplitScore) {
                 bestSplit = split;
@@ -536,6 +578,22 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
         return bestSplit;
     }
 
+    /**
+     * find the distances between the data and the exemplars of each split attempt with numThreads threads. The
+     * exemplars, distance functions and tie breaks are still drawn from rand in the same order, so a seeded tree is
+     * the same whatever the number of threads.
+     *
+     * @param numThreads the number of threads to use
+     */
+    @Override // MultiThreadable
+    public void enableMultiThreading(final int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
     public boolean isRPatience() {
         return rPatience;
     }
@@ -546,13 +604,12 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
 
     private static class Partition {
 
-        private Partition(final Instances data, final List<Instance> exemplars) {
-            this.data = data;
+        private Partition(final List<Instance> exemplars) {
             this.exemplars = exemplars;
         }
 
-        // data in this partition
-        private final Instances data;
+        // the indices of the train data in this partition
+        private int[] dataIndices;
         // exemplar instances representing this partition
         private final List<Instance> exemplars;
 
@@ -576,8 +633,12 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
             return distribution;
         }
 
-        public Instances getData() {
-            return data;
+        public int[] getDataIndices() {
+            return dataIndices;
+        }
+
+        public void setDataIndices(final int[] dataIndices) {
+            this.dataIndices = dataIndices;
         }
 
         public List<Instance> getExemplars() {
@@ -590,18 +651,20 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
 
         public Split() {}
 
-        public Split(Instances data) {
-            setData(data);
+        public Split(int[] dataIndices) {
+            setDataIndices(dataIndices);
         }
 
         // the distance function for comparing instances to exemplars
         private DistanceFunction distanceFunction;
+        // the distance function and interval, identifying the distances the function gives
+        private String distanceFunctionKey;
 //        // the exemplars for each partition
         private Map<Instance, Integer> exemplarIndexToPartitionIndexMap;
         // the score of this split
         private double score = -1;
-        // the data at this split (i.e. before being partitioned)
-        private Instances data;
+        // the indices of the train data at this split (i.e. before being partitioned)
+        private int[] dataIndices;
         // the partitions of the data, each containing data for the partition and exemplars representing the partition
         private List<Partition> partitions;
 
@@ -609,7 +672,7 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
             return score;
         }
 
-        public void setupDistanceFunction() {
+        public void setupDistanceFunction(final Instances data) {
             Instances dataForParamSpaceBuilding = data;
             IntervalTransform intervalTransform = null;
             if(randomIntervals) {
@@ -649,14 +712,18 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
                 }
             }
             Assert.assertNotNull(distanceFunction);
+            distanceFunctionKey = distanceFunction.toString();
+            if(randomIntervals) {
+                distanceFunctionKey += " " + intervalTransform.getInterval();
+            }
         }
 
         /**
          * pick exemplars from the given dataset
          */
-        public void setupExemplarsAndPartitions() {
+        public void setupExemplarsAndPartitions(final Instances data) {
             // change the view of the data into per class
-            final Map<Double, List<Integer>> instancesByClass = Utilities.instancesByClass(this.data);
+            final Map<Double, List<Integer>> instancesByClass = Utilities.instancesByClass(data);
             // pick exemplars per class
             final int numPartitions = instancesByClass.size();
             final int totalNumExemplars = numExemplarsPerClass * numPartitions;
@@ -683,8 +750,8 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
                 for(Integer i : exemplarIndices) {
                     exemplars.add(data.get(i));
                 }
-                // generate the partition with empty data and the chosen exemplar instances
-                final Partition partition = new Partition(new Instances(data, 0), exemplars);
+                // generate the partition with the chosen exemplar instances, the data is added once partitioned
+                final Partition partition = new Partition(exemplars);
                 partitions.add(partition);
                 final int partitionIndex = partitions.size() - 1;
                 if(improvedExemplarCheck) {
@@ -699,20 +766,85 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
             Assert.assertFalse(partitions.isEmpty());
         }
 
-        public void partitionData() {
+        /**
+         * partition the data at this split
+         *
+         * @param data the data at this split, i.e. a view of the train data at the data indices
+         * @param distanceCache the distances found by earlier split attempts at this node, by distance function then
+         *                      exemplar. Each holds the distance to every instance in the data, or NaN if not yet found
+         * @throws Exception
+         */
+        public void partitionData(final Instances data, final Map<String, Map<Instance, double[]>> distanceCache)
+                throws Exception {
             // pick the distance function
-            setupDistanceFunction();
+            setupDistanceFunction(data);
             // pick the exemplars
-            setupExemplarsAndPartitions();
-            // setup the distance function
+            setupExemplarsAndPartitions(data);
+            // the distances from each exemplar to the data, filled in as found
+            final List<double[]> exemplarDistances = new ArrayList<>();
+            final Map<Instance, double[]> cachedDistances =
+                    distanceCache.computeIfAbsent(distanceFunctionKey, key -> new HashMap<>());
+            for(Partition partition : partitions) {
+                for(Instance exemplar : partition.getExemplars()) {
+                    exemplarDistances.add(cachedDistances.computeIfAbsent(exemplar, key -> {
+                        final double[] distances = new double[data.size()];
+                        Arrays.fill(distances, Double.NaN);
+                        return distances;
+                    }));
+                }
+            }
+            // find the distances from each instance to the exemplars, splitting the data between the threads. Each
+            // thread needs its own distance function as they are not thread safe. The distance function is setup
+            // once before copying, as setting it up may fit a transformer shared with other distance functions
             distanceFunction.setInstances(data);
+            final int numBlocks = Math.max(1, Math.min(numThreads, data.size() / MIN_INSTANCES_PER_THREAD));
+            final List<DistanceFunction> distanceFunctions = new ArrayList<>(numBlocks);
+            distanceFunctions.add(distanceFunction);
+            for(int i = 1; i < numBlocks; i++) {
+                distanceFunctions.add(CopierUtils.deepCopyValue(distanceFunction));
+            }
+            // the partition index of each instance which is an exemplar, or -1 for the rest which need distances
+            final int[] partitionIndices = new int[data.size()];
+            final double[][] distances = new double[data.size()][];
+            final List<Callable<Void>> tasks = new ArrayList<>(numBlocks);
+            for(int i = 0; i < numBlocks; i++) {
+                final DistanceFunction blockDistanceFunction = distanceFunctions.get(i);
+                final int start = (int) ((long) data.size() * i / numBlocks);
+                final int end = (int) ((long) data.size() * (i + 1) / numBlocks);
+                tasks.add(() -> {
+                    for(int j = start; j < end; j++) {
+                        final Instance instance = data.get(j);
+                        partitionIndices[j] = findExemplarPartitionIndex(instance);
+                        if(partitionIndices[j] < 0) {
+                            distances[j] = findExemplarDistances(instance, blockDistanceFunction, exemplarDistances, j);
+                        }
+                    }
+                    return null;
+                });
+            }
+            ThreadingUtilities.runTasks(executor, tasks);
             // go through every instance and find which partition it should go into. This should be the partition
-            // with the closest exemplar associate
+            // with the closest exemplar associate. Ties are broken here in the order of the data, so rand is used in
+            // the same order however many threads found the distances
+            final int[] partitionSizes = new int[partitions.size()];
             for(int i = 0; i < data.size(); i++) {
-                final Instance instance = data.get(i);
-                final Partition closestPartition = findPartitionFor(instance);
-                // add the instance to the partition
-                closestPartition.getData().add(instance);
+                if(partitionIndices[i] < 0) {
+                    partitionIndices[i] = findPartitionIndexFor(distances[i]);
+                }
+                partitionSizes[partitionIndices[i]]++;
+            }
+            // add the index of each instance in the train data to its partition, in the same order as the data
+            final int[][] partitionDataIndices = new int[partitions.size()][];
+            for(int i = 0; i < partitions.size(); i++) {
+                partitionDataIndices[i] = new int[partitionSizes[i]];
+                partitionSizes[i] = 0;
+            }
+            for(int i = 0; i < partitionIndices.length; i++) {
+                final int partitionIndex = partitionIndices[i];
+                partitionDataIndices[partitionIndex][partitionSizes[partitionIndex]++] = dataIndices[i];
+            }
+            for(int i = 0; i < partitions.size(); i++) {
+                partitions.get(i).setDataIndices(partitionDataIndices[i]);
             }
             // find the score of this split attempt, i.e. how good it is
             score = partitionScorer.findScore(data, getPartitionedData());
@@ -730,17 +862,99 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
          */
         public int findPartitionIndexFor(final Instance instance) {
             // the instance may be an exemplar, so lookup the partition index
+            final int index = findExemplarPartitionIndex(instance);
+            if(index >= 0) {
+                return index;
+            }
+            // the instance is not an exemplar, so find the distances to each exemplar and pick partition from that
+            return findPartitionIndexFor(findExemplarDistances(instance, distanceFunction, null, -1));
+        }
+
+        /**
+         * find the partition of the given instance if it is one of the exemplars
+         *
+         * @param instance
+         * @return the partition index, or -1 if the instance is not an exemplar
+         */
+        private int findExemplarPartitionIndex(final Instance instance) {
             if(improvedExemplarCheck) {
-                Integer index = exemplarIndexToPartitionIndexMap.get(instance);
+                final Integer index = exemplarIndexToPartitionIndexMap.get(instance);
                 if(index != null) {
                     // the instance is an exemplar and the partition must therefore be the partition that exemplar represents
                     return index;
                 }
-                // the instance is not an exemplar, so find the distances to each exemplar and pick partition from that
-                // get the partition for this instance (based on proximity to corresponding exemplars)
+            } else {
+                for(int i = 0; i < partitions.size(); i++) {
+                    for(Instance exemplar : partitions.get(i).getExemplars()) {
+                        // check the instance isn't an exemplar
+                        if(instance == exemplar) {
+                            return i;
+                        }
+                    }
+                }
             }
+            return -1;
+        }
+
+        /**
+         * find the distance from the given instance to each exemplar, in the order of the partitions then their
+         * exemplars. If early abandoning, the distance to the closest exemplar so far is the limit for the next, so a
+         * distance beyond it may be infinite rather than exact.
+         *
+         * @param instance the instance
+         * @param distanceFunction the distance function to use
+         * @param exemplarDistances the distances from each exemplar to the data, or null to not look up or store the
+         *                          distances
+         * @param instanceIndex the index of the instance in the data
+         * @return the distances
+         */
+        private double[] findExemplarDistances(final Instance instance, final DistanceFunction distanceFunction,
+                final List<double[]> exemplarDistances, final int instanceIndex) {
+            final double[] distances = new double[numExemplars()];
             // the limit for early abandon
             double limit = Double.POSITIVE_INFINITY;
+            int exemplarIndex = 0;
+            // loop through exemplars
+            for(Partition partition : partitions) {
+                for(Instance exemplar : partition.getExemplars()) {
+                    // find the distance, unless already found by an earlier split attempt
+                    double distance = Double.NaN;
+                    if(exemplarDistances != null) {
+                        distance = exemplarDistances.get(exemplarIndex)[instanceIndex];
+                    }
+                    if(Double.isNaN(distance)) {
+                        distance = distanceFunction.distance(instance, exemplar, limit);
+                        // only keep exact distances, i.e. those not early abandoned
+                        if(exemplarDistances != null && distance <= limit) {
+                            exemplarDistances.get(exemplarIndex)[instanceIndex] = distance;
+                        }
+                    }
+                    // adjust early abandon limit
+                    if(earlyAbandonDistances) {
+                        limit = Math.min(distance, limit);
+                    }
+                    distances[exemplarIndex++] = distance;
+                }
+            }
+            return distances;
+        }
+
+        private int numExemplars() {
+            int count = 0;
+            for(Partition partition : partitions) {
+                count += partition.getExemplars().size();
+            }
+            return count;
+        }
+
+        /**
+         * get the partition with the closest exemplar given the distances to each exemplar, breaking ties using rand
+         * if enabled
+         *
+         * @param distances the distances to each exemplar, see findExemplarDistances
+         * @return the partition index
+         */
+        private int findPartitionIndexFor(final double[] distances) {
             // a map to maintain the closest partition indices
             PrunedMultimap<Double, Integer> distanceToPartitionMap = PrunedMultimap.asc();
             if(randomTieBreakDistances) {
@@ -752,25 +966,11 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
                 // discard the newest on tie break situation
                 distanceToPartitionMap.setDiscardType(PrunedMultimap.DiscardType.NEWEST);
             }
-            // loop through exemplars
+            int exemplarIndex = 0;
             for(int i = 0; i < partitions.size(); i++) {
-                final Partition partition = partitions.get(i);
-                for(Instance exemplar : partition.getExemplars()) {
-                    // for each exemplar
-                    // check the instance isn't an exemplar
-                    if(!improvedExemplarCheck) {
-                        if(instance == exemplar) {
-                            return i;
-                        }
-                    }
-                    // find the distance
-                    final double distance = distanceFunction.distance(instance, exemplar, limit);
-                    // adjust early abandon limit
-                    if(earlyAbandonDistances) {
-                        limit = Math.min(distance, limit);
-                    }
+                for(int j = 0; j < partitions.get(i).getExemplars().size(); j++) {
                     // add the distance and partition to the map
-                    distanceToPartitionMap.put(distance, i);
+                    distanceToPartitionMap.put(distances[exemplarIndex++], i);
                 }
             }
             // get the smallest distance from the map
@@ -788,13 +988,21 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
             return partitions.get(findPartitionIndexFor(instance));
         }
 
+        /**
+         * @return a view of the train data at this split. The instances are not copied, so the view is cheap to make
+         * and is not kept by the split.
+         */
         public Instances getData() {
-            return data;
+            return new InstancesView(trainData, dataIndices);
+        }
+
+        public int[] getDataIndices() {
+            return dataIndices;
         }
 
-        public void setData(Instances data) {
-            Assert.assertNotNull(data);
-            this.data = data;
+        public void setDataIndices(int[] dataIndices) {
+            Assert.assertNotNull(dataIndices);
+            this.dataIndices = dataIndices;
         }
 
         @Override
@@ -802,18 +1010,17 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
             StringBuilder stringBuilder = new StringBuilder();
             stringBuilder.append(getClass().getSimpleName() + "{" +
                                          "score=" + score +
-                                         ", dataSize=" + data.size());
+                                         ", dataSize=" + dataIndices.length);
             stringBuilder.append(", df=");
             if(distanceFunction != null) {
                 stringBuilder.append(distanceFunction.toString());
             } else {
                 stringBuilder.append("null");
             }
-            final List<Instances> partitionedData = getPartitionedData();
-            if(partitionedData != null) {
+            if(partitions != null) {
                 int i = 0;
-                for(Instances instances : partitionedData) {
-                    stringBuilder.append(", p" + i + "=" + instances.size());
+                for(Partition partition : partitions) {
+                    stringBuilder.append(", p" + i + "=" + partition.getDataIndices().length);
                     i++;
                 }
             }
@@ -825,13 +1032,16 @@ public class ProximityTree extends BaseClassifier implements ContractedTest, Con
             return partitions;
         }
 
+        /**
+         * @return a view of the train data in each partition
+         */
         public List<Instances> getPartitionedData() {
             if(partitions == null) {
                 return null;
             }
             List<Instances> partitionDatas = new ArrayList<>(partitions.size());
             for(Partition partition : partitions) {
-                partitionDatas.add(partition.getData());
+                partitionDatas.add(new InstancesView(trainData, partition.getDataIndices()));
             };
             return partitionDatas;
         }
@@ -0,0 +1,36 @@
+package tsml.classifiers.distance_based.proximity;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+/**
+ * Purpose: test a seeded proximity tree is the same whatever the number of threads finding the distances
+ */
+public class ProximityTreeTest {
+
+    private static ProximityTree buildTree(ProximityTree.Config config, int numThreads) {
+        final ProximityTree tree = new ProximityTree();
+        config.configureFromEnum(tree);
+        tree.setSeed(0);
+        tree.enableMultiThreading(numThreads);
+        return tree;
+    }
+
+    @Test
+    public void testSameTreeWithMultipleThreads() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        for(ProximityTree.Config config : new ProximityTree.Config[] {ProximityTree.Config.PT_R1,
+            ProximityTree.Config.PT_R5}) {
+            final ProximityTree serial = buildTree(config, 1);
+            serial.buildClassifier(data[0]);
+            final ProximityTree parallel = buildTree(config, 3);
+            parallel.buildClassifier(data[0]);
+            for(int i = 0; i < data[1].size(); i++) {
+                Assert.assertArrayEquals(serial.distributionForInstance(data[1].get(i)),
+                    parallel.distributionForInstance(data[1].get(i)), 0);
+            }
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package tsml.classifiers.distance_based.utils.classifiers;
 
 import utilities.FileUtils;
-import weka.core.SerializedObject;
+import utilities.serialisation.Serialisation;
 
 import java.io.*;
 import java.lang.annotation.*;
@@ -94,16 +94,11 @@ public class CopierUtils {
     // copy functions for copying values
 
     public static byte[] serialise(Object obj) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(baos);
-        oos.writeObject(obj);
-        return baos.toByteArray();
+        return Serialisation.serialise(obj);
     }
 
     public static Object deserialise(byte[] bytes) throws IOException, ClassNotFoundException {
-        ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-        ObjectInputStream ois = new ObjectInputStream(bais);
-        return ois.readObject();
+        return Serialisation.deserialise(bytes);
     }
 
     public static <A> A copy(A object, boolean deep) throws
@@ -117,7 +112,7 @@ public class CopierUtils {
 
     public static <A> A deepCopyValue(A object) throws
             Exception {
-        return (A) new SerializedObject(object).getObject();
+        return Serialisation.deepCopy(object);
     }
 
     // copy several fields across to another object
@@ -4,20 +4,43 @@ import tsml.classifiers.distance_based.utils.classifiers.CopierUtils;
 import tsml.classifiers.distance_based.utils.system.logging.LogUtils;
 import tsml.classifiers.distance_based.utils.system.logging.Loggable;
 import utilities.FileUtils;
+import utilities.ThreadingUtilities;
+import utilities.serialisation.Compression;
+import utilities.serialisation.Serialisation;
+import utilities.serialisation.Serialiser;
 
 import java.io.*;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
+/**
+ * Checkpoints a target by serialising it to a file. The target is serialised on the calling thread, then compressed
+ * and written on a background thread, so training can carry on while the checkpoint is written.
+ * <p>
+ * An IncrementallyCheckpointed target is checkpointed by appending a segment to the checkpoint file holding only the
+ * parts added since the last checkpoint, alongside the rest of the target's state. Only the rest of the state is
+ * serialised on the calling thread; the new parts cannot change, so are serialised on the background thread. The parts
+ * of all the segments form one stream of objects (see Serialiser.openWriter), so anything the parts share is only
+ * written once. Every maxSegments segments the file is compacted into a single segment, also in the background.
+ * Otherwise the checkpoint file is the serialised target, as written by Serialisation.
+ * <p>
+ * Targets holding objects which are not Serializable, such as ProximityForest, must be checkpointed with the kryo
+ * serialiser, i.e. -Dtsml.serialiser=kryo.
+ */
 public class BaseCheckpointer implements Checkpointer {
 
     public static Logger DEFAULT_LOGGER = LogUtils.buildLogger(BaseCheckpointer.class);
     private static final long serialVersionUID = 1;
+    // the start of a checkpoint file made of segments rather than a single serialised object
+    private static final byte[] SEGMENT_LOG_MAGIC = {'T', 'S', 'E', 'G'};
     private String checkpointDirPath;
     private String checkpointFileName;
     private long minCheckpointIntervalNanos;
@@ -26,6 +49,24 @@ public class BaseCheckpointer implements Checkpointer {
     // assume work has been done when no loading has occurred
     private boolean checkpointSinceLoad = true;
     private final Object target;
+    // the number of segments in a checkpoint file before they are compacted into one
+    private int maxSegments = 16;
+    // the parts list of an incrementally checkpointed target and how many of its parts are in the checkpoint file
+    private transient List<?> checkpointedParts;
+    private transient int numCheckpointedParts;
+    // the stream of parts written to the checkpoint file so far, and the bytes it has written since the last segment.
+    // Only used on the writer thread
+    private transient Serialiser.ObjectWriter partsWriter;
+    private transient ByteArrayOutputStream partsBuffer;
+    // the number of segments in the checkpoint file once the pending writes are done
+    private transient int numSegments;
+    // writes the checkpoints one at a time, in the order they were taken. Made on the first checkpoint after each
+    // awaitCheckpoints, which shuts it down
+    private transient ExecutorService writer;
+    // the last checkpoint write submitted
+    private transient Future<?> lastWrite;
+    // the first failure to write a checkpoint, not yet reported
+    private transient volatile Exception writeFailure;
 
     public BaseCheckpointer(final Object target) {
         this.target = target;
@@ -46,31 +87,58 @@ public class BaseCheckpointer implements Checkpointer {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Write the whole target to a file, waiting until it has been written.
+     */
     public void saveToFile(String path) throws Exception {
-        File tmp = new File(path + ".tmp");
-        File main = new File(path);
-        try (FileUtils.FileLock fileLocker = new FileUtils.FileLock(main);
-                FileOutputStream fos = new FileOutputStream(tmp);
-                GZIPOutputStream gos = new GZIPOutputStream(fos);
-                ObjectOutputStream out = new ObjectOutputStream(gos)) {
-            out.writeObject(target);
-            Files.move(tmp.toPath(), main.toPath(), REPLACE_EXISTING);
-            getLogger().info("saved checkpoint to " + path);
-        }
+        awaitCheckpoints();
+        writeFile(Serialisation.serialise(target), path, Serialisation.getCompression());
+        // any segments to follow must start afresh
+        checkpointedParts = null;
     }
 
     public void loadFromFile(String path) throws Exception {
-        Object obj = null;
-        try (FileUtils.FileLock fileLocker = new FileUtils.FileLock(path);
-                FileInputStream fis = new FileInputStream(fileLocker.getFile());
-                GZIPInputStream gis = new GZIPInputStream(fis);
-                ObjectInputStream in = new ObjectInputStream(gis)) {
-            obj = in.readObject();
-        }
-        copyFromSerObject(obj);
+        awaitCheckpoints();
+        try (FileUtils.FileLock fileLocker = new FileUtils.FileLock(path)) {
+            final File file = fileLocker.getFile();
+            if(isSegmentLog(file)) {
+                final List<Segment> segments = readSegments(file);
+                loadSegment(merge(segments));
+                numSegments = segments.size();
+            } else {
+                final Object obj;
+                try (FileInputStream in = new FileInputStream(file)) {
+                    obj = Serialisation.read(in);
+                }
+                copyFromSerObject(obj);
+            }
+            // the stream of parts cannot be carried on from where the file left off, so the next checkpoint rewrites it
+            checkpointedParts = null;
+        }
         getLogger().info("loaded checkpoint from " + path);
     }
 
+    private <A> void loadSegment(Segment segment) throws Exception {
+        copyFromSerObject(Serialisation.deserialise(segment.base));
+        if(target instanceof IncrementallyCheckpointed) {
+            final List<A> parts = new ArrayList<>(segment.numParts);
+            final Serialiser.ObjectReader reader = Serialisation.openReader(new ByteArrayInputStream(segment.parts));
+            // one list of parts per segment which added any
+            while(parts.size() < segment.numParts) {
+                // the lists were written from the target's parts
+                @SuppressWarnings("unchecked") final List<A> segmentParts = (List<A>) reader.read();
+                parts.addAll(segmentParts);
+            }
+            if(parts.size() != segment.numParts) {
+                throw new IOException("checkpoint holds " + parts.size() + " parts rather than " + segment.numParts);
+            }
+            // the parts were read from the target's own parts, so are of its type
+            @SuppressWarnings("unchecked") final IncrementallyCheckpointed<A> incrementallyCheckpointed =
+                    (IncrementallyCheckpointed<A>) target;
+            incrementallyCheckpointed.setCheckpointParts(parts);
+        }
+    }
+
     @Override public boolean loadCheckpoint() throws Exception {
         final String checkpointFilePath = getCheckpointFilePath();
         if(isCheckpointPathSet() && load) {
@@ -107,7 +175,23 @@ public class BaseCheckpointer implements Checkpointer {
     private boolean saveCheckpoint() throws Exception {
         final String checkpointFilePath = getCheckpointFilePath();
         try {
-            saveToFile(checkpointFilePath);
+            rethrowWriteFailure();
+            // the snapshot is taken now, the rest is done in the background
+            final Compression compression = Serialisation.getCompression();
+            if(target instanceof IncrementallyCheckpointed) {
+                final List<?> parts = ((IncrementallyCheckpointed<?>) target).getCheckpointParts();
+                final boolean fresh = checkpointedParts != parts || parts.size() < numCheckpointedParts;
+                final PendingSegment segment = takeSegment((IncrementallyCheckpointed<?>) target, fresh);
+                submit(() -> writeSegment(toSegment(segment), checkpointFilePath, compression, fresh));
+                numSegments = fresh ? 1 : numSegments + 1;
+                if(numSegments >= maxSegments) {
+                    submit(() -> compact(checkpointFilePath, compression));
+                    numSegments = 1;
+                }
+            } else {
+                final byte[] bytes = Serialisation.serialise(target);
+                submit(() -> writeFile(bytes, checkpointFilePath, compression));
+            }
             lastCheckpointTimeStamp = System.nanoTime();
             checkpointSinceLoad = true;
             return true;
@@ -117,6 +201,255 @@ public class BaseCheckpointer implements Checkpointer {
         }
     }
 
+    /**
+     * Serialise the target, less its parts, and note the parts added since the last checkpoint (or all of them if
+     * fresh). The parts are serialised later, on the writer thread, as they are not changed once added.
+     */
+    private <A> PendingSegment takeSegment(IncrementallyCheckpointed<A> target, boolean fresh) throws IOException {
+        final List<A> parts = target.getCheckpointParts();
+        final int start = fresh ? 0 : numCheckpointedParts;
+        final byte[] base;
+        target.setCheckpointParts(new ArrayList<>());
+        try {
+            base = Serialisation.serialise(target);
+        } finally {
+            target.setCheckpointParts(parts);
+        }
+        final PendingSegment segment = new PendingSegment(start, new ArrayList<>(parts.subList(start, parts.size())),
+                base, fresh);
+        checkpointedParts = parts;
+        numCheckpointedParts = parts.size();
+        return segment;
+    }
+
+    /**
+     * Write the new parts to the stream of parts, carrying on from the previous segment unless fresh. Only ever run on
+     * the writer thread, which is the only user of the stream.
+     */
+    private Segment toSegment(PendingSegment pending) throws IOException {
+        if(pending.fresh) {
+            partsBuffer = new ByteArrayOutputStream();
+            partsWriter = Serialisation.openWriter(partsBuffer);
+        }
+        if(!pending.parts.isEmpty()) {
+            partsWriter.write(pending.parts);
+        }
+        final Segment segment = new Segment(pending.start, pending.parts.size(), pending.base,
+                partsBuffer.toByteArray());
+        partsBuffer.reset();
+        return segment;
+    }
+
+    private synchronized void submit(Write write) {
+        if(writer == null) {
+            // shut down by awaitCheckpoints, though the thread also ends once idle should that never be called
+            writer = ThreadingUtilities.buildExecutorService(1, 1, TimeUnit.SECONDS);
+        }
+        lastWrite = writer.submit(() -> {
+            // later writes may depend on a failed one, e.g. segments appended after one which was not
+            if(writeFailure == null) {
+                try {
+                    write.run();
+                } catch(Exception e) {
+                    getLogger().warning("failed to write checkpoint : " + e.toString());
+                    writeFailure = e;
+                }
+            }
+        });
+    }
+
+    @Override public void awaitCheckpoints() throws Exception {
+        final Future<?> write;
+        final ExecutorService finishedWriter;
+        synchronized(this) {
+            write = lastWrite;
+            finishedWriter = writer;
+            lastWrite = null;
+            writer = null;
+        }
+        if(write != null) {
+            // the writes are done in order, so all are done when the last is
+            write.get();
+        }
+        if(finishedWriter != null) {
+            finishedWriter.shutdown();
+        }
+        rethrowWriteFailure();
+    }
+
+    private void rethrowWriteFailure() throws Exception {
+        final Exception failure = writeFailure;
+        if(failure != null) {
+            writeFailure = null;
+            // the checkpoint file may be missing segments, so start afresh
+            checkpointedParts = null;
+            throw failure;
+        }
+    }
+
+    private void writeFile(byte[] bytes, String path, Compression compression) throws Exception {
+        final File tmp = new File(path + ".tmp");
+        try (FileUtils.FileLock fileLocker = new FileUtils.FileLock(path)) {
+            final File main = fileLocker.getFile();
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                final OutputStream compressed = compression.wrap(out);
+                compressed.write(bytes);
+                compression.finish(compressed);
+            }
+            Files.move(tmp.toPath(), main.toPath(), REPLACE_EXISTING);
+            getLogger().info("saved checkpoint to " + path);
+        }
+    }
+
+    /**
+     * Append a segment to the checkpoint file, or replace the file with it if fresh.
+     */
+    private void writeSegment(Segment segment, String path, Compression compression, boolean fresh)
+            throws Exception {
+        final byte[] record = toRecord(segment, compression);
+        try (FileUtils.FileLock fileLocker = new FileUtils.FileLock(path)) {
+            final File main = fileLocker.getFile();
+            if(fresh) {
+                writeSegmentLog(main, record);
+            } else {
+                if(!isSegmentLog(main)) {
+                    throw new IOException("cannot append to " + path + " as it is not made of segments");
+                }
+                try (FileOutputStream out = new FileOutputStream(main, true)) {
+                    final DataOutputStream dataOut = new DataOutputStream(out);
+                    dataOut.writeInt(record.length);
+                    dataOut.write(record);
+                    dataOut.flush();
+                    out.getFD().sync();
+                }
+            }
+            getLogger().info("saved checkpoint segment of " + segment.numParts + " parts to " + path);
+        }
+    }
+
+    /**
+     * Replace the segments in the checkpoint file with a single one.
+     */
+    private void compact(String path, Compression compression) throws Exception {
+        try (FileUtils.FileLock fileLocker = new FileUtils.FileLock(path)) {
+            final File main = fileLocker.getFile();
+            final List<Segment> segments = readSegments(main);
+            // one record compresses much better than many small ones
+            writeSegmentLog(main, toRecord(merge(segments), compression));
+            getLogger().info("compacted " + segments.size() + " checkpoint segments in " + path);
+        }
+    }
+
+    private static void writeSegmentLog(File file, byte[] record) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.write(SEGMENT_LOG_MAGIC);
+            out.writeInt(record.length);
+            out.write(record);
+        }
+        Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING);
+    }
+
+    private static byte[] toRecord(Segment segment, Compression compression) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serialisation.write(segment, out, compression);
+        return out.toByteArray();
+    }
+
+    private static boolean isSegmentLog(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            final byte[] magic = new byte[SEGMENT_LOG_MAGIC.length];
+            in.readFully(magic);
+            return Arrays.equals(magic, SEGMENT_LOG_MAGIC);
+        } catch(EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the segments in a checkpoint file, less any last one which was only partly written
+     */
+    private List<Segment> readSegments(File file) throws IOException, ClassNotFoundException {
+        final List<Segment> segments = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            in.skipBytes(SEGMENT_LOG_MAGIC.length);
+            while(true) {
+                final byte[] record;
+                try {
+                    record = new byte[in.readInt()];
+                    in.readFully(record);
+                } catch(EOFException e) {
+                    break;
+                }
+                segments.add((Segment) Serialisation.deserialise(record));
+            }
+        }
+        if(file.length() > 0 && segments.isEmpty()) {
+            throw new IOException("no complete segments in " + file);
+        }
+        return segments;
+    }
+
+    /**
+     * @return one segment equivalent to the given segments in order
+     */
+    private static Segment merge(List<Segment> segments) throws IOException {
+        int numParts = 0;
+        final ByteArrayOutputStream parts = new ByteArrayOutputStream();
+        for(Segment segment : segments) {
+            if(segment.start != numParts) {
+                throw new IOException("checkpoint segment starts at part " + segment.start + " rather than " + numParts);
+            }
+            numParts += segment.numParts;
+            parts.write(segment.parts);
+        }
+        return new Segment(0, numParts, segments.get(segments.size() - 1).base, parts.toByteArray());
+    }
+
+    private interface Write {
+        void run() throws Exception;
+    }
+
+    /**
+     * A segment as taken on the training thread: the target less its parts, serialised, and the parts themselves, yet to
+     * be written to the stream of parts.
+     */
+    private static class PendingSegment {
+        private final int start;
+        private final List<?> parts;
+        private final byte[] base;
+        // whether the stream of parts starts afresh with this segment
+        private final boolean fresh;
+
+        private PendingSegment(final int start, final List<?> parts, final byte[] base, final boolean fresh) {
+            this.start = start;
+            this.parts = parts;
+            this.base = base;
+            this.fresh = fresh;
+        }
+    }
+
+    /**
+     * The state of an incrementally checkpointed target: the target less its parts, serialised, and the bytes written
+     * to the stream of parts since the previous segment.
+     */
+    private static class Segment implements Serializable {
+        private static final long serialVersionUID = 1;
+        // the index of the first part in this segment
+        private final int start;
+        private final int numParts;
+        private final byte[] base;
+        // a list of the parts in this segment, if any, carrying on the stream of the previous segments
+        private final byte[] parts;
+
+        private Segment(final int start, final int numParts, final byte[] base, final byte[] parts) {
+            this.start = start;
+            this.numParts = numParts;
+            this.base = base;
+            this.parts = parts;
+        }
+    }
+
     @Override public boolean checkpoint() throws Exception {
         if(isCheckpointPathSet()) {
             getLogger().info("saving checkpoint");
@@ -177,4 +510,12 @@ public class BaseCheckpointer implements Checkpointer {
         this.load = load;
     }
 
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public void setMaxSegments(final int maxSegments) {
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
 }
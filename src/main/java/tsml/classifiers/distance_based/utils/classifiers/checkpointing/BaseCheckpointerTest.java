@@ -0,0 +1,142 @@
+package tsml.classifiers.distance_based.utils.classifiers.checkpointing;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Purpose: test an incrementally checkpointed target is loaded as it was when checkpointed, however many segments the
+ * checkpoint file holds.
+ */
+public class BaseCheckpointerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static class Part implements Serializable {
+        private final int value;
+        // shared by every part, to check sharing survives across segments
+        private final int[] shared;
+
+        private Part(final int value, final int[] shared) {
+            this.value = value;
+            this.shared = shared;
+        }
+    }
+
+    private static class Target implements IncrementallyCheckpointed<Part>, Serializable {
+        private List<Part> parts = new ArrayList<>();
+        // state besides the parts, changed between checkpoints
+        private int numCheckpoints;
+
+        @Override public List<Part> getCheckpointParts() {
+            return parts;
+        }
+
+        @Override public void setCheckpointParts(final List<Part> parts) {
+            this.parts = parts;
+        }
+    }
+
+    private BaseCheckpointer buildCheckpointer(Target target, int maxSegments) {
+        final BaseCheckpointer checkpointer = new BaseCheckpointer(target);
+        checkpointer.setCheckpointDirPath(folder.getRoot().getPath());
+        checkpointer.setMaxSegments(maxSegments);
+        return checkpointer;
+    }
+
+    /**
+     * add the given number of parts to the target then checkpoint it
+     */
+    private static void addAndCheckpoint(Target target, BaseCheckpointer checkpointer, int numParts)
+            throws Exception {
+        final int[] shared = target.parts.isEmpty() ? new int[] {-1} : target.parts.get(0).shared;
+        for(int i = 0; i < numParts; i++) {
+            target.parts.add(new Part(target.parts.size(), shared));
+        }
+        target.numCheckpoints++;
+        Assert.assertTrue(checkpointer.checkpoint());
+    }
+
+    private Target load(int maxSegments) throws Exception {
+        final Target target = new Target();
+        final BaseCheckpointer checkpointer = buildCheckpointer(target, maxSegments);
+        checkpointer.loadFromFile(checkpointer.getCheckpointFilePath());
+        return target;
+    }
+
+    private static void assertLoaded(int numParts, int numCheckpoints, Target target) {
+        Assert.assertEquals(numCheckpoints, target.numCheckpoints);
+        Assert.assertEquals(numParts, target.parts.size());
+        for(int i = 0; i < numParts; i++) {
+            Assert.assertEquals(i, target.parts.get(i).value);
+            Assert.assertSame(target.parts.get(0).shared, target.parts.get(i).shared);
+        }
+    }
+
+    @Test
+    public void testLoadSegments() throws Exception {
+        final Target target = new Target();
+        final BaseCheckpointer checkpointer = buildCheckpointer(target, 100);
+        addAndCheckpoint(target, checkpointer, 2);
+        addAndCheckpoint(target, checkpointer, 3);
+        // a segment with no new parts still holds the rest of the state
+        addAndCheckpoint(target, checkpointer, 0);
+        addAndCheckpoint(target, checkpointer, 1);
+        checkpointer.awaitCheckpoints();
+        assertLoaded(6, 4, load(100));
+    }
+
+    @Test
+    public void testLoadAfterCompaction() throws Exception {
+        final Target target = new Target();
+        final BaseCheckpointer checkpointer = buildCheckpointer(target, 3);
+        for(int i = 0; i < 7; i++) {
+            addAndCheckpoint(target, checkpointer, i % 3);
+        }
+        checkpointer.awaitCheckpoints();
+        assertLoaded(target.parts.size(), 7, load(3));
+    }
+
+    @Test
+    public void testLoadTruncatedSegment() throws Exception {
+        final Target target = new Target();
+        final BaseCheckpointer checkpointer = buildCheckpointer(target, 100);
+        addAndCheckpoint(target, checkpointer, 2);
+        addAndCheckpoint(target, checkpointer, 3);
+        checkpointer.awaitCheckpoints();
+        final File file = new File(checkpointer.getCheckpointFilePath());
+        final long length = file.length();
+        addAndCheckpoint(target, checkpointer, 4);
+        checkpointer.awaitCheckpoints();
+        // as if the last segment was only partly written
+        try(RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length + (file.length() - length) / 2);
+        }
+        assertLoaded(5, 2, load(100));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        final Target target = new Target();
+        final BaseCheckpointer checkpointer = buildCheckpointer(target, 100);
+        addAndCheckpoint(target, checkpointer, 2);
+        addAndCheckpoint(target, checkpointer, 3);
+        checkpointer.awaitCheckpoints();
+        // carry on from the checkpoint as if restarted
+        final Target resumed = new Target();
+        final BaseCheckpointer resumedCheckpointer = buildCheckpointer(resumed, 100);
+        Assert.assertTrue(resumedCheckpointer.loadCheckpoint());
+        addAndCheckpoint(resumed, resumedCheckpointer, 1);
+        addAndCheckpoint(resumed, resumedCheckpointer, 2);
+        resumedCheckpointer.awaitCheckpoints();
+        assertLoaded(8, 4, load(100));
+    }
+}
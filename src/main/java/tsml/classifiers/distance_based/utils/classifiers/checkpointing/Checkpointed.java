@@ -29,6 +29,10 @@ public interface Checkpointed extends Checkpointer {
         return getCheckpointer().checkpoint();
     }
 
+    @Override default void awaitCheckpoints() throws Exception {
+        getCheckpointer().awaitCheckpoints();
+    }
+
     @Override default boolean isCheckpointIntervalExpired() {
         return getCheckpointer().isCheckpointIntervalExpired();
     }
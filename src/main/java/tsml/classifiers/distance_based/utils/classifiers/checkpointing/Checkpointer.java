@@ -20,6 +20,12 @@ public interface Checkpointer extends Checkpointable, Loggable {
 
     boolean checkpointIfWorkDone() throws Exception;
 
+    /**
+     * Wait for any checkpoints still being written, e.g. before finishing a build.
+     * @throws Exception if a checkpoint failed to be written
+     */
+    void awaitCheckpoints() throws Exception;
+
     default boolean isCheckpointIntervalExpired() {
         return getLastCheckpointTimeStamp() + getMinCheckpointIntervalNanos() < System.nanoTime();
     }
@@ -0,0 +1,29 @@
+package tsml.classifiers.distance_based.utils.classifiers.checkpointing;
+
+import java.util.List;
+
+/**
+ * A checkpointed object whose state is mostly a list which is only ever added to, e.g. the trees of a forest. Each
+ * checkpoint then only writes the parts added since the last, alongside the rest of the state, as a segment appended to
+ * the checkpoint file (see BaseCheckpointer).
+ * <p>
+ * A part, and anything it references, must not be changed once added to the list. Parts which share objects still
+ * share them when the checkpoint is loaded, but anything a part shares with the rest of the state is copied. The parts
+ * are serialised on the checkpoint writer's thread while training carries on, which is only safe as they do not change.
+ * <p>
+ * The parts and the rest of the state are written by the configured serialiser (see Serialisation), so a target holding
+ * objects which are not Serializable must be checkpointed with -Dtsml.serialiser=kryo.
+ *
+ * @param <A> the type of the parts
+ */
+public interface IncrementallyCheckpointed<A> {
+
+    /**
+     * @return the parts built so far, in the order they were added. Replacing the list, e.g. on rebuild, starts the
+     * checkpoint afresh.
+     */
+    List<A> getCheckpointParts();
+
+    void setCheckpointParts(List<A> parts);
+
+}
@@ -5,6 +5,11 @@ import java.util.HashMap;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
+/**
+ * @deprecated for distances between instances use DistanceMatrixCache, which keys by index and stores the distances
+ * without boxing.
+ */
+@Deprecated
 public class BiCache<A, B, C> extends Cached implements Serializable {
 
     // todo cache state read / write
@@ -0,0 +1,394 @@
+package tsml.classifiers.distance_based.utils.collections.cache;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Purpose: a cache bounded by entry count and / or estimated size in bytes. Once either bound is exceeded entries are
+ * evicted according to the eviction policy:
+ * <ul>
+ *     <li>LRU evicts the least recently used entry.</li>
+ *     <li>TINY_LFU (W-TinyLFU) admits new entries into a small LRU window. Entries leaving the window only make it into
+ *     the main LRU space if they have been used more often than the entry they would replace, as estimated by a
+ *     count-min sketch of recent key frequencies. This keeps frequently reused entries from being flushed out by a scan
+ *     of one-off entries.</li>
+ * </ul>
+ * Hits, misses and evictions are counted. This class is not thread safe, see synchronizedCache() for a thread safe
+ * variant.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V> implements Serializable {
+
+    public enum Eviction {
+        LRU,
+        TINY_LFU,
+    }
+
+    private static final long serialVersionUID = 0;
+    // proportion of the bounds given to the window of newly admitted entries under TinyLFU
+    private static final double WINDOW_PROPORTION = 0.01;
+    // width of the frequency sketch if the entry count is unbounded
+    private static final int DEFAULT_SKETCH_WIDTH = 1 << 16;
+    private static final int MAX_SKETCH_WIDTH = 1 << 20;
+
+    private static class Entry<V> implements Serializable {
+        private static final long serialVersionUID = 0;
+        private V value;
+        private long weight;
+
+        private Entry(final V value, final long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final Eviction eviction;
+    private final long maxEntries;
+    private final long maxBytes;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    // access ordered, so the eldest entry is the least recently used
+    private final LinkedHashMap<K, Entry<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entry<V>> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxWindowEntries;
+    private final long maxWindowBytes;
+    private final FrequencySketch sketch;
+    private long windowBytes;
+    private long mainBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param eviction the eviction policy
+     * @param maxEntries the max number of entries, Long.MAX_VALUE for no bound
+     * @param maxBytes the max estimated size of the entries in bytes, Long.MAX_VALUE for no bound
+     * @param weigher estimates the size in bytes of an entry. Only used if maxBytes is bounded, in which case it must
+     *                be serializable for the cache to be.
+     */
+    public BoundedCache(Eviction eviction, long maxEntries, long maxBytes,
+        ToLongBiFunction<? super K, ? super V> weigher) {
+        if(maxEntries < 0) {
+            throw new IllegalArgumentException("max entries must be non-negative: " + maxEntries);
+        }
+        if(maxBytes < 0) {
+            throw new IllegalArgumentException("max bytes must be non-negative: " + maxBytes);
+        }
+        if(maxBytes != Long.MAX_VALUE && weigher == null) {
+            throw new IllegalArgumentException("weigher required to bound by bytes");
+        }
+        this.eviction = eviction;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.weigher = maxBytes == Long.MAX_VALUE ? null : weigher;
+        if(eviction == Eviction.TINY_LFU) {
+            // the window holds at least one entry (if any are allowed), else every new entry would be evicted immediately
+            maxWindowEntries = Math.min(maxEntries, Math.max(1, (long) (maxEntries * WINDOW_PROPORTION)));
+            maxWindowBytes = maxBytes == Long.MAX_VALUE ? Long.MAX_VALUE : (long) (maxBytes * WINDOW_PROPORTION);
+            final long width = maxEntries == Long.MAX_VALUE ? DEFAULT_SKETCH_WIDTH : Math.min(maxEntries,
+                MAX_SKETCH_WIDTH);
+            sketch = new FrequencySketch((int) width);
+        } else {
+            // everything passes through the window straight into the main space
+            maxWindowEntries = 0;
+            maxWindowBytes = 0;
+            sketch = null;
+        }
+    }
+
+    public BoundedCache(Eviction eviction, long maxEntries) {
+        this(eviction, maxEntries, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @return a cache with no bounds, i.e. never evicts
+     */
+    public static <K, V> BoundedCache<K, V> unbounded() {
+        return new BoundedCache<>(Eviction.LRU, Long.MAX_VALUE);
+    }
+
+    /**
+     * build a cache where all access is synchronized upon the cache itself. computeIfAbsent() does not hold the lock
+     * while computing the value, so concurrent misses on the same key may compute the value more than once.
+     */
+    public static <K, V> BoundedCache<K, V> synchronizedCache(Eviction eviction, long maxEntries, long maxBytes,
+        ToLongBiFunction<? super K, ? super V> weigher) {
+        return new SynchronizedBoundedCache<>(eviction, maxEntries, maxBytes, weigher);
+    }
+
+    private static class SynchronizedBoundedCache<K, V> extends BoundedCache<K, V> {
+
+        private static final long serialVersionUID = 0;
+
+        private SynchronizedBoundedCache(final Eviction eviction, final long maxEntries, final long maxBytes,
+            final ToLongBiFunction<? super K, ? super V> weigher) {
+            super(eviction, maxEntries, maxBytes, weigher);
+        }
+
+        @Override public synchronized V get(final K key) {
+            return super.get(key);
+        }
+
+        @Override public synchronized void put(final K key, final V value) {
+            super.put(key, value);
+        }
+
+        @Override public synchronized V remove(final K key) {
+            return super.remove(key);
+        }
+
+        @Override public synchronized void clear() {
+            super.clear();
+        }
+
+        @Override public synchronized int size() {
+            return super.size();
+        }
+
+        @Override public synchronized long getWeight() {
+            return super.getWeight();
+        }
+
+        @Override public synchronized long getHitCount() {
+            return super.getHitCount();
+        }
+
+        @Override public synchronized long getMissCount() {
+            return super.getMissCount();
+        }
+
+        @Override public synchronized long getEvictionCount() {
+            return super.getEvictionCount();
+        }
+
+        @Override public synchronized void resetCounts() {
+            super.resetCounts();
+        }
+
+        @Override public boolean isSynchronized() {
+            return true;
+        }
+    }
+
+    /**
+     * @return the value for the key, or null if not cached
+     */
+    public V get(K key) {
+        if(sketch != null) {
+            sketch.increment(key);
+        }
+        Entry<V> entry = window.get(key);
+        if(entry == null) {
+            entry = main.get(key);
+        }
+        if(entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        if(sketch != null) {
+            sketch.increment(key);
+        }
+        final long weight = weigher == null ? 0 : weigher.applyAsLong(key, value);
+        Entry<V> entry = main.get(key);
+        if(entry != null) {
+            mainBytes += weight - entry.weight;
+            entry.value = value;
+            entry.weight = weight;
+        } else {
+            entry = window.get(key);
+            if(entry != null) {
+                windowBytes += weight - entry.weight;
+                entry.value = value;
+                entry.weight = weight;
+            } else {
+                window.put(key, new Entry<>(value, weight));
+                windowBytes += weight;
+            }
+        }
+        evict();
+    }
+
+    /**
+     * get the value for the key, computing and caching it if absent.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        V value = get(key);
+        if(value == null) {
+            value = function.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    public V remove(K key) {
+        Entry<V> entry = window.remove(key);
+        if(entry != null) {
+            windowBytes -= entry.weight;
+        } else {
+            entry = main.remove(key);
+            if(entry == null) {
+                return null;
+            }
+            mainBytes -= entry.weight;
+        }
+        return entry.value;
+    }
+
+    public void clear() {
+        window.clear();
+        main.clear();
+        windowBytes = 0;
+        mainBytes = 0;
+    }
+
+    private void evict() {
+        while(window.size() > maxWindowEntries || windowBytes > maxWindowBytes) {
+            // the least recently used entry in the window is a candidate for the main space
+            final Iterator<Map.Entry<K, Entry<V>>> windowIterator = window.entrySet().iterator();
+            final Map.Entry<K, Entry<V>> candidate = windowIterator.next();
+            windowIterator.remove();
+            windowBytes -= candidate.getValue().weight;
+            boolean admit = true;
+            while(admit && isMainFull(candidate.getValue().weight)) {
+                if(main.isEmpty()) {
+                    // the candidate alone exceeds the bounds
+                    admit = false;
+                } else {
+                    final Iterator<Map.Entry<K, Entry<V>>> mainIterator = main.entrySet().iterator();
+                    final Map.Entry<K, Entry<V>> victim = mainIterator.next();
+                    if(sketch == null || sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+                        mainIterator.remove();
+                        mainBytes -= victim.getValue().weight;
+                        evictionCount++;
+                    } else {
+                        admit = false;
+                    }
+                }
+            }
+            if(admit) {
+                main.put(candidate.getKey(), candidate.getValue());
+                mainBytes += candidate.getValue().weight;
+            } else {
+                evictionCount++;
+            }
+        }
+    }
+
+    private boolean isMainFull(long weight) {
+        // the bounds are shared between the window and main space, so main can use whatever the window is not
+        return window.size() + main.size() + 1 > maxEntries || windowBytes + mainBytes + weight > maxBytes;
+    }
+
+    public int size() {
+        return window.size() + main.size();
+    }
+
+    /**
+     * @return the estimated size of the entries in bytes, or 0 if not bounded by bytes
+     */
+    public long getWeight() {
+        return windowBytes + mainBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public void resetCounts() {
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    public boolean isSynchronized() {
+        return false;
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Count-min sketch of key frequencies with 4 rows of counters capped at 15. All counters are halved once enough
+     * increments have been made, so the frequencies reflect recent use.
+     */
+    private static class FrequencySketch implements Serializable {
+
+        private static final long serialVersionUID = 0;
+        private static final int DEPTH = 4;
+        private static final int[] SEEDS = {0x97cb3127, 0x2c1b3c6d, 0x297a2d39, 0x85ebca6b};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] counts;
+        private final int mask;
+        private final int sampleSize;
+        private int increments;
+
+        private FrequencySketch(int width) {
+            // round up to a power of two so the index is a mask of the hash
+            width = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+            counts = new byte[DEPTH][width];
+            mask = width - 1;
+            sampleSize = 10 * width;
+        }
+
+        private int index(Object key, int row) {
+            int hash = (key == null ? 0 : key.hashCode()) * SEEDS[row];
+            hash ^= hash >>> 16;
+            return hash & mask;
+        }
+
+        private void increment(Object key) {
+            boolean incremented = false;
+            for(int row = 0; row < DEPTH; row++) {
+                final int index = index(key, row);
+                if(counts[row][index] < MAX_COUNT) {
+                    counts[row][index]++;
+                    incremented = true;
+                }
+            }
+            if(incremented && ++increments >= sampleSize) {
+                for(byte[] row : counts) {
+                    for(int i = 0; i < row.length; i++) {
+                        row[i] >>>= 1;
+                    }
+                }
+                increments /= 2;
+            }
+        }
+
+        private int frequency(Object key) {
+            int min = MAX_COUNT;
+            for(int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counts[row][index(key, row)]);
+            }
+            return min;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package tsml.classifiers.distance_based.utils.collections.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.distance_based.utils.collections.cache.BoundedCache.Eviction;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testUnbounded() {
+        final BoundedCache<Integer, Integer> cache = BoundedCache.unbounded();
+        for(int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        Assert.assertEquals(1000, cache.size());
+        Assert.assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testLru() {
+        final BoundedCache<Integer, Integer> cache = new BoundedCache<>(Eviction.LRU, 3);
+        cache.put(0, 0);
+        cache.put(1, 1);
+        cache.put(2, 2);
+        // 0 is now the most recently used, so 1 is evicted
+        Assert.assertEquals(0, (int) cache.get(0));
+        cache.put(3, 3);
+        Assert.assertEquals(3, cache.size());
+        Assert.assertNull(cache.get(1));
+        Assert.assertEquals(2, (int) cache.get(2));
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        // replacing a value is not an eviction
+        cache.put(3, 4);
+        Assert.assertEquals(4, (int) cache.get(3));
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(4, (int) cache.remove(3));
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testTinyLfuResistsScans() {
+        final int size = 100;
+        final BoundedCache<Integer, Integer> lru = new BoundedCache<>(Eviction.LRU, size);
+        final BoundedCache<Integer, Integer> tinyLfu = new BoundedCache<>(Eviction.TINY_LFU, size);
+        final List<BoundedCache<Integer, Integer>> caches = new ArrayList<>();
+        caches.add(lru);
+        caches.add(tinyLfu);
+        // a hot set of keys used repeatedly, interleaved with a scan of one-off keys
+        for(int i = 0; i < 10000; i++) {
+            for(BoundedCache<Integer, Integer> cache : caches) {
+                cache.computeIfAbsent(i % 50, k -> k);
+                cache.computeIfAbsent(-1 - i, k -> k);
+                cache.computeIfAbsent(-100000 - i, k -> k);
+            }
+        }
+        Assert.assertTrue(lru.size() <= size);
+        Assert.assertTrue(tinyLfu.size() <= size);
+        Assert.assertTrue(tinyLfu.getHitCount() > 9000);
+        Assert.assertTrue(tinyLfu.getHitCount() > 10 * lru.getHitCount());
+    }
+
+    @Test
+    public void testBytes() {
+        final BoundedCache<Integer, double[]> cache = new BoundedCache<>(Eviction.LRU, Long.MAX_VALUE, 100,
+            (key, value) -> value.length * 8L);
+        cache.put(0, new double[5]);
+        cache.put(1, new double[5]);
+        Assert.assertEquals(80, cache.getWeight());
+        cache.put(2, new double[5]);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(80, cache.getWeight());
+        Assert.assertNull(cache.get(0));
+        // too big to ever cache
+        cache.put(3, new double[20]);
+        Assert.assertNull(cache.get(3));
+        Assert.assertTrue(cache.getWeight() <= 100);
+    }
+
+    @Test
+    public void testSynchronized() throws Exception {
+        final BoundedCache<Integer, Integer> cache = BoundedCache.synchronizedCache(Eviction.TINY_LFU, 64,
+            Long.MAX_VALUE, null);
+        Assert.assertTrue(cache.isSynchronized());
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    for(int i = 0; i < 20000; i++) {
+                        final int key = (i * 31 + seed) % 200;
+                        Assert.assertEquals(key, (int) cache.computeIfAbsent(key, k -> k));
+                    }
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(cache.size() <= 64);
+        Assert.assertEquals(80000, cache.getHitCount() + cache.getMissCount());
+    }
+}
@@ -0,0 +1,295 @@
+package tsml.classifiers.distance_based.utils.collections.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import tsml.classifiers.distance_based.distances.DistanceMeasure;
+import weka.core.DistanceFunction;
+import weka.core.Instances;
+
+/**
+ * Purpose: cache the pairwise distances between the instances of a dataset, keyed by the index of each instance. The
+ * distances are held in one dense block rather than per instance maps of boxed values, so an entry costs 8 bytes. For
+ * symmetric distances only the lower triangle (including the diagonal) is stored, halving that again. A distance which
+ * has not been computed is NaN.
+ * <p>
+ * The block is either on the heap or memory mapped to a file. Memory mapping keeps the distances off-heap, letting the
+ * OS page them to disk as needed, so full distance matrices for datasets of tens of thousands of instances can be held.
+ * <p>
+ * Each distance is stored xor'd with the bits of NaN, so zeroed storage (a new array or a freshly created file) reads
+ * as NaN without having to be filled.
+ */
+public class DistanceMatrixCache implements Serializable {
+
+    private static final long serialVersionUID = 0;
+    private static final long NAN_BITS = Double.doubleToRawLongBits(Double.NaN);
+    // the number of distances in each memory mapped block, each mapping is limited to 2GB
+    private static final int BLOCK_LENGTH = 1 << 27;
+    // the most bytes which can be memory mapped, bounded by the user address space: 2GB on a 32 bit JVM, 128TB on
+    // 64 bit platforms
+    static final long MAX_MAPPED_BYTES = "32".equals(System.getProperty("sun.arch.data.model")) ? Integer.MAX_VALUE
+                                                                                                : 1L << 47;
+    // caches shared between classifiers, by dataset then distance function. Datasets are matched by identity, as
+    // Instances' equals and hashCode depend on its content, and only weakly referenced
+    private static final Map<DatasetKey, Map<String, DistanceMatrixCache>> SHARED = new HashMap<>();
+    // the keys of datasets no longer referenced, to be removed from SHARED
+    private static final ReferenceQueue<Instances> STALE_KEYS = new ReferenceQueue<>();
+    // the directory to spill shared caches to, null to keep them on the heap
+    private static File sharedSpillDirectory = null;
+
+    private final int size;
+    private final boolean symmetric;
+    private final long length;
+    // the distances if held on the heap, otherwise null
+    private final long[] values;
+    // the file the distances are memory mapped to, otherwise null
+    private final File file;
+    private transient LongBuffer[] blocks;
+
+    /**
+     * build a cache held on the heap.
+     * @param size the number of instances
+     * @param symmetric whether dist(i, j) == dist(j, i)
+     */
+    public DistanceMatrixCache(int size, boolean symmetric) {
+        this.size = size;
+        this.symmetric = symmetric;
+        length = findLength(size, symmetric);
+        if(length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many distances to hold on the heap: " + length + ", memory map to a "
+                                                   + "file instead");
+        }
+        values = new long[(int) length];
+        file = null;
+    }
+
+    /**
+     * build a cache memory mapped to the given file. Any existing content of the file is discarded. The file is
+     * created sparse, so the disk space must be available up front: running out of disk space as distances are written
+     * would crash the JVM rather than raise an exception.
+     * @param size the number of instances
+     * @param symmetric whether dist(i, j) == dist(j, i)
+     * @param file the file to map the distances to
+     * @throws IllegalArgumentException if the distances would not fit in the address space
+     * @throws IOException if there is not enough disk space for the distances
+     */
+    public DistanceMatrixCache(int size, boolean symmetric, File file) throws IOException {
+        this.size = size;
+        this.symmetric = symmetric;
+        length = findLength(size, symmetric);
+        values = null;
+        this.file = file;
+        if(length > MAX_MAPPED_BYTES / Long.BYTES) {
+            throw new IllegalArgumentException("too many distances to memory map: " + length);
+        }
+        final long numBytes = length * Long.BYTES;
+        final File directory = file.getAbsoluteFile().getParentFile();
+        // the existing content of the file is discarded, so its space is available too
+        final long usableBytes = directory.getUsableSpace() + (file.exists() ? file.length() : 0);
+        if(numBytes > usableBytes) {
+            throw new IOException("not enough disk space in " + directory + " for " + length + " distances: " + numBytes
+                                      + " bytes needed, " + usableBytes + " usable");
+        }
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // truncating then extending zeroes the file, i.e. every distance is NaN
+            raf.setLength(0);
+            raf.setLength(length * Long.BYTES);
+        }
+        map();
+    }
+
+    private static long findLength(int size, boolean symmetric) {
+        if(size < 0) {
+            throw new IllegalArgumentException("size must be non-negative: " + size);
+        }
+        if(symmetric) {
+            return (long) size * (size + 1) / 2;
+        } else {
+            return (long) size * size;
+        }
+    }
+
+    private void map() throws IOException {
+        final int numBlocks = (int) ((length + BLOCK_LENGTH - 1) / BLOCK_LENGTH);
+        blocks = new LongBuffer[numBlocks];
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            for(int i = 0; i < numBlocks; i++) {
+                final long start = (long) i * BLOCK_LENGTH;
+                final long blockLength = Math.min(BLOCK_LENGTH, length - start);
+                blocks[i] = channel.map(FileChannel.MapMode.READ_WRITE, start * Long.BYTES, blockLength * Long.BYTES)
+                                .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+        }
+        // the mappings remain valid once the channel is closed
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if(file != null) {
+            map();
+        }
+    }
+
+    private long findIndex(int i, int j) {
+        if(i < 0 || i >= size || j < 0 || j >= size) {
+            throw new IndexOutOfBoundsException("(" + i + ", " + j + ") outside of " + size + "x" + size);
+        }
+        if(symmetric) {
+            if(j > i) {
+                final int tmp = i;
+                i = j;
+                j = tmp;
+            }
+            return (long) i * (i + 1) / 2 + j;
+        } else {
+            return (long) i * size + j;
+        }
+    }
+
+    /**
+     * get the distance between the instances at the given indices
+     * @return the distance, or NaN if not computed
+     */
+    public double get(int i, int j) {
+        final long index = findIndex(i, j);
+        final long bits;
+        if(values != null) {
+            bits = values[(int) index];
+        } else {
+            bits = blocks[(int) (index / BLOCK_LENGTH)].get((int) (index % BLOCK_LENGTH));
+        }
+        return Double.longBitsToDouble(bits ^ NAN_BITS);
+    }
+
+    public void put(int i, int j, double distance) {
+        final long index = findIndex(i, j);
+        final long bits = Double.doubleToRawLongBits(distance) ^ NAN_BITS;
+        if(values != null) {
+            values[(int) index] = bits;
+        } else {
+            blocks[(int) (index / BLOCK_LENGTH)].put((int) (index % BLOCK_LENGTH), bits);
+        }
+    }
+
+    public boolean contains(int i, int j) {
+        return !Double.isNaN(get(i, j));
+    }
+
+    public void remove(int i, int j) {
+        put(i, j, Double.NaN);
+    }
+
+    public void clear() {
+        if(values != null) {
+            Arrays.fill(values, 0);
+        } else {
+            for(LongBuffer block : blocks) {
+                for(int i = 0; i < block.limit(); i++) {
+                    block.put(i, 0);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    public boolean isMemoryMapped() {
+        return file != null;
+    }
+
+    /**
+     * get the cache for the given dataset and distance function, shared by any classifier asking for the same. The
+     * caches are forgotten once the dataset is no longer referenced. Indices refer to the position of each instance in
+     * the dataset, so the dataset must not be reordered.
+     * <p>
+     * Distance functions are matched by their string form, which includes their parameters for the distance measures
+     * in tsml.
+     */
+    public static synchronized DistanceMatrixCache getShared(Instances data, DistanceFunction distanceFunction) {
+        Reference<? extends Instances> stale;
+        while((stale = STALE_KEYS.poll()) != null) {
+            SHARED.remove(stale);
+        }
+        final Map<String, DistanceMatrixCache> caches = SHARED.computeIfAbsent(new DatasetKey(data, STALE_KEYS),
+            k -> new HashMap<>());
+        final String key = distanceFunction.getClass().getName() + " " + distanceFunction;
+        DistanceMatrixCache cache = caches.get(key);
+        if(cache == null) {
+            final boolean symmetric = distanceFunction instanceof DistanceMeasure
+                                          && ((DistanceMeasure) distanceFunction).isSymmetric();
+            if(sharedSpillDirectory == null) {
+                cache = new DistanceMatrixCache(data.size(), symmetric);
+            } else {
+                try {
+                    final File file = File.createTempFile("distances", ".bin", sharedSpillDirectory);
+                    file.deleteOnExit();
+                    cache = new DistanceMatrixCache(data.size(), symmetric, file);
+                } catch(IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            caches.put(key, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * a weak reference to a dataset, equal to another only if referring to the same dataset
+     */
+    private static class DatasetKey extends WeakReference<Instances> {
+
+        private final int hashCode;
+
+        private DatasetKey(Instances data, ReferenceQueue<Instances> queue) {
+            super(data, queue);
+            hashCode = System.identityHashCode(data);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(this == other) {
+                return true;
+            }
+            if(!(other instanceof DatasetKey)) {
+                return false;
+            }
+            // a cleared key is only equal to itself
+            final Instances data = get();
+            return data != null && data == ((DatasetKey) other).get();
+        }
+    }
+
+    public static synchronized File getSharedSpillDirectory() {
+        return sharedSpillDirectory;
+    }
+
+    /**
+     * set the directory to memory map shared caches into, or null to hold them on the heap. This only affects caches
+     * built from here on.
+     */
+    public static synchronized void setSharedSpillDirectory(final File directory) {
+        sharedSpillDirectory = directory;
+    }
+}
@@ -0,0 +1,135 @@
+package tsml.classifiers.distance_based.utils.collections.cache;
+
+import experiments.data.DatasetLoading;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import tsml.classifiers.distance_based.distances.dtw.DTWDistance;
+import weka.core.Instances;
+
+public class DistanceMatrixCacheTest {
+
+    private static void fill(DistanceMatrixCache cache) {
+        for(int i = 0; i < cache.size(); i++) {
+            for(int j = 0; j < cache.size(); j++) {
+                if(!cache.isSymmetric() || j <= i) {
+                    cache.put(i, j, i * 100 + j);
+                }
+            }
+        }
+    }
+
+    private static void check(DistanceMatrixCache cache) {
+        for(int i = 0; i < cache.size(); i++) {
+            for(int j = 0; j < cache.size(); j++) {
+                final double expected = cache.isSymmetric() ? Math.max(i, j) * 100 + Math.min(i, j) : i * 100 + j;
+                Assert.assertEquals(expected, cache.get(i, j), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testNotComputed() {
+        final DistanceMatrixCache cache = new DistanceMatrixCache(5, true);
+        Assert.assertTrue(Double.isNaN(cache.get(3, 1)));
+        Assert.assertFalse(cache.contains(1, 3));
+        cache.put(1, 3, 0);
+        Assert.assertTrue(cache.contains(3, 1));
+        Assert.assertEquals(0, cache.get(3, 1), 0);
+        cache.remove(3, 1);
+        Assert.assertFalse(cache.contains(1, 3));
+    }
+
+    @Test
+    public void testHeap() {
+        for(boolean symmetric : new boolean[] {true, false}) {
+            final DistanceMatrixCache cache = new DistanceMatrixCache(7, symmetric);
+            fill(cache);
+            check(cache);
+            cache.clear();
+            Assert.assertFalse(cache.contains(6, 6));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        new DistanceMatrixCache(3, true).get(0, 3);
+    }
+
+    @Test
+    public void testMemoryMapped() throws Exception {
+        final File file = File.createTempFile("distances", ".bin");
+        file.deleteOnExit();
+        final DistanceMatrixCache cache = new DistanceMatrixCache(9, true, file);
+        Assert.assertTrue(cache.isMemoryMapped());
+        Assert.assertTrue(Double.isNaN(cache.get(8, 8)));
+        fill(cache);
+        check(cache);
+        // the copy maps the same file
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cache);
+        }
+        final DistanceMatrixCache copy;
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (DistanceMatrixCache) in.readObject();
+        }
+        check(copy);
+        cache.put(2, 5, -1);
+        Assert.assertEquals(-1, copy.get(5, 2), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMemoryMappedBeyondAddressSpace() throws Exception {
+        final File file = File.createTempFile("distances", ".bin");
+        file.deleteOnExit();
+        new DistanceMatrixCache(Integer.MAX_VALUE, false, file);
+    }
+
+    @Test
+    public void testMemoryMappedBeyondDiskSpace() throws Exception {
+        final File file = File.createTempFile("distances", ".bin");
+        file.deleteOnExit();
+        // more than the disk holds but within the address space
+        final int size = (int) Math.sqrt(DistanceMatrixCache.MAX_MAPPED_BYTES / Long.BYTES);
+        Assume.assumeTrue((long) size * size * Long.BYTES > file.getParentFile().getUsableSpace());
+        try {
+            new DistanceMatrixCache(size, false, file);
+            Assert.fail();
+        } catch(IOException e) {
+            // the file is left as it was
+            Assert.assertEquals(0, file.length());
+        }
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        final Instances data = DatasetLoading.sampleItalyPowerDemand(0)[0];
+        final DTWDistance a = new DTWDistance();
+        a.setWindowSize(3);
+        final DTWDistance b = new DTWDistance();
+        b.setWindowSize(3);
+        final DistanceMatrixCache cache = DistanceMatrixCache.getShared(data, a);
+        Assert.assertSame(cache, DistanceMatrixCache.getShared(data, b));
+        Assert.assertTrue(cache.isSymmetric());
+        Assert.assertEquals(data.size(), cache.size());
+        b.setWindowSize(4);
+        Assert.assertNotSame(cache, DistanceMatrixCache.getShared(data, b));
+        Assert.assertNotSame(cache, DistanceMatrixCache.getShared(new Instances(data), a));
+        // datasets are matched by identity, not by their equals as lists
+        final Instances empty = new Instances(data, 0);
+        final Instances otherEmpty = new Instances(data, 0);
+        Assert.assertEquals(empty, otherEmpty);
+        Assert.assertNotSame(DistanceMatrixCache.getShared(empty, a), DistanceMatrixCache.getShared(otherEmpty, a));
+        // nor lost when the content, and so the hash code as a list, changes
+        final DistanceMatrixCache emptyCache = DistanceMatrixCache.getShared(empty, a);
+        empty.add(data.get(0));
+        Assert.assertSame(emptyCache, DistanceMatrixCache.getShared(empty, a));
+    }
+}
@@ -1,5 +1,9 @@
 package tsml.classifiers.distance_based.utils.collections.cache;
 
+/**
+ * @deprecated for distances between instances use DistanceMatrixCache, which stores only one of each symmetric pair.
+ */
+@Deprecated
 public class SymmetricBiCache<A, B> extends BiCache<A, A, B> {
 
     // todo cache state read / write
@@ -5,13 +5,15 @@ import tsml.classifiers.distance_based.utils.collections.params.ParamHandler;
 import tsml.classifiers.distance_based.utils.collections.params.ParamHandlerUtils;
 import tsml.classifiers.distance_based.utils.collections.params.ParamSet;
 
+import java.io.Serializable;
+
 /**
  * Purpose: represent an interval, i.e. some subsequence of indices. An interval therefore has a start and end point
  * (inclusively!). The start point may be beyond the end point to reverse directionality.
  *
  * Contributors: goastler
  */
-public class Interval implements ParamHandler {
+public class Interval implements ParamHandler, Serializable {
     private int start;
     private int length;
     public static final String START_FLAG = "s";
@@ -0,0 +1,17 @@
+package tsml.classifiers.distance_based.utils.collections.views;
+
+import weka.core.Instances;
+
+/**
+ * A subset of a dataset given by the indices of its instances. Unlike Instances.add, the instances are not copied, so
+ * the view costs a reference per instance and any change to an instance shows in the underlying dataset too.
+ */
+public class InstancesView extends Instances {
+
+    public InstancesView(final Instances data, final int[] indices) {
+        super(data, indices.length);
+        for(int index : indices) {
+            m_Instances.add(data.get(index));
+        }
+    }
+}
@@ -28,13 +28,19 @@ import tsml.transformers.FFT;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.RandomTree;
+import utilities.serialisation.Compression;
+import utilities.serialisation.Serialisation;
+import utilities.ThreadingUtilities;
 import weka.core.*;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.Checkpointable;
 import tsml.classifiers.TrainTimeContractable;
 
@@ -80,7 +86,7 @@ import static experiments.data.DatasetLoading.loadDataNullable;
  * updated 10/3/20 to allow for internal CV estimate of train acc, same structure as TSF
  **/
 
-public class RISE extends EnhancedAbstractClassifier implements TrainTimeContractable, TechnicalInformationHandler, Checkpointable, Tuneable {
+public class RISE extends EnhancedAbstractClassifier implements TrainTimeContractable, TechnicalInformationHandler, Checkpointable, Tuneable, MultiThreadable, BatchPredictor {
 
     boolean tune = false;
     TransformType[] transforms = {TransformType.ACF_FFT};
@@ -134,6 +140,12 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
     private int intervalMethod = 3;
     private int partitions = 1;
 
+    //Threads used to build trees and for distributionsForInstances, see enableMultiThreading.
+    private int numThreads = 1;
+
+    //Preferred number of instances passed to distributionsForInstances, see BatchPredictor.
+    private String batchSize = "100";
+
 
 
     /**
@@ -235,6 +247,17 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
 
     public void setPercentageOfContractForBagging(double x){ perForBag = x; }
 
+    /**
+     * Trees are built numThreads at a time, and distributionsForInstances splits the trees between the threads. The
+     * interval of each tree is still selected in tree order, so a seeded RISE is the same whatever the number of
+     * threads, unless contracted, as the interval lengths then depend on how long previous trees took.
+     * @param numThreads number of threads to use
+     */
+    @Override //MultiThreadable
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     /**
      * RISE will attempt to load serialisation file on method call using the seed set on instantiation as file
  identifier.
@@ -532,12 +555,10 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
             file.setWritable(true, false);
             file.setExecutable(true, false);
             file.setReadable(true, false);
-            FileOutputStream f = new FileOutputStream(file);
-            ObjectOutputStream o = new ObjectOutputStream(f);
             this.timer.forestElapsedTime = System.nanoTime() - this.timer.forestStartTime;
-            o.writeObject(this);
-            o.close();
-            f.close();
+            try (FileOutputStream f = new FileOutputStream(file)) {
+                Serialisation.write(this, f, Compression.NONE);
+            }
             System.out.println("Serialisation completed: " + classifiersBuilt + " trees");
         } catch (IOException ex) {
             System.out.println("Serialisation failed: " + ex);
@@ -545,18 +566,13 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
     }
 
     private RISE readSerialise(long seed){
-        ObjectInputStream oi = null;
         RISE temp = null;
-        try {
-            FileInputStream fi = new FileInputStream(new File(
+        try (FileInputStream fi = new FileInputStream(new File(
                     checkpointPath
                             + (checkpointPath.isEmpty()? "SERIALISE_cRISE_" : "\\SERIALISE_cRISE_")
                             + seed
-                            + ".txt"));
-            oi = new ObjectInputStream(fi);
-            temp = (RISE)oi.readObject();
-            oi.close();
-            fi.close();
+                            + ".txt"))) {
+            temp = (RISE) Serialisation.read(fi);
             System.out.println("File load successful: " + ((RISE)temp).classifiersBuilt + " trees.");
         } catch (IOException | ClassNotFoundException ex) {
             System.out.println("File load: failed.");
@@ -669,43 +685,70 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
                 this.setTrainTimeLimit(TimeUnit.NANOSECONDS, (long) ((timer.forestTimeLimit * (1.0 / perForBag))));
         }
 
-        for (; classifiersBuilt < numClassifiers && ((classifiersBuilt==0)||(System.nanoTime() - timer.forestStartTime) < (timer.forestTimeLimit - getTime())); classifiersBuilt++) {
+        //Trees are built numThreads at a time. The interval of each tree in a batch is selected in tree order before
+        //any of them are built, so the forest is the same whatever the number of threads.
+        while (classifiersBuilt < numClassifiers && ((classifiersBuilt==0)||(System.nanoTime() - timer.forestStartTime) < (timer.forestTimeLimit - getTime()))) {
             if(debug && classifiersBuilt%100==0)
                 printLineDebug("Building RISE tree "+classifiersBuilt+" time taken = "+(System.nanoTime()-startTime)+" contract ="+trainContractTimeNanos+" nanos");
+            int batchSize = Math.min(numThreads, numClassifiers - classifiersBuilt);
 
-
-            //Start tree timer.
-            timer.treeStartTime = System.nanoTime();
-
-            //Compute maximum interval length given time remaining.
-            if(trainTimeContract) {
-                timer.buildModel();
-                maxIntervalLength = (int) timer.getFeatureSpace((timer.forestTimeLimit) - (System.nanoTime() - (timer.forestStartTime - getTime())));
+            int[][] batchIntervals = new int[batchSize][];
+            for (int b = 0; b < batchSize; b++) {
+                //Compute maximum interval length given time remaining.
+                if(trainTimeContract) {
+                    timer.buildModel();
+                    maxIntervalLength = (int) timer.getFeatureSpace((timer.forestTimeLimit) - (System.nanoTime() - (timer.forestStartTime - getTime())));
+                }
+                startEndPoints = selectStartEndPoints(startEndPoints, intervalMethod);
+                batchIntervals[b] = startEndPoints.get(startEndPoints.size() - 1);
             }
 
-            //Produce intervalInstances from trainingData using interval attributes.
-            Instances intervalInstances;
-            //intervalInstances = produceIntervalInstances(maxIntervalLength, trainingData);
-            intervalInstances = produceIntervalInstances(maxIntervalLength, trainingData);
+            int[] batchNumAtts = new int[batchSize];
+            Classifier[] batchTrees = new Classifier[batchSize];
+            long[] batchTimes = new long[batchSize];
+            ArrayList<Callable<Void>> tasks = new ArrayList<>(batchSize);
+            for (int b = 0; b < batchSize; b++) {
+                int treeNum = b;
+                tasks.add(() -> {
+                    //Start tree timer.
+                    long treeStartTime = System.nanoTime();
+
+                    //Produce intervalInstances from trainingData using interval attributes.
+                    Instances intervalInstances = produceIntervalInstances(batchIntervals[treeNum], trainingData);
+
+                    //Transform instances.
+                    if (transformType != null) {
+                        intervalInstances = transformInstances(intervalInstances, transformType);
+                    }
+                    batchNumAtts[treeNum] = intervalInstances.numAttributes() - 1;
 
-            //Transform instances.
-            if (transformType != null) {
-                intervalInstances = transformInstances(intervalInstances, transformType);
+                    //Build classifier with intervalInstances.
+                    Classifier tree = AbstractClassifier.makeCopy(classifier);
+                    if(tree instanceof RandomTree){
+                        ((RandomTree)tree).setKValue(batchNumAtts[treeNum]);
+                    }
+                    tree.buildClassifier(intervalInstances);
+                    batchTrees[treeNum] = tree;
+                    batchTimes[treeNum] = System.nanoTime() - treeStartTime;
+                    return null;
+                });
             }
+            ThreadingUtilities.runTasks(numThreads, tasks);
 
-            //Add independent variable to model (length of interval).
-            timer.makePrediciton(intervalInstances.numAttributes() - 1);
-            timer.independantVariables.add(intervalInstances.numAttributes() - 1);
+            for (int b = 0; b < batchSize; b++) {
+                //Add independent variable to model (length of interval).
+                timer.makePrediciton(batchNumAtts[b]);
+                timer.independantVariables.add(batchNumAtts[b]);
 
-            //Build classifier with intervalInstances.
-            if(classifier instanceof RandomTree){
-                ((RandomTree)classifier).setKValue(intervalInstances.numAttributes() - 1);
-            }
-            baseClassifiers.add(AbstractClassifier.makeCopy(classifier));
-            baseClassifiers.get(baseClassifiers.size()-1).buildClassifier(intervalInstances);
+                if(classifier instanceof RandomTree){
+                    ((RandomTree)classifier).setKValue(batchNumAtts[b]);
+                }
+                baseClassifiers.add(batchTrees[b]);
 
-            //Add dependant variable to model (time taken).
-            timer.dependantVariables.add(System.nanoTime() - timer.treeStartTime);
+                //Add dependant variable to model (time taken).
+                timer.dependantVariables.add(batchTimes[b]);
+                classifiersBuilt++;
+            }
 
             //Serialise every 100 trees by default (if set to checkpoint).
             if (checkpoint){
@@ -718,7 +761,7 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
                     }
                 }
                 else {    //Default checkpoint every 100 trees
-                    if(classifiersBuilt %100 == 0 && classifiersBuilt >0)
+                    if((classifiersBuilt - 1)/100 > (classifiersBuilt - batchSize - 1)/100)
                         saveToFile(checkpointPath);
                 }
             }
@@ -771,58 +814,87 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
             bags = generateBags(numTrees, bagProp, data);
 
 
-            for (; treeCount < numTrees && (System.nanoTime() - timer.forestStartTime) < (timer.forestTimeLimit - getTime()); treeCount++) {
-
-                //Start tree timer.
-                timer.treeStartTime = System.nanoTime();
+            //As in the build, trees are built numThreads at a time with their intervals selected in tree order.
+            while (treeCount < numTrees && (System.nanoTime() - timer.forestStartTime) < (timer.forestTimeLimit - getTime())) {
+                int batchSize = Math.min(numThreads, numTrees - treeCount);
+                int batchStart = treeCount;
 
-                //Compute maximum interval length given time remaining.
-                timer.buildModel();
-                maxIntervalLength = (int) timer.getFeatureSpace((timer.forestTimeLimit) - (System.nanoTime() - (timer.forestStartTime - getTime())));
+                int[][] batchIntervals = new int[batchSize][];
+                for (int b = 0; b < batchSize; b++) {
+                    //Compute maximum interval length given time remaining.
+                    timer.buildModel();
+                    maxIntervalLength = (int) timer.getFeatureSpace((timer.forestTimeLimit) - (System.nanoTime() - (timer.forestStartTime - getTime())));
+                    startEndPoints = selectStartEndPoints(startEndPoints, intervalMethod);
+                    batchIntervals[b] = startEndPoints.get(startEndPoints.size() - 1);
+                }
 
-                Instances intervalInstances = produceIntervalInstances(maxIntervalLength, data);
+                int[] batchNumAtts = new int[batchSize];
+                long[] batchTimes = new long[batchSize];
+                ArrayList<Callable<Void>> tasks = new ArrayList<>(batchSize);
+                for (int b = 0; b < batchSize; b++) {
+                    int treeNum = b;
+                    int t = batchStart + b;
+                    tasks.add(() -> {
+                        //Start tree timer.
+                        long treeStartTime = System.nanoTime();
+
+                        Instances intervalInstances = produceIntervalInstances(batchIntervals[treeNum], data);
+
+                        intervalInstances = transformInstances(intervalInstances, transformType);
+                        batchNumAtts[treeNum] = intervalInstances.numAttributes() - 1;
+
+                        Instances trainHeader = new Instances(intervalInstances, 0);
+                        Instances testHeader = new Instances(intervalInstances, 0);
+                        ArrayList<Integer> indexs = new ArrayList<>();
+                        for (int j = 0; j < bags[t].length; j++) {
+                            if (bags[t][j] == 0) {
+                                testHeader.add(intervalInstances.get(j));
+                                indexs.add(j);
+                            }
+                            for (int k = 0; k < bags[t][j]; k++) {
+                                trainHeader.add(intervalInstances.get(j));
+                            }
+                        }
+                        testIndexs[t] = indexs;
+                        classifiers[t] = new RandomTree();
+                        ((RandomTree) classifiers[t]).setKValue(trainHeader.numAttributes() - 1);
+                        try {
+                            classifiers[t].buildClassifier(trainHeader);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        }
+                        for (int j = 0; j < testHeader.size(); j++) {
+                            try {
+                                distributions[t][indexs.get(j)] = classifiers[t].distributionForInstance(testHeader.get(j));
+                                if (classifiers[t].classifyInstance(testHeader.get(j)) == testHeader.get(j).classValue()) {
+                                    bagAccuracies[t]++;
+                                }
+                            } catch (Exception e) {
+                                e.printStackTrace();
+                            }
+                        }
+                        bagAccuracies[t] /= testHeader.size();
+                        trainHeader.clear();
+                        testHeader.clear();
+                        batchTimes[treeNum] = System.nanoTime() - treeStartTime;
+                        return null;
+                    });
+                }
+                ThreadingUtilities.runTasks(numThreads, tasks);
 
-                intervalInstances = transformInstances(intervalInstances, transformType);
+                for (int b = 0; b < batchSize; b++) {
+                    //Add independent variable to model (length of interval).
+                    timer.makePrediciton(batchNumAtts[b]);
+                    timer.independantVariables.add(batchNumAtts[b]);
+                    timer.dependantVariables.add(batchTimes[b]);
 
-                //Add independent variable to model (length of interval).
-                timer.makePrediciton(intervalInstances.numAttributes() - 1);
-                timer.independantVariables.add(intervalInstances.numAttributes() - 1);
-
-                Instances trainHeader = new Instances(intervalInstances, 0);
-                Instances testHeader = new Instances(intervalInstances, 0);
-                ArrayList<Integer> indexs = new ArrayList<>();
-                for (int j = 0; j < bags[treeCount].length; j++) {
-                    if (bags[treeCount][j] == 0) {
-                        testHeader.add(intervalInstances.get(j));
-                        timesInTest[j]++;
-                        indexs.add(j);
-                    }
-                    for (int k = 0; k < bags[treeCount][j]; k++) {
-                        trainHeader.add(intervalInstances.get(j));
-                    }
-                }
-                testIndexs[treeCount] = indexs;
-                classifiers[treeCount] = new RandomTree();
-                ((RandomTree) classifiers[treeCount]).setKValue(trainHeader.numAttributes() - 1);
-                try {
-                    classifiers[treeCount].buildClassifier(trainHeader);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                for (int j = 0; j < testHeader.size(); j++) {
-                    try {
-                        distributions[treeCount][indexs.get(j)] = classifiers[treeCount].distributionForInstance(testHeader.get(j));
-                        if (classifiers[treeCount].classifyInstance(testHeader.get(j)) == testHeader.get(j).classValue()) {
-                            bagAccuracies[treeCount]++;
+                    for (int j = 0; j < bags[batchStart + b].length; j++) {
+                        if (bags[batchStart + b][j] == 0) {
+                            timesInTest[j]++;
                         }
-                    } catch (Exception e) {
-                        e.printStackTrace();
                     }
+                    treeCount++;
                 }
-                bagAccuracies[treeCount] /= testHeader.size();
-                trainHeader.clear();
-                testHeader.clear();
-                timer.dependantVariables.add(System.nanoTime() - timer.treeStartTime);
             }
 
             for (int i = 0; i < bags.length; i++) {
@@ -869,6 +941,7 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
                 rise.setTrainTimeLimit((long)(((double) timer.forestTimeLimit * perForBag) / (numFolds - 2)));
             }
             rise.setEstimateOwnPerformance(false);
+            rise.enableMultiThreading(numThreads);
             trainResults = cv.evaluate(rise, data);
             long est2 = System.nanoTime();
             trainResults.setClassifierName("RISECV");
@@ -889,17 +962,19 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
         return bags;
     }
 
-    private Instances produceIntervalInstances(int maxIntervalLength, Instances trainingData) {
+    /**
+     * @param startEndPoints the start and end of the interval
+     * @param trainingData instances to take the interval of
+     * @return the interval of each instance, padded with zeros past the end of the series
+     */
+    private Instances produceIntervalInstances(int[] startEndPoints, Instances trainingData) {
         Instances intervalInstances;
         ArrayList<Attribute>attributes = new ArrayList<>();
-        ArrayList<Integer> intervalAttIndexes = new ArrayList<>();
-
-        startEndPoints = selectStartEndPoints(startEndPoints, intervalMethod);
 
-        int nearestPowerOfTwo = startEndPoints.get(startEndPoints.size() - 1)[1] - startEndPoints.get(startEndPoints.size() - 1)[0];
+        int nearestPowerOfTwo = startEndPoints[1] - startEndPoints[0];
 
         for (int i = 0; i < nearestPowerOfTwo; i ++) {
-            Attribute att = i + startEndPoints.get(startEndPoints.size() - 1)[0] < trainingData.numAttributes() - 1 ? trainingData.attribute(i + startEndPoints.get(startEndPoints.size() - 1)[0]) : new Attribute("att" + (i + 1 + startEndPoints.get(startEndPoints.size() - 1)[0]));
+            Attribute att = i + startEndPoints[0] < trainingData.numAttributes() - 1 ? trainingData.attribute(i + startEndPoints[0]) : new Attribute("att" + (i + 1 + startEndPoints[0]));
             attributes.add(att);
         }
 
@@ -909,7 +984,7 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
 
         for (int i = 0; i < trainingData.size(); i++) {
             for (int j = 0; j < nearestPowerOfTwo; j++) {
-                double value = j + startEndPoints.get(startEndPoints.size() - 1)[0] < trainingData.numAttributes() - 1 ? trainingData.get(i).value(j + startEndPoints.get(startEndPoints.size() - 1)[0]) : 0.0;
+                double value = j + startEndPoints[0] < trainingData.numAttributes() - 1 ? trainingData.get(i).value(j + startEndPoints[0]) : 0.0;
                 intervalInstanceValues[j] = value;
             }
 
@@ -1118,6 +1193,77 @@ public class RISE extends EnhancedAbstractClassifier implements TrainTimeContrac
         return distribution;
     }
 
+    /**
+     * Distributions for several test instances, the same as distributionForInstance for each. The interval of every
+     * instance is transformed at once for each tree, rather than one instance at a time, and if multithreading the
+     * trees are split between the threads.
+     * @param testData instances to classify
+     * @return array of probabilities of each class for each instance
+     * @throws Exception
+     */
+    @Override //BatchPredictor
+    public double[][] distributionsForInstances(Instances testData) throws Exception {
+        int numBlocks = Math.max(1, Math.min(baseClassifiers.size(), numThreads));
+        double[][][] blockVotes = new double[numBlocks][testData.numInstances()][testData.numClasses()];
+
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(numBlocks);
+        for (int b = 0; b < numBlocks; b++) {
+            int start = (int) ((long) baseClassifiers.size() * b / numBlocks);
+            int end = (int) ((long) baseClassifiers.size() * (b + 1) / numBlocks);
+            double[][] votes = blockVotes[b];
+            tasks.add(() -> {
+                for (int i = start; i < end; i++) {
+                    Instances intervalInstances = produceIntervalInstances(startEndPoints.get(i), testData);
+                    if (transformType != null) {
+                        intervalInstances = transformInstances(intervalInstances, transformType);
+                    }
+                    for (int k = 0; k < testData.numInstances(); k++) {
+                        votes[k][(int)baseClassifiers.get(i).classifyInstance(intervalInstances.get(k))]++;
+                    }
+                }
+                return null;
+            });
+        }
+        ThreadingUtilities.runTasks(numThreads, tasks);
+
+        //the votes are whole numbers, so the sums are exact whatever the order
+        double[][] distributions = blockVotes[0];
+        for (int b = 1; b < numBlocks; b++) {
+            for (int k = 0; k < testData.numInstances(); k++) {
+                for (int j = 0; j < testData.numClasses(); j++) {
+                    distributions[k][j] += blockVotes[b][k][j];
+                }
+            }
+        }
+        if(baseClassifiers.size()>0) {
+            for (int k = 0; k < testData.numInstances(); k++) {
+                for (int j = 0; j < testData.numClasses(); j++) {
+                    distributions[k][j] /= baseClassifiers.size();
+                }
+            }
+        }
+        return distributions;
+    }
+
+    /**
+     * Batch prediction is faster than one instance at a time, see distributionsForInstances
+     * @return true
+     */
+    @Override //BatchPredictor
+    public boolean implementsMoreEfficientBatchPrediction() {
+        return true;
+    }
+
+    @Override //BatchPredictor
+    public void setBatchSize(String size) {
+        batchSize = size;
+    }
+
+    @Override //BatchPredictor
+    public String getBatchSize() {
+        return batchSize;
+    }
+
     /**
      * Method returning all classifier parameters as a string.
      * for EnhancedAbstractClassifier. General format:
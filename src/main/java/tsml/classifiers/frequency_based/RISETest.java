@@ -0,0 +1,41 @@
+package tsml.classifiers.frequency_based;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+/**
+ * Purpose: test a seeded RISE builds the same ensemble whatever the number of threads
+ */
+public class RISETest {
+
+    private static RISE buildRise(int numThreads) {
+        final RISE classifier = new RISE();
+        classifier.setSeed(0);
+        classifier.setNumClassifiers(20);
+        classifier.setEstimateOwnPerformance(true);
+        classifier.setEstimatorMethod("OOB");
+        classifier.enableMultiThreading(numThreads);
+        return classifier;
+    }
+
+    @Test
+    public void testSameEnsembleWithMultipleThreads() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final RISE serial = buildRise(1);
+        serial.buildClassifier(data[0]);
+        final RISE parallel = buildRise(3);
+        parallel.buildClassifier(data[0]);
+        for(int i = 0; i < data[0].size(); i++) {
+            Assert.assertArrayEquals(serial.getTrainResults().getProbabilityDistribution(i),
+                parallel.getTrainResults().getProbabilityDistribution(i), 0);
+        }
+        final double[][] distributions = parallel.distributionsForInstances(data[1]);
+        for(int i = 0; i < data[1].size(); i++) {
+            final double[] distribution = serial.distributionForInstance(data[1].get(i));
+            Assert.assertArrayEquals(distribution, parallel.distributionForInstance(data[1].get(i)), 0);
+            Assert.assertArrayEquals(distribution, distributions[i], 0);
+        }
+    }
+}
@@ -16,6 +16,7 @@ package tsml.classifiers.hybrids;
 
 import experiments.data.DatasetLoading;
 import tsml.classifiers.EnhancedAbstractClassifier;
+import tsml.classifiers.MultiThreadable;
 import tsml.transformers.Catch22;
 import utilities.ClassifierTools;
 import weka.classifiers.Classifier;
@@ -25,6 +26,7 @@ import weka.core.*;
 import java.util.ArrayList;
 
 import static utilities.InstanceTools.resampleTrainAndTestInstances;
+import static utilities.Utilities.extractTimeSeries;
 import static utilities.multivariate_tools.MultivariateInstanceTools.*;
 
 /**
@@ -39,13 +41,16 @@ import static utilities.multivariate_tools.MultivariateInstanceTools.*;
  *
  * @author Matthew Middlehurst
  */
-public class Catch22Classifier extends EnhancedAbstractClassifier {
+public class Catch22Classifier extends EnhancedAbstractClassifier implements MultiThreadable {
 
     //z-norm before transform
     private boolean norm = false;
     //specifically normalise for the outlier stats, which can take a long time with large positive/negative values
     private boolean outlierNorm = false;
 
+    //threads to transform the train data with
+    private int numThreads = 1;
+
     private Classifier cls = new J48();
     private Catch22 c22;
     private Instances header;
@@ -80,6 +85,14 @@ public class Catch22Classifier extends EnhancedAbstractClassifier {
 
     public void setOutlierNormalise(boolean b) { this.outlierNorm = b; }
 
+    /**
+     * Transform the train data with multiple threads, the features do not depend on the number of threads.
+     */
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     @Override
     public void buildClassifier(Instances data) throws Exception {
         super.buildClassifier(data);
@@ -101,6 +114,7 @@ public class Catch22Classifier extends EnhancedAbstractClassifier {
         c22 = new Catch22();
         c22.setNormalise(norm);
         c22.setOutlierNormalise(outlierNorm);
+        c22.enableMultiThreading(numThreads);
 
         ArrayList<Attribute> atts = new ArrayList<>();
         for (int i = 1; i <= 22*numColumns; i++){
@@ -112,16 +126,20 @@ public class Catch22Classifier extends EnhancedAbstractClassifier {
         header = new Instances(transformedData,0);
 
         //transform each dimension using the catch22 transformer into a sincle vector
-        for (int i = 0 ; i < data.numInstances(); i++){
-            double[] d = new double[transformedData.numAttributes()];
-            for (int n = 0 ; n < numColumns; n++){
-                Instance inst = (c22.transform(columns[n].get(i)));
-                for (int j = 0; j < 22; j++){
-                    d[n * 22 + j] = inst.value(j);
-                }
+        double[][] d = new double[data.numInstances()][transformedData.numAttributes()];
+        for (int n = 0 ; n < numColumns; n++){
+            double[][] series = new double[data.numInstances()][];
+            for (int i = 0 ; i < data.numInstances(); i++){
+                series[i] = extractTimeSeries(columns[n].get(i));
+            }
+            double[][] features = c22.transform(series);
+            for (int i = 0 ; i < data.numInstances(); i++){
+                System.arraycopy(features[i], 0, d[i], n * 22, 22);
             }
-            d[transformedData.numAttributes()-1] = data.get(i).classValue();
-            transformedData.add(new DenseInstance(1, d));
+        }
+        for (int i = 0 ; i < data.numInstances(); i++){
+            d[i][transformedData.numAttributes()-1] = data.get(i).classValue();
+            transformedData.add(new DenseInstance(1, d[i]));
         }
 
         if (cls instanceof Randomizable){
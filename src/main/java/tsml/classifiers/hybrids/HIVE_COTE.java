@@ -23,6 +23,7 @@ import java.util.concurrent.TimeUnit;
 
 import evaluation.tuning.ParameterSpace;
 import machine_learning.classifiers.ensembles.AbstractEnsemble;
+import machine_learning.classifiers.ensembles.ModuleScheduler;
 import tsml.classifiers.EnhancedAbstractClassifier;
 import tsml.classifiers.TrainTimeContractable;
 import tsml.classifiers.Tuneable;
@@ -72,6 +73,12 @@ public class HIVE_COTE extends AbstractEnsemble implements TechnicalInformationH
      */
     protected final double BASE_CLASSIFIER_CONTRACT_PROP = 0.99; //if e.g 1 day contract, 864 seconds grace time
     
+    /**
+     * Whether a contract is shared among the base classifiers by a ModuleScheduler, according 
+     * to their probed cost, rather than split evenly. See setScheduleModules
+     */
+    protected boolean scheduleModules = false;
+    
     
     
     @Override
@@ -241,7 +248,8 @@ public class HIVE_COTE extends AbstractEnsemble implements TechnicalInformationH
 
 
     /**
-     * Will split time given evenly among the contractable base classifiers. 
+     * Will split time given evenly among the contractable base classifiers, unless 
+     * scheduling the modules, see setScheduleModules. 
      * 
      * This is currently very naive, and likely innaccurate. Consider these TODOs
      * 
@@ -265,9 +273,25 @@ public class HIVE_COTE extends AbstractEnsemble implements TechnicalInformationH
         contractTrainTimeUnit = TimeUnit.NANOSECONDS;
     }
     
+    /**
+     * Whether to share a contract among the base classifiers by a ModuleScheduler rather than 
+     * split it evenly. The scheduler estimates the cost of each base classifier from a short 
+     * probe and gives it time and threads accordingly, base classifiers which finish early 
+     * leaving their time to those yet to start. The probes take a fixed part of the contract, 
+     * so this only pays off on long contracts, of hours rather than minutes. Off by default.
+     */
+    public void setScheduleModules(boolean scheduleModules) {
+        this.scheduleModules = scheduleModules;
+    }
+    
+    public boolean isScheduleModules() {
+        return scheduleModules;
+    }
+    
     /**
      * Sets up the ensemble for contracting, to be called at the start of build classifier,
-     * i.e. when parameters can no longer be changed.
+     * i.e. when parameters can no longer be changed. If scheduling the modules their contracts 
+     * are set by the ModuleScheduler as each starts instead, see trainModules.
      */
     protected void setupContracting() {
         //splits the ensemble contract time between this many classifiers
@@ -279,6 +303,9 @@ public class HIVE_COTE extends AbstractEnsemble implements TechnicalInformationH
         for (EnsembleModule module : modules) {
             if(module.isTrainTimeContractable())
                 numContractableClassifiers++;
+            else if (scheduleModules)
+                System.out.println("WARNING: trying to contract " + ensembleName + ", but base classifier " + module.getModuleName() + " is not contractable, "
+                        + "and will be built in full. The ensemble as a whole may not meet the contract.");
             else 
                 System.out.println("WARNING: trying to contract " + ensembleName + ", but base classifier " + module.getModuleName() + " is not contractable, "
                         + "and is therefore not considered in the contract. The ensemble as a whole will very likely not meet the contract.");
@@ -290,18 +317,38 @@ public class HIVE_COTE extends AbstractEnsemble implements TechnicalInformationH
                         + "likely not meet the contract.");
             }
         }
+        printLineDebug(" Setting up contract\nTotal Contract = "+trainContractTimeNanos/1000000000+" Secs");
+        if (scheduleModules)
+            return;
 
         //force nanos in setting base classifier contracts in case e.g. 1 hour was passed, 1/5 = 0...
         TimeUnit highFidelityUnit = TimeUnit.NANOSECONDS;
         long conservativeBaseClassifierContract = (long) (BASE_CLASSIFIER_CONTRACT_PROP * highFidelityUnit.convert(trainContractTimeNanos, contractTrainTimeUnit));
         long highFidelityTimePerClassifier = (conservativeBaseClassifierContract) / numContractableClassifiers;
-        printLineDebug(" Setting up contract\nTotal Contract = "+trainContractTimeNanos/1000000000+" Secs");
         printLineDebug(" Per Classifier = "+highFidelityTimePerClassifier+" Nanos");
         for (EnsembleModule module : modules)
             if(module.isTrainTimeContractable())
                 ((TrainTimeContractable) module.getClassifier()).setTrainTimeLimit(highFidelityUnit, highFidelityTimePerClassifier);
     }
     
+    /**
+     * When contracting and scheduling the modules, the base classifiers are built by a 
+     * ModuleScheduler, which sets the contract time and threads of each. Otherwise as 
+     * AbstractEnsemble.
+     */
+    @Override
+    protected synchronized void trainModules() throws Exception {
+        if (!trainTimeContract || !scheduleModules) {
+            super.trainModules();
+            return;
+        }
+        
+        //force nanos in setting base classifier contracts in case e.g. 1 hour was passed
+        long conservativeBaseClassifierContract = (long) (BASE_CLASSIFIER_CONTRACT_PROP * TimeUnit.NANOSECONDS.convert(trainContractTimeNanos, contractTrainTimeUnit));
+        ModuleScheduler scheduler = new ModuleScheduler(this, multiThread ? numThreads : 1, conservativeBaseClassifierContract);
+        setModuleTrainResults(scheduler.trainModules(modules, trainInsts));
+    }
+    
     @Override   //EnhancedAbstractClassifier
     public void setSeed(int seed) { 
         super.setSeed(seed);
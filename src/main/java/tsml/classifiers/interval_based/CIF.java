@@ -22,6 +22,7 @@ import machine_learning.classifiers.TimeSeriesTree;
 import tsml.classifiers.*;
 import tsml.transformers.Catch22;
 import utilities.ClassifierTools;
+import utilities.ThreadingUtilities;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.core.*;
@@ -32,6 +33,9 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -47,7 +51,7 @@ import static utilities.multivariate_tools.MultivariateInstanceTools.*;
  * date 22/05/20
  **/
 public class CIF extends EnhancedAbstractClassifier implements TechnicalInformationHandler, TrainTimeContractable,
-        Checkpointable, Tuneable, Visualisable, Interpretable {
+        Checkpointable, Tuneable, Visualisable, Interpretable, MultiThreadable {
 
     /** Primary parameters potentially tunable */
     private int numClassifiers = 500;
@@ -130,9 +134,15 @@ public class CIF extends EnhancedAbstractClassifier implements TechnicalInformat
     private int numColumns;
     private ArrayList<ArrayList<Integer>> intervalColumns;
 
-    /** Transformer used to obtain catch22 features **/
+    /** Transformer used to obtain catch22 features, shared by all trees **/
     private transient Catch22 c22;
 
+    /** Threads used to build trees and to predict, see enableMultiThreading **/
+    private int numThreads = 1;
+
+    /** Pool of numThreads threads kept between builds and predictions, see getExecutor **/
+    private transient ExecutorService executor;
+
     protected static final long serialVersionUID = 1L;
 
     public CIF(){
@@ -173,6 +183,36 @@ public class CIF extends EnhancedAbstractClassifier implements TechnicalInformat
         bagging = b;
     }
 
+    /**
+     * Trees are built numThreads at a time, and split into numThreads blocks when predicting. The random choices for
+     * each tree are still drawn in tree order, so a seeded CIF is the same whatever the number of threads.
+     *
+     * @param numThreads number of threads to use
+     */
+    @Override //MultiThreadable
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+        //the old pool's threads end once idle
+        executor = null;
+    }
+
+    /**
+     * The pool is built on first use and kept, so predicting one instance at a time does not build a pool per
+     * instance. Its threads are daemons which end once idle, so it is never shut down.
+     *
+     * @return the pool to build and predict with, or null to do so in this thread
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (numThreads <= 1) {
+            return null;
+        }
+        if (executor == null) {
+            executor = ThreadingUtilities.buildExecutorService(numThreads, 1, TimeUnit.SECONDS,
+                    ThreadingUtilities.daemonThreadFactory());
+        }
+        return executor;
+    }
+
     /**
      * @return String written to results files
      */
@@ -376,215 +416,54 @@ public class CIF extends EnhancedAbstractClassifier implements TechnicalInformat
          *      generate random intervals
          *      do the transfrorms
          *      build the classifier
+         * Trees are built numThreads at a time. The random choices for each tree in a batch are drawn from rand in
+         * tree order before any of them are built, so the ensemble is the same whatever the number of threads.
          * */
         while(withinTrainContract(trainResults.getBuildTime()) && trees.size() < numClassifiers){
-            int i = trees.size();
-
-            //1. Select random intervals for tree i
-
-            int[][] interval = new int[numIntervals][2];  //Start and end
-
-            for (int j = 0; j < numIntervals; j++) {
-                if (rand.nextBoolean()) {
-                    interval[j][0] = rand.nextInt(seriesLength - minIntervalLength); //Start point
-
-                    int range = Math.min(seriesLength - interval[j][0], maxIntervalLength);
-                    int length = rand.nextInt(range - minIntervalLength) + minIntervalLength;
-                    interval[j][1] = interval[j][0] + length;
-                } else {
-                    interval[j][1] = rand.nextInt(seriesLength - minIntervalLength) + minIntervalLength; //Start point
-
-                    int range = Math.min(interval[j][1], maxIntervalLength);
-                    int length;
-                    if (range - minIntervalLength == 0) length = 3;
-                    else length = rand.nextInt(range - minIntervalLength) + minIntervalLength;
-                    interval[j][0] = interval[j][1] - length;
-                }
-            }
-
-            //If bagging find instances with replacement
-
-            int[] instInclusions = new int[data.numInstances()];
-            if (bagging) {
-                for (int n = 0; n < data.numInstances(); n++) {
-                    instInclusions[rand.nextInt(data.numInstances())]++;
-                }
-
-                for (int n = 0; n < data.numInstances(); n++) {
-                    if (instInclusions[n] > 0) {
-                        inBag[i][n] = true;
-                    }
-                }
-            }
-
-            //find attributes to subsample
-
-            subsampleAtts.add(new ArrayList<>());
-            for (int n = 0; n < startNumAttributes; n++){
-                subsampleAtts.get(i).add(n);
-            }
-
-            while (subsampleAtts.get(i).size() > numAttributes){
-                subsampleAtts.get(i).remove(rand.nextInt(subsampleAtts.get(i).size()));
-            }
-
-            intervalColumns.add(new ArrayList<>());
-            //find columns for each interval
-            for (int n = 0; n < numIntervals; n++) {
-                intervalColumns.get(i).add(rand.nextInt(numColumns));
-            }
-            Collections.sort(intervalColumns.get(i));
-
-            //For bagging
-            int instIdx = 0;
-            int lastIdx = -1;
-
-            //2. Generate and store attributes
-            for (int k = 0; k < data.numInstances(); k++) {
-                //For each instance
-
-                if (bagging) {
-                    boolean sameInst = false;
-
-                    while (true) {
-                        if (instInclusions[instIdx] == 0) {
-                            instIdx++;
-                        } else {
-                            instInclusions[instIdx]--;
+            int batchStart = trees.size();
+            int batchSize = Math.min(numThreads, numClassifiers - batchStart);
 
-                            if (instIdx == lastIdx) {
-                                result.set(k, new DenseInstance(result.instance(k - 1)));
-                                sameInst = true;
-                            } else {
-                                lastIdx = instIdx;
-                            }
-
-                            break;
-                        }
-                    }
-
-                    if (sameInst) continue;
-
-                    result.instance(k).setValue(result.classIndex(), data.instance(instIdx).classValue());
-                } else {
-                    instIdx = k;
-                }
-
-                for (int j = 0; j < numIntervals; j++) {
-                    //extract the interval
-                    double[] series = columns[intervalColumns.get(i).get(j)].instance(instIdx).toDoubleArray();
-
-                    FeatureSet f = new FeatureSet();
-                    double[] intervalArray = Arrays.copyOfRange(series, interval[j][0], interval[j][1] + 1);
-
-                    //process features
-
-                    for (int g = 0; g < subsampleAtts.get(i).size(); g++) {
-                        if (subsampleAtts.get(i).get(g) < 22) {
-                            result.instance(k).setValue(j * numAttributes + g,
-                                    c22.getSummaryStatByIndex(subsampleAtts.get(i).get(g), j, intervalArray));
-                        } else {
-                            if (!f.calculatedFeatures) {
-                                f.setFeatures(series, interval[j][0], interval[j][1]);
-                            }
-
-                            switch (subsampleAtts.get(i).get(g)) {
-                                case 22:
-                                    result.instance(k).setValue(j * numAttributes + g, f.mean);
-                                    break;
-                                case 23:
-                                    result.instance(k).setValue(j * numAttributes + g, f.stDev);
-                                    break;
-                                case 24:
-                                    result.instance(k).setValue(j * numAttributes + g, f.slope);
-                                    break;
-                                default:
-                                    throw new Exception("att subsample basic features broke");
-                            }
-                        }
-                    }
-                }
+            //1. Select random intervals, instances, attributes and columns for each tree in the batch
+            ArrayList<TreeBuild> batch = new ArrayList<>(batchSize);
+            for (int b = 0; b < batchSize; b++) {
+                batch.add(new TreeBuild(batchStart + b, data.numInstances()));
             }
 
-            if (bagging) {
-                result.randomize(rand);
+            //2. and 3. Generate the attributes and build each tree
+            ArrayList<Callable<Void>> tasks = new ArrayList<>(batchSize);
+            for (TreeBuild build : batch) {
+                tasks.add(() -> {
+                    build.build(data, columns, result);
+                    return null;
+                });
             }
+            ThreadingUtilities.runTasks(getExecutor(), tasks);
 
-            //3. Create and build tree using all the features. Feature selection
-            Classifier tree = AbstractClassifier.makeCopy(base);
-            if (seedClassifier && tree instanceof Randomizable)
-                ((Randomizable) tree).setSeed(seed * (i + 1));
-
-            tree.buildClassifier(result);
-
-            if (base instanceof TimeSeriesTree) {
-                attUsage.add(((TimeSeriesTree)tree).getAttributesUsed());
-            }
-            else{
-                boolean[] b = new boolean[numAttributes*numIntervals];
-                Arrays.fill(b,true);
-                attUsage.add(b);
-            }
-
-            if (bagging && getEstimateOwnPerformance()) {
-                long t1 = System.nanoTime();
-                boolean[] usedAtts = attUsage.get(i);
-
-                for (int n = 0; n < data.numInstances(); n++) {
-                    if (inBag[i][n])
-                        continue;
-
-                    for (int j = 0; j < numIntervals; j++) {
-                        double[] series = columns[intervalColumns.get(i).get(j)].instance(n).toDoubleArray();
-
-                        FeatureSet f = new FeatureSet();
-                        double[] intervalArray = Arrays.copyOfRange(series, interval[j][0], interval[j][1] + 1);
+            //The OOB estimates of a batch are found side by side, so take the slowest as the time taken
+            long oobTime = 0;
+            for (TreeBuild build : batch) {
+                attUsage.add(build.usedAtts);
 
-                        for (int g = 0; g < subsampleAtts.get(i).size(); g++) {
-                            if (!usedAtts[j * numAttributes + g]) {
-                                testHolder.instance(0).setValue(j * numAttributes + g, 0);
-                                continue;
-                            }
+                if (bagging && getEstimateOwnPerformance()) {
+                    for (int n = 0; n < data.numInstances(); n++) {
+                        if (build.oobDistributions[n] == null)
+                            continue;
 
-                            if (subsampleAtts.get(i).get(g) < 22) {
-                                testHolder.instance(0).setValue(j * numAttributes + g,
-                                        c22.getSummaryStatByIndex(subsampleAtts.get(i).get(g), j, intervalArray));
-                            } else {
-                                if (!f.calculatedFeatures) {
-                                    f.setFeatures(series, interval[j][0], interval[j][1]);
-                                }
-                                switch (subsampleAtts.get(i).get(g)) {
-                                    case 22:
-                                        testHolder.instance(0).setValue(j * numAttributes + g, f.mean);
-                                        break;
-                                    case 23:
-                                        testHolder.instance(0).setValue(j * numAttributes + g, f.stDev);
-                                        break;
-                                    case 24:
-                                        testHolder.instance(0).setValue(j * numAttributes + g, f.slope);
-                                        break;
-                                    default:
-                                        throw new Exception("att subsample basic features broke");
-                                }
-                            }
-                        }
+                        oobCounts[n]++;
+                        for (int k = 0; k < build.oobDistributions[n].length; k++)
+                            trainDistributions[n][k] += build.oobDistributions[n][k];
                     }
-
-                    double[] newProbs = tree.distributionForInstance(testHolder.instance(0));
-                    oobCounts[n]++;
-                    for (int k = 0; k < newProbs.length; k++)
-                        trainDistributions[n][k] += newProbs[k];
+                    oobTime = Math.max(oobTime, build.oobTime);
                 }
 
-                trainResults.setErrorEstimateTime(trainResults.getErrorEstimateTime() + (System.nanoTime() - t1));
+                trees.add(build.tree);
+                intervals.add(build.interval);
             }
-
-            trees.add(tree);
-            intervals.add(interval);
+            trainResults.setErrorEstimateTime(trainResults.getErrorEstimateTime() + oobTime);
 
             //Timed checkpointing if enabled, else checkpoint every 100 trees
             if(checkpoint && ((checkpointTime>0 && System.nanoTime()-lastCheckpointTime>checkpointTime)
-                    || trees.size()%100 == 0)) {
+                    || trees.size()/100 > batchStart/100)) {
                 saveToFile(checkpointPath);
             }
         }
@@ -693,6 +572,7 @@ public class CIF extends EnhancedAbstractClassifier implements TechnicalInformat
         this.bagging = other.bagging;
         this.trainTimeContract = other.trainTimeContract;
         this.contractTime = other.contractTime;
+        this.numThreads = other.numThreads;
     }
 
     /**
@@ -721,66 +601,59 @@ public class CIF extends EnhancedAbstractClassifier implements TechnicalInformat
             interpTreePreds = new ArrayList<>();
         }
 
-        //Build transformed instance
-        for(int i=0;i<trees.size();i++){
-            Catch22 c22 = new Catch22();
+        if (c22 == null){
+            //not saved with the classifier
+            c22 = new Catch22();
             c22.setOutlierNormalise(outlierNorm);
-            boolean[] usedAtts = attUsage.get(i);
-
-            for(int j=0;j<numIntervals;j++){
-                double[] series = columns[intervalColumns.get(i).get(j)].toDoubleArray();
-
-                FeatureSet f = new FeatureSet();
-                double[] intervalArray = Arrays.copyOfRange(series, intervals.get(i)[j][0],
-                        intervals.get(i)[j][1]+1);
-
-                for (int g = 0; g < numAttributes; g++){
-                    if (!usedAtts[j * numAttributes + g]) {
-                        testHolder.instance(0).setValue(j * numAttributes + g, 0);
-                        continue;
-                    }
+        }
 
-                    if (subsampleAtts.get(i).get(g) < 22) {
-                        testHolder.instance(0).setValue(j * numAttributes + g,
-                                c22.getSummaryStatByIndex(subsampleAtts.get(i).get(g), j, intervalArray));
-                    }
-                    else{
-                        if (!f.calculatedFeatures) {
-                            f.setFeatures(series, intervals.get(i)[j][0], intervals.get(i)[j][1]);
-                        }
-                        switch(subsampleAtts.get(i).get(g)) {
-                            case 22:
-                                testHolder.instance(0).setValue(j * numAttributes + g, f.mean);
-                                break;
-                            case 23:
-                                testHolder.instance(0).setValue(j * numAttributes + g, f.stDev);
-                                break;
-                            case 24:
-                                testHolder.instance(0).setValue(j * numAttributes + g, f.slope);
-                                break;
-                            default:
-                                throw new Exception("att subsample basic features broke");
+        //Build transformed instance for each tree and classify it, numThreads blocks of trees at a time
+        int numTrees = trees.size();
+        int[] treeVotes = new int[numTrees];
+        double[][] treeDistributions = new double[numTrees][];
+        ArrayList<ArrayList<double[]>> treeInterpData = new ArrayList<>(Collections.nCopies(numTrees, null));
+
+        int numBlocks = Math.min(numTrees, numThreads);
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(numBlocks);
+        for (int b = 0; b < numBlocks; b++) {
+            int start = (int) ((long) numTrees * b / numBlocks);
+            int end = (int) ((long) numTrees * (b + 1) / numBlocks);
+            //each block fills its own copy of the holder
+            Instance holder = b == 0 ? testHolder.instance(0) : new DenseInstance(testHolder.instance(0));
+            holder.setDataset(testHolder);
+            tasks.add(() -> {
+                for (int i = start; i < end; i++) {
+                    setTreeFeatures(holder, columns, intervals.get(i), intervalColumns.get(i), subsampleAtts.get(i),
+                            attUsage.get(i));
+
+                    if (voteEnsemble) {
+                        if (interpSavePath != null && base instanceof TimeSeriesTree) {
+                            ArrayList<double[]> al = new ArrayList<>();
+                            treeVotes[i] = (int) ((TimeSeriesTree) trees.get(i)).classifyInstance(holder, al);
+                            treeInterpData.set(i, al);
+                        } else {
+                            treeVotes[i] = (int) trees.get(i).classifyInstance(holder);
                         }
+                    } else {
+                        treeDistributions[i] = trees.get(i).distributionForInstance(holder);
                     }
                 }
-            }
+                return null;
+            });
+        }
+        ThreadingUtilities.runTasks(getExecutor(), tasks);
 
+        //combine in tree order, so the sums are the same whatever the number of threads
+        for(int i=0;i<numTrees;i++){
             if(voteEnsemble){
-                int c;
-                if(interpSavePath != null && base instanceof TimeSeriesTree) {
-                    ArrayList<double[]> al = new ArrayList<>();
-                    c=(int)((TimeSeriesTree)trees.get(i)).classifyInstance(testHolder.instance(0), al);
-                    interpData.add(al);
-                    interpTreePreds.add(c);
+                if(treeInterpData.get(i) != null) {
+                    interpData.add(treeInterpData.get(i));
+                    interpTreePreds.add(treeVotes[i]);
                 }
-                else {
-                    c=(int)trees.get(i).classifyInstance(testHolder.instance(0));
-                }
-                d[c]++;
+                d[treeVotes[i]]++;
             }else{
-                double[] temp=trees.get(i).distributionForInstance(testHolder.instance(0));
-                for(int j=0;j<temp.length;j++)
-                    d[j]+=temp[j];
+                for(int j=0;j<treeDistributions[i].length;j++)
+                    d[j]+=treeDistributions[i][j];
             }
         }
 
@@ -1121,6 +994,231 @@ public class CIF extends EnhancedAbstractClassifier implements TechnicalInformat
         return true;
     }
 
+    /**
+     * Writes the features of the intervals of a series found for a tree into target.
+     *
+     * @param seriesColumns the series, one instance per column
+     * @param usedAtts the features used by the tree, those not used are set to 0 rather than found. null to find all
+     */
+    private void setTreeFeatures(Instance target, Instance[] seriesColumns, int[][] interval,
+                                 ArrayList<Integer> columnIdxs, ArrayList<Integer> atts, boolean[] usedAtts)
+            throws Exception {
+        for (int j = 0; j < numIntervals; j++) {
+            //extract the interval
+            double[] series = seriesColumns[columnIdxs.get(j)].toDoubleArray();
+
+            FeatureSet f = new FeatureSet();
+            double[] intervalArray = Arrays.copyOfRange(series, interval[j][0], interval[j][1] + 1);
+            Catch22.SeriesContext intervalFeatures = c22.getSeriesContext(intervalArray);
+
+            //process features
+            for (int g = 0; g < atts.size(); g++) {
+                if (usedAtts != null && !usedAtts[j * numAttributes + g]) {
+                    target.setValue(j * numAttributes + g, 0);
+                    continue;
+                }
+
+                if (atts.get(g) < 22) {
+                    target.setValue(j * numAttributes + g, intervalFeatures.getFeature(atts.get(g)));
+                } else {
+                    if (!f.calculatedFeatures) {
+                        f.setFeatures(series, interval[j][0], interval[j][1]);
+                    }
+
+                    switch (atts.get(g)) {
+                        case 22:
+                            target.setValue(j * numAttributes + g, f.mean);
+                            break;
+                        case 23:
+                            target.setValue(j * numAttributes + g, f.stDev);
+                            break;
+                        case 24:
+                            target.setValue(j * numAttributes + g, f.slope);
+                            break;
+                        default:
+                            throw new Exception("att subsample basic features broke");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A tree of the ensemble and the random choices it is built from. The choices are drawn from rand when made, in
+     * the same order as when trees were built one at a time, and the tree is built later, possibly in another thread.
+     */
+    private class TreeBuild {
+        private final int i;
+        private final int[][] interval;
+        private final int[] instInclusions;
+        private final int[] swaps;
+
+        private Classifier tree;
+        private boolean[] usedAtts;
+        private double[][] oobDistributions;
+        private long oobTime;
+
+        private TreeBuild(int i, int numInstances) {
+            this.i = i;
+
+            interval = new int[numIntervals][2];  //Start and end
+
+            for (int j = 0; j < numIntervals; j++) {
+                if (rand.nextBoolean()) {
+                    interval[j][0] = rand.nextInt(seriesLength - minIntervalLength); //Start point
+
+                    int range = Math.min(seriesLength - interval[j][0], maxIntervalLength);
+                    int length = rand.nextInt(range - minIntervalLength) + minIntervalLength;
+                    interval[j][1] = interval[j][0] + length;
+                } else {
+                    interval[j][1] = rand.nextInt(seriesLength - minIntervalLength) + minIntervalLength; //Start point
+
+                    int range = Math.min(interval[j][1], maxIntervalLength);
+                    int length;
+                    if (range - minIntervalLength == 0) length = 3;
+                    else length = rand.nextInt(range - minIntervalLength) + minIntervalLength;
+                    interval[j][0] = interval[j][1] - length;
+                }
+            }
+
+            //If bagging find instances with replacement
+
+            instInclusions = new int[numInstances];
+            if (bagging) {
+                for (int n = 0; n < numInstances; n++) {
+                    instInclusions[rand.nextInt(numInstances)]++;
+                }
+
+                for (int n = 0; n < numInstances; n++) {
+                    if (instInclusions[n] > 0) {
+                        inBag[i][n] = true;
+                    }
+                }
+            }
+
+            //find attributes to subsample
+
+            subsampleAtts.add(new ArrayList<>());
+            for (int n = 0; n < startNumAttributes; n++){
+                subsampleAtts.get(i).add(n);
+            }
+
+            while (subsampleAtts.get(i).size() > numAttributes){
+                subsampleAtts.get(i).remove(rand.nextInt(subsampleAtts.get(i).size()));
+            }
+
+            intervalColumns.add(new ArrayList<>());
+            //find columns for each interval
+            for (int n = 0; n < numIntervals; n++) {
+                intervalColumns.get(i).add(rand.nextInt(numColumns));
+            }
+            Collections.sort(intervalColumns.get(i));
+
+            //the swaps Instances.randomize would make to shuffle the bagged instances
+            if (bagging) {
+                swaps = new int[numInstances];
+                for (int n = numInstances - 1; n > 0; n--) {
+                    swaps[n] = rand.nextInt(n + 1);
+                }
+            } else {
+                swaps = null;
+            }
+        }
+
+        /**
+         * @param template blank instances for the features with the class values set
+         */
+        private void build(Instances data, Instances[] columns, Instances template) throws Exception {
+            Instances result = new Instances(template);
+            ArrayList<Integer> atts = subsampleAtts.get(i);
+            ArrayList<Integer> cols = intervalColumns.get(i);
+            Instance[] seriesColumns = new Instance[numColumns];
+
+            //For bagging
+            int instIdx = 0;
+            int lastIdx = -1;
+
+            //2. Generate and store attributes
+            for (int k = 0; k < data.numInstances(); k++) {
+                //For each instance
+
+                if (bagging) {
+                    boolean sameInst = false;
+
+                    while (true) {
+                        if (instInclusions[instIdx] == 0) {
+                            instIdx++;
+                        } else {
+                            instInclusions[instIdx]--;
+
+                            if (instIdx == lastIdx) {
+                                result.set(k, new DenseInstance(result.instance(k - 1)));
+                                sameInst = true;
+                            } else {
+                                lastIdx = instIdx;
+                            }
+
+                            break;
+                        }
+                    }
+
+                    if (sameInst) continue;
+
+                    result.instance(k).setValue(result.classIndex(), data.instance(instIdx).classValue());
+                } else {
+                    instIdx = k;
+                }
+
+                for (int c = 0; c < numColumns; c++) {
+                    seriesColumns[c] = columns[c].instance(instIdx);
+                }
+                setTreeFeatures(result.instance(k), seriesColumns, interval, cols, atts, null);
+            }
+
+            if (bagging) {
+                for (int n = swaps.length - 1; n > 0; n--) {
+                    result.swap(n, swaps[n]);
+                }
+            }
+
+            //3. Create and build tree using all the features. Feature selection
+            tree = AbstractClassifier.makeCopy(base);
+            if (seedClassifier && tree instanceof Randomizable)
+                ((Randomizable) tree).setSeed(seed * (i + 1));
+
+            tree.buildClassifier(result);
+
+            if (base instanceof TimeSeriesTree) {
+                usedAtts = ((TimeSeriesTree)tree).getAttributesUsed();
+            }
+            else{
+                usedAtts = new boolean[numAttributes*numIntervals];
+                Arrays.fill(usedAtts,true);
+            }
+
+            if (bagging && getEstimateOwnPerformance()) {
+                long t1 = System.nanoTime();
+                Instance holder = new DenseInstance(testHolder.instance(0));
+                holder.setDataset(testHolder);
+                oobDistributions = new double[data.numInstances()][];
+
+                for (int n = 0; n < data.numInstances(); n++) {
+                    if (inBag[i][n])
+                        continue;
+
+                    for (int c = 0; c < numColumns; c++) {
+                        seriesColumns[c] = columns[c].instance(n);
+                    }
+                    setTreeFeatures(holder, seriesColumns, interval, cols, atts, usedAtts);
+
+                    oobDistributions[n] = tree.distributionForInstance(holder);
+                }
+
+                oobTime = System.nanoTime() - t1;
+            }
+        }
+    }
+
     //Nested class to store three simple summary features used to construct train data
     public static class FeatureSet{
         double mean;
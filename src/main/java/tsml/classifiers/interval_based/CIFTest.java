@@ -0,0 +1,39 @@
+package tsml.classifiers.interval_based;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+/**
+ * Purpose: test a seeded CIF builds the same ensemble whatever the number of threads
+ */
+public class CIFTest {
+
+    private static CIF buildCif(int numThreads) {
+        final CIF cif = new CIF();
+        cif.setSeed(0);
+        cif.setNumTrees(20);
+        cif.setBagging(true);
+        cif.setEstimateOwnPerformance(true);
+        cif.enableMultiThreading(numThreads);
+        return cif;
+    }
+
+    @Test
+    public void testSameEnsembleWithMultipleThreads() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final CIF serial = buildCif(1);
+        serial.buildClassifier(data[0]);
+        final CIF parallel = buildCif(3);
+        parallel.buildClassifier(data[0]);
+        for(int i = 0; i < data[0].size(); i++) {
+            Assert.assertArrayEquals(serial.getTrainResults().getProbabilityDistribution(i),
+                parallel.getTrainResults().getProbabilityDistribution(i), 0);
+        }
+        for(int i = 0; i < data[1].size(); i++) {
+            Assert.assertArrayEquals(serial.distributionForInstance(data[1].get(i)),
+                parallel.distributionForInstance(data[1].get(i)), 0);
+        }
+    }
+}
@@ -23,9 +23,11 @@ import fileIO.OutFile;
 import machine_learning.classifiers.TimeSeriesTree;
 import tsml.classifiers.*;
 import utilities.ClassifierTools;
+import utilities.ThreadingUtilities;
 import evaluation.evaluators.CrossValidationEvaluator;
 import weka.classifiers.AbstractClassifier;
 import weka.core.Attribute;
+import weka.core.BatchPredictor;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -34,6 +36,8 @@ import evaluation.tuning.ParameterSpace;
 import experiments.data.DatasetLoading;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -113,7 +117,7 @@ import weka.core.Utils;
 */
  
 public class TSF extends EnhancedAbstractClassifier implements TechnicalInformationHandler,
-        TrainTimeContractable, Checkpointable, Tuneable, Visualisable {
+        TrainTimeContractable, Checkpointable, Tuneable, Visualisable, MultiThreadable, BatchPredictor {
 //Static defaults
     private final static int DEFAULT_NUM_CLASSIFIERS=500;
  
@@ -169,6 +173,12 @@ public class TSF extends EnhancedAbstractClassifier implements TechnicalInformat
 
     private String visSavePath;
 
+    /** Threads used to build trees and for distributionsForInstances, see enableMultiThreading */
+    private int numThreads = 1;
+
+    /** Preferred number of instances passed to distributionsForInstances, see BatchPredictor */
+    private String batchSize = "100";
+
     public TSF(){
         //TSF Has the capability to form train estimates
         super(CAN_ESTIMATE_OWN_PERFORMANCE);
@@ -199,6 +209,17 @@ public class TSF extends EnhancedAbstractClassifier implements TechnicalInformat
         voteEnsemble=!b;
     }
 
+    /**
+     * Trees are built numThreads at a time, and distributionsForInstances splits the trees between the
+     * threads. The intervals and bags of each tree are still drawn in tree order, so a seeded TSF is the same whatever
+     * the number of threads.
+     * @param numThreads number of threads to use
+     */
+    @Override //MultiThreadable
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     /**
      * Perhaps make this coherent with setOptions(String[] ar)?
      * @return String written to results files
@@ -418,67 +439,60 @@ public class TSF extends EnhancedAbstractClassifier implements TechnicalInformat
          *      generate random intervals
          *      do the transforms
          *      build the classifier
+         *  Trees are built numThreads at a time. The intervals and bags for each tree in a batch are drawn from rand in
+         *  tree order before any of them are built, so the forest is the same whatever the number of threads.
          * */
+        //an index for each train instance, the bags are drawn from these (see TreeBuild)
+        Instances bagIndexes = null;
+        if(bagging){
+            ArrayList<Attribute> indexAtt = new ArrayList<>();
+            indexAtt.add(new Attribute("index"));
+            bagIndexes = new Instances("Index", indexAtt, data.numInstances());
+            for(int i=0;i<data.numInstances();i++)
+                bagIndexes.add(new DenseInstance(1, new double[]{i}));
+        }
         while(withinTrainContract(startTime) && (classifiersBuilt < numClassifiers)){
             if(classifiersBuilt%100==0)
                 printLineDebug("\t\t\t\t\tBuilding TSF tree "+classifiersBuilt+" time taken = "+(System.nanoTime()-startTime)+" contract ="+finalBuildtrainContractTimeNanos+" nanos");
+            int batchSize = Math.min(numThreads, numClassifiers - classifiersBuilt);
 
-            //1. Select random intervals for tree i
-            int[][] interval =new int[numIntervals][2];  //Start and end
+            //1. Select random intervals and bags for each tree in the batch
+            ArrayList<TreeBuild> batch = new ArrayList<>(batchSize);
+            for(int b=0;b<batchSize;b++)
+                batch.add(new TreeBuild(classifiersBuilt + b, data.numAttributes() - 1, bagIndexes));
 
-            if (data.numAttributes() - 1 < minIntervalLength)
-                minIntervalLength = data.numAttributes() - 1;
-            for (int j = 0; j < numIntervals; j++) {
-                interval[j][0] = rand.nextInt(data.numAttributes() - 1 - minIntervalLength);       //Start point
-                int length = rand.nextInt(data.numAttributes() - 1 - interval[j][0]);//Min length 3
-                if (length < minIntervalLength)
-                    length = minIntervalLength;
-                interval[j][1] = interval[j][0] + length;
+            //2. and 3. Generate the attributes and build each tree
+            ArrayList<Callable<Void>> tasks = new ArrayList<>(batchSize);
+            for(TreeBuild build : batch){
+                tasks.add(() -> {
+                    build.build(data, transformedData);
+                    return null;
+                });
             }
+            ThreadingUtilities.runTasks(numThreads, tasks);
 
-            //2. Generate and store attributes
-            for(int j=0;j<numIntervals;j++){
-                for(int k=0;k<data.numInstances();k++){
-                    //extract the interval, work out the features
-                    double[] series=data.instance(k).toDoubleArray();
-                    FeatureSet f= new FeatureSet();
-                    f.setFeatures(series, interval[j][0], interval[j][1]);
-                    transformedData.instance(k).setValue(j*3, f.mean);
-                    transformedData.instance(k).setValue(j*3+1, f.stDev);
-                    transformedData.instance(k).setValue(j*3+2, f.slope);
-                }
-            }
-            //3. Create and build tree using all the features.
-            Classifier tree = AbstractClassifier.makeCopy(classifier);
-            if(seedClassifier && tree instanceof Randomizable)
-                ((Randomizable)tree).setSeed(seed*(classifiersBuilt+1));
-
-            if(bagging){
-                long t1=System.nanoTime();
-                boolean[] bag = new boolean[transformedData.numInstances()];
-                Instances bagData = transformedData.resampleWithWeights(rand, bag);
-                tree.buildClassifier(bagData);
-                inBag.add(bag);
-                if(getEstimateOwnPerformance()){
-                    for(int j=0;j<transformedData.numInstances();j++){
-                        if(bag[j])
-                            continue;
-                        double[] newProbs = tree.distributionForInstance(transformedData.instance(j));
-                        oobCounts[j]++;
-                        for(int k=0;k<newProbs.length;k++)
-                            trainDistributions[j][k]+=newProbs[k];
+            //The bagged trees of a batch are built side by side, so take the slowest as the time taken
+            long oobTime = 0;
+            for(TreeBuild build : batch){
+                if(bagging){
+                    inBag.add(build.bag);
+                    if(getEstimateOwnPerformance()){
+                        for(int j=0;j<data.numInstances();j++){
+                            if(build.oobDistributions[j]==null)
+                                continue;
+                            oobCounts[j]++;
+                            for(int k=0;k<build.oobDistributions[j].length;k++)
+                                trainDistributions[j][k]+=build.oobDistributions[j][k];
+                        }
+                        oobTime = Math.max(oobTime, build.oobTime);
                     }
                 }
-                long t2=System.nanoTime();
-                if(getEstimateOwnPerformance())
-                    trainResults.setErrorEstimateTime(t2-t1+trainResults.getErrorEstimateTime());
+                intervals.add(build.interval);
+                trees.add(build.tree);
+                classifiersBuilt++;
             }
-            else
-                tree.buildClassifier(transformedData);
-
-            intervals.add(interval);
-            trees.add(tree);
-            classifiersBuilt++;
+            if(bagging && getEstimateOwnPerformance())
+                trainResults.setErrorEstimateTime(oobTime+trainResults.getErrorEstimateTime());
 
             if (checkpoint){
                 if(checkpointTime>0)    //Timed checkpointing
@@ -489,7 +503,7 @@ public class TSF extends EnhancedAbstractClassifier implements TechnicalInformat
                     }
                 }
                 else {    //Default checkpoint every 100 trees
-                    if(classifiersBuilt%100 == 0 && classifiersBuilt>0)
+                    if(classifiersBuilt/100 > (classifiersBuilt-batchSize)/100)
                         saveToFile(checkpointPath);
                 }
             }
@@ -599,6 +613,7 @@ public class TSF extends EnhancedAbstractClassifier implements TechnicalInformat
     private void copyParameters(TSF other){
         this.numClassifiers=other.numClassifiers;
         this.numIntervalsFinder=other.numIntervalsFinder;
+        this.numThreads=other.numThreads;
     }
     @Override
     public long getTrainContractTimeNanos(){
@@ -640,6 +655,93 @@ public class TSF extends EnhancedAbstractClassifier implements TechnicalInformat
                 d[i]=d[i]/sum;
         return d;
     }
+/**
+ * Distributions for several test instances, the same as distributionForInstance for each. The intervals of every
+ * instance are summarised at once for each tree, then the tree classifies the whole batch, and if multithreading the
+ * trees are split between the threads. With voting the sums are whole numbers, so the distributions are the same
+ * whatever the number of threads, with the probability ensemble they can differ in the last bits.
+ * @param testData instances to classify
+ * @return array of probabilities of each class for each instance
+ * @throws Exception
+ */
+    @Override //BatchPredictor
+    public double[][] distributionsForInstances(Instances testData) throws Exception {
+        double[][] series=new double[testData.numInstances()][];
+        for(int k=0;k<testData.numInstances();k++)
+            series[k]=testData.instance(k).toDoubleArray();
+        int numBlocks=Math.max(1, Math.min(trees.size(), numThreads));
+        double[][][] blockDistributions=new double[numBlocks][testData.numInstances()][testData.numClasses()];
+        ArrayList<Callable<Void>> tasks=new ArrayList<>(numBlocks);
+        for(int b=0;b<numBlocks;b++){
+            int start=(int)((long)trees.size()*b/numBlocks);
+            int end=(int)((long)trees.size()*(b+1)/numBlocks);
+            double[][] d=blockDistributions[b];
+            tasks.add(() -> {
+                for(int i=start;i<end;i++){
+                    //the interval features of the whole batch for this tree
+                    Instances transformed=new Instances(testHolder,testData.numInstances());
+                    for(int k=0;k<testData.numInstances();k++){
+                        DenseInstance in=new DenseInstance(testHolder.numAttributes());
+                        for(int j=0;j<numIntervals;j++){
+                            FeatureSet f= new FeatureSet();
+                            f.setFeatures(series[k], intervals.get(i)[j][0], intervals.get(i)[j][1]);
+                            in.setValue(j*3, f.mean);
+                            in.setValue(j*3+1, f.stDev);
+                            in.setValue(j*3+2, f.slope);
+                        }
+                        transformed.add(in);
+                    }
+                    for(int k=0;k<testData.numInstances();k++){
+                        if(voteEnsemble){
+                            int c=(int)trees.get(i).classifyInstance(transformed.instance(k));
+                            d[k][c]++;
+                        }else{
+                            double[] temp=trees.get(i).distributionForInstance(transformed.instance(k));
+                            for(int j=0;j<temp.length;j++)
+                                d[k][j]+=temp[j];
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        ThreadingUtilities.runTasks(numThreads, tasks);
+
+        double[][] distributions=blockDistributions[0];
+        for(int b=1;b<numBlocks;b++)
+            for(int k=0;k<testData.numInstances();k++)
+                for(int j=0;j<testData.numClasses();j++)
+                    distributions[k][j]+=blockDistributions[b][k][j];
+        for(int k=0;k<testData.numInstances();k++){
+            double sum=0;
+            for(double x:distributions[k])
+                sum+=x;
+            if(sum>0)
+                for(int j=0;j<distributions[k].length;j++)
+                    distributions[k][j]=distributions[k][j]/sum;
+        }
+        return distributions;
+    }
+
+    /**
+     * Batch prediction is faster than one instance at a time, see distributionsForInstances
+     * @return true
+     */
+    @Override //BatchPredictor
+    public boolean implementsMoreEfficientBatchPrediction() {
+        return true;
+    }
+
+    @Override //BatchPredictor
+    public void setBatchSize(String size) {
+        batchSize=size;
+    }
+
+    @Override //BatchPredictor
+    public String getBatchSize() {
+        return batchSize;
+    }
+
 /**
  * @param ins
  * @return
@@ -791,6 +893,97 @@ public class TSF extends EnhancedAbstractClassifier implements TechnicalInformat
         file.renameTo(file2);
     }
  
+    /**
+     * A tree of the forest and the intervals and bag it is built from. These are drawn from rand when made, in the same
+     * order as when trees were built one at a time, and the tree is built later, possibly in another thread.
+     */
+    private class TreeBuild {
+        private final int i;
+        private final int[][] interval;
+        private final boolean[] bag;
+        //the train instances in the bag, in the order Instances.resampleWithWeights adds them
+        private final int[] bagOrder;
+
+        private Classifier tree;
+        private double[][] oobDistributions;
+        private long oobTime;
+
+        /**
+         * @param bagIndexes an instance for each train instance holding its index, null if not bagging
+         */
+        private TreeBuild(int i, int seriesLength, Instances bagIndexes) {
+            this.i = i;
+
+            //1. Select random intervals for tree i
+            interval =new int[numIntervals][2];  //Start and end
+
+            if (seriesLength < minIntervalLength)
+                minIntervalLength = seriesLength;
+            for (int j = 0; j < numIntervals; j++) {
+                interval[j][0] = rand.nextInt(seriesLength - minIntervalLength);       //Start point
+                int length = rand.nextInt(seriesLength - interval[j][0]);//Min length 3
+                if (length < minIntervalLength)
+                    length = minIntervalLength;
+                interval[j][1] = interval[j][0] + length;
+            }
+
+            if(bagging){
+                bag = new boolean[bagIndexes.numInstances()];
+                Instances bagged = bagIndexes.resampleWithWeights(rand, bag);
+                bagOrder = new int[bagged.numInstances()];
+                for(int n=0;n<bagOrder.length;n++)
+                    bagOrder[n] = (int)bagged.instance(n).value(0);
+            }
+            else{
+                bag = null;
+                bagOrder = null;
+            }
+        }
+
+        /**
+         * @param template blank instances for the features with the class values set
+         */
+        private void build(Instances data, Instances template) throws Exception {
+            Instances transformedData = new Instances(template);
+
+            //2. Generate and store attributes
+            for(int j=0;j<numIntervals;j++){
+                for(int k=0;k<data.numInstances();k++){
+                    //extract the interval, work out the features
+                    double[] series=data.instance(k).toDoubleArray();
+                    FeatureSet f= new FeatureSet();
+                    f.setFeatures(series, interval[j][0], interval[j][1]);
+                    transformedData.instance(k).setValue(j*3, f.mean);
+                    transformedData.instance(k).setValue(j*3+1, f.stDev);
+                    transformedData.instance(k).setValue(j*3+2, f.slope);
+                }
+            }
+            //3. Create and build tree using all the features.
+            tree = AbstractClassifier.makeCopy(classifier);
+            if(seedClassifier && tree instanceof Randomizable)
+                ((Randomizable)tree).setSeed(seed*(i+1));
+
+            if(bagging){
+                long t1=System.nanoTime();
+                Instances bagData = new Instances(transformedData, bagOrder.length);
+                for(int n : bagOrder)
+                    bagData.add(transformedData.instance(n));
+                tree.buildClassifier(bagData);
+                if(getEstimateOwnPerformance()){
+                    oobDistributions = new double[transformedData.numInstances()][];
+                    for(int j=0;j<transformedData.numInstances();j++){
+                        if(bag[j])
+                            continue;
+                        oobDistributions[j] = tree.distributionForInstance(transformedData.instance(j));
+                    }
+                }
+                oobTime=System.nanoTime()-t1;
+            }
+            else
+                tree.buildClassifier(transformedData);
+        }
+    }
+
 //Nested class to store three simple summary features used to construct train data
     public static class FeatureSet{
         public static boolean findSkew=false;
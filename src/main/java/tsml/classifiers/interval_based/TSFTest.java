@@ -0,0 +1,62 @@
+package tsml.classifiers.interval_based;
+
+import evaluation.evaluators.SingleTestSetEvaluator;
+import evaluation.storage.ClassifierResults;
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+/**
+ * Purpose: test a seeded TSF builds the same ensemble whatever the number of threads, and predicts the same in
+ * batches
+ */
+public class TSFTest {
+
+    private static TSF buildTsf(int numThreads) {
+        final TSF classifier = new TSF();
+        classifier.setSeed(0);
+        classifier.setNumTrees(20);
+        classifier.setEstimateOwnPerformance(true);
+        classifier.setEstimatorMethod("OOB");
+        classifier.enableMultiThreading(numThreads);
+        return classifier;
+    }
+
+    @Test
+    public void testSameEnsembleWithMultipleThreads() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final TSF serial = buildTsf(1);
+        serial.buildClassifier(data[0]);
+        final TSF parallel = buildTsf(3);
+        parallel.buildClassifier(data[0]);
+        for(int i = 0; i < data[0].size(); i++) {
+            Assert.assertArrayEquals(serial.getTrainResults().getProbabilityDistribution(i),
+                parallel.getTrainResults().getProbabilityDistribution(i), 0);
+        }
+        final double[][] distributions = parallel.distributionsForInstances(data[1]);
+        for(int i = 0; i < data[1].size(); i++) {
+            final double[] distribution = serial.distributionForInstance(data[1].get(i));
+            Assert.assertArrayEquals(distribution, parallel.distributionForInstance(data[1].get(i)), 0);
+            Assert.assertArrayEquals(distribution, distributions[i], 0);
+        }
+    }
+
+    @Test
+    public void testEvaluatorPredictsInBatches() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final TSF classifier = buildTsf(2);
+        classifier.setEstimateOwnPerformance(false);
+        classifier.buildClassifier(data[0]);
+        Assert.assertTrue(classifier.implementsMoreEfficientBatchPrediction());
+        // a batch size that does not divide the test set
+        classifier.setBatchSize("7");
+        final ClassifierResults results = new SingleTestSetEvaluator(0, true, true).evaluate(classifier, data[1]);
+        Assert.assertEquals(data[1].size(), results.numInstances());
+        for(int i = 0; i < data[1].size(); i++) {
+            Assert.assertEquals(data[1].get(i).classValue(), results.getTrueClassValue(i), 0);
+            Assert.assertArrayEquals(classifier.distributionForInstance(data[1].get(i)),
+                results.getProbabilityDistribution(i), 0);
+        }
+    }
+}
@@ -27,10 +27,13 @@ import evaluation.evaluators.CrossValidationEvaluator;
 import evaluation.tuning.ParameterSpace;
 import experiments.data.DatasetLoading;
 import machine_learning.classifiers.ensembles.ContractRotationForest;
+import tsml.classifiers.MultiThreadable;
+import tsml.classifiers.TransformCacheable;
 import tsml.classifiers.Tuneable;
 import utilities.InstanceTools;
 import weka.core.*;
 import weka.classifiers.Classifier;
+import tsml.transformers.FileCachedTransformer;
 import tsml.transformers.PCA;
 import tsml.transformers.ShapeletTransform;
 import tsml.transformers.shapelet_tools.ShapeletTransformFactory;
@@ -66,8 +69,9 @@ import fileIO.OutFile;
  *
  */
 public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
-        implements TrainTimeContractable, Tuneable {
+        implements TrainTimeContractable, Tuneable, TransformCacheable, MultiThreadable {
     private ShapeletTransform transform;    //Configurable ST
+    private String transformCachePath = null; //Directory to cache the fitted transform and transformed data in, if any
     private Instances shapeletData;         //Transformed shapelets header info stored here
     private Classifier classifier;          //Final classifier built on transformed shapelet data
 
@@ -111,6 +115,9 @@ public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
         transformContractTime=TimeUnit.NANOSECONDS.convert(t, TimeUnit.HOURS);
     }
 
+//Number of threads to search for shapelets with, 0 if multi-threading is not enabled
+    private int numThreads = 0;
+
 /************* CHECKPOINTING and SAVING ************ Could all  move to transformOptions */
 //Check pointing is not fully debugged
     private String checkpointFullPath=""; //location to check point
@@ -197,6 +204,8 @@ public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
         //This is hacked to build a cShapeletTransform
         transform= constructShapeletTransform(data);
         transform.setSuppressOutput(debug);
+        if(numThreads > 0)
+            transform.enableMultiThreading(numThreads);
 
 //The cConfig CONTRACT option is currently hacked into buildTransfom. here for now
 //        if(transform instanceof cShapeletFilter)
@@ -214,7 +223,17 @@ public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
 //Put this in the options rather than here
         transform.setPruneMatchingShapelets(pruneMatchingShapelets);
 
-        shapeletData = transform.fitTransform(data);
+        if(transformCachePath != null) {
+            FileCachedTransformer cachedTransform = new FileCachedTransformer(transform, transformCachePath);
+            long cacheStartTime=System.nanoTime();
+            shapeletData = cachedTransform.fitTransform(data);
+            transform = (ShapeletTransform) cachedTransform.getTransformer();
+            //On a cache hit, count the time the transform originally took rather than the time to read it back, so the
+            //transform and build times are the same whether or not the cache was hit
+            startTime-=cachedTransform.getTransformTime()-(System.nanoTime()-cacheStartTime);
+        }
+        else
+            shapeletData = transform.fitTransform(data);
         transformBuildTime=System.nanoTime()-startTime; //Need to store this
         printLineDebug("SECONDS:Transform contract =" +(transformContractTime /1000000000L)+" Actual transform time taken = " + (transformBuildTime / 1000000000L+" Proportion of contract used ="+((double)transformBuildTime/ transformContractTime)));
         printLineDebug(" Transform getParas  ="+transform.getParameters());
@@ -431,7 +450,7 @@ public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
      * @param train data set
   Work in progress */
     public void configureBakeoffShapeletTransform(Instances train){
-        transformOptions.setDistanceType(ShapeletDistance.DistanceType.NORMAL);
+        transformOptions.setDistanceType(ShapeletDistance.DistanceType.SLIDING);//Same distances as NORMAL, but faster
         if(train.numClasses() <10)
             transformOptions.setCandidatePruning(true);
         else
@@ -594,6 +613,20 @@ public class ShapeletTransformClassifier  extends EnhancedAbstractClassifier
         numShapeletsInTransform = numS;
     }
 
+    @Override
+    public boolean setTransformCachePath(String path){
+        transformCachePath = path;
+        return true;
+    }
+
+    /**
+     * Search for shapelets with multiple threads. The shapelets found do not depend upon the number of threads.
+     */
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     /**
      * Checkpoint methods
      */
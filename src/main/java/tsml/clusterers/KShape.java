@@ -21,9 +21,7 @@ import java.util.Random;
 import experiments.data.DatasetLoading;
 import weka.core.Instance;
 import weka.core.Instances;
-import tsml.transformers.FFT;
-import tsml.transformers.FFT.Complex;
-import static tsml.transformers.FFT.MathsPower2;
+import utilities.FFTEngine;
 
 import static utilities.ClusteringUtilities.randIndex;
 import static utilities.ClusteringUtilities.zNormalise;
@@ -284,8 +282,6 @@ public class KShape extends AbstractTimeSeriesClusterer {
         public double dist;
         public Instance yShift;
 
-        private FFT fft;
-
         public SBD(){}
 
         public SBD(Instance first, Instance second, boolean calcShift){
@@ -304,17 +300,20 @@ public class KShape extends AbstractTimeSeriesClusterer {
             int length = paddedLength(oldLength);
 
             //FFT and IFFT
-            fft = new FFT();
+            FFTEngine engine = FFTEngine.forSize(length);
 
-            Complex[] firstC = fft(first, oldLength, length);
-            Complex[] secondC = fft(second, oldLengthY, length);
+            double[] firstC = fft(engine, first, oldLength, new double[2 * length]);
+            double[] secondC = fft(engine, second, oldLengthY, engine.getWorkspace());
 
-            for (int i = 0; i < length; i++){
-                secondC[i].conjugate();
-                firstC[i].multiply(secondC[i]);
+            //Multiply by the conjugate of the second
+            for (int i = 0; i < 2 * length; i += 2){
+                double re = firstC[i] * secondC[i] + firstC[i + 1] * secondC[i + 1];
+                double im = firstC[i + 1] * secondC[i] - firstC[i] * secondC[i + 1];
+                firstC[i] = re;
+                firstC[i + 1] = im;
             }
 
-            fft.inverseFFT(firstC, length);
+            engine.inverse(firstC);
 
             //Calculate NCCc values
             double firstNorm = sumSquare(first);
@@ -325,11 +324,11 @@ public class KShape extends AbstractTimeSeriesClusterer {
             int idx = 0;
 
             for (int i = length-oldLength+1; i < length; i++){
-                ncc[idx++] = firstC[i].getReal()/norm;
+                ncc[idx++] = firstC[2 * i]/norm;
             }
 
             for (int i = 0; i < oldLength; i++){
-                ncc[idx++] = firstC[i].getReal()/norm;
+                ncc[idx++] = firstC[2 * i]/norm;
             }
 
             double maxValue = 0;
@@ -371,24 +370,20 @@ public class KShape extends AbstractTimeSeriesClusterer {
 
         //Amount of padding required for FFT
         private int paddedLength(int oldLength){
-            int length = (int)MathsPower2.roundPow2((float)oldLength);
-            if (length < oldLength) length *= 2;
-            return length;
+            return FFTEngine.paddedLength(oldLength);
         }
 
-        //Run FFT and return array of complex numbers
-        private Complex[] fft(Instance inst, int oldLength, int length){
-            Complex[] complex = new Complex[length];
+        //Run FFT into the given array, complex numbers interleaved real/imaginary
+        private double[] fft(FFTEngine engine, Instance inst, int oldLength, double[] complex){
+            int length = engine.getSize();
 
             for (int i = 0; i < oldLength; i++){
-                complex[i] = new Complex(inst.value(i), 0);
+                complex[i] = inst.value(i);
             }
 
-            for (int i = oldLength; i < length; i++){
-                complex[i] = new Complex(0,0);
-            }
+            Arrays.fill(complex, oldLength, length, 0);
 
-            fft.fft(complex, length);
+            engine.realForward(complex);
 
             return complex;
         }
@@ -1,40 +1,103 @@
 package tsml.data_containers;
 
-import java.io.File;
-import java.util.ArrayList;
+import com.google.common.primitives.Doubles;
+
+import java.nio.DoubleBuffer;
+import java.util.AbstractList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 /**
  * Class to store a time series. The series can have different indices (time stamps) and store missing values (NaN).
  *
  * The model for the indexes is the first is always zero the other indexes are in units of md.increment
  * Hopefully most of this can be encapsulated, so if the data has equal increments then indices is null and the user
-
+ *
+ * The values are held in a primitive double[]. A series may be a view onto a region of a larger array (see
+ * wrap and getSlidingWindowView), in which case no values are copied. A series can also be a view onto a
+ * DoubleBuffer, e.g. a memory mapped file, so the values live off-heap. The List based methods are thin read-only
+ * adapters over the same storage.
  * */
 public class TimeSeries{
 
     public static double defaultValue = Double.NaN;
 
-    /*
-    private double[] series;
+    // backing storage, possibly shared with other series. this series covers [offset, offset + length) of
+    // whichever of series / buffer is non-null.
+    private final double[] series;
+    private final DoubleBuffer buffer;
+    private final int offset;
+    private final int length;
     private double[] indices;
-    */
-
-    private List<Double> series;
-    private List<Double> indices;
     MetaData md;
 
 
     public TimeSeries(double[] d){
-        series = new ArrayList<Double>();
-        for(double dd : d)
-            series.add(dd);
+        this(d.clone(), 0, d.length);
+    }
+
+    private TimeSeries(double[] data, int offset, int length){
+        this(data, null, offset, length, data.length);
+    }
+
+    private TimeSeries(DoubleBuffer data, int offset, int length){
+        this(null, data, offset, length, data.limit());
+    }
+
+    private TimeSeries(double[] series, DoubleBuffer buffer, int offset, int length, int capacity){
+        if(offset < 0 || length < 0 || offset + length > capacity)
+            throw new IndexOutOfBoundsException("region [" + offset + ", " + (offset + length) + ") outside of storage of length " + capacity);
+        this.series = series;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    
+    /** 
+     * Create a series over a region of an existing array without copying it. Changes to the array are visible
+     * through the series, so the caller must not modify it afterwards.
+     * @param data
+     * @param offset
+     * @param length
+     * @return TimeSeries
+     */
+    public static TimeSeries wrap(double[] data, int offset, int length){
+        return new TimeSeries(data, offset, length);
+    }
+
+    
+    /** 
+     * @param data
+     * @return TimeSeries
+     */
+    public static TimeSeries wrap(double[] data){
+        return new TimeSeries(data, 0, data.length);
+    }
+
+    
+    /** 
+     * Create a series over a region of a buffer without copying it. Values are read with absolute gets, so the
+     * buffer's position and limit are not touched.
+     * @param data
+     * @param offset
+     * @param length
+     * @return TimeSeries
+     */
+    public static TimeSeries wrap(DoubleBuffer data, int offset, int length){
+        return new TimeSeries(data, offset, length);
+    }
+
+    
+    /** 
+     * @param i index relative to the start of this series, assumed to be in range
+     * @return double
+     */
+    private double at(int i){
+        return series != null ? series[offset + i] : buffer.get(offset + i);
     }
     
     
@@ -42,9 +105,7 @@ public class TimeSeries{
      * @param ind
      */
     public void setIndices(double[] ind){
-        indices = new ArrayList<Double>();
-        for(double i : ind)
-            indices.add(i);
+        indices = ind.clone();
     }
 
     
@@ -52,7 +113,7 @@ public class TimeSeries{
      * @return int
      */
     public int getSeriesLength(){
-        return series.size();
+        return length;
     }
 
     
@@ -62,8 +123,8 @@ public class TimeSeries{
      */
     public boolean hasValidValueAt(int i){
         //test whether its out of range, or NaN
-        boolean output = i < series.size() &&
-                         Double.isFinite(series.get(i));
+        boolean output = i >= 0 && i < length &&
+                         Double.isFinite(at(i));
         return output;
     }
 
@@ -73,7 +134,9 @@ public class TimeSeries{
      * @return double
      */
     public double get(int i){
-        return series.get(i);
+        if(i < 0 || i >= length)
+            throw new IndexOutOfBoundsException("index: " + i + ", length: " + length);
+        return at(i);
     }
 
     
@@ -82,7 +145,7 @@ public class TimeSeries{
      * @return double
      */
     public double getOrDefault(int i){
-        return hasValidValueAt(i) ? get(i) : defaultValue;
+        return hasValidValueAt(i) ? at(i) : defaultValue;
     }
 
     
@@ -90,7 +153,9 @@ public class TimeSeries{
      * @return DoubleStream
      */
     public DoubleStream stream(){
-        return series.stream().mapToDouble(Double::doubleValue);
+        if(series != null)
+            return Arrays.stream(series, offset, offset + length);
+        return IntStream.range(0, length).mapToDouble(this::at);
     }
 
     
@@ -100,7 +165,20 @@ public class TimeSeries{
      * @return List<Double>
      */
     public List<Double> getSlidingWindow(int start, int end){
-        return series.subList(start, end);
+        return getSlidingWindowView(start, end).getSeries();
+    }
+
+    
+    /** 
+     * Zero-copy window onto this series, sharing the same backing array.
+     * @param start
+     * @param end
+     * @return TimeSeries
+     */
+    public TimeSeries getSlidingWindowView(int start, int end){
+        if(start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("window [" + start + ", " + end + ") outside of series of length " + length);
+        return new TimeSeries(series, buffer, offset + start, end - start, offset + length);
     }
 
     
@@ -110,19 +188,67 @@ public class TimeSeries{
      * @return double[]
      */
     public double[] getSlidingWindowArray(int start, int end){
-        return series.subList(start, end).stream().mapToDouble(Double::doubleValue).toArray();
+        if(start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("window [" + start + ", " + end + ") outside of series of length " + length);
+        double[] out = new double[end - start];
+        copyRange(start, out, 0, end - start);
+        return out;
+    }
+
+    
+    /** 
+     * Copy the values of this series into dest, avoiding an intermediate allocation.
+     * @param dest
+     * @param destPos
+     */
+    public void copyTo(double[] dest, int destPos){
+        copyRange(0, dest, destPos, length);
+    }
+
+    private void copyRange(int start, double[] dest, int destPos, int count){
+        if(series != null){
+            System.arraycopy(series, offset + start, dest, destPos, count);
+        }
+        else{
+            // duplicate so concurrent readers of the shared buffer don't fight over its position
+            DoubleBuffer view = buffer.duplicate();
+            view.position(offset + start);
+            view.get(dest, destPos, count);
+        }
     }
 
     
     /** 
      * @return List<Double>
      */
-    public List<Double> getSeries(){ return series;}
+    public List<Double> getSeries(){
+        return new AbstractList<Double>() {
+            @Override
+            public Double get(int index) {
+                return TimeSeries.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return length;
+            }
+        };
+    }
     
     /** 
      * @return List<Double>
      */
-    public List<Double> getIndices(){ return indices;}
+    public List<Double> getIndices(){
+        return indices == null ? null : Doubles.asList(indices.clone());
+    }
+
+    
+    /** 
+     * @return double[]
+     */
+    public double[] getIndicesArray(){
+        return indices == null ? null : indices.clone();
+    }
 
     private class MetaData{
         String name;
@@ -139,8 +265,8 @@ public class TimeSeries{
     public String toString(){
         StringBuilder sb = new StringBuilder();
 
-        for(double val : series){
-            sb.append(val).append(',');
+        for(int i = 0; i < length; ++i){
+            sb.append(at(i)).append(',');
         }
 
         return sb.toString();
@@ -152,7 +278,9 @@ public class TimeSeries{
      */
 
 	public double[] toArray() {
-		return getSeries().stream().mapToDouble(Double::doubleValue).toArray();
+		double[] out = new double[length];
+		copyTo(out, 0);
+		return out;
     }
 
     
@@ -161,15 +289,8 @@ public class TimeSeries{
      * @param indexesToRemove
      * @return List<Double>
      */
-public List<Double> toListWithoutIndexes(List<Integer> indexesToRemove){
-        //if the current index isn't in the removal list, then copy across.
-        List<Double> out = new ArrayList<>(this.getSeriesLength() - indexesToRemove.size());
-        for(int i=0; i<this.getSeriesLength(); ++i){
-            if(!indexesToRemove.contains(i))
-                out.add(getOrDefault(i));
-        }
-
-        return out;
+    public List<Double> toListWithoutIndexes(List<Integer> indexesToRemove){
+        return Doubles.asList(toArrayWithoutIndexes(indexesToRemove));
     }
 
     
@@ -178,7 +299,7 @@ public List<Double> toListWithoutIndexes(List<Integer> indexesToRemove){
      * @return double[]
      */
     public double[] toListWithoutIndexes(int[] indexesToKeep){
-        return toArrayWithoutIndexes(Arrays.stream(indexesToKeep).boxed().collect(Collectors.toList()));
+        return select(mask(indexesToKeep), false);
     }
 
     
@@ -187,7 +308,7 @@ public List<Double> toListWithoutIndexes(List<Integer> indexesToRemove){
      * @return double[]
      */
     public double[] toArrayWithoutIndexes(List<Integer> indexesToRemove){
-        return toListWithoutIndexes(indexesToRemove).stream().mapToDouble(Double::doubleValue).toArray();
+        return select(mask(indexesToRemove), false);
     }
     
     
@@ -197,14 +318,7 @@ public List<Double> toListWithoutIndexes(List<Integer> indexesToRemove){
      * @return List<Double>
      */
     public List<Double> toListWithIndexes(List<Integer> indexesToKeep){
-        //if the current index isn't in the removal list, then copy across.
-        List<Double> out = new ArrayList<>(indexesToKeep.size());
-        for(int i=0; i<this.getSeriesLength(); ++i){
-            if(indexesToKeep.contains(i))
-                out.add(getOrDefault(i));
-        }
-
-        return out;
+        return Doubles.asList(toArrayWithIndexes(indexesToKeep));
     }
 
     
@@ -213,7 +327,7 @@ public List<Double> toListWithoutIndexes(List<Integer> indexesToRemove){
      * @return double[]
      */
     public double[] toArrayWithIndexes(int[] indexesToKeep){
-        return toArrayWithIndexes(Arrays.stream(indexesToKeep).boxed().collect(Collectors.toList()));
+        return select(mask(indexesToKeep), true);
     }
 
     
@@ -222,16 +336,67 @@ public List<Double> toListWithoutIndexes(List<Integer> indexesToRemove){
      * @return double[]
      */
     public double[] toArrayWithIndexes(List<Integer> indexesToKeep){
-        return toListWithIndexes(indexesToKeep).stream().mapToDouble(Double::doubleValue).toArray();
+        return select(mask(indexesToKeep), true);
+    }
+
+    
+    /** 
+     * @param indexes
+     * @return boolean[] marking which positions of this series are listed in indexes. out of range indexes are ignored.
+     */
+    private boolean[] mask(int[] indexes){
+        boolean[] mask = new boolean[length];
+        for(int index : indexes)
+            if(index >= 0 && index < length)
+                mask[index] = true;
+        return mask;
+    }
+
+    
+    /** 
+     * @param indexes
+     * @return boolean[]
+     */
+    private boolean[] mask(List<Integer> indexes){
+        boolean[] mask = new boolean[length];
+        for(Integer index : indexes)
+            if(index >= 0 && index < length)
+                mask[index] = true;
+        return mask;
+    }
+
+    
+    /** 
+     * @param mask
+     * @param keep whether to keep the masked positions or to remove them
+     * @return double[] the selected values in series order
+     */
+    private double[] select(boolean[] mask, boolean keep){
+        int count = 0;
+        for(boolean m : mask)
+            if(m == keep)
+                count++;
+
+        double[] out = new double[count];
+        int j = 0;
+        for(int i = 0; i < length; ++i){
+            if(mask[i] == keep)
+                out[j++] = getOrDefault(i);
+        }
+        return out;
     }
 
     
     /** 
+     * consistent with the hashCode of the equivalent List<Double> and Arrays.hashCode(double[])
      * @return int
      */
     @Override
     public int hashCode(){
-        return this.series.hashCode();
+        int result = 1;
+        for(int i = 0; i < length; ++i)
+            result = 31 * result + Double.hashCode(at(i));
+        return result;
     }
 
 
@@ -244,4 +409,4 @@ public List<Double> toListWithoutIndexes(List<Integer> indexesToRemove){
     }
 
 
-}
\ No newline at end of file
+}
@@ -77,14 +77,20 @@ public class TimeSeriesInstance implements Iterable<TimeSeries> {
         dataChecks();
     }
 
+    public TimeSeriesInstance(int labelIndex, double value, List<TimeSeries> series) {
+        this(labelIndex, series);
+
+        targetValue = value;
+    }
+
     public TimeSeriesInstance(List<List<Double>> series) {
         // process the input list to produce TimeSeries Objects.
         // this allows us to pad if need be, or if we want to squarify the data etc.
         seriesDimensions = new ArrayList<TimeSeries>();
 
         for (List<Double> ts : series) {
-            // convert List<Double> to double[]
-            seriesDimensions.add(new TimeSeries(ts.stream().mapToDouble(Double::doubleValue).toArray()));
+            // convert List<Double> to double[], the array is freshly made so no need to copy it again.
+            seriesDimensions.add(TimeSeries.wrap(ts.stream().mapToDouble(Double::doubleValue).toArray()));
         }
 
         dataChecks();
@@ -151,6 +157,14 @@ public class TimeSeriesInstance implements Iterable<TimeSeries> {
     }
 
     
+    /** 
+     * @return double the regression target, 0 if the instance was not given one
+     */
+    public double getTargetValue(){
+        return targetValue;
+    }
+
+    
     /** 
      * @param index
      * @return List<Double>
@@ -209,7 +223,13 @@ public class TimeSeriesInstance implements Iterable<TimeSeries> {
      * @return double[][]
      */
     public double[][] getVSliceArray(int[] indexesToKeep){
-        return getVSliceArray(Arrays.stream(indexesToKeep).boxed().collect(Collectors.toList()));
+        double[][] out = new double[getNumDimensions()][];
+        int i=0;
+        for(TimeSeries ts : seriesDimensions){
+            out[i++] = ts.toArrayWithIndexes(indexesToKeep);
+        }
+
+        return out;
     }
 
     
@@ -275,7 +295,13 @@ public class TimeSeriesInstance implements Iterable<TimeSeries> {
      * @return double[][]
      */
     public double[][] getHSliceArray(int[] dimensionsToKeep){
-        return getHSliceArray(Arrays.stream(dimensionsToKeep).boxed().collect(Collectors.toList()));
+        double[][] out = new double[dimensionsToKeep.length][];
+        int i=0;
+        for(int dim : dimensionsToKeep){
+            out[i++] = seriesDimensions.get(dim).toArray();
+        }
+
+        return out;
     }
 
     
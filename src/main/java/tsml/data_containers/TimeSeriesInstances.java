@@ -166,6 +166,13 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance> {
 
     int[] classCounts;
 
+    // contiguous (columnar) storage, one block per channel holding every instance's series back to back.
+    // channelOffsets[dim][i] is where instance i starts in channelBlocks[dim], channelOffsets[dim][numInstances] is the
+    // block length. null unless built by fromChannelBlocks or toContiguous, in which case every TimeSeries is a view
+    // onto a block.
+    double[][] channelBlocks;
+    int[][] channelOffsets;
+
     public TimeSeriesInstances() {
         seriesCollection = new ArrayList<>();
     }
@@ -312,6 +319,10 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance> {
     public void add(final TimeSeriesInstance new_series) {
         seriesCollection.add(new_series);
 
+        //the new series does not live in the channel blocks, so they no longer describe the whole dataset.
+        channelBlocks = null;
+        channelOffsets = null;
+
         //guard for if we're going to force update classCounts after.
         if(classCounts != null && new_series.classLabelIndex < classCounts.length)
             classCounts[new_series.classLabelIndex]++;
@@ -361,6 +372,16 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance> {
      */
     public double[][][] toValueArray() {
         final double[][][] output = new double[seriesCollection.size()][][];
+        if (isContiguous()) {
+            // copy each series straight out of its channel's block
+            for (int i = 0; i < output.length; ++i) {
+                output[i] = new double[seriesCollection.get(i).getNumDimensions()][];
+                for (int dim = 0; dim < output[i].length; ++dim)
+                    output[i][dim] = Arrays.copyOfRange(channelBlocks[dim], channelOffsets[dim][i],
+                            channelOffsets[dim][i + 1]);
+            }
+            return output;
+        }
         for (int i = 0; i < output.length; ++i) {
             // clone the data so the underlying representation can't be modified
             output[i] = seriesCollection.get(i).toValueArray();
@@ -428,7 +449,13 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance> {
      * @return double[][][]
      */
     public double[][][] getVSliceArray(int[] indexesToKeep){
-        return getVSliceArray(Arrays.stream(indexesToKeep).boxed().collect(Collectors.toList()));
+        double[][][] out = new double[numInstances()][][];
+        int i=0;
+        for(TimeSeriesInstance inst : seriesCollection){
+            out[i++] = inst.getVSliceArray(indexesToKeep);
+        }
+
+        return out;
     }
 
     
@@ -454,6 +481,17 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance> {
     //assumes equal numbers of channels
     public double[][] getHSliceArray(int dim){
         double[][] out = new double[numInstances()][];
+        if(isContiguous() && dim < maxNumChannels){
+            final double[] block = channelBlocks[dim];
+            final int[] offsets = channelOffsets[dim];
+            for(int i = 0; i < out.length; ++i){
+                // an instance without the channel throws, as below
+                out[i] = dim < seriesCollection.get(i).getNumDimensions()
+                        ? Arrays.copyOfRange(block, offsets[i], offsets[i + 1])
+                        : seriesCollection.get(i).getSingleHSliceArray(dim);
+            }
+            return out;
+        }
         int i=0;
         for(TimeSeriesInstance inst : seriesCollection){
             // if the index isn't always valid, populate with NaN values.
@@ -491,7 +529,13 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance> {
      * @return double[][][]
      */
     public double[][][] getHSliceArray(int[] indexesToKeep){
-        return getHSliceArray(Arrays.stream(indexesToKeep).boxed().collect(Collectors.toList()));
+        double[][][] out = new double[numInstances()][][];
+        int i=0;
+        for(TimeSeriesInstance inst : seriesCollection){
+            out[i++] = inst.getHSliceArray(indexesToKeep);
+        }
+
+        return out;
     }
 
     
@@ -510,6 +554,147 @@ public class TimeSeriesInstances implements Iterable<TimeSeriesInstance> {
     }
 
     
+    /** 
+     * Build a dataset held in contiguous per channel blocks, without copying them. Instance i has numDimensions[i]
+     * channels and occupies [offsets[dim][i], offsets[dim][i + 1]) of blocks[dim]; a channel it does not have must be
+     * empty. The blocks must not be modified afterwards.
+     * @param blocks the block for each channel
+     * @param offsets the start of each instance in each block, followed by the block length
+     * @param numDimensions the number of channels of each instance
+     * @param labelIndexes the class label index of each instance
+     * @param targetValues the target value of each instance, or null if none
+     * @param labels the class labels, or null if none
+     * @return TimeSeriesInstances
+     */
+    public static TimeSeriesInstances fromChannelBlocks(double[][] blocks, int[][] offsets, int[] numDimensions,
+            int[] labelIndexes, double[] targetValues, String[] labels) {
+        final int numInstances = numDimensions.length;
+        if (offsets.length != blocks.length || labelIndexes.length != numInstances
+                || (targetValues != null && targetValues.length != numInstances))
+            throw new IllegalArgumentException("mismatched number of channels or instances");
+        for (int dim = 0; dim < blocks.length; ++dim) {
+            if (offsets[dim].length != numInstances + 1 || offsets[dim][numInstances] > blocks[dim].length)
+                throw new IllegalArgumentException("offsets of channel " + dim + " do not fit its block");
+        }
+
+        final List<TimeSeriesInstance> views = new ArrayList<>(numInstances);
+        for (int i = 0; i < numInstances; ++i) {
+            if (numDimensions[i] > blocks.length)
+                throw new IllegalArgumentException("instance " + i + " has more channels than there are blocks");
+            final List<TimeSeries> dimensions = new ArrayList<>(numDimensions[i]);
+            for (int dim = 0; dim < blocks.length; ++dim) {
+                final int start = offsets[dim][i];
+                final int length = offsets[dim][i + 1] - start;
+                if (length < 0 || (dim >= numDimensions[i] && length > 0))
+                    throw new IllegalArgumentException("bad offsets for instance " + i + " in channel " + dim);
+                if (dim < numDimensions[i])
+                    dimensions.add(TimeSeries.wrap(blocks[dim], start, length));
+            }
+            views.add(targetValues == null ? new TimeSeriesInstance(labelIndexes[i], dimensions)
+                    : new TimeSeriesInstance(labelIndexes[i], targetValues[i], dimensions));
+        }
+
+        final TimeSeriesInstances output = new TimeSeriesInstances();
+        output.seriesCollection = views;
+        output.classLabels = labels;
+        if (numInstances > 0)
+            output.dataChecks();
+        output.channelBlocks = blocks;
+        output.channelOffsets = offsets;
+        return output;
+    }
+
+    
+    /** 
+     * Copy the dataset into one contiguous block per channel. Each instance of the returned dataset is an O(1) view
+     * onto those blocks, so scanning a channel across the whole dataset walks a single array.
+     * @return TimeSeriesInstances
+     */
+    public TimeSeriesInstances toContiguous() {
+        final int numInstances = numInstances();
+        final double[][] blocks = new double[maxNumChannels][];
+        final int[][] offsets = new int[maxNumChannels][numInstances + 1];
+        for (int dim = 0; dim < maxNumChannels; ++dim) {
+            final int[] channelOffsets = offsets[dim];
+            long total = 0;
+            for (int i = 0; i < numInstances; ++i) {
+                final TimeSeriesInstance inst = seriesCollection.get(i);
+                if (dim < inst.getNumDimensions())
+                    total += inst.get(dim).getSeriesLength();
+                if (total > Integer.MAX_VALUE - 8)
+                    throw new IllegalStateException("channel " + dim + " is too large for a single contiguous block");
+                channelOffsets[i + 1] = (int) total;
+            }
+
+            final double[] block = new double[channelOffsets[numInstances]];
+            for (int i = 0; i < numInstances; ++i) {
+                final TimeSeriesInstance inst = seriesCollection.get(i);
+                if (dim < inst.getNumDimensions())
+                    inst.get(dim).copyTo(block, channelOffsets[i]);
+            }
+            blocks[dim] = block;
+        }
+
+        final int[] numDimensions = new int[numInstances];
+        final int[] labelIndexes = new int[numInstances];
+        final double[] targetValues = new double[numInstances];
+        for (int i = 0; i < numInstances; ++i) {
+            final TimeSeriesInstance inst = seriesCollection.get(i);
+            numDimensions[i] = inst.getNumDimensions();
+            labelIndexes[i] = inst.classLabelIndex;
+            targetValues[i] = inst.targetValue;
+        }
+
+        final TimeSeriesInstances output = fromChannelBlocks(blocks, offsets, numDimensions, labelIndexes,
+                targetValues, classLabels);
+        for (int i = 0; i < numInstances; ++i) {
+            for (int dim = 0; dim < numDimensions[i]; ++dim) {
+                final double[] indices = seriesCollection.get(i).get(dim).getIndicesArray();
+                if (indices != null)
+                    output.get(i).get(dim).setIndices(indices);
+            }
+        }
+        output.description = description;
+        output.problemName = problemName;
+        output.isEquallySpaced = isEquallySpaced;
+        output.hasTimeStamps = hasTimeStamps;
+        output.classCounts = classCounts == null ? null : classCounts.clone();
+        return output;
+    }
+
+    
+    /** 
+     * @return boolean whether the data is held in contiguous per channel blocks, see fromChannelBlocks.
+     */
+    public boolean isContiguous() {
+        return channelBlocks != null;
+    }
+
+    
+    /** 
+     * The backing block for a channel, not a copy, so must not be modified. Instance i occupies
+     * [getChannelOffsets(dim)[i], getChannelOffsets(dim)[i + 1]).
+     * @param dim
+     * @return double[]
+     */
+    public double[] getChannelBlock(int dim) {
+        if (!isContiguous())
+            throw new IllegalStateException("data is not contiguous, see toContiguous");
+        return channelBlocks[dim];
+    }
+
+    
+    /** 
+     * @param dim
+     * @return int[] the start of each instance in the channel block, followed by the block length.
+     */
+    public int[] getChannelOffsets(int dim) {
+        if (!isContiguous())
+            throw new IllegalStateException("data is not contiguous, see toContiguous");
+        return channelOffsets[dim].clone();
+    }
+
+    
     /** 
      * @param i
      * @return TimeSeriesInstance
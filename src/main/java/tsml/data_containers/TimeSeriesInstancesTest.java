@@ -0,0 +1,74 @@
+package tsml.data_containers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimeSeriesInstancesTest {
+
+    private static final double[][][] DATA = {
+            {{1, 2, 3}, {4, 5, 6}},
+            {{7, 8}, {9, 10, 11, 12}},
+    };
+
+    @Test
+    public void testContiguousMatchesOriginal() {
+        TimeSeriesInstances data = new TimeSeriesInstances(DATA, new int[]{0, 1}, new String[]{"A", "B"});
+        TimeSeriesInstances contiguous = data.toContiguous();
+        Assert.assertFalse(data.isContiguous());
+        Assert.assertTrue(contiguous.isContiguous());
+        Assert.assertEquals(data.numInstances(), contiguous.numInstances());
+        Assert.assertArrayEquals(data.getClassIndexes(), contiguous.getClassIndexes());
+        Assert.assertArrayEquals(data.getClassLabels(), contiguous.getClassLabels());
+        Assert.assertEquals(data.getMinLength(), contiguous.getMinLength());
+        Assert.assertEquals(data.getMaxLength(), contiguous.getMaxLength());
+        Assert.assertTrue(contiguous.isMultivariate());
+        Assert.assertArrayEquals(DATA, contiguous.toValueArray());
+        Assert.assertArrayEquals(data.getHSliceArray(1), contiguous.getHSliceArray(1));
+        Assert.assertEquals(data.hashCode(), contiguous.hashCode());
+    }
+
+    @Test
+    public void testChannelBlocks() {
+        TimeSeriesInstances contiguous = new TimeSeriesInstances(DATA, new int[]{0, 1}).toContiguous();
+        Assert.assertArrayEquals(new double[]{1, 2, 3, 7, 8}, contiguous.getChannelBlock(0), 0);
+        Assert.assertArrayEquals(new int[]{0, 3, 5}, contiguous.getChannelOffsets(0));
+        Assert.assertArrayEquals(new double[]{4, 5, 6, 9, 10, 11, 12}, contiguous.getChannelBlock(1), 0);
+        Assert.assertArrayEquals(new int[]{0, 3, 7}, contiguous.getChannelOffsets(1));
+    }
+
+    @Test
+    public void testFromChannelBlocks() {
+        double[][] blocks = {{1, 2, 3, 7, 8}, {4, 5, 6}};
+        int[][] offsets = {{0, 3, 5}, {0, 3, 3}};
+        TimeSeriesInstances data = TimeSeriesInstances.fromChannelBlocks(blocks, offsets, new int[]{2, 1},
+                new int[]{1, 0}, new double[]{1.5, 0.5}, new String[]{"A", "B"});
+        Assert.assertTrue(data.isContiguous());
+        // the blocks are used as they are
+        Assert.assertSame(blocks[0], data.getChannelBlock(0));
+        Assert.assertArrayEquals(new double[][][]{{{1, 2, 3}, {4, 5, 6}}, {{7, 8}}}, data.toValueArray());
+        Assert.assertArrayEquals(new int[]{1, 0}, data.getClassIndexes());
+        Assert.assertEquals(1.5, data.get(0).getTargetValue(), 0);
+        Assert.assertEquals(2, data.getMaxNumChannels());
+        Assert.assertArrayEquals(new double[][]{{1, 2, 3}, {7, 8}}, data.getHSliceArray(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromChannelBlocksRejectsValuesForMissingChannel() {
+        TimeSeriesInstances.fromChannelBlocks(new double[][]{{1, 2}, {3}}, new int[][]{{0, 1, 2}, {0, 0, 1}},
+                new int[]{2, 1}, new int[]{0, 0}, null, null);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testHSliceOfMissingChannelThrows() {
+        // as for data which is not contiguous
+        new TimeSeriesInstances(new double[][][]{{{1, 2}, {3}}, {{4}}}, new int[]{0, 0}).toContiguous().getHSliceArray(1);
+    }
+
+    @Test
+    public void testAddLeavesContiguousMode() {
+        TimeSeriesInstances contiguous = new TimeSeriesInstances(DATA, new int[]{0, 1}).toContiguous();
+        contiguous.add(new TimeSeriesInstance(new double[][]{{1, 2}}, 0));
+        Assert.assertFalse(contiguous.isContiguous());
+        Assert.assertEquals(3, contiguous.numInstances());
+    }
+}
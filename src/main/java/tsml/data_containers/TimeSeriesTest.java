@@ -0,0 +1,57 @@
+package tsml.data_containers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TimeSeriesTest {
+
+    @Test
+    public void testCopiesInput() {
+        double[] in = {1, 2, 3, 4, 5};
+        TimeSeries ts = new TimeSeries(in);
+        in[0] = 100;
+        Assert.assertEquals(1, ts.get(0), 0);
+    }
+
+    @Test
+    public void testSlidingWindowView() {
+        double[] in = {1, 2, 3, 4, 5};
+        TimeSeries ts = TimeSeries.wrap(in);
+        TimeSeries window = ts.getSlidingWindowView(1, 4);
+        Assert.assertEquals(3, window.getSeriesLength());
+        Assert.assertArrayEquals(new double[]{2, 3, 4}, window.toArray(), 0);
+        Assert.assertArrayEquals(new double[]{3, 4}, window.getSlidingWindowArray(1, 3), 0);
+        Assert.assertEquals(Arrays.asList(2.0, 3.0, 4.0), ts.getSlidingWindow(1, 4));
+        Assert.assertEquals(Arrays.asList(2.0, 3.0, 4.0).hashCode(), window.hashCode());
+        // views share the backing array
+        in[2] = 30;
+        Assert.assertEquals(30, window.get(1), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testViewBounds() {
+        TimeSeries window = TimeSeries.wrap(new double[]{1, 2, 3, 4, 5}, 1, 3);
+        window.get(3);
+    }
+
+    @Test
+    public void testListAdapter() {
+        TimeSeries ts = new TimeSeries(new double[]{1, 2, 3});
+        List<Double> list = ts.getSeries();
+        Assert.assertEquals(Arrays.asList(1.0, 2.0, 3.0), list);
+        Assert.assertEquals(Arrays.hashCode(new double[]{1, 2, 3}), ts.hashCode());
+        Assert.assertEquals(list.hashCode(), ts.hashCode());
+    }
+
+    @Test
+    public void testIndexSelection() {
+        TimeSeries ts = new TimeSeries(new double[]{1, 2, Double.NaN, 4, 5});
+        Assert.assertArrayEquals(new double[]{2, Double.NaN, 5}, ts.toArrayWithIndexes(new int[]{4, 1, 2, 10}), 0);
+        Assert.assertArrayEquals(new double[]{2, Double.NaN, 5}, ts.toArrayWithIndexes(Arrays.asList(4, 1, 2)), 0);
+        Assert.assertArrayEquals(new double[]{1, 4}, ts.toArrayWithoutIndexes(Arrays.asList(1, 2, 4)), 0);
+        Assert.assertEquals(Arrays.asList(1.0, 4.0), ts.toListWithoutIndexes(Arrays.asList(1, 2, 4)));
+    }
+}
@@ -0,0 +1,226 @@
+package tsml.data_containers.ts_fileIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+
+/**
+ * Reads the binary format written by TSBinaryWriter into a TimeSeriesInstances object. The data section is memory
+ * mapped rather than read, so each TimeSeries is a view onto the file: the values stay off-heap and are paged in by
+ * the OS on demand. This allows datasets larger than the heap, and repeat loads of the same file are served from the
+ * page cache.
+ * <p>
+ * Alternatively the data can be read onto the heap as contiguous per channel blocks (see
+ * TimeSeriesInstances.fromChannelBlocks), which is a bulk copy of each block as the file holds them in that layout.
+ */
+public class TSBinaryReader {
+
+    TimeSeriesInstances m_data;
+
+    // the most doubles mapped in one region. a channel's block can be larger than one mapping allows, so is mapped in
+    // regions which each start at a series boundary.
+    private final int maxMapped;
+    // whether to read the blocks onto the heap rather than map them
+    private final boolean contiguous;
+
+    public TSBinaryReader(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * @param contiguous whether to read the data onto the heap as contiguous per channel blocks rather than map it
+     */
+    public TSBinaryReader(File file, boolean contiguous) throws IOException {
+        this(file, TSBinaryWriter.MAX_SERIES_LENGTH, contiguous);
+    }
+
+    TSBinaryReader(File file, int maxMapped) throws IOException {
+        this(file, maxMapped, false);
+    }
+
+    TSBinaryReader(File file, int maxMapped, boolean contiguous) throws IOException {
+        this.maxMapped = maxMapped;
+        this.contiguous = contiguous;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            read(channel, file.getPath());
+        }
+        // the mappings remain valid once the channel is closed.
+    }
+
+    public TimeSeriesInstances GetInstances() {
+        return m_data;
+    }
+
+    private void read(FileChannel channel, String name) throws IOException {
+        final ByteBuffer preamble = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        while (preamble.hasRemaining() && channel.read(preamble) >= 0) {}
+        preamble.flip();
+        if (preamble.remaining() < 16 || preamble.getInt() != TSBinaryWriter.MAGIC)
+            throw new IOException(name + " is not a " + TSBinaryWriter.EXTENSION + " file");
+        final int version = preamble.getInt();
+        if (version < 1 || version > TSBinaryWriter.VERSION)
+            throw new IOException("unsupported " + TSBinaryWriter.EXTENSION + " version " + version + " in " + name);
+        final long dataStart = preamble.getLong();
+
+        final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataStart).order(ByteOrder.LITTLE_ENDIAN);
+        header.position(16);
+        final String problemName = getString(header);
+        final String description = getString(header);
+        final boolean hasTimeStamps = header.get() != 0;
+        final boolean isEquallySpaced = header.get() != 0;
+        final int numLabels = header.getInt();
+        String[] classLabels = null;
+        if (numLabels >= 0) {
+            classLabels = new String[numLabels];
+            for (int i = 0; i < numLabels; i++)
+                classLabels[i] = getString(header);
+        }
+        final int numInstances = header.getInt();
+        final int numChannels = header.getInt();
+        final int[] labelIndexes = new int[numInstances];
+        for (int i = 0; i < numInstances; i++)
+            labelIndexes[i] = header.getInt();
+        final double[] targetValues = new double[numInstances];
+        for (int i = 0; version >= 2 && i < numInstances; i++)
+            targetValues[i] = header.getDouble();
+        final int[] numDimensions = new int[numInstances];
+        for (int i = 0; i < numInstances; i++)
+            numDimensions[i] = header.getInt();
+        final int[][] offsets = getOffsets(header, numChannels, numInstances);
+        final boolean hasStamps = version >= 2 && header.get() != 0;
+        final int[][] stampOffsets = hasStamps ? getOffsets(header, numChannels, numInstances) : null;
+
+        if (contiguous) {
+            final double[][] blocks = new double[numChannels][];
+            long position = dataStart;
+            for (int dim = 0; dim < numChannels; dim++) {
+                blocks[dim] = readBlock(channel, position, offsets[dim][numInstances], name);
+                position += (long) offsets[dim][numInstances] * Double.BYTES;
+            }
+            m_data = TimeSeriesInstances.fromChannelBlocks(blocks, offsets, numDimensions, labelIndexes, targetValues,
+                    null);
+            for (int dim = 0; hasStamps && dim < numChannels; dim++) {
+                final int[] stamps = stampOffsets[dim];
+                final double[] block = readBlock(channel, position, stamps[numInstances], name);
+                for (int i = 0; i < numInstances; i++)
+                    if (stamps[i + 1] > stamps[i])
+                        m_data.get(i).get(dim).setIndices(Arrays.copyOfRange(block, stamps[i], stamps[i + 1]));
+                position += (long) stamps[numInstances] * Double.BYTES;
+            }
+        } else {
+            final TimeSeries[][] series = new TimeSeries[numChannels][];
+            long position = dataStart;
+            for (int dim = 0; dim < numChannels; dim++) {
+                series[dim] = map(channel, position, offsets[dim], name);
+                position += (long) offsets[dim][numInstances] * Double.BYTES;
+            }
+            for (int dim = 0; hasStamps && dim < numChannels; dim++) {
+                final TimeSeries[] stamps = map(channel, position, stampOffsets[dim], name);
+                for (int i = 0; i < numInstances; i++)
+                    if (stamps[i].getSeriesLength() > 0)
+                        series[dim][i].setIndices(stamps[i].toArray());
+                position += (long) stampOffsets[dim][numInstances] * Double.BYTES;
+            }
+
+            final List<TimeSeriesInstance> instances = new ArrayList<>(numInstances);
+            for (int i = 0; i < numInstances; i++) {
+                final List<TimeSeries> dimensions = new ArrayList<>(numDimensions[i]);
+                for (int dim = 0; dim < numDimensions[i]; dim++)
+                    dimensions.add(series[dim][i]);
+                instances.add(new TimeSeriesInstance(labelIndexes[i], targetValues[i], dimensions));
+            }
+            m_data = new TimeSeriesInstances(instances, null);
+        }
+        if (classLabels != null)
+            m_data.setClassLabels(classLabels);
+        m_data.setProblemName(problemName);
+        m_data.setDescription(description);
+        m_data.setHasTimeStamps(hasTimeStamps);
+        m_data.setEquallySpaced(isEquallySpaced);
+    }
+
+    /**
+     * Map a block as a view per instance, in regions of at most maxMapped doubles.
+     * @param channel
+     * @param position where the block starts in the file
+     * @param offsets the start of each instance in the block, followed by the block length
+     * @param name
+     * @return TimeSeries[]
+     * @throws IOException
+     */
+    private TimeSeries[] map(FileChannel channel, long position, int[] offsets, String name) throws IOException {
+        final int numInstances = offsets.length - 1;
+        if (position + (long) offsets[numInstances] * Double.BYTES > channel.size())
+            throw new IOException("premature end of file in " + name);
+        final TimeSeries[] views = new TimeSeries[numInstances];
+        DoubleBuffer region = null;
+        int regionStart = 0;
+        for (int i = 0; i < numInstances; i++) {
+            final int start = offsets[i];
+            final int length = offsets[i + 1] - start;
+            if (region == null || start + length - regionStart > region.capacity()) {
+                regionStart = start;
+                final int size = Math.min(maxMapped, offsets[numInstances] - start);
+                if (length > size)
+                    throw new IOException("series " + i + " is too long to map in " + name);
+                final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position + (long) start * Double.BYTES, (long) size * Double.BYTES);
+                region = mapped.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+            views[i] = TimeSeries.wrap(region, start - regionStart, length);
+        }
+        return views;
+    }
+
+    /**
+     * Read a block onto the heap, a region of at most maxMapped doubles at a time.
+     * @param channel
+     * @param position where the block starts in the file
+     * @param length the number of doubles in the block
+     * @param name
+     * @return double[]
+     * @throws IOException
+     */
+    private double[] readBlock(FileChannel channel, long position, int length, String name) throws IOException {
+        if (position + (long) length * Double.BYTES > channel.size())
+            throw new IOException("premature end of file in " + name);
+        final double[] block = new double[length];
+        for (int start = 0; start < length; start += maxMapped) {
+            final int size = Math.min(maxMapped, length - start);
+            channel.map(FileChannel.MapMode.READ_ONLY, position + (long) start * Double.BYTES, (long) size * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(block, start, size);
+        }
+        return block;
+    }
+
+    private static int[][] getOffsets(ByteBuffer header, int numChannels, int numInstances) {
+        final int[][] offsets = new int[numChannels][numInstances + 1];
+        for (int dim = 0; dim < numChannels; dim++)
+            for (int i = 0; i <= numInstances; i++)
+                offsets[dim][i] = header.getInt();
+        return offsets;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,129 @@
+package tsml.data_containers.ts_fileIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TSBinaryReaderTest {
+
+    private static final double[][][] raw = {
+            {{1, 2, 3}, {4, Double.NaN, 6}},
+            {{7, 8}, {9, 10, 11, 12}},
+            {{-1.5, 2.25, 1e-300, 7}, {0, 0}},
+    };
+
+    private static File write(TimeSeriesInstances data) throws IOException {
+        File file = File.createTempFile("TSBinaryReaderTest", TSBinaryWriter.EXTENSION);
+        file.deleteOnExit();
+        TSBinaryWriter writer = new TSBinaryWriter(file);
+        writer.setData(data);
+        writer.writeBatch();
+        return file;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        TimeSeriesInstances data = new TimeSeriesInstances(raw, new int[]{0, 1, 1}, new String[]{"A", "B"});
+        data.setClassLabels(new String[]{"A", "B"});
+        data.setProblemName("RoundTrip");
+        data.setDescription("é");
+
+        File file = write(data);
+
+        TimeSeriesInstances read = new TSBinaryReader(file).GetInstances();
+        Assert.assertEquals("RoundTrip", read.getProblemName());
+        Assert.assertEquals("é", read.getDescription());
+        Assert.assertArrayEquals(data.getClassLabels(), read.getClassLabels());
+        Assert.assertArrayEquals(data.getClassCounts(), read.getClassCounts());
+        Assert.assertArrayEquals(data.getClassIndexes(), read.getClassIndexes());
+        Assert.assertTrue(read.hasMissing());
+        Assert.assertEquals(2, read.getMinLength());
+        Assert.assertEquals(4, read.getMaxLength());
+        Assert.assertArrayEquals(raw, read.toValueArray());
+        Assert.assertEquals(data.hashCode(), read.hashCode());
+    }
+
+    @Test
+    public void testTargetValuesAndTimeStamps() throws IOException {
+        List<TimeSeriesInstance> instances = new ArrayList<>();
+        for (int i = 0; i < raw.length; i++) {
+            List<TimeSeries> dimensions = new ArrayList<>();
+            for (double[] values : raw[i])
+                dimensions.add(new TimeSeries(values));
+            if (i != 1)
+                dimensions.get(0).setIndices(Arrays.stream(raw[i][0]).map(v -> v * 10).toArray());
+            instances.add(new TimeSeriesInstance(0, i + 0.5, dimensions));
+        }
+        TimeSeriesInstances data = new TimeSeriesInstances(instances, null);
+        data.setHasTimeStamps(true);
+
+        TimeSeriesInstances read = new TSBinaryReader(write(data)).GetInstances();
+        Assert.assertTrue(read.hasTimeStamps());
+        Assert.assertArrayEquals(raw, read.toValueArray());
+        for (int i = 0; i < raw.length; i++) {
+            Assert.assertEquals(i + 0.5, read.get(i).getTargetValue(), 0);
+            Assert.assertArrayEquals(data.get(i).get(0).getIndicesArray(), read.get(i).get(0).getIndicesArray(), 0);
+            Assert.assertNull(read.get(i).get(1).getIndicesArray());
+        }
+    }
+
+    @Test
+    public void testReadContiguous() throws IOException {
+        List<TimeSeriesInstance> instances = new ArrayList<>();
+        for (int i = 0; i < raw.length; i++) {
+            List<TimeSeries> dimensions = new ArrayList<>();
+            for (double[] values : raw[i])
+                dimensions.add(new TimeSeries(values));
+            dimensions.get(1).setIndices(Arrays.stream(raw[i][1]).map(v -> v * 10).toArray());
+            instances.add(new TimeSeriesInstance(i % 2, i + 0.5, dimensions));
+        }
+        TimeSeriesInstances data = new TimeSeriesInstances(instances, new String[]{"A", "B"});
+        data.setProblemName("Contiguous");
+        File file = write(data);
+
+        // read a region of at most 4 values at a time
+        for (TSBinaryReader reader : new TSBinaryReader[]{new TSBinaryReader(file, true),
+                new TSBinaryReader(file, 4, true)}) {
+            TimeSeriesInstances read = reader.GetInstances();
+            Assert.assertTrue(read.isContiguous());
+            Assert.assertEquals("Contiguous", read.getProblemName());
+            Assert.assertArrayEquals(data.getClassIndexes(), read.getClassIndexes());
+            Assert.assertArrayEquals(raw, read.toValueArray());
+            Assert.assertArrayEquals(data.getHSliceArray(1), read.getHSliceArray(1));
+            Assert.assertArrayEquals(new double[]{1, 2, 3, 7, 8, -1.5, 2.25, 1e-300, 7}, read.getChannelBlock(0), 0);
+            for (int i = 0; i < raw.length; i++) {
+                Assert.assertEquals(i + 0.5, read.get(i).getTargetValue(), 0);
+                Assert.assertNull(read.get(i).get(0).getIndicesArray());
+                Assert.assertArrayEquals(data.get(i).get(1).getIndicesArray(), read.get(i).get(1).getIndicesArray(), 0);
+            }
+        }
+        Assert.assertFalse(new TSBinaryReader(file).GetInstances().isContiguous());
+    }
+
+    @Test
+    public void testMapsLargeBlocksInRegions() throws IOException {
+        File file = write(new TimeSeriesInstances(raw, new int[]{0, 1, 1}));
+        // each channel block holds 9 or 8 values, so is mapped in several regions of at most 4.
+        Assert.assertArrayEquals(raw, new TSBinaryReader(file, 4).GetInstances().toValueArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsSeriesLongerThanARegion() throws IOException {
+        new TSBinaryReader(write(new TimeSeriesInstances(raw, new int[]{0, 1, 1})), 3);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        File file = File.createTempFile("TSBinaryReaderTest", ".ts");
+        file.deleteOnExit();
+        new TSBinaryReader(file);
+    }
+}
@@ -0,0 +1,253 @@
+package tsml.data_containers.ts_fileIO;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import experiments.data.DatasetLoading;
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import tsml.data_containers.utilities.Converter;
+
+/**
+ * Writes TimeSeriesInstances in a compact binary format which TSBinaryReader can memory map.
+ *
+ * All values are little endian. The layout is:
+ *
+ *  int     MAGIC, int VERSION, long offset of the data section
+ *  string  problem name, string description (int byte length, -1 for null, then UTF-8 bytes)
+ *  byte    has time stamps, byte is equally spaced
+ *  int     number of class labels (-1 for none), then each label as a string
+ *  int     number of instances n, int number of channels c
+ *  int[n]  class label index of each instance
+ *  double[n] target value of each instance (version 2 onwards)
+ *  int[n]  number of channels of each instance
+ *  int[c][n + 1] start of each instance in the channel's block, followed by the block length
+ *  byte    whether any series has time stamps (version 2 onwards), if so
+ *  int[c][n + 1] start of each instance's time stamps in the channel's stamp block, followed by the block length. A
+ *          series without time stamps has none.
+ *  padding up to a multiple of 8 bytes
+ *  double[] the block for each channel in turn
+ *  double[] the time stamp block for each channel in turn, if any series has time stamps
+ *
+ * Each channel is one block holding every instance's series back to back, so the blocks can be used without any parsing.
+ * A block can be larger than a single mapping allows, but no one series can be longer than MAX_SERIES_LENGTH.
+ */
+public class TSBinaryWriter {
+
+    public static final int MAGIC = 0x54534231; // "TSB1"
+    public static final int VERSION = 2;
+
+    // the longest series that fits in a single mapping, which is limited to 2GB.
+    public static final int MAX_SERIES_LENGTH = Integer.MAX_VALUE / Double.BYTES;
+    public static final String EXTENSION = ".tsb";
+
+    // size of the chunks the data section is written in.
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    TimeSeriesInstances data;
+    File destination;
+
+    public TSBinaryWriter(){}
+
+    public TSBinaryWriter(File output){
+        setDestination(output);
+    }
+
+    public void setData(TimeSeriesInstances dat){
+        data = dat;
+    }
+
+    public void setDestination(File output){
+        destination = output;
+    }
+
+    public void writeBatch() throws IOException {
+        final int numInstances = data.numInstances();
+        final int numChannels = data.getMaxNumChannels();
+
+        final byte[] problemName = encode(data.getProblemName());
+        final byte[] description = encode(data.getDescription());
+        final String[] classLabels = data.getClassLabels();
+        final byte[][] labels = new byte[classLabels == null ? 0 : classLabels.length][];
+        for (int i = 0; i < labels.length; i++)
+            labels[i] = encode(classLabels[i]);
+
+        final int[][] offsets = offsets(data, numChannels, false);
+        final int[][] stampOffsets = offsets(data, numChannels, true);
+        boolean hasStamps = false;
+        for (int[] channel : stampOffsets)
+            hasStamps |= channel[numInstances] > 0;
+
+        long headerSize = 4 + 4 + 8;
+        headerSize += stringSize(problemName) + stringSize(description);
+        headerSize += 2;
+        headerSize += 4;
+        for (byte[] label : labels)
+            headerSize += stringSize(label);
+        headerSize += 4 + 4;
+        headerSize += (4L + 8 + 4) * numInstances;
+        headerSize += 4L * numChannels * (numInstances + 1);
+        headerSize += 1;
+        if (hasStamps)
+            headerSize += 4L * numChannels * (numInstances + 1);
+        final long dataStart = (headerSize + 7) & ~7L;
+        if (dataStart > Integer.MAX_VALUE)
+            throw new IOException("header too large: " + dataStart + " bytes");
+
+        final ByteBuffer header = ByteBuffer.allocate((int) dataStart).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(dataStart);
+        putString(header, problemName);
+        putString(header, description);
+        header.put((byte) (data.hasTimeStamps() ? 1 : 0));
+        header.put((byte) (data.isEquallySpaced() ? 1 : 0));
+        header.putInt(classLabels == null ? -1 : labels.length);
+        for (byte[] label : labels)
+            putString(header, label);
+        header.putInt(numInstances).putInt(numChannels);
+        for (TimeSeriesInstance inst : data)
+            header.putInt(inst.getLabelIndex());
+        for (TimeSeriesInstance inst : data)
+            header.putDouble(inst.getTargetValue());
+        for (TimeSeriesInstance inst : data)
+            header.putInt(inst.getNumDimensions());
+        for (int[] channel : offsets)
+            for (int offset : channel)
+                header.putInt(offset);
+        header.put((byte) (hasStamps ? 1 : 0));
+        if (hasStamps)
+            for (int[] channel : stampOffsets)
+                for (int offset : channel)
+                    header.putInt(offset);
+        header.rewind();
+
+        try (RandomAccessFile file = new RandomAccessFile(destination, "rw");
+             FileChannel channel = file.getChannel()) {
+            file.setLength(0);
+            writeFully(channel, header);
+
+            final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int dim = 0; dim < numChannels; ++dim) {
+                for (TimeSeriesInstance inst : data) {
+                    if (dim >= inst.getNumDimensions())
+                        continue;
+                    final TimeSeries ts = inst.get(dim);
+                    for (int i = 0; i < ts.getSeriesLength(); ++i)
+                        put(channel, chunk, ts.get(i));
+                }
+            }
+            for (int dim = 0; hasStamps && dim < numChannels; ++dim) {
+                for (TimeSeriesInstance inst : data) {
+                    final double[] indices = dim < inst.getNumDimensions() ? inst.get(dim).getIndicesArray() : null;
+                    for (int i = 0; indices != null && i < indices.length; ++i)
+                        put(channel, chunk, indices[i]);
+                }
+            }
+            chunk.flip();
+            writeFully(channel, chunk);
+        }
+    }
+
+    /**
+     * @param data
+     * @param numChannels
+     * @param stamps whether to lay out the time stamps rather than the values
+     * @return int[][] the start of each instance in each channel's block, followed by the block length
+     * @throws IOException if a series cannot be mapped or a block has too many values to index
+     */
+    private static int[][] offsets(TimeSeriesInstances data, int numChannels, boolean stamps) throws IOException {
+        final int[][] offsets = new int[numChannels][data.numInstances() + 1];
+        for (int dim = 0; dim < numChannels; ++dim) {
+            long offset = 0;
+            int i = 0;
+            for (TimeSeriesInstance inst : data) {
+                if (dim < inst.getNumDimensions()) {
+                    final TimeSeries ts = inst.get(dim);
+                    final double[] indices = stamps ? ts.getIndicesArray() : null;
+                    final long length = stamps ? (indices == null ? 0 : indices.length) : ts.getSeriesLength();
+                    if (length > MAX_SERIES_LENGTH)
+                        throw new IOException("series " + i + " of channel " + dim + " is too long to map: " + length);
+                    offset += length;
+                }
+                if (offset > Integer.MAX_VALUE)
+                    throw new IOException("channel " + dim + " has too many values for a single block");
+                offsets[dim][++i] = (int) offset;
+            }
+        }
+        return offsets;
+    }
+
+    private static void put(FileChannel channel, ByteBuffer chunk, double value) throws IOException {
+        if (chunk.remaining() < Double.BYTES) {
+            chunk.flip();
+            writeFully(channel, chunk);
+            chunk.clear();
+        }
+        chunk.putDouble(value);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static byte[] encode(String str) {
+        return str == null ? null : str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long stringSize(byte[] str) {
+        return 4 + (str == null ? 0 : str.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] str) {
+        if (str == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(str.length);
+            buffer.put(str);
+        }
+    }
+
+    /**
+     * Convert a .ts or .arff file into the binary format.
+     * @param input
+     * @param output
+     * @throws IOException
+     */
+    public static void convert(File input, File output) throws IOException {
+        final TimeSeriesInstances data;
+        if (input.getName().toLowerCase().endsWith(".arff")) {
+            data = Converter.fromArff(DatasetLoading.loadDataThrowable(input));
+        } else {
+            try (FileReader reader = new FileReader(input)) {
+                data = new TSReader(reader).GetInstances();
+            }
+        }
+
+        TSBinaryWriter writer = new TSBinaryWriter(output);
+        writer.setData(data);
+        writer.writeBatch();
+    }
+
+    /**
+     * One off conversion of .ts/.arff files, e.g. java TSBinaryWriter Beef_TRAIN.ts Beef_TEST.ts
+     * writes Beef_TRAIN.tsb and Beef_TEST.tsb alongside the originals.
+     */
+    public static void main(String[] args) throws IOException {
+        for (String path : args) {
+            File input = new File(path);
+            String name = input.getName();
+            int dot = name.lastIndexOf('.');
+            File output = new File(input.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + EXTENSION);
+            long time = System.nanoTime();
+            convert(input, output);
+            System.out.println(input + " -> " + output + " in " + (System.nanoTime() - time) / 1000000 + "ms");
+        }
+    }
+}
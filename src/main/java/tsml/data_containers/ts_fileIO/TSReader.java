@@ -6,11 +6,11 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StreamTokenizer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
 import tsml.data_containers.TimeSeriesInstances;
-import utilities.generic_storage.Pair;
 
 /**
  * File for reading sktime format data into TimeSeriesInstances object
@@ -42,33 +42,61 @@ public class TSReader {
     private boolean classLabel;
     private List<String> classLabels;
 
-    private List<List<List<Double>>> raw_data;
+    // the values of each channel, every instance's series back to back, as TimeSeriesInstances.fromChannelBlocks
+    private List<ChannelBlock> channels;
+    // the number of channels of each instance, and the length of each of its series in turn
+    private IntList numDimensions;
+    private IntList seriesLengths;
 
     private List<Double> raw_labels;
 
     public TSReader(Reader reader) throws IOException {
+        this(reader, true);
+    }
+
+    /**
+     * @param readData if false only the header is read, leaving the reader positioned at the start of the data.
+     *                 StreamTokenizer reads a character at a time, so nothing past the @data line is consumed.
+     */
+    TSReader(Reader reader, boolean readData) throws IOException {
         m_Tokenizer = new StreamTokenizer(reader);
         initTokenizer();
 
         readHeader();
 
-        CreateTimeSeriesInstances();
+        if (readData)
+            CreateTimeSeriesInstances();
     }
 
     private void CreateTimeSeriesInstances() throws IOException {
-        raw_data = new ArrayList<>();
+        channels = new ArrayList<>();
+        numDimensions = new IntList();
+        seriesLengths = new IntList();
         raw_labels = new ArrayList<>();
 
-        // read each line and extract a data Instance
-        Pair<List<List<Double>>, Double> multi_series_and_label;
-        // extract the multivariate series, and the possible label.
-        while ((multi_series_and_label = readMultivariateInstance()) != null) {
-            raw_data.add(multi_series_and_label.var1);
-            raw_labels.add(multi_series_and_label.var2);
+        // read each line into the channel blocks, along with the possible label.
+        while (readMultivariateInstance()) {}
+
+        // create timeseries instances object, as views onto the channel blocks.
+        final int numInstances = numDimensions.size;
+        final double[][] blocks = new double[channels.size()][];
+        final int[][] offsets = new int[channels.size()][numInstances + 1];
+        for (int dim = 0; dim < blocks.length; dim++)
+            blocks[dim] = channels.get(dim).toArray();
+        final int[] labelIndexes = new int[numInstances];
+        final double[] targetValues = new double[numInstances];
+        for (int i = 0, series = 0; i < numInstances; i++) {
+            for (int dim = 0; dim < blocks.length; dim++) {
+                final int length = dim < numDimensions.values[i] ? seriesLengths.values[series + dim] : 0;
+                offsets[dim][i + 1] = offsets[dim][i] + length;
+            }
+            series += numDimensions.values[i];
+            // could be an index, or it could be regression target
+            labelIndexes[i] = raw_labels.get(i).intValue();
+            targetValues[i] = raw_labels.get(i);
         }
-
-        // create timeseries instances object.
-        m_data = new TimeSeriesInstances(raw_data, raw_labels);
+        m_data = TimeSeriesInstances.fromChannelBlocks(blocks, offsets, numDimensions.toArray(), labelIndexes,
+                targetValues, null);
         m_data.setClassLabels(classLabels.toArray(new String[classLabels.size()]));
         m_data.setProblemName(problemName);
         m_data.setHasTimeStamps(timeStamps);
@@ -79,24 +107,51 @@ public class TSReader {
         return m_data;
     }
 
-    private Pair<List<List<Double>>, Double> readMultivariateInstance() throws IOException {
+    String getDescription() {
+        return description;
+    }
+
+    String getProblemName() {
+        return problemName;
+    }
+
+    boolean hasTimeStamps() {
+        return timeStamps;
+    }
+
+    boolean hasClassLabel() {
+        return classLabel;
+    }
+
+    List<String> getClassLabels() {
+        return classLabels;
+    }
+
+    /**
+     * Read an instance into the channel blocks.
+     * @return false at the end of the file
+     * @throws IOException
+     */
+    private boolean readMultivariateInstance() throws IOException {
         getFirstToken();
         if (m_Tokenizer.ttype == StreamTokenizer.TT_EOF) {
-            return null;
+            return false;
         }
 
-        List<List<Double>> multi_timeSeries = new ArrayList<>();
+        int dim = 0;
         String classValue = "";
 
-        ArrayList<Double> timeSeries = new ArrayList<>();
+        ChannelBlock channel = channel(dim);
+        int seriesStart = channel.size;
         do {
             // this means we're about to get the class value
             if (m_Tokenizer.ttype == ':' && classLabel) {
-                // add the current time series to the list.
-                multi_timeSeries.add(timeSeries);
-                timeSeries = new ArrayList<>();
+                // the current time series is complete.
+                seriesLengths.add(channel.size - seriesStart);
+                channel = channel(++dim);
+                seriesStart = channel.size;
             } else {
-                timeSeries.add(m_Tokenizer.sval == "?" ? Double.NaN : m_Tokenizer.nval);
+                channel.add(m_Tokenizer.sval == "?" ? Double.NaN : m_Tokenizer.nval);
                 classValue = m_Tokenizer.sval == null ? "" + m_Tokenizer.nval : m_Tokenizer.sval; // the last value to
                                                                                                   // be tokenized should
                                                                                                   // be the class value.
@@ -107,10 +162,51 @@ public class TSReader {
             m_Tokenizer.nextToken();
         } while (m_Tokenizer.ttype != StreamTokenizer.TT_EOL);
 
-        // don't add the last series to the list, instead extract the first element and
+        // don't keep the last series, instead extract the first element and
         // figure out what the class value is.
-        double classVal = classLabel ? (double) this.classLabels.indexOf(classValue) : -1.0;
-        return new Pair<>(multi_timeSeries, classVal);
+        channel.size = seriesStart;
+        numDimensions.add(dim);
+        raw_labels.add(classLabel ? (double) this.classLabels.indexOf(classValue) : -1.0);
+        return true;
+    }
+
+    private ChannelBlock channel(int dim) {
+        while (channels.size() <= dim)
+            channels.add(new ChannelBlock());
+        return channels.get(dim);
+    }
+
+    /**
+     * A channel's values, grown as they are read.
+     */
+    private static class ChannelBlock {
+        private double[] values = new double[1024];
+        private int size;
+
+        private void add(double value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[size++] = value;
+        }
+
+        private double[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[256];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[size++] = value;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
     }
 
     private void initTokenizer() {
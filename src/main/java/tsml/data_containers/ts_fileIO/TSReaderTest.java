@@ -0,0 +1,40 @@
+package tsml.data_containers.ts_fileIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstances;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class TSReaderTest {
+
+    private static final String FILE = "@problemName Test\n@timeStamps false\n@missing false\n@univariate false\n"
+            + "@dimensions 2\n@equalLength false\n@classLabel true a b\n@data\n"
+            + "1,2,3:4,5:b\n"
+            + "\n"
+            + "6,-0.5:7,8,9,10:a\n"
+            + "11:12:b\n";
+
+    @Test
+    public void testReadsIntoChannelBlocks() throws IOException {
+        TimeSeriesInstances data = new TSReader(new StringReader(FILE)).GetInstances();
+        Assert.assertTrue(data.isContiguous());
+        Assert.assertEquals("Test", data.getProblemName());
+        Assert.assertArrayEquals(new String[]{"a", "b"}, data.getClassLabels());
+        Assert.assertArrayEquals(new int[]{1, 0, 1}, data.getClassIndexes());
+        Assert.assertArrayEquals(new int[]{1, 2}, data.getClassCounts());
+        Assert.assertEquals(1, data.get(0).getTargetValue(), 0);
+        Assert.assertEquals(1, data.getMinLength());
+        Assert.assertEquals(4, data.getMaxLength());
+        Assert.assertTrue(data.isMultivariate());
+        Assert.assertArrayEquals(new double[][][]{
+                {{1, 2, 3}, {4, 5}},
+                {{6, -0.5}, {7, 8, 9, 10}},
+                {{11}, {12}},
+        }, data.toValueArray());
+        Assert.assertArrayEquals(new double[]{1, 2, 3, 6, -0.5, 11}, data.getChannelBlock(0), 0);
+        Assert.assertArrayEquals(new int[]{0, 3, 5, 6}, data.getChannelOffsets(0));
+        Assert.assertArrayEquals(new int[]{0, 2, 6, 7}, data.getChannelOffsets(1));
+    }
+}
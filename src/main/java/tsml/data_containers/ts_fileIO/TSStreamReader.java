@@ -0,0 +1,354 @@
+package tsml.data_containers.ts_fileIO;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import tsml.data_containers.TimeSeries;
+import tsml.data_containers.TimeSeriesInstance;
+import utilities.ThreadingUtilities;
+
+/**
+ * Streaming alternative to TSReader for sktime format data. The header is read up front, then the data lines are
+ * read in batches and parsed on demand, so only a bounded number of instances are held in memory at once. With more
+ * than one thread, batches are parsed ahead of the consumer on a worker pool; instances are always returned in file
+ * order.
+ *
+ * Usage:
+ *   try (TSStreamReader reader = new TSStreamReader(new FileReader(f), 256, 4)) {
+ *       reader.stream().forEach(inst -> ...);
+ *   }
+ */
+public class TSStreamReader implements Iterator<TimeSeriesInstance>, Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final BufferedReader reader;
+    private final int batchSize;
+    private final ExecutorService executor;
+    // number of batches allowed to be parsing ahead of the consumer.
+    private final int maxPendingBatches;
+
+    private final String description;
+    private final String problemName;
+    private final boolean timeStamps;
+    private final boolean classLabel;
+    private final String[] classLabels;
+    private final Map<String, Integer> classLabelIndexes = new HashMap<>();
+
+    private final ArrayDeque<Future<List<TimeSeriesInstance>>> pending = new ArrayDeque<>();
+    private Iterator<TimeSeriesInstance> current = new ArrayList<TimeSeriesInstance>().iterator();
+    private boolean endOfFile = false;
+
+    public TSStreamReader(Reader reader) throws IOException {
+        this(reader, DEFAULT_BATCH_SIZE, 1);
+    }
+
+    public TSStreamReader(Reader reader, int batchSize, int numThreads) throws IOException {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batch size must be positive: " + batchSize);
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.batchSize = batchSize;
+
+        TSReader header = new TSReader(this.reader, false);
+        description = header.getDescription();
+        problemName = header.getProblemName();
+        timeStamps = header.hasTimeStamps();
+        classLabel = header.hasClassLabel();
+        List<String> labels = header.getClassLabels();
+        classLabels = labels == null ? new String[0] : labels.toArray(new String[0]);
+        for (int i = 0; i < classLabels.length; i++)
+            classLabelIndexes.put(classLabels[i], i);
+
+        if (numThreads > 1) {
+            executor = ThreadingUtilities.buildExecutorService(numThreads);
+            maxPendingBatches = numThreads * 2;
+        } else {
+            executor = null;
+            maxPendingBatches = 1;
+        }
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getProblemName() {
+        return problemName;
+    }
+
+    public boolean hasTimeStamps() {
+        return timeStamps;
+    }
+
+    public String[] getClassLabels() {
+        return classLabels;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            fill();
+            if (pending.isEmpty())
+                return false;
+            current = take(pending.poll()).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public TimeSeriesInstance next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return current.next();
+    }
+
+    /**
+     * @return a sequential stream over the remaining instances, in file order. Closing the stream closes this reader.
+     */
+    public Stream<TimeSeriesInstance> stream() {
+        Spliterator<TimeSeriesInstance> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (executor != null)
+            executor.shutdownNow();
+        reader.close();
+    }
+
+    // read batches of lines until enough are queued for parsing, or the file runs out.
+    private void fill() {
+        while (!endOfFile && pending.size() < maxPendingBatches) {
+            final List<String> lines = readLines();
+            if (lines.isEmpty())
+                break;
+            Callable<List<TimeSeriesInstance>> job = () -> parseLines(lines);
+            if (executor != null) {
+                pending.add(executor.submit(job));
+            } else {
+                FutureTask<List<TimeSeriesInstance>> task = new FutureTask<>(job);
+                task.run();
+                pending.add(task);
+            }
+        }
+    }
+
+    private List<String> readLines() {
+        final List<String> lines = new ArrayList<>(batchSize);
+        try {
+            String line;
+            while (lines.size() < batchSize) {
+                line = reader.readLine();
+                if (line == null) {
+                    endOfFile = true;
+                    break;
+                }
+                line = line.trim();
+                if (!line.isEmpty() && line.charAt(0) != '#')
+                    lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    private static List<TimeSeriesInstance> take(Future<List<TimeSeriesInstance>> batch) {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private List<TimeSeriesInstance> parseLines(List<String> lines) {
+        final List<TimeSeriesInstance> instances = new ArrayList<>(lines.size());
+        double[] buffer = new double[64];
+        for (String line : lines) {
+            final List<TimeSeries> dimensions = new ArrayList<>();
+            int labelIndex = -1;
+            int start = 0;
+            while (start < line.length()) {
+                int end = line.indexOf(':', start);
+                if (end < 0)
+                    end = line.length();
+
+                // with class labels the final section is the label rather than a dimension.
+                if (classLabel && end == line.length()) {
+                    labelIndex = labelIndex(line.substring(start).trim());
+                    break;
+                }
+
+                int count = 0;
+                int pos = start;
+                while (pos < end) {
+                    int next = line.indexOf(',', pos);
+                    if (next < 0 || next > end)
+                        next = end;
+                    if (isBlank(line, pos, next)) {
+                        // tolerate stray separators, as TSReader does.
+                        pos = next + 1;
+                        continue;
+                    }
+                    if (count == buffer.length)
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffer[count++] = parseValue(line, pos, next);
+                    pos = next + 1;
+                }
+                dimensions.add(TimeSeries.wrap(Arrays.copyOf(buffer, count)));
+                start = end + 1;
+            }
+            instances.add(new TimeSeriesInstance(labelIndex, dimensions));
+        }
+        return instances;
+    }
+
+    private static boolean isBlank(String str, int start, int end) {
+        for (int i = start; i < end; i++)
+            if (str.charAt(i) > ' ')
+                return false;
+        return true;
+    }
+
+    private int labelIndex(String label) {
+        Integer index = classLabelIndexes.get(label);
+        if (index == null) {
+            // TSReader stores numeric labels in their parsed form, e.g. 1 as 1.0
+            try {
+                index = classLabelIndexes.get("" + Double.parseDouble(label));
+            } catch (NumberFormatException ignored) {}
+        }
+        return index == null ? -1 : index;
+    }
+
+    // 10^0 to 10^22 are exactly representable as doubles.
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parse a decimal number from str[start, end), surrounding whitespace allowed, ? meaning missing. Values with at
+     * most 15 significant digits and a small exponent are computed directly with a single exactly rounded multiply or
+     * divide, anything else falls back to Double.parseDouble, so the result always matches Double.parseDouble.
+     */
+    static double parseValue(String str, int start, int end) {
+        while (start < end && str.charAt(start) <= ' ')
+            start++;
+        while (end > start && str.charAt(end - 1) <= ' ')
+            end--;
+        if (start == end)
+            throw new NumberFormatException("empty value");
+        if (end - start == 1 && str.charAt(start) == '?')
+            return Double.NaN;
+
+        int pos = start;
+        boolean negative = false;
+        char c = str.charAt(pos);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+        for (; pos < end; pos++) {
+            c = str.charAt(pos);
+            if (c < '0' || c > '9')
+                break;
+            seenDigit = true;
+            if (mantissa == 0 && c == '0')
+                continue;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+            } else {
+                exponent++;
+            }
+        }
+        if (pos < end && str.charAt(pos) == '.') {
+            pos++;
+            for (; pos < end; pos++) {
+                c = str.charAt(pos);
+                if (c < '0' || c > '9')
+                    break;
+                seenDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    exponent--;
+                    continue;
+                }
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    exponent--;
+                }
+            }
+        }
+        if (pos < end && (str.charAt(pos) == 'e' || str.charAt(pos) == 'E')) {
+            // rare in these files, not worth a fast path.
+            return Double.parseDouble(str.substring(start, end));
+        }
+        if (pos != end || !seenDigit)
+            return Double.parseDouble(str.substring(start, end));
+
+        if (digits > 15 || exponent < -22 || exponent > 22)
+            return Double.parseDouble(str.substring(start, end));
+
+        double value = mantissa;
+        if (exponent < 0)
+            value /= POWERS_OF_TEN[-exponent];
+        else
+            value *= POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File f = new File(args[0]);
+        long time = System.nanoTime();
+        int count = 0;
+        try (TSStreamReader reader = new TSStreamReader(new FileReader(f), DEFAULT_BATCH_SIZE, Runtime.getRuntime().availableProcessors())) {
+            while (reader.hasNext()) {
+                reader.next();
+                count++;
+            }
+        }
+        System.out.println(count + " instances in " + (System.nanoTime() - time) / 1000000 + "ms");
+    }
+}
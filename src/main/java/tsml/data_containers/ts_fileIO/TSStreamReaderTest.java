@@ -0,0 +1,68 @@
+package tsml.data_containers.ts_fileIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class TSStreamReaderTest {
+
+    private static String file(int numInstances) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("#comment\n@problemName Test\n@timeStamps false\n@missing true\n@univariate false\n");
+        sb.append("@dimensions 2\n@equalLength false\n@classLabel true 1 2 3\n@data\n");
+        Random random = new Random(0);
+        for (int i = 0; i < numInstances; i++) {
+            for (int dim = 0; dim < 2; dim++) {
+                int length = 3 + random.nextInt(5);
+                for (int j = 0; j < length; j++) {
+                    if (j > 0)
+                        sb.append(',');
+                    sb.append(Math.round(random.nextGaussian() * 1e6) / 1e4);
+                }
+                sb.append(':');
+            }
+            sb.append(1 + i % 3).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testMatchesTSReader() throws IOException {
+        String contents = file(100);
+        TimeSeriesInstances expected = new TSReader(new StringReader(contents)).GetInstances();
+        for (int numThreads : new int[]{1, 3}) {
+            try (TSStreamReader reader = new TSStreamReader(new StringReader(contents), 7, numThreads)) {
+                Assert.assertEquals("Test", reader.getProblemName());
+                Assert.assertArrayEquals(expected.getClassLabels(), reader.getClassLabels());
+                List<TimeSeriesInstance> instances = reader.stream().collect(Collectors.toList());
+                Assert.assertEquals(expected.numInstances(), instances.size());
+                for (int i = 0; i < instances.size(); i++) {
+                    Assert.assertEquals(expected.get(i).getLabelIndex(), instances.get(i).getLabelIndex());
+                    Assert.assertArrayEquals(expected.get(i).toValueArray(), instances.get(i).toValueArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParseValue() {
+        String[] values = {"0", "-0", "1", "-1.5", "0.001", "123456.789", ".5", "1.", "3.141592653589793",
+                "12345678901234567890", "0.000000000000000000000000001", " 42 ", "1e-5", "-2.5E10", "NaN"};
+        for (String value : values)
+            Assert.assertEquals(value, Double.parseDouble(value), TSStreamReader.parseValue(value, 0, value.length()), 0);
+        Assert.assertTrue(Double.isNaN(TSStreamReader.parseValue("?", 0, 1)));
+
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            String value = String.valueOf(random.nextDouble() * Math.pow(10, random.nextInt(20) - 10));
+            Assert.assertEquals(value, Double.parseDouble(value), TSStreamReader.parseValue(value, 0, value.length()), 0);
+        }
+    }
+}
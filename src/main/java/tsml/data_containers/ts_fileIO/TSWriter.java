@@ -73,8 +73,8 @@ public class TSWriter {
         for(TimeSeriesInstance inst : data){
             for(TimeSeries ts : inst){
                 
-                for(Double d : ts.getSeries())
-                    sb.append(df.format(d.doubleValue())).append(",");
+                for(int i = 0; i < ts.getSeriesLength(); ++i)
+                    sb.append(df.format(ts.get(i))).append(",");
                 sb.replace(sb.length()-1,sb.length(),":"); //we use colon to separate dimensions, overwriter the last comma.
             }
             sb.append(data.getClassLabels()[inst.getLabelIndex()]); //append the class label.
@@ -5,8 +5,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.ArrayUtils;
 
+import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
 import weka.core.Attribute;
@@ -75,7 +75,6 @@ public class Converter {
     }
 
     public static Instances toArff(TimeSeriesInstances  data){
-        double[][][] values = data.toValueArray();
         int[] classIndexes = data.getClassIndexes();
         String[] classLabels = data.getClassLabels();
 
@@ -108,8 +107,9 @@ public class Converter {
                 //each dense instance is row/ which is actually a channel.
                 for(int j=0; j< data.get(i).getNumDimensions(); j++){
                     double[] vals = new double[numAttributes];
-                    System.arraycopy(values[i][j], 0, vals, 0, values[i][j].length);
-                    for(int k=values[i][j].length; k<numAttributes; k++)
+                    TimeSeries ts = data.get(i).get(j);
+                    ts.copyTo(vals, 0);
+                    for(int k=ts.getSeriesLength(); k<numAttributes; k++)
                         vals[k] =  Double.NaN; //all missing values are NaN.
                     relational.add(new DenseInstance(1.0, vals));
                 }       
@@ -141,8 +141,9 @@ public class Converter {
         for (int i = 0; i < data.numInstances(); i++) {
             //we know it's univariate so it has only one dimension.
             double[] vals = new double[numAttributes+1];
-            System.arraycopy(values[i][0], 0, vals, 0, values[i][0].length);
-            for(int j=values[i][0].length; j<numAttributes; j++)
+            TimeSeries ts = data.get(i).get(0);
+            ts.copyTo(vals, 0);
+            for(int j=ts.getSeriesLength(); j<numAttributes; j++)
                 vals[j] =  Double.NaN; //all missing values are NaN.
             vals[vals.length-1] = (double)classIndexes[i]; //put class val at the end.
             output.add(new DenseInstance(1.0, vals));
@@ -155,8 +156,13 @@ public class Converter {
 
     public static Instance toArff(TimeSeriesInstance data){
         int numChannels = data.getNumDimensions();
-        if(numChannels == 1)
-            return new DenseInstance(1.0, ArrayUtils.add(data.toValueArray()[0], data.getLabelIndex()));
+        if(numChannels == 1){
+            TimeSeries ts = data.get(0);
+            double[] vals = new double[ts.getSeriesLength() + 1];
+            ts.copyTo(vals, 0);
+            vals[vals.length - 1] = data.getLabelIndex();
+            return new DenseInstance(1.0, vals);
+        }
 
 
         int numAttributes = data.getMaxLength();
@@ -192,6 +198,105 @@ public class Converter {
         return output;
     }
 
+    /**
+     * Convert a single instance so that it belongs to header, e.g. the (empty) result of converting the train data.
+     * Univariate series are copied once straight into the weka value array. Series shorter than the header are
+     * padded with NaN, as toArff(TimeSeriesInstances) pads unequal length data. To convert many instances against the
+     * same header use a HeaderConverter, which builds the dataset multivariate instances belong to once.
+     * @param data
+     * @param header
+     * @return Instance
+     * @throws IllegalArgumentException if a series is longer than the header allows, or a univariate header is given
+     * a multivariate instance.
+     */
+    public static Instance toArff(TimeSeriesInstance data, Instances header){
+        return new HeaderConverter(header).toArff(data);
+    }
+
+    /**
+     * Converts single instances against a header, as toArff(TimeSeriesInstance, Instances).
+     * <p>
+     * A multivariate instance holds its channels as a relation stored in the relational attribute of its dataset,
+     * and adding a relation to the header's attribute would grow it on every call. So converted instances belong to a
+     * two attribute dataset sharing the relational and class definitions of the header, built here once and reused
+     * for RELATIONS_PER_DATASET instances before starting another, so only the values are copied per call. Instances
+     * converted earlier keep their own dataset.
+     */
+    public static class HeaderConverter {
+
+        // the number of instances converted into a dataset before starting another, bounding the relations held
+        private static final int RELATIONS_PER_DATASET = 1024;
+
+        private final Instances header;
+        // the dataset multivariate instances are converted into, null until needed
+        private Instances dataset;
+
+        public HeaderConverter(Instances header){
+            this.header = header;
+        }
+
+        public Instances getHeader(){
+            return header;
+        }
+
+        /**
+         * @param data
+         * @return the instance as a weka Instance belonging to the header, or for multivariate data a dataset with
+         * the header's attributes.
+         * @throws IllegalArgumentException if a series is longer than the header allows, or a univariate header is
+         * given a multivariate instance.
+         */
+        public Instance toArff(TimeSeriesInstance data){
+            if(!header.attribute(0).isRelationValued()){
+                final int numAttributes = header.numAttributes() - 1;
+                if(data.getNumDimensions() != 1)
+                    throw new IllegalArgumentException("header is univariate but the instance has " + data.getNumDimensions() + " channels");
+                final TimeSeries ts = data.get(0);
+                final int length = ts.getSeriesLength();
+                if(length > numAttributes)
+                    throw new IllegalArgumentException("series of length " + length + " is longer than the header's " + numAttributes);
+                final double[] vals = new double[header.numAttributes()];
+                ts.copyTo(vals, 0);
+                for(int j=length; j<numAttributes; j++)
+                    vals[j] = Double.NaN; //all missing values are NaN.
+                // the class attribute is last, as produced by toArff(TimeSeriesInstances).
+                vals[vals.length - 1] = data.getLabelIndex();
+                final Instance output = new DenseInstance(1.0, vals);
+                output.setDataset(header);
+                return output;
+            }
+
+            final Instances relationalHeader = header.attribute(0).relation();
+            final int numAttributes = relationalHeader.numAttributes();
+            final Instances relational = new Instances(relationalHeader, data.getNumDimensions());
+            for(TimeSeries ts : data){
+                final int length = ts.getSeriesLength();
+                if(length > numAttributes)
+                    throw new IllegalArgumentException("series of length " + length + " is longer than the header's " + numAttributes);
+                final double[] vals = new double[numAttributes];
+                ts.copyTo(vals, 0);
+                for(int k=length; k<numAttributes; k++)
+                    vals[k] = Double.NaN; //all missing values are NaN.
+                relational.add(new DenseInstance(1.0, vals));
+            }
+
+            final Instance output = new DenseInstance(2);
+            synchronized(this){
+                if(dataset == null || dataset.attribute(0).numValues() >= RELATIONS_PER_DATASET){
+                    final ArrayList<Attribute> attributes = new ArrayList<>(2);
+                    attributes.add(new Attribute(header.attribute(0).name(), relationalHeader, 0));
+                    attributes.add(header.classAttribute().copy(header.classAttribute().name()));
+                    dataset = new Instances(header.relationName(), attributes, 0);
+                    dataset.setClassIndex(header.classIndex());
+                }
+                output.setDataset(dataset);
+                output.setValue(0, dataset.attribute(0).addRelation(relational));
+            }
+            output.setValue(1, (double)data.getLabelIndex());
+            return output;
+        }
+    }
+
     private static ArrayList<Attribute> createAttributes(int numAttributes) {
         ArrayList<Attribute> relational_atts = new ArrayList<>();
         for (int i = 0; i < numAttributes; i++) {
@@ -0,0 +1,92 @@
+package tsml.data_containers.utilities;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import weka.core.Instance;
+import weka.core.Instances;
+
+public class ConverterTest {
+
+    private static void assertConvertsAgainstHeader(Instances arff) {
+        TimeSeriesInstances data = Converter.fromArff(arff);
+        Instances converted = Converter.toArff(data);
+        Instances header = new Instances(converted, 0);
+        for (int i = 0; i < data.numInstances(); i++) {
+            Instance expected = converted.get(i);
+            Instance actual = Converter.toArff(data.get(i), header);
+            Assert.assertEquals(expected.classValue(), actual.classValue(), 0);
+            Assert.assertEquals(expected.numAttributes(), actual.numAttributes());
+            if (expected.attribute(0).isRelationValued()) {
+                Instances expectedSeries = expected.relationalValue(0);
+                Instances actualSeries = actual.relationalValue(0);
+                Assert.assertEquals(expectedSeries.numInstances(), actualSeries.numInstances());
+                for (int j = 0; j < expectedSeries.numInstances(); j++)
+                    Assert.assertArrayEquals(expectedSeries.get(j).toDoubleArray(), actualSeries.get(j).toDoubleArray(), 0);
+            } else {
+                Assert.assertArrayEquals(expected.toDoubleArray(), actual.toDoubleArray(), 0);
+                Assert.assertArrayEquals(expected.toDoubleArray(), Converter.toArff(data.get(i)).toDoubleArray(), 0);
+            }
+        }
+        // converting test instances must not grow the header.
+        Assert.assertEquals(0, header.numInstances());
+    }
+
+    @Test
+    public void testUnivariateAgainstHeader() throws Exception {
+        assertConvertsAgainstHeader(DatasetLoading.sampleItalyPowerDemand(0)[1]);
+    }
+
+    @Test
+    public void testMultivariateAgainstHeader() throws Exception {
+        assertConvertsAgainstHeader(DatasetLoading.sampleBasicMotions(0)[1]);
+    }
+
+    @Test
+    public void testHeaderConverterReusesDataset() throws Exception {
+        Instances arff = DatasetLoading.sampleBasicMotions(0)[1];
+        TimeSeriesInstances data = Converter.fromArff(arff);
+        Instances converted = Converter.toArff(data);
+        Instances header = new Instances(converted, 0);
+        int numRelations = header.attribute(0).numValues();
+        Converter.HeaderConverter converter = new Converter.HeaderConverter(header);
+        Instance first = converter.toArff(data.get(0));
+        Instance second = converter.toArff(data.get(1));
+        Assert.assertSame(first.dataset(), second.dataset());
+        // enough conversions to start another dataset, the instances converted earlier keep their values
+        Instance last = null;
+        for (int i = 0; i < 2000; i++)
+            last = converter.toArff(data.get(i % data.numInstances()));
+        Assert.assertNotSame(first.dataset(), last.dataset());
+        Assert.assertTrue(last.dataset().attribute(0).numValues() < 2000);
+        for (Instance actual : new Instance[] {first, second}) {
+            int i = actual == first ? 0 : 1;
+            Instances expectedSeries = converted.get(i).relationalValue(0);
+            Instances actualSeries = actual.relationalValue(0);
+            for (int j = 0; j < expectedSeries.numInstances(); j++)
+                Assert.assertArrayEquals(expectedSeries.get(j).toDoubleArray(), actualSeries.get(j).toDoubleArray(), 0);
+        }
+        Assert.assertEquals(0, header.numInstances());
+        Assert.assertEquals(numRelations, header.attribute(0).numValues());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsLongerSeries() throws Exception {
+        Instances arff = DatasetLoading.sampleItalyPowerDemand(0)[1];
+        Instances header = new Instances(Converter.toArff(Converter.fromArff(arff)), 0);
+        Converter.toArff(new TimeSeriesInstance(new double[][]{new double[arff.numAttributes()]}, 0), header);
+    }
+
+    @Test
+    public void testPadsShorterSeries() throws Exception {
+        Instances arff = DatasetLoading.sampleItalyPowerDemand(0)[1];
+        Instances header = new Instances(Converter.toArff(Converter.fromArff(arff)), 0);
+        Instance converted = Converter.toArff(new TimeSeriesInstance(new double[][]{{1, 2}}, 1), header);
+        Assert.assertEquals(header.numAttributes(), converted.numAttributes());
+        Assert.assertEquals(2, converted.value(1), 0);
+        Assert.assertTrue(Double.isNaN(converted.value(2)));
+        Assert.assertEquals(1, converted.classValue(), 0);
+    }
+}
@@ -3,11 +3,9 @@ package tsml.transformers;
 import experiments.data.DatasetLists;
 import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
+import utilities.FFTEngine;
 import utilities.InstanceTools;
 
-import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.DftNormalization;
-import org.apache.commons.math3.transform.FastFourierTransformer;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
@@ -17,7 +15,6 @@ import weka.filters.SimpleBatchFilter;
 import java.util.ArrayList;
 
 import static experiments.data.DatasetLoading.loadDataNullable;
-import static org.apache.commons.math3.transform.TransformType.FORWARD;
 
 public class AudioFeatures implements Transformer {
 
@@ -65,13 +62,9 @@ public class AudioFeatures implements Transformer {
 
         int nfft = fs;
         nfft = nearestPowerOF2(nfft);
-        Complex[] complexData = new Complex[nfft];
+        FFTEngine engine = FFTEngine.forSize(nfft);
+        double[] complexData = engine.getWorkspace();
         double[] spectralMag = new double[nfft / 2];
-        FastFourierTransformer fft = new FastFourierTransformer(DftNormalization.STANDARD);
-
-        for (int i = 0; i < complexData.length; i++) {
-            complexData[i] = new Complex(0.0, 0.0);
-        }
 
         double mean = 0;
         if (series.length < nfft) {
@@ -83,15 +76,16 @@ public class AudioFeatures implements Transformer {
 
         for (int i = 0; i < nfft; i++) {
             if (i < series.length)
-                complexData[i] = new Complex(series[i], 0);
+                complexData[i] = series[i];
             else
-                complexData[i] = new Complex(mean, 0);
+                complexData[i] = mean;
         }
 
-        complexData = fft.transform(complexData, FORWARD);
+        engine.realForward(complexData);
 
         for (int i = 0; i < (nfft / 2); i++) {
-            spectralMag[i] = complexData[i].abs();
+            spectralMag[i] = Math.sqrt(complexData[2 * i] * complexData[2 * i]
+                    + complexData[2 * i + 1] * complexData[2 * i + 1]);
         }
 
 
@@ -1,9 +1,12 @@
 package tsml.transformers;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.ToLongBiFunction;
 
+import com.carrotsearch.sizeof.RamUsageEstimator;
+import tsml.classifiers.distance_based.utils.collections.cache.BoundedCache;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
 
@@ -19,34 +22,39 @@ import weka.core.Instances;
  * be hashed first to use the cache reliably otherwise issues occur with
  * instance copying changing the hashcode due to memory locations.
  * <p>
+ * The cache is unbounded by default. It can be bounded by entry count and / or
+ * estimated size in bytes, evicting by LRU or TinyLFU (see BoundedCache), and
+ * made thread safe for sharing between threads. Changing the bounds or eviction
+ * takes effect on the next fit.
+ * <p>
  * Contributors: goastler, abostrom
  */
 public class CachedTransformer extends BaseTrainableTransformer {
 
-    public static class TransformedInstance implements Serializable {
-        private TransformedInstance(final Instance instance) {
-            this.instance = instance;
-        }
-
-        private Instance instance;
-
-        public Instance getInstance() {
-            return instance;
-        }
-
-        public void setInstance(final Instance instance) {
-            this.instance = instance;
-        }
-    }
+    // estimates the memory held by a cache entry
+    private static final ToLongBiFunction<Object, Object> WEIGHER =
+            (ToLongBiFunction<Object, Object> & Serializable) CachedTransformer::estimateBytes;
 
     // the filter to cache the output of
     private Transformer transformer;
     // whether to only cache instances from the fit() call OR all instances handed
     // to the transform method
     private boolean cacheFittedDataOnly;
-
-    // the cache to store instances against their corresponding transform output
-    private Map<Instance, TransformedInstance> cache;
+    // the cache policy
+    private BoundedCache.Eviction eviction = BoundedCache.Eviction.LRU;
+    private long maxEntries = Long.MAX_VALUE;
+    private long maxBytes = Long.MAX_VALUE;
+    private boolean threadSafe = false;
+
+    // the cache to store instances against their corresponding transform output. The caches and sets are replaced
+    // whole on fit, so a transformer shared between threads can be fitted by one while another transforms
+    private volatile BoundedCache<Instance, Instance> cache;
+    // the cache to store instances against their corresponding output
+    private volatile BoundedCache<TimeSeriesInstance, TimeSeriesInstance> ts_cache;
+    // the instances which may be cached if only caching fitted data
+    private volatile Set<Instance> fittedData;
+    private volatile Set<TimeSeriesInstance> ts_fittedData;
+    private boolean isFitTS;
 
     public CachedTransformer(final Transformer transformer) {
         setTransformer(transformer);
@@ -54,6 +62,13 @@ public class CachedTransformer extends BaseTrainableTransformer {
         reset();
     }
 
+    public CachedTransformer(final Transformer transformer, final BoundedCache<Instance, Instance> cache,
+            final BoundedCache<TimeSeriesInstance, TimeSeriesInstance> ts_cache) {
+        this.transformer = transformer;
+        this.cache = cache;
+        this.ts_cache = ts_cache;
+    }
+
     public boolean isCacheFittedDataOnly() {
         return cacheFittedDataOnly;
     }
@@ -62,40 +77,70 @@ public class CachedTransformer extends BaseTrainableTransformer {
         this.cacheFittedDataOnly = cacheFittedDataOnly;
     }
 
-    // the cache to store instances against their corresponding output
-    private Map<TimeSeriesInstance, TimeSeriesInstance> ts_cache;
-
-    public CachedTransformer(final Transformer transformer, final Map<Instance, TransformedInstance> cache,
-            final Map<TimeSeriesInstance, TimeSeriesInstance> ts_cache) {
-        this.transformer = transformer;
-        this.cache = cache;
-        this.ts_cache = ts_cache;
-    }
-
     public void reset() {
         super.reset();
         cache = null;
-        ts_cache = new HashMap<>();
+        fittedData = null;
+        ts_cache = buildCache();
+        ts_fittedData = null;
+        isFitTS = false;
+    }
+
+    private <A, B> BoundedCache<A, B> buildCache() {
+        if(threadSafe) {
+            return BoundedCache.synchronizedCache(eviction, maxEntries, maxBytes, WEIGHER);
+        } else {
+            return new BoundedCache<>(eviction, maxEntries, maxBytes, WEIGHER);
+        }
+    }
+
+    /**
+     * estimate the memory held by a cache entry. Weka instances reference their dataset, so only the values are
+     * counted, and keys are assumed to be held elsewhere anyway.
+     */
+    private static long estimateBytes(final Object key, final Object value) {
+        if(value instanceof Instance) {
+            final Instance instance = (Instance) value;
+            return RamUsageEstimator.shallowSizeOf(instance) + estimateArrayBytes(instance.numValues());
+        } else if(value instanceof TimeSeriesInstance) {
+            final TimeSeriesInstance instance = (TimeSeriesInstance) value;
+            long bytes = RamUsageEstimator.shallowSizeOf(instance);
+            for(int i = 0; i < instance.getNumDimensions(); i++) {
+                bytes += estimateArrayBytes(instance.get(i).getSeriesLength());
+            }
+            return bytes;
+        } else {
+            return RamUsageEstimator.sizeOf(value);
+        }
+    }
+
+    private static long estimateArrayBytes(final int length) {
+        return RamUsageEstimator.alignObjectSize(
+                RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_DOUBLE * length);
     }
 
     @Override
     public void fit(final Instances data) {
+        // make the set match the size of the data. Load factor of 1 should mean the
+        // hashset will not expand and waste cpu time
+        final Set<Instance> fittedData = new HashSet<>(data.size(), 1);
+        fittedData.addAll(data);
+        // only publish the set once filled
+        this.fittedData = fittedData;
+        cache = buildCache();
         super.fit(data);
-        // make the cache match the size of the data (as that is the max expected cache
-        // entries at any point in time)
-        // . Load factor of 1 should mean if no more than data size instances are added,
-        // the hashmap will not expand
-        // and waste cpu time
-        cache = new HashMap<>(data.size(), 1);
-        for (final Instance instance : data) {
-            cache.put(instance, new TransformedInstance(null));
-        }
     }
 
     @Override
     public void fit(final TimeSeriesInstances data) {
-        // TODO Auto-generated method stub
-
+        final Set<TimeSeriesInstance> ts_fittedData = new HashSet<>(data.numInstances(), 1);
+        for (final TimeSeriesInstance instance : data) {
+            ts_fittedData.add(instance);
+        }
+        // only publish the set once filled
+        this.ts_fittedData = ts_fittedData;
+        ts_cache = buildCache();
+        isFitTS = true;
     }
 
     @Override
@@ -112,7 +157,7 @@ public class CachedTransformer extends BaseTrainableTransformer {
         this.transformer = transformer;
     }
 
-    public void setCache(final Map<Instance, TransformedInstance> cache) {
+    public void setCache(final BoundedCache<Instance, Instance> cache) {
         Assert.assertNotNull(cache);
         this.cache = cache;
     }
@@ -122,18 +167,13 @@ public class CachedTransformer extends BaseTrainableTransformer {
         if(!isFit()) {
             throw new IllegalStateException("must be fitted first");
         }
-        TransformedInstance transformedInstance = cache.get(instance);
-        Instance transform;
-        if(transformedInstance == null) {
+        // read the cache once as another thread may fit meanwhile
+        final BoundedCache<Instance, Instance> cache = this.cache;
+        Instance transform = cache.get(instance);
+        if(transform == null) {
             transform = transformer.transform(instance);
-            if(!cacheFittedDataOnly) {
-                cache.put(instance, new TransformedInstance(transform));
-            }
-        } else {
-            transform = transformedInstance.getInstance();
-            if(transform == null) {
-                transform = transformer.transform(instance);
-                transformedInstance.setInstance(transform);
+            if(!cacheFittedDataOnly || fittedData.contains(instance)) {
+                cache.put(instance, transform);
             }
         }
         return transform;
@@ -141,12 +181,18 @@ public class CachedTransformer extends BaseTrainableTransformer {
 
     @Override
     public TimeSeriesInstance transform(TimeSeriesInstance inst) {
-        // if the key is not in the map, transform and store it.
-        if (!ts_cache.containsKey(inst)) {
-            ts_cache.put(inst, transformer.transform(inst));
+        // if the key is not in the cache, transform and store it.
+        // read the cache once as another thread may fit meanwhile
+        final BoundedCache<TimeSeriesInstance, TimeSeriesInstance> ts_cache = this.ts_cache;
+        TimeSeriesInstance transform = ts_cache.get(inst);
+        if (transform == null) {
+            transform = transformer.transform(inst);
+            // only restrict to the fitted data if fitted, else there's nothing to restrict to
+            if (!cacheFittedDataOnly || !isFitTS || ts_fittedData.contains(inst)) {
+                ts_cache.put(inst, transform);
+            }
         }
-
-        return ts_cache.get(inst);
+        return transform;
     }
 
     @Override
@@ -158,14 +204,65 @@ public class CachedTransformer extends BaseTrainableTransformer {
         return transformer;
     }
 
-    public Map<Instance, TransformedInstance> getCache() {
+    public BoundedCache<Instance, Instance> getCache() {
         return cache;
     }
 
-    public Map<TimeSeriesInstance, TimeSeriesInstance> getTSCache() {
+    public BoundedCache<TimeSeriesInstance, TimeSeriesInstance> getTSCache() {
         return ts_cache;
     }
 
+    public BoundedCache.Eviction getEviction() {
+        return eviction;
+    }
+
+    public void setEviction(final BoundedCache.Eviction eviction) {
+        Assert.assertNotNull(eviction);
+        this.eviction = eviction;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @param maxEntries the max number of cached transforms, Long.MAX_VALUE for no bound
+     */
+    public void setMaxEntries(final long maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @param maxBytes the max estimated size in bytes of the cached transforms, Long.MAX_VALUE for no bound
+     */
+    public void setMaxBytes(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isThreadSafe() {
+        return threadSafe;
+    }
+
+    /**
+     * @param threadSafe whether the caches can be shared between threads. Unlike the rest of the policy this takes
+     *                   effect at once, replacing the current caches with empty ones
+     */
+    public void setThreadSafe(final boolean threadSafe) {
+        if(this.threadSafe != threadSafe) {
+            this.threadSafe = threadSafe;
+            if(cache != null) {
+                cache = buildCache();
+            }
+            if(ts_cache != null) {
+                ts_cache = buildCache();
+            }
+        }
+    }
+
     @Override
     public void setParams(final ParamSet paramSet) throws Exception {
         super.setParams(paramSet);
@@ -15,7 +15,9 @@
 
 package tsml.transformers;
 
+import utilities.FFTEngine;
 import utilities.GenericTools;
+import utilities.ThreadingUtilities;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
@@ -23,7 +25,11 @@ import weka.core.Instances;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
+import tsml.classifiers.MultiThreadable;
 import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
 
@@ -46,7 +52,7 @@ import static utilities.Utilities.extractTimeSeries;
  *
  * @author Matthew Middlehurst
  */
-public class Catch22 implements Transformer {
+public class Catch22 implements Transformer, MultiThreadable {
 
     // z-norm before transform
     private boolean norm = false;
@@ -54,15 +60,12 @@ public class Catch22 implements Transformer {
     // large positive/negative values
     private boolean outlierNorm = false;
 
+    // threads for the batch transform, see transform(double[][])
+    private int numThreads = 1;
+
     // for summary stat by index
-    private int currentSeriesIndex = Integer.MIN_VALUE;
-    private double idxMin;
-    private double idxMax;
-    private double idxMean;
-    private FFT.Complex[] idxFFT;
-    private double[] idxAC;
-    private double[] idxOutlierSeries;
-    private double[] idxSeries;
+    private transient int currentSeriesIndex = Integer.MIN_VALUE;
+    private transient SeriesContext currentSeries;
 
     public Catch22() {
     }
@@ -75,6 +78,15 @@ public class Catch22 implements Transformer {
         this.outlierNorm = b;
     }
 
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
     @Override
     public Instance transform(Instance inst) {
         double[] arr = extractTimeSeries(inst);
@@ -96,6 +108,26 @@ public class Catch22 implements Transformer {
         return new TimeSeriesInstance(out, inst.getLabelIndex());
     }
 
+    @Override
+    public Instances transform(Instances data) {
+        double[][] series = new double[data.numInstances()][];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = extractTimeSeries(data.get(i));
+        }
+        double[][] features = transform(series);
+
+        Instances output = determineOutputFormat(data);
+        for (int i = 0; i < features.length; i++) {
+            double[] featureSet = features[i];
+            if (data.classIndex() >= 0) {
+                featureSet = Arrays.copyOf(featureSet, 23);
+                featureSet[22] = data.get(i).classValue();
+            }
+            output.add(new DenseInstance(1, featureSet));
+        }
+        return output;
+    }
+
     @Override
     public Instances determineOutputFormat(Instances data) throws IllegalArgumentException {
         ArrayList<Attribute> atts = new ArrayList<>();
@@ -117,79 +149,12 @@ public class Catch22 implements Transformer {
         int atts = classValue == Double.MIN_VALUE ? 22 : 23;
         double[] featureSet = new double[atts];
 
-        double[] arr;
-        double[] outlierArr;
-        if (norm) {
-            arr = new double[series.length];
-            System.arraycopy(series, 0, arr, 0, series.length);
-            zNormalise(arr);
-            outlierArr = arr;
-        } else if (outlierNorm) {
-            arr = series;
-            outlierArr = new double[series.length];
-            System.arraycopy(series, 0, outlierArr, 0, series.length);
-            zNormalise(outlierArr);
-        } else {
-            arr = series;
-            outlierArr = series;
-        }
-
         // can reduce amount of computation by pre-computing stats and transforms
-        double min = Double.MAX_VALUE;
-        double max = Double.MIN_VALUE;
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i] < min) {
-                min = arr[i];
-            }
-            if (arr[i] > max) {
-                max = arr[i];
-            }
+        SeriesContext context = getSeriesContext(series);
+        for (int i = 0; i < 22; i++) {
+            featureSet[i] = context.getFeature(i);
         }
 
-        double mean = mean(arr);
-
-        int length = (int) FFT.MathsPower2.roundPow2((float) arr.length);
-        if (length < arr.length)
-            length *= 2;
-        FFT.Complex[] fft = new FFT.Complex[length];
-        for (int i = 0; i < arr.length; i++) {
-            fft[i] = new FFT.Complex(arr[i] - mean, 0);
-        }
-        for (int i = arr.length; i < length; i++) {
-            fft[i] = new FFT.Complex(0, 0);
-        }
-        FFT t = new FFT();
-        t.fft(fft, length);
-
-        FFT.Complex[] fftClone = new FFT.Complex[length];
-        for (int i = 0; i < length; i++) {
-            fftClone[i] = (FFT.Complex) fft[i].clone();
-        }
-        double[] ac = autoCorr(arr, fftClone);
-
-        featureSet[0] = histMode5DN(arr, min, max);
-        featureSet[1] = histMode10DN(arr, min, max);
-        featureSet[2] = binaryStatsMeanLongstretch1SB(arr, mean);
-        featureSet[3] = outlierIncludeP001mdrmdDN(outlierArr);
-        featureSet[4] = outlierIncludeN001mdrmdDN(outlierArr);
-        featureSet[5] = f1ecacCO(ac);
-        featureSet[6] = firstMinacCO(ac);
-        featureSet[7] = summariesWelchRectArea51SP(arr, fft);
-        featureSet[8] = summariesWelchRectCentroidSP(arr, fft);
-        featureSet[9] = localSimpleMean3StderrFC(arr);
-        featureSet[10] = trev1NumCO(arr);
-        featureSet[11] = histogramAMIeven25CO(arr, min, max);
-        featureSet[12] = autoMutualInfoStats40GaussianFmmiIN(ac);
-        featureSet[13] = hrvClassicPnn40MD(arr);
-        featureSet[14] = binaryStatsDiffLongstretch0SB(arr);
-        featureSet[15] = motifThreeQuantileHhSB(arr);
-        featureSet[16] = localSimpleMean1TauresratFC(arr, ac);
-        featureSet[17] = embed2DistTauDExpfitMeandiffCO(arr, ac);
-        featureSet[18] = fluctAnal2Dfa5012LogiPropR1SC(arr);
-        featureSet[19] = fluctAnal2Rsrangefit501LogiPropR1SC(arr);
-        featureSet[20] = transitionMatrix3acSumdiagcovSB(arr, ac);
-        featureSet[21] = periodicityWangTh001PD(arr);
-
         if (classValue > Double.MIN_VALUE) featureSet[22] = classValue;
 
         for (int i = 0; i < featureSet.length; i++){
@@ -201,162 +166,209 @@ public class Catch22 implements Transformer {
         return featureSet;
     }
 
+    /**
+     * The 22 features of each series, as transform(double[]) finds them. Series are split between threads if
+     * multithreading is enabled, the features do not depend on the number of threads.
+     *
+     * @param series the series, one per row, without class values
+     * @return the features, one row per series
+     */
+    public double[][] transform(double[][] series) {
+        double[][] features = new double[series.length][];
+        if (numThreads <= 1 || series.length < 2) {
+            for (int i = 0; i < series.length; i++) {
+                features[i] = transform(series[i]);
+            }
+            return features;
+        }
+
+        // a few blocks per thread, so uneven series lengths even out
+        int numBlocks = Math.min(series.length, numThreads * 4);
+        List<Callable<Void>> tasks = new ArrayList<>(numBlocks);
+        for (int b = 0; b < numBlocks; b++) {
+            int start = (int) ((long) series.length * b / numBlocks);
+            int end = (int) ((long) series.length * (b + 1) / numBlocks);
+            tasks.add(() -> {
+                for (int i = start; i < end; i++) {
+                    features[i] = transform(series[i]);
+                }
+                return null;
+            });
+        }
+        try {
+            ThreadingUtilities.computeAll(numThreads, tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return features;
+    }
+
+    /**
+     * @param series the series to find features of, normalised as this transformer is set to
+     * @return a context to find any of the 22 features of the series from
+     */
+    public SeriesContext getSeriesContext(double[] series) {
+        return new SeriesContext(series, norm, outlierNorm);
+    }
+
+    /**
+     * Finds a single feature, keeping the statistics and transforms of the series for the next feature while the series
+     * index stays the same. Not thread safe, use a SeriesContext per series (see getSeriesContext) from multiple
+     * threads.
+     */
     public double getSummaryStatByIndex(int summaryStatIndex, int seriesIndex, double[] series) throws Exception {
-        if (seriesIndex != currentSeriesIndex) {
+        if (seriesIndex != currentSeriesIndex || currentSeries == null) {
             currentSeriesIndex = seriesIndex;
-            idxMin = Double.MAX_VALUE;
-            idxMax = Double.MIN_VALUE;
-            idxMean = Double.MIN_VALUE;
-            idxFFT = null;
-            idxAC = null;
-            idxOutlierSeries = null;
+            currentSeries = getSeriesContext(series);
+        }
+
+        return currentSeries.getFeature(summaryStatIndex);
+    }
 
+    /**
+     * A series to find catch22 features of. The statistics and transforms which more than one feature uses (min/max,
+     * mean, spectrum, autocorrelation and normalised copies of the series) are found on first use and kept, so each
+     * is only calculated once however many features are asked for.
+     * <p>
+     * A context is for use by a single thread, but holds no state shared with any other, so many series can be
+     * processed at once with a context each.
+     */
+    public static class SeriesContext {
+
+        private final double[] series;
+        // normalise a copy of the series for the outlier stats
+        private final boolean outlierNorm;
+
+        private boolean minMaxFound = false;
+        private double min;
+        private double max;
+        private boolean meanFound = false;
+        private double mean;
+        private double[] fft;
+        private double[] ac;
+        private double[] outlierSeries;
+
+        private SeriesContext(double[] series, boolean norm, boolean outlierNorm) {
             if (norm) {
-                idxSeries = new double[series.length];
-                System.arraycopy(series, 0, idxSeries, 0, series.length);
-                zNormalise(idxSeries);
+                this.series = new double[series.length];
+                System.arraycopy(series, 0, this.series, 0, series.length);
+                zNormalise(this.series);
             } else {
-                idxSeries = series;
-            }
-        }
-
-        switch (summaryStatIndex) {
-            case 0:
-            case 1:
-            case 11:
-                if (idxMin == Double.MAX_VALUE) {
-                    for (int i = 0; i < idxSeries.length; i++) {
-                        if (idxSeries[i] < idxMin) {
-                            idxMin = idxSeries[i];
-                        }
-                        if (idxSeries[i] > idxMax) {
-                            idxMax = idxSeries[i];
-                        }
-                    }
-                }
-                break;
-            case 2:
-                if (idxMean == Double.MIN_VALUE) {
-                    idxMean = mean(idxSeries);
-                }
-                break;
-            case 3:
-            case 4:
-                if (idxOutlierSeries == null) {
-                    if (outlierNorm && !norm) {
-                        idxOutlierSeries = new double[idxSeries.length];
-                        for (int i = 0; i < idxSeries.length; i++) {
-                            idxOutlierSeries[i] = idxSeries[i];
-                        }
-                        zNormalise(idxOutlierSeries);
-                    } else {
-                        idxOutlierSeries = idxSeries;
-                    }
-                }
-                break;
-            case 7:
-            case 8:
-                if (idxFFT == null) {
-                    if (idxMean == Double.MIN_VALUE) {
-                        idxMean = mean(idxSeries);
-                    }
+                this.series = series;
+            }
+            this.outlierNorm = outlierNorm && !norm;
+        }
+
+        /**
+         * @param summaryStatIndex the index of the feature, see getSummaryStatNameByIndex
+         * @return the feature of the series, which may be NaN or infinite
+         */
+        public double getFeature(int summaryStatIndex) {
+            switch (summaryStatIndex) {
+                case 0:
+                    findMinMax();
+                    return histMode5DN(series, min, max);
+                case 1:
+                    findMinMax();
+                    return histMode10DN(series, min, max);
+                case 2:
+                    return binaryStatsMeanLongstretch1SB(series, getMean());
+                case 3:
+                    return outlierIncludeP001mdrmdDN(getOutlierSeries());
+                case 4:
+                    return outlierIncludeN001mdrmdDN(getOutlierSeries());
+                case 5:
+                    return f1ecacCO(getAC());
+                case 6:
+                    return firstMinacCO(getAC());
+                case 7:
+                    return summariesWelchRectArea51SP(series, getFFT());
+                case 8:
+                    return summariesWelchRectCentroidSP(series, getFFT());
+                case 9:
+                    return localSimpleMean3StderrFC(series);
+                case 10:
+                    return trev1NumCO(series);
+                case 11:
+                    findMinMax();
+                    return histogramAMIeven25CO(series, min, max);
+                case 12:
+                    return autoMutualInfoStats40GaussianFmmiIN(getAC());
+                case 13:
+                    return hrvClassicPnn40MD(series);
+                case 14:
+                    return binaryStatsDiffLongstretch0SB(series);
+                case 15:
+                    return motifThreeQuantileHhSB(series);
+                case 16:
+                    return localSimpleMean1TauresratFC(series, getAC());
+                case 17:
+                    return embed2DistTauDExpfitMeandiffCO(series, getAC());
+                case 18:
+                    return fluctAnal2Dfa5012LogiPropR1SC(series);
+                case 19:
+                    return fluctAnal2Rsrangefit501LogiPropR1SC(series);
+                case 20:
+                    return transitionMatrix3acSumdiagcovSB(series, getAC());
+                case 21:
+                    return periodicityWangTh001PD(series);
+                default:
+                    throw new IllegalArgumentException("Invalid Catch22 summary stat index: " + summaryStatIndex);
+            }
+        }
 
-                    int length = (int) FFT.MathsPower2.roundPow2((float) idxSeries.length);
-                    if (length < idxSeries.length)
-                        length *= 2;
-                    idxFFT = new FFT.Complex[length];
-                    for (int i = 0; i < idxSeries.length; i++) {
-                        idxFFT[i] = new FFT.Complex(idxSeries[i] - idxMean, 0);
+        private void findMinMax() {
+            if (!minMaxFound) {
+                min = Double.MAX_VALUE;
+                max = Double.MIN_VALUE;
+                for (int i = 0; i < series.length; i++) {
+                    if (series[i] < min) {
+                        min = series[i];
                     }
-                    for (int i = idxSeries.length; i < length; i++) {
-                        idxFFT[i] = new FFT.Complex(0, 0);
+                    if (series[i] > max) {
+                        max = series[i];
                     }
-                    FFT t = new FFT();
-                    t.fft(idxFFT, length);
                 }
-                break;
-            case 5:
-            case 6:
-            case 12:
-            case 16:
-            case 17:
-            case 20:
-                if (idxAC == null) {
-                    if (idxFFT == null) {
-                        if (idxMean == Double.MIN_VALUE) {
-                            idxMean = mean(idxSeries);
-                        }
-
-                        int length = (int) FFT.MathsPower2.roundPow2((float) idxSeries.length);
-                        if (length < idxSeries.length)
-                            length *= 2;
-                        idxFFT = new FFT.Complex[length];
-                        for (int i = 0; i < idxSeries.length; i++) {
-                            idxFFT[i] = new FFT.Complex(idxSeries[i] - idxMean, 0);
-                        }
-                        for (int i = idxSeries.length; i < length; i++) {
-                            idxFFT[i] = new FFT.Complex(0, 0);
-                        }
-                        FFT t = new FFT();
-                        t.fft(idxFFT, length);
-                    }
+                minMaxFound = true;
+            }
+        }
 
-                    FFT.Complex[] fftClone = new FFT.Complex[idxFFT.length];
-                    for (int i = 0; i < idxFFT.length; i++) {
-                        fftClone[i] = (FFT.Complex) idxFFT[i].clone();
-                    }
-                    idxAC = autoCorr(idxSeries, fftClone);
+        private double getMean() {
+            if (!meanFound) {
+                mean = mean(series);
+                meanFound = true;
+            }
+            return mean;
+        }
+
+        private double[] getOutlierSeries() {
+            if (outlierSeries == null) {
+                if (outlierNorm) {
+                    outlierSeries = new double[series.length];
+                    System.arraycopy(series, 0, outlierSeries, 0, series.length);
+                    zNormalise(outlierSeries);
+                } else {
+                    outlierSeries = series;
                 }
-                break;
-        }
-
-        switch (summaryStatIndex) {
-            case 0:
-                return histMode5DN(idxSeries, idxMin, idxMax);
-            case 1:
-                return histMode10DN(idxSeries, idxMin, idxMax);
-            case 2:
-                return binaryStatsMeanLongstretch1SB(idxSeries, idxMean);
-            case 3:
-                return outlierIncludeP001mdrmdDN(idxOutlierSeries);
-            case 4:
-                return outlierIncludeN001mdrmdDN(idxOutlierSeries);
-            case 5:
-                return f1ecacCO(idxAC);
-            case 6:
-                return firstMinacCO(idxAC);
-            case 7:
-                return summariesWelchRectArea51SP(idxSeries, idxFFT);
-            case 8:
-                return summariesWelchRectCentroidSP(idxSeries, idxFFT);
-            case 9:
-                return localSimpleMean3StderrFC(idxSeries);
-            case 10:
-                return trev1NumCO(idxSeries);
-            case 11:
-                return histogramAMIeven25CO(idxSeries, idxMin, idxMax);
-            case 12:
-                return autoMutualInfoStats40GaussianFmmiIN(idxAC);
-            case 13:
-                return hrvClassicPnn40MD(idxSeries);
-            case 14:
-                return binaryStatsDiffLongstretch0SB(idxSeries);
-            case 15:
-                return motifThreeQuantileHhSB(idxSeries);
-            case 16:
-                return localSimpleMean1TauresratFC(idxSeries, idxAC);
-            case 17:
-                return embed2DistTauDExpfitMeandiffCO(idxSeries, idxAC);
-            case 18:
-                return fluctAnal2Dfa5012LogiPropR1SC(idxSeries);
-            case 19:
-                return fluctAnal2Rsrangefit501LogiPropR1SC(idxSeries);
-            case 20:
-                return transitionMatrix3acSumdiagcovSB(idxSeries, idxAC);
-            case 21:
-                return periodicityWangTh001PD(idxSeries);
-            default:
-                throw new Exception("Invalid Catch22 summary stat index.");
+            }
+            return outlierSeries;
+        }
+
+        private double[] getFFT() {
+            if (fft == null) {
+                fft = fft(series, getMean(), new double[2 * FFTEngine.paddedLength(series.length)]);
+            }
+            return fft;
+        }
+
+        private double[] getAC() {
+            if (ac == null) {
+                ac = autoCorr(series, getFFT());
+            }
+            return ac;
         }
     }
 
@@ -454,12 +466,12 @@ public class Catch22 implements Transformer {
     }
 
     // Total power in lowest fifth of frequencies in the Fourier power spectrum
-    private static double summariesWelchRectArea51SP(double[] arr, FFT.Complex[] fft) {
+    private static double summariesWelchRectArea51SP(double[] arr, double[] fft) {
         return summariesWelchRect(arr, false, fft);
     }
 
     // Centroid of the Fourier power spectrum
-    private static double summariesWelchRectCentroidSP(double[] arr, FFT.Complex[] fft) {
+    private static double summariesWelchRectCentroidSP(double[] arr, double[] fft) {
         return summariesWelchRect(arr, true, fft);
     }
 
@@ -624,23 +636,7 @@ public class Catch22 implements Transformer {
             return 0;
         double[] res = localSimpleMean(arr, 1);
 
-        int length = (int) FFT.MathsPower2.roundPow2((float) res.length);
-        if (length < res.length)
-            length *= 2;
-
-        FFT.Complex[] fft = new FFT.Complex[length];
-        double mean = mean(res);
-        for (int i = 0; i < res.length; i++) {
-            fft[i] = new FFT.Complex(res[i] - mean, 0);
-        }
-        for (int i = res.length; i < length; i++) {
-            fft[i] = new FFT.Complex(0, 0);
-        }
-
-        FFT t = new FFT();
-        t.fft(fft, length);
-
-        double[] resAc = autoCorr(res, fft);
+        double[] resAc = autoCorr(res, fft(res, mean(res), fftWorkspace(res.length)));
 
         return (double) acFirstZero(resAc) / acFirstZero(ac);
     }
@@ -966,64 +962,62 @@ public class Catch22 implements Transformer {
         return median(Arrays.copyOf(medians, trimLimit + 1), false);
     }
 
-    private static double[] autoCorr(double[] arr, FFT.Complex[] fft) {
-        // int length = (int)FFT.MathsPower2.roundPow2((float)arr.length);
-        // if (length < arr.length) length *= 2;
-        //
-        // FFT.Complex[] fft = new FFT.Complex[length];
-        // double mean = mean(arr);
-        // for (int i = 0; i < arr.length; i++){
-        // fft[i] = new FFT.Complex(arr[i]-mean, 0);
-        // }
-        // for (int i = arr.length; i < length; i++){
-        // fft[i] = new FFT.Complex(0,0);
-        // }
-        //
-        FFT t = new FFT();
-        // t.fft(fft, length);
+    // the fft workspace for a series of the given length, see fft
+    private static double[] fftWorkspace(int length) {
+        return FFTEngine.forSize(FFTEngine.paddedLength(length)).getWorkspace();
+    }
+
+    // the spectrum of the series less its mean, zero padded to a power of two, interleaved real/imaginary. The given
+    // array must hold twice the padded length
+    private static double[] fft(double[] arr, double mean, double[] fft) {
+        for (int i = 0; i < arr.length; i++) {
+            fft[i] = arr[i] - mean;
+        }
+        Arrays.fill(fft, arr.length, fft.length / 2, 0);
+        FFTEngine.forSize(fft.length / 2).realForward(fft);
+        return fft;
+    }
+
+    // the squared magnitude of term i of a spectrum
+    private static double power(double[] fft, int i) {
+        return fft[2 * i] * fft[2 * i] + fft[2 * i + 1] * fft[2 * i + 1];
+    }
 
-        for (int i = 0; i < fft.length; i++) {
-            fft[i].multiply(new FFT.Complex(fft[i].getReal(), -fft[i].getImag()));
+    // the autocorrelation from the spectrum of the series less its mean. Uses the fft workspace, so overwrites the
+    // spectrum if that is where it is held
+    private static double[] autoCorr(double[] arr, double[] fft) {
+        FFTEngine engine = FFTEngine.forSize(fft.length / 2);
+        double[] powers = engine.getWorkspace();
+        for (int i = 0; i < engine.getSize(); i++) {
+            double p = power(fft, i);
+            powers[2 * i] = p;
+            powers[2 * i + 1] = 0;
         }
 
-        t.inverseFFT(fft, fft.length);
+        engine.inverse(powers);
 
         double[] acf = new double[arr.length];
-        float f = fft[0].getReal();
+        double f = powers[0];
         for (int i = 0; i < arr.length; i++) {
-            acf[i] = fft[i].getReal() / f;
+            acf[i] = powers[2 * i] / f;
         }
 
         return acf;
     }
 
-    private static double summariesWelchRect(double[] arr, boolean centroid, FFT.Complex[] fft) {
-        // int length = (int)FFT.MathsPower2.roundPow2((float)arr.length);
-        // if (length < arr.length) length *= 2;
-        //
-        // FFT.Complex[] fft = new FFT.Complex[length];
-        // double mean = mean(arr);
-        // for (int i = 0; i < arr.length; i++){
-        // fft[i] = new FFT.Complex(arr[i]-mean, 0);
-        // }
-        // for (int i = arr.length; i < length; i++){
-        // fft[i] = new FFT.Complex(0,0);
-        // }
-        //
-        // FFT t = new FFT();
-        // t.fft(fft, length);
-
-        int newLength = fft.length / 2 + 1;
+    private static double summariesWelchRect(double[] arr, boolean centroid, double[] fft) {
+        int length = fft.length / 2;
+        int newLength = length / 2 + 1;
         double[] p = new double[newLength];
-        p[0] = (Math.pow(fft[0].getMagnitude(), 2) / arr.length) / (2 * Math.PI);
+        p[0] = (power(fft, 0) / arr.length) / (2 * Math.PI);
         for (int i = 1; i < newLength - 1; i++) {
-            p[i] = ((Math.pow(fft[i].getMagnitude(), 2) / arr.length) * 2) / (2 * Math.PI);
+            p[i] = ((power(fft, i) / arr.length) * 2) / (2 * Math.PI);
         }
-        p[newLength - 1] = (Math.pow(fft[newLength - 1].getMagnitude(), 2) / arr.length) / (2 * Math.PI);
+        p[newLength - 1] = (power(fft, newLength - 1) / arr.length) / (2 * Math.PI);
 
         double[] w = new double[newLength];
         for (int i = 0; i < newLength; i++) {
-            w[i] = i * (1.0 / fft.length) * Math.PI * 2;
+            w[i] = i * (1.0 / length) * Math.PI * 2;
         }
 
         if (centroid) {
@@ -0,0 +1,37 @@
+package tsml.transformers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import utilities.InstanceTools;
+import weka.core.Instances;
+
+/**
+ * Purpose: test the batch transform finds the same features whatever the number of threads
+ */
+public class Catch22Test {
+
+    @Test
+    public void testSameFeaturesWithMultipleThreads() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final double[][] series = new double[data[0].size()][];
+        for(int i = 0; i < series.length; i++) {
+            series[i] = InstanceTools.ConvertInstanceToArrayRemovingClassValue(data[0].get(i));
+        }
+        for(boolean norm : new boolean[] {false, true}) {
+            final Catch22 serial = new Catch22();
+            serial.setNormalise(norm);
+            final double[][] expected = serial.transform(series);
+            final Catch22 parallel = new Catch22();
+            parallel.setNormalise(norm);
+            parallel.enableMultiThreading(3);
+            final double[][] features = parallel.transform(series);
+            Assert.assertEquals(expected.length, features.length);
+            for(int i = 0; i < expected.length; i++) {
+                // also the same as transforming each series alone
+                Assert.assertArrayEquals(serial.transform(series[i]), expected[i], 0);
+                Assert.assertArrayEquals(expected[i], features[i], 0);
+            }
+        }
+    }
+}
@@ -29,24 +29,29 @@ import weka.core.Instances;
  */
 public class Derivative implements Transformer, Serializable {
 
-    private static Derivative INSTANCE;
-    // Global derivative function which is cached, i.e. if you ask it to convert the
-    // same instance twice it will
-    // instead fetch from the cache the second time
-    private static CachedTransformer GLOBAL_CACHE;
+    // the global instances are made on first use by the class loader, which makes them once and safely publishes
+    // them to every thread
+    private static class Global {
+        private static final Derivative INSTANCE = new Derivative();
+        // Global derivative function which is cached, i.e. if you ask it to convert the
+        // same instance twice it will
+        // instead fetch from the cache the second time
+        private static final CachedTransformer CACHE = buildCache();
+
+        private static CachedTransformer buildCache() {
+            final CachedTransformer cache = new CachedTransformer(INSTANCE);
+            // shared by everything using the global instance, which may be on different threads
+            cache.setThreadSafe(true);
+            return cache;
+        }
+    }
 
     public static Derivative getGlobalInstance() {
-        if (INSTANCE == null) {
-            INSTANCE = new Derivative();
-        }
-        return INSTANCE;
+        return Global.INSTANCE;
     }
 
     public static CachedTransformer getGlobalCachedTransformer() {
-        if (GLOBAL_CACHE == null) {
-            GLOBAL_CACHE = new CachedTransformer(getGlobalInstance());
-        }
-        return GLOBAL_CACHE;
+        return Global.CACHE;
     }
 
     public static double[] getDerivative(double[] input, boolean classValOn) {
@@ -3,15 +3,14 @@ import experiments.data.DatasetLists;
 import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.utilities.TimeSeriesSummaryStatistics;
+import utilities.FFTEngine;
 import utilities.InstanceTools;
 
-import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.DftNormalization;
-import org.apache.commons.math3.transform.FastFourierTransformer;
-import org.apache.commons.math3.transform.TransformType;
 import weka.core.*;
 import weka.filters.SimpleBatchFilter;
 
+import java.util.Arrays;
+
 import static experiments.data.DatasetLoading.loadDataNullable;
 import static utilities.InstanceTools.fromWekaInstancesArray;
 
@@ -84,11 +83,7 @@ public class Fast_FFT implements Transformer {
 
     @Override
     public Instance transform(Instance inst) {
-        Complex[] complexData = new Complex[nfft];
         double[] data = InstanceTools.ConvertInstanceToArrayRemovingClassValue(inst);
-        for (int j = 0; j < complexData.length; j++) {
-            complexData[j] = new Complex(0.0, 0.0);
-        }
 
         double mean = 0;
         if (data.length < nfft) {
@@ -98,24 +93,11 @@ public class Fast_FFT implements Transformer {
             mean /= data.length;
         }
 
-        // int limit = nfft < data[i].length ? nfft : data[i].length;
-        for (int j = 0; j < nfft; j++) {
-            if (j < data.length)
-                complexData[j] = new Complex(data[j], 0);
-            else
-                complexData[j] = new Complex(mean, 0);
-        }
-
-        FastFourierTransformer fft = new FastFourierTransformer(DftNormalization.STANDARD);
-        complexData = fft.transform(complexData, TransformType.FORWARD);
-
-        double[] FFTData = new double[(nfft / 2) + (inst.classIndex() >= 0 ? 1 : 0)];
-        for (int j = 0; j < (nfft / 2); j++) {
-            FFTData[j] = complexData[j].abs();
-        }
-
-        if (inst.classIndex() >= 0)
+        double[] FFTData = calculate_FFT(data, mean);
+        if (inst.classIndex() >= 0) {
+            FFTData = Arrays.copyOf(FFTData, FFTData.length + 1);
             FFTData[FFTData.length - 1] = inst.classValue();
+        }
 
         return new DenseInstance(1, FFTData);
     }
@@ -133,26 +115,23 @@ public class Fast_FFT implements Transformer {
     }
 
     private double[] calculate_FFT(double[] data, double mean) {
-        Complex[] complexData = new Complex[nfft];
-        for (int j = 0; j < complexData.length; j++) {
-            complexData[j] = new Complex(0.0, 0.0);
-        }
+        FFTEngine engine = FFTEngine.forSize(nfft);
+        double[] complexData = engine.getWorkspace();
 
         // int limit = nfft < data[i].length ? nfft : data[i].length;
         for (int j = 0; j < nfft; j++) {
             if (j < data.length)
-                complexData[j] = new Complex(data[j], 0);
+                complexData[j] = data[j];
             else
-                complexData[j] = new Complex(mean, 0);
+                complexData[j] = mean;
         }
 
-        
-        FastFourierTransformer fft = new FastFourierTransformer(DftNormalization.STANDARD);
-        complexData = fft.transform(complexData, TransformType.FORWARD);
+        engine.realForward(complexData);
 
         double[] FFTData = new double[(nfft / 2)];
         for (int j = 0; j < (nfft / 2); j++) {
-            FFTData[j] = complexData[j].abs();
+            FFTData[j] = Math.sqrt(complexData[2 * j] * complexData[2 * j]
+                    + complexData[2 * j + 1] * complexData[2 * j + 1]);
         }
 
         return FFTData;
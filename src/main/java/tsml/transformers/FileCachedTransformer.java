@@ -0,0 +1,565 @@
+package tsml.transformers;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.junit.Assert;
+import tsml.data_containers.TimeSeriesInstance;
+import tsml.data_containers.TimeSeriesInstances;
+import weka.core.AbstractInstance;
+import weka.core.Attribute;
+import weka.core.Capabilities;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.RevisionUtils;
+import weka.core.Utils;
+
+/**
+ * Purpose: cache the fitted transformer and the transformed data on disk, so the same transform of the same data is
+ * only ever done once, even across separate runs. Files are content addressed: the key is a hash of the transformer's
+ * class, params and serialised configuration, plus a hash of the values of the input data. Folds, resamples and
+ * classifiers which apply an identical transform to identical data therefore share the files.
+ * <p>
+ * For each fit there is a [key].model file holding the serialised fitted transformer, which replaces the wrapped
+ * transformer on a cache hit. For each transform of an Instances there is a [key].data file holding the output in a
+ * compact binary form, which is memory mapped on reuse: the instances read back take their values from the mapping
+ * until written to. Both files record the time the fit / transform originally took, so time taken on a cache hit can
+ * still be reported as the cost of the transform (see getTransformTime). Single instances and TimeSeriesInstances are
+ * passed straight through to the wrapped transformer.
+ * <p>
+ * Transformers which are not deterministic given their configuration (e.g. contracted by time) will produce a
+ * different result on each run, so caching them fixes the output to the first run.
+ */
+public class FileCachedTransformer implements TrainableTransformer {
+
+    private static final int MAGIC = 0x54534d4c;
+    private static final int VERSION = 2;
+    private static final String MODEL_EXTENSION = ".model";
+    private static final String DATA_EXTENSION = ".data";
+    private static final int PREAMBLE_LENGTH = 6 * Integer.BYTES + Long.BYTES;
+
+    // the transformer to cache the output of
+    private Transformer transformer;
+    // the directory holding the cached files
+    private File directory;
+    // the key of the most recent fit, null if not fitted or fitted without caching
+    private String fitKey;
+    private boolean isFit;
+    private int hitCount;
+    private int missCount;
+    // the time the fit and transforms so far originally took, in nanoseconds
+    private long transformTime;
+
+    public FileCachedTransformer(final Transformer transformer, final File directory) {
+        setTransformer(transformer);
+        setDirectory(directory);
+    }
+
+    public FileCachedTransformer(final Transformer transformer, final String directory) {
+        this(transformer, new File(directory));
+    }
+
+    public Transformer getTransformer() {
+        return transformer;
+    }
+
+    public void setTransformer(final Transformer transformer) {
+        Assert.assertNotNull(transformer);
+        this.transformer = transformer;
+        fitKey = null;
+        isFit = false;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(final File directory) {
+        Assert.assertNotNull(directory);
+        this.directory = directory;
+    }
+
+    /**
+     * @return the number of fits / transforms read from the cache
+     */
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of fits / transforms computed and written to the cache
+     */
+    public int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the time in nanoseconds the fit and transforms so far took when computed, including those read from the
+     * cache. This is the cost of the transform regardless of whether the cache was hit.
+     */
+    public long getTransformTime() {
+        return transformTime;
+    }
+
+    @Override
+    public boolean isFit() {
+        return isFit;
+    }
+
+    @Override
+    public void fit(final Instances data) {
+        isFit = true;
+        if(!(transformer instanceof TrainableTransformer)) {
+            // nothing to fit, so transforms do not depend upon the fit data
+            fitKey = findConfigKey(transformer);
+            return;
+        }
+        fitKey = hash(findConfigKey(transformer), hash(data));
+        final File file = new File(directory, fitKey + MODEL_EXTENSION);
+        try {
+            if(file.exists()) {
+                try(ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+                    transformTime += in.readLong();
+                    transformer = (Transformer) in.readObject();
+                }
+                hitCount++;
+            } else {
+                final long timeStamp = System.nanoTime();
+                ((TrainableTransformer) transformer).fit(data);
+                final long fitTime = System.nanoTime() - timeStamp;
+                transformTime += fitTime;
+                write(file, out -> {
+                    try(ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(out))) {
+                        oos.writeLong(fitTime);
+                        oos.writeObject(transformer);
+                    }
+                });
+                missCount++;
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        } catch(ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Instances transform(final Instances data) {
+        if(!isFit()) {
+            fit(data);
+        }
+        if(fitKey == null) {
+            // fitted without caching
+            return transformer.transform(data);
+        }
+        final File file = new File(directory, hash(fitKey, hash(data)) + DATA_EXTENSION);
+        try {
+            if(file.exists()) {
+                hitCount++;
+                return readInstances(file);
+            }
+            final long timeStamp = System.nanoTime();
+            final Instances output = transformer.transform(data);
+            final long time = System.nanoTime() - timeStamp;
+            transformTime += time;
+            write(file, out -> writeInstances(out, output, time));
+            missCount++;
+            return output;
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Instance transform(final Instance inst) {
+        return transformer.transform(inst);
+    }
+
+    @Override
+    public void fit(final TimeSeriesInstances data) {
+        if(transformer instanceof TrainableTransformer) {
+            ((TrainableTransformer) transformer).fit(data);
+        }
+        // TimeSeriesInstances are not cached, so neither are transforms after fitting to them
+        fitKey = null;
+        isFit = true;
+    }
+
+    @Override
+    public TimeSeriesInstances transform(final TimeSeriesInstances data) {
+        return transformer.transform(data);
+    }
+
+    @Override
+    public TimeSeriesInstance transform(final TimeSeriesInstance inst) {
+        return transformer.transform(inst);
+    }
+
+    @Override
+    public Instances determineOutputFormat(final Instances data) throws IllegalArgumentException {
+        return transformer.determineOutputFormat(data);
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        return transformer.getCapabilities();
+    }
+
+    @Override
+    public String toString() {
+        return transformer.toString();
+    }
+
+    private interface FileWriter {
+        void write(File file) throws IOException;
+    }
+
+    /**
+     * write to a temporary file then move it into place, so concurrent experiments never read a partial file.
+     */
+    private void write(final File file, final FileWriter writer) throws IOException {
+        if(!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+            throw new IOException("could not create " + directory);
+        }
+        final File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            writer.write(tmp);
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Layout, little endian: magic, version, num instances, num attributes, class index, header length, transform time,
+     * the ARFF header in UTF-8, padding to a multiple of 8 bytes, the weight of each instance then the values of each
+     * instance.
+     */
+    private static void writeInstances(final File file, final Instances data, final long time) throws IOException {
+        final byte[] header = new Instances(data, 0).toString().getBytes(StandardCharsets.UTF_8);
+        final int numInstances = data.numInstances();
+        final int numAttributes = data.numAttributes();
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer preamble = ByteBuffer.allocate(align(PREAMBLE_LENGTH + header.length))
+                                                  .order(ByteOrder.LITTLE_ENDIAN);
+            preamble.putInt(MAGIC).putInt(VERSION).putInt(numInstances).putInt(numAttributes)
+                    .putInt(data.classIndex()).putInt(header.length).putLong(time).put(header);
+            preamble.position(preamble.limit());
+            preamble.flip();
+            writeFully(channel, preamble);
+            final ByteBuffer buffer = ByteBuffer.allocate(Double.BYTES * Math.max(numInstances, numAttributes))
+                                                .order(ByteOrder.LITTLE_ENDIAN);
+            for(Instance instance : data) {
+                buffer.putDouble(instance.weight());
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+            for(Instance instance : data) {
+                buffer.clear();
+                for(int i = 0; i < numAttributes; i++) {
+                    buffer.putDouble(instance.value(i));
+                }
+                buffer.flip();
+                writeFully(channel, buffer);
+            }
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int align(final int length) {
+        return (length + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    private Instances readInstances(final File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(preamble, 0);
+            preamble.flip();
+            if(preamble.getInt() != MAGIC || preamble.getInt() != VERSION) {
+                throw new IOException("not a transform cache file: " + file);
+            }
+            final int numInstances = preamble.getInt();
+            final int numAttributes = preamble.getInt();
+            final int classIndex = preamble.getInt();
+            final ByteBuffer header = ByteBuffer.allocate(preamble.getInt());
+            transformTime += preamble.getLong();
+            channel.read(header, preamble.capacity());
+            final Instances data = new Instances(new BufferedReader(
+                    new StringReader(new String(header.array(), StandardCharsets.UTF_8))));
+            data.setClassIndex(classIndex);
+            final long weightsStart = align(preamble.capacity() + header.capacity());
+            final DoubleBuffer weights = map(channel, weightsStart, numInstances);
+            // map the values in chunks of whole instances, as each mapping is limited to 2GB
+            final int chunkLength = Math.max(1, Integer.MAX_VALUE / Double.BYTES / Math.max(1, numAttributes));
+            final long valuesStart = weightsStart + (long) numInstances * Double.BYTES;
+            DoubleBuffer values = null;
+            for(int i = 0; i < numInstances; i++) {
+                if(i % chunkLength == 0) {
+                    final int length = Math.min(chunkLength, numInstances - i);
+                    values = map(channel, valuesStart + (long) i * numAttributes * Double.BYTES,
+                            (long) length * numAttributes);
+                }
+                values.limit(values.position() + numAttributes);
+                data.add(new MappedInstance(weights.get(i), values.slice()));
+                values.position(values.limit());
+                values.limit(values.capacity());
+            }
+            return data;
+        }
+    }
+
+    private static DoubleBuffer map(final FileChannel channel, final long position, final long length)
+            throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length * Double.BYTES)
+                      .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    /**
+     * An instance whose values are read from a mapped cache file rather than held on the heap. As with DenseInstance,
+     * copies share the values and a write first copies them, here onto the heap, so the file is never written to.
+     */
+    private static class MappedInstance extends AbstractInstance {
+
+        // the mapped values, or null once the values have been written to
+        private DoubleBuffer mappedValues;
+
+        private MappedInstance(final double weight, final DoubleBuffer mappedValues) {
+            this.mappedValues = mappedValues;
+            m_Weight = weight;
+        }
+
+        @Override
+        public Object copy() {
+            final MappedInstance result = new MappedInstance(m_Weight, mappedValues);
+            result.m_AttValues = m_AttValues;
+            result.m_Dataset = m_Dataset;
+            return result;
+        }
+
+        @Override
+        public int index(final int position) {
+            return position;
+        }
+
+        @Override
+        public Instance mergeInstance(final Instance inst) {
+            final double[] values = new double[numAttributes() + inst.numAttributes()];
+            System.arraycopy(toDoubleArray(), 0, values, 0, numAttributes());
+            System.arraycopy(inst.toDoubleArray(), 0, values, numAttributes(), inst.numAttributes());
+            return new DenseInstance(1.0, values);
+        }
+
+        @Override
+        public int numAttributes() {
+            return mappedValues == null ? m_AttValues.length : mappedValues.capacity();
+        }
+
+        @Override
+        public int numValues() {
+            return numAttributes();
+        }
+
+        @Override
+        public void replaceMissingValues(final double[] array) {
+            if(array == null || array.length != numAttributes()) {
+                throw new IllegalArgumentException("Unequal number of attributes!");
+            }
+            final double[] values = toDoubleArray();
+            for(int i = 0; i < values.length; i++) {
+                if(Utils.isMissingValue(values[i])) {
+                    values[i] = array[i];
+                }
+            }
+            setValues(values);
+        }
+
+        @Override
+        public void setValue(final int attIndex, final double value) {
+            final double[] values = toDoubleArray();
+            values[attIndex] = value;
+            setValues(values);
+        }
+
+        @Override
+        public void setValueSparse(final int indexOfIndex, final double value) {
+            setValue(indexOfIndex, value);
+        }
+
+        @Override
+        public double[] toDoubleArray() {
+            if(mappedValues == null) {
+                return m_AttValues.clone();
+            }
+            final double[] values = new double[mappedValues.capacity()];
+            // absolute reads through a duplicate leave this buffer untouched for other threads
+            mappedValues.duplicate().get(values);
+            return values;
+        }
+
+        @Override
+        public String toStringNoWeight() {
+            return toStringNoWeight(AbstractInstance.s_numericAfterDecimalPoint);
+        }
+
+        @Override
+        public String toStringNoWeight(final int afterDecimalPoint) {
+            final StringBuilder text = new StringBuilder();
+            for(int i = 0; i < numAttributes(); i++) {
+                if(i > 0) {
+                    text.append(",");
+                }
+                text.append(toString(i, afterDecimalPoint));
+            }
+            return text.toString();
+        }
+
+        @Override
+        public double value(final int attIndex) {
+            return mappedValues == null ? m_AttValues[attIndex] : mappedValues.get(attIndex);
+        }
+
+        @Override
+        public double valueSparse(final int indexOfIndex) {
+            return value(indexOfIndex);
+        }
+
+        @Override
+        protected void forceDeleteAttributeAt(final int position) {
+            final double[] values = toDoubleArray();
+            final double[] newValues = new double[values.length - 1];
+            System.arraycopy(values, 0, newValues, 0, position);
+            System.arraycopy(values, position + 1, newValues, position, values.length - (position + 1));
+            setValues(newValues);
+        }
+
+        @Override
+        protected void forceInsertAttributeAt(final int position) {
+            final double[] values = toDoubleArray();
+            final double[] newValues = new double[values.length + 1];
+            System.arraycopy(values, 0, newValues, 0, position);
+            newValues[position] = Utils.missingValue();
+            System.arraycopy(values, position, newValues, position + 1, values.length - position);
+            setValues(newValues);
+        }
+
+        private void setValues(final double[] values) {
+            m_AttValues = values;
+            mappedValues = null;
+        }
+
+        /**
+         * mapped buffers cannot be serialised, so serialise as the equivalent DenseInstance
+         */
+        private Object writeReplace() {
+            final DenseInstance instance = new DenseInstance(m_Weight, toDoubleArray());
+            instance.setDataset(m_Dataset);
+            return instance;
+        }
+
+        @Override
+        public String getRevision() {
+            return RevisionUtils.extract("$Revision$");
+        }
+    }
+
+    /**
+     * a key for the configuration of a transformer: its class, params and serialised form. The serialised form catches
+     * any configuration not exposed through the params.
+     */
+    private static String findConfigKey(final Transformer transformer) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(transformer);
+        } catch(IOException e) {
+            throw new IllegalArgumentException("transformer must be serialisable to be cached", e);
+        }
+        final MessageDigest digest = newDigest();
+        // so files written in an older layout are never found
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(VERSION).array());
+        digest.update(transformer.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        digest.update(transformer.getParams().toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(bytes.toByteArray());
+        return toHex(digest.digest());
+    }
+
+    /**
+     * a stable hash of the attributes and values of the data. The relation name is ignored, so the same data loaded
+     * from differently named files matches.
+     */
+    public static String hash(final Instances data) {
+        final MessageDigest digest = newDigest();
+        final ByteBuffer buffer = ByteBuffer.allocate(Double.BYTES * (data.numAttributes() + 1))
+                                            .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(data.numAttributes()).putInt(data.classIndex()).putInt(data.numInstances());
+        buffer.flip();
+        digest.update(buffer);
+        for(int i = 0; i < data.numAttributes(); i++) {
+            final Attribute attribute = data.attribute(i);
+            digest.update(attribute.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        for(Instance instance : data) {
+            buffer.clear();
+            buffer.putDouble(instance.weight());
+            for(int i = 0; i < data.numAttributes(); i++) {
+                buffer.putDouble(instance.value(i));
+            }
+            buffer.flip();
+            digest.update(buffer);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String hash(final String a, final String b) {
+        final MessageDigest digest = newDigest();
+        digest.update(a.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(b.getBytes(StandardCharsets.UTF_8));
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package tsml.transformers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utilities.InstanceTools;
+import weka.core.Instances;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Purpose: test the transform cache keys files by the transformer configuration and the data, reads back exactly what
+ * was written and counts its hits and misses.
+ */
+public class FileCachedTransformerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertSameData(Instances expected, Instances actual) {
+        Assert.assertEquals(expected.numInstances(), actual.numInstances());
+        Assert.assertEquals(expected.numAttributes(), actual.numAttributes());
+        Assert.assertEquals(expected.classIndex(), actual.classIndex());
+        for(int i = 0; i < expected.numInstances(); i++) {
+            Assert.assertEquals(expected.get(i).weight(), actual.get(i).weight(), 0);
+            Assert.assertArrayEquals(expected.get(i).toDoubleArray(), actual.get(i).toDoubleArray(), 0);
+        }
+    }
+
+    @Test
+    public void testHash() {
+        final Instances data = InstanceTools.toWekaInstances(new double[][] {{1, 2, 3}, {4, 5, 6}},
+            new double[] {0, 1});
+        final String hash = FileCachedTransformer.hash(data);
+        Assert.assertEquals(64, hash.length());
+        Assert.assertEquals(hash, FileCachedTransformer.hash(new Instances(data)));
+        // the same data loaded from a differently named file
+        final Instances renamed = new Instances(data);
+        renamed.setRelationName("renamed");
+        Assert.assertEquals(hash, FileCachedTransformer.hash(renamed));
+        final Instances changedValue = new Instances(data);
+        changedValue.get(1).setValue(2, 6.000001);
+        Assert.assertNotEquals(hash, FileCachedTransformer.hash(changedValue));
+        final Instances changedWeight = new Instances(data);
+        changedWeight.get(0).setWeight(2);
+        Assert.assertNotEquals(hash, FileCachedTransformer.hash(changedWeight));
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final FileCachedTransformer first = new FileCachedTransformer(new BagOfPatterns(4, 4, 8), folder.getRoot());
+        final Instances train = first.fitTransform(data[0]);
+        final Instances test = first.transform(data[1]);
+        // the fit, then the transform of each set
+        Assert.assertEquals(0, first.getHitCount());
+        Assert.assertEquals(3, first.getMissCount());
+        Assert.assertTrue(first.getTransformTime() > 0);
+
+        // the same transform of the same data, as in a later experiment
+        final FileCachedTransformer second = new FileCachedTransformer(new BagOfPatterns(4, 4, 8), folder.getRoot());
+        assertSameData(train, second.fitTransform(data[0]));
+        final Instances cachedTest = second.transform(data[1]);
+        assertSameData(test, cachedTest);
+        Assert.assertEquals(3, second.getHitCount());
+        Assert.assertEquals(0, second.getMissCount());
+        // the time the transform took when computed, not the time to read it back
+        Assert.assertEquals(first.getTransformTime(), second.getTransformTime());
+        // the fitted transformer is read back too, so single instances transform as before
+        for(int i = 0; i < data[1].numInstances(); i++) {
+            Assert.assertArrayEquals(test.get(i).toDoubleArray(),
+                second.transform(data[1].get(i)).toDoubleArray(), 0);
+        }
+
+        // writing to the data read back leaves the cached copy alone
+        cachedTest.get(0).setValue(0, -1);
+        Assert.assertEquals(-1, cachedTest.get(0).value(0), 0);
+        assertSameData(test, second.transform(data[1]));
+
+        // and the data read back serialises as any other data
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(second.transform(data[1]));
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSameData(test, (Instances) in.readObject());
+        }
+
+        // a different configuration or different data misses
+        final FileCachedTransformer other = new FileCachedTransformer(new BagOfPatterns(4, 4, 10), folder.getRoot());
+        other.fitTransform(data[0]);
+        Assert.assertEquals(0, other.getHitCount());
+        Assert.assertEquals(2, other.getMissCount());
+        second.transform(new Instances(data[1], 0, data[1].numInstances() - 1));
+        Assert.assertEquals(1, second.getMissCount());
+    }
+
+    @Test
+    public void testUntrainedTransformer() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        final Instances expected = new Derivative().transform(data[0]);
+        final FileCachedTransformer first = new FileCachedTransformer(new Derivative(), folder.getRoot());
+        assertSameData(expected, first.fitTransform(data[0]));
+        // nothing to fit, so only the transform is cached
+        Assert.assertEquals(1, first.getMissCount());
+        final FileCachedTransformer second = new FileCachedTransformer(new Derivative(), folder.getRoot());
+        assertSameData(expected, second.fitTransform(data[0]));
+        Assert.assertEquals(1, second.getHitCount());
+        Assert.assertEquals(0, second.getMissCount());
+    }
+}
@@ -15,10 +15,17 @@
 package tsml.transformers;
 
 import experiments.data.DatasetLoading;
+import tsml.classifiers.MultiThreadable;
 import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
+import utilities.DistanceProfile;
+import utilities.ThreadingUtilities;
 
 import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
 import static utilities.rescalers.ZNormalisation.ROUNDING_ERROR_CORRECTION;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
@@ -41,15 +48,32 @@ import weka.core.Instances;
  *         change the step between comparison subseries that are evaluated when
  *         calculating the profile (e.g. not every 1 index, every 2, 3, ...
  *         etc.)
+ *
+ *         The matrix profile is found by STOMP by default, which can use
+ *         multiple threads, or by SCRIMP, which can be given a time limit per
+ *         series for very long series (see utilities.DistanceProfile). Both
+ *         match the original brute force search up to rounding error.
  * 
  */
-public class MatrixProfile implements Transformer {
+public class MatrixProfile implements Transformer, MultiThreadable {
+
+    public enum Algorithm {
+        BRUTE_FORCE, // compare every pair of subsequences in full
+        STOMP, // exact, O(n^2)
+        SCRIMP // anytime, stops at the time limit if set
+    }
 
     private int windowSize = 10;
     private final int stride = 1; // to-do later (maybe!)
     private double[][] distances;
     private int[][] indices;
     private boolean m_Debug = false;
+    private Algorithm algorithm = Algorithm.STOMP;
+    private long timeLimit = 0; // nanoseconds per series for SCRIMP, 0 for none
+    private int seed = 0;
+    private int numThreads = 1;
+    // the threads to find matrix profiles with while transforming, null otherwise
+    private transient ExecutorService executor;
 
     public MatrixProfile() {
         this(10);
@@ -59,13 +83,64 @@ public class MatrixProfile implements Transformer {
         this.windowSize = windowSize;
     }
 
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * @param timeLimit the time limit in nanoseconds to find the matrix profile of each series with SCRIMP, 0 for
+     *                  none. Past the limit the matrix profile is approximate.
+     */
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    public void setSeed(int seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * run the job with a pool of threads to find matrix profiles with, if multithreaded. The pool lasts for the job
+     * only, and is shared by any matrix profiles found within it.
+     */
+    private <T> T withExecutor(Supplier<T> job) {
+        if (numThreads <= 1 || executor != null) {
+            return job.get();
+        }
+        executor = ThreadingUtilities.buildExecutorService(numThreads);
+        try {
+            return job.get();
+        } finally {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private SingleInstanceMatrixProfile matrixProfile(double[] series, int seriesLength) {
+        return withExecutor(() -> new SingleInstanceMatrixProfile(series, seriesLength, this.windowSize, this.stride,
+                algorithm, executor, timeLimit, seed));
+    }
+
     @Override
     public Instance transform(Instance inst) {
 
         int seriesLength = inst.classIndex() >= 0 ? inst.numAttributes() - 1 : inst.numAttributes();
         int numOutputAtts = seriesLength + 1 - windowSize;
 
-        SingleInstanceMatrixProfile mpIns = new SingleInstanceMatrixProfile(inst, this.windowSize, this.stride);
+        SingleInstanceMatrixProfile mpIns = matrixProfile(inst.toDoubleArray(), seriesLength);
         Instance out = new DenseInstance(numOutputAtts);
 
         for (int i = 0; i < mpIns.distances.length; i++) {
@@ -82,12 +157,15 @@ public class MatrixProfile implements Transformer {
     
     @Override
     public TimeSeriesInstance transform(TimeSeriesInstance inst) {
-        double[][] out = new double[inst.getNumDimensions()][];
-        int i = 0;
-        for (TimeSeries ts : inst) {
-            out[i++] = new SingleInstanceMatrixProfile(ts.toArray(), this.windowSize, this.stride).series;
-        }
-        return new TimeSeriesInstance(out, inst.getLabelIndex()); 
+        return withExecutor(() -> {
+            double[][] out = new double[inst.getNumDimensions()][];
+            int i = 0;
+            for (TimeSeries ts : inst) {
+                double[] series = ts.toArray();
+                out[i++] = matrixProfile(series, series.length).distances;
+            }
+            return new TimeSeriesInstance(out, inst.getLabelIndex());
+        });
     }
 
 
@@ -112,7 +190,7 @@ public class MatrixProfile implements Transformer {
             windowSize = seriesLength / 4;
         }
 
-        return Transformer.super.transform(instances);
+        return withExecutor(() -> Transformer.super.transform(instances));
     }
 
     /**
@@ -143,10 +221,8 @@ public class MatrixProfile implements Transformer {
                             + " and you have specified " + windowSize);
         }
 
-        SingleInstanceMatrixProfile mpIns;
         Instances outputDistances = this.determineOutputFormat(instances);
         Instances outputIndices = this.determineOutputFormat(instances);
-        Instance outDist, outIdx;
 
         this.distances = new double[instances.numInstances()][];
         this.indices = new int[instances.numInstances()][];
@@ -156,28 +232,30 @@ public class MatrixProfile implements Transformer {
         }
         outputIndices.setRelationName(outputIndices.relationName() + "_indices");
 
-        for (int ins = 0; ins < instances.numInstances(); ins++) {
-            mpIns = new SingleInstanceMatrixProfile(instances.get(ins), this.windowSize, this.stride);
-            outDist = new DenseInstance(outputDistances.numAttributes());
-            outIdx = new DenseInstance(outputIndices.numAttributes());
+        return withExecutor(() -> {
+            for (int ins = 0; ins < instances.numInstances(); ins++) {
+                SingleInstanceMatrixProfile mpIns = matrixProfile(instances.get(ins).toDoubleArray(), seriesLength);
+                Instance outDist = new DenseInstance(outputDistances.numAttributes());
+                Instance outIdx = new DenseInstance(outputIndices.numAttributes());
 
-            distances[ins] = mpIns.distances;
-            indices[ins] = mpIns.indices;
+                distances[ins] = mpIns.distances;
+                indices[ins] = mpIns.indices;
 
-            for (int i = 0; i < mpIns.distances.length; i++) {
-                outDist.setValue(i, mpIns.distances[i]);
-                outIdx.setValue(i, mpIns.indices[i]);
-            }
+                for (int i = 0; i < mpIns.distances.length; i++) {
+                    outDist.setValue(i, mpIns.distances[i]);
+                    outIdx.setValue(i, mpIns.indices[i]);
+                }
 
-            if (instances.classIndex() >= 0) {
-                outDist.setValue(mpIns.distances.length, instances.instance(ins).classValue());
-                outIdx.setValue(mpIns.indices.length, instances.instance(ins).classValue());
-            }
+                if (instances.classIndex() >= 0) {
+                    outDist.setValue(mpIns.distances.length, instances.instance(ins).classValue());
+                    outIdx.setValue(mpIns.indices.length, instances.instance(ins).classValue());
+                }
 
-            outputDistances.add(outDist);
-            outputIndices.add(outIdx);
-        }
-        return new Instances[] { outputDistances, outputIndices };
+                outputDistances.add(outDist);
+                outputIndices.add(outIdx);
+            }
+            return new Instances[] { outputDistances, outputIndices };
+        });
     }
 
     public double[][] getDistances() throws Exception {
@@ -202,29 +280,29 @@ public class MatrixProfile implements Transformer {
         private final int[] indices;
         private final int seriesLength;
 
-        public SingleInstanceMatrixProfile(Instance series, int windowSize, int stride) {
-            this.series = series.toDoubleArray();
-            this.seriesLength = series.classIndex() > 0 ? series.numAttributes() - 1 : series.numAttributes();
-            this.windowSize = windowSize;
-            this.stride = stride;
-            this.distances = new double[seriesLength + 1 - windowSize];
-            this.indices = new int[seriesLength + 1 - windowSize];
-
-            for (int a = 0; a <= seriesLength - windowSize; a++) {
-                this.locateBestMatch(a);
-            }
+        public SingleInstanceMatrixProfile(double[] series, int windowSize, int stride) {
+            this(series, series.length, windowSize, stride, Algorithm.BRUTE_FORCE, null, 0, 0);
         }
 
-        public SingleInstanceMatrixProfile(double[] series, int windowSize, int stride) {
+        public SingleInstanceMatrixProfile(double[] series, int seriesLength, int windowSize, int stride,
+                Algorithm algorithm, ExecutorService executor, long timeLimit, int seed) {
             this.series = series;
-            this.seriesLength = series.length;
+            this.seriesLength = seriesLength;
             this.windowSize = windowSize;
             this.stride = stride;
             this.distances = new double[seriesLength + 1 - windowSize];
             this.indices = new int[seriesLength + 1 - windowSize];
 
-            for (int a = 0; a <= seriesLength - windowSize; a++) {
-                this.locateBestMatch(a);
+            // the fast algorithms only support a stride of 1
+            if (algorithm == Algorithm.BRUTE_FORCE || stride != 1) {
+                for (int a = 0; a <= seriesLength - windowSize; a++) {
+                    this.locateBestMatch(a);
+                }
+            } else if (algorithm == Algorithm.STOMP) {
+                DistanceProfile.stomp(series, seriesLength, windowSize, distances, indices, executor);
+            } else {
+                DistanceProfile.scrimp(series, seriesLength, windowSize, distances, indices, timeLimit,
+                        new Random(seed));
             }
         }
 
@@ -0,0 +1,65 @@
+package tsml.transformers;
+
+import org.junit.Assert;
+import org.junit.Test;
+import utilities.InstanceTools;
+import weka.core.Instances;
+
+import java.util.Random;
+
+/**
+ * Purpose: test STOMP and SCRIMP find the same matrix profile as the brute force search
+ */
+public class MatrixProfileTest {
+
+    private static final int WINDOW_SIZE = 10;
+
+    private static Instances buildData() {
+        final Random random = new Random(0);
+        final double[][] series = new double[5][300];
+        for(double[] values : series) {
+            for(int i = 0; i < values.length; i++) {
+                values[i] = random.nextGaussian();
+            }
+        }
+        // a flat stretch, where the windows have no variance
+        for(int i = 100; i < 130; i++) {
+            series[4][i] = 1;
+        }
+        return InstanceTools.toWekaInstances(series, new double[series.length]);
+    }
+
+    private static double[][] findDistances(Instances data, MatrixProfile.Algorithm algorithm, int numThreads)
+        throws Exception {
+        final MatrixProfile matrixProfile = new MatrixProfile(WINDOW_SIZE);
+        matrixProfile.setAlgorithm(algorithm);
+        matrixProfile.enableMultiThreading(numThreads);
+        matrixProfile.processDistancesAndIndices(data);
+        final int[][] indices = matrixProfile.getIndices();
+        for(int[] seriesIndices : indices) {
+            for(int i = 0; i < seriesIndices.length; i++) {
+                // the best match must be outside of the exclusion zone
+                Assert.assertTrue(Math.abs(seriesIndices[i] - i) > WINDOW_SIZE * 1.5);
+            }
+        }
+        return matrixProfile.getDistances();
+    }
+
+    @Test
+    public void testSameAsBruteForce() throws Exception {
+        final Instances data = buildData();
+        final double[][] expected = findDistances(data, MatrixProfile.Algorithm.BRUTE_FORCE, 1);
+        for(MatrixProfile.Algorithm algorithm : new MatrixProfile.Algorithm[] {MatrixProfile.Algorithm.STOMP,
+            MatrixProfile.Algorithm.SCRIMP}) {
+            for(int numThreads : new int[] {1, 3}) {
+                final double[][] distances = findDistances(data, algorithm, numThreads);
+                for(int i = 0; i < expected.length; i++) {
+                    Assert.assertEquals(expected[i].length, distances[i].length);
+                    for(int j = 0; j < expected[i].length; j++) {
+                        Assert.assertEquals(expected[i][j], distances[i][j], 1e-9 * Math.max(1, expected[i][j]));
+                    }
+                }
+            }
+        }
+    }
+}
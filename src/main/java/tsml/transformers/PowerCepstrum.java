@@ -19,8 +19,10 @@ import weka.core.Instance;
 import weka.core.Instances;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import tsml.data_containers.TimeSeriesInstance;
+import utilities.FFTEngine;
 
 /**
  *
@@ -76,18 +78,17 @@ public class PowerCepstrum extends PowerSpectrum{
         int n = (int)MathsPower2.roundPow2(ar.length-1);
         if(n<ar.length-1)
             n*=2;
-        FFT.Complex[] complex=new FFT.Complex[n];
-        for(int j=0;j<ar.length-1;j++)
-            complex[j]=new FFT.Complex(ar[j],0);
-        for(int j=ar.length-1;j<n;j++)
-            complex[j]=new FFT.Complex(0,0);
+        FFTEngine engine=FFTEngine.forSize(n);
+        double[] complex=engine.getWorkspace();
+        System.arraycopy(ar,0,complex,0,ar.length-1);
+        Arrays.fill(complex,ar.length-1,n,0);
 
 
-        //Take inverse FFT
-        inverseFFT(complex,complex.length);
+        //Take inverse FFT. For a real series this is the conjugate of the forward FFT divided by n
+        engine.realForward(complex);
         //Square the terms for the PowerCepstrum 
         for(int j=0;j<ar.length-1;j++)
-            out.setValue(j,complex[j].real*complex[j].real+complex[j].imag*complex[j].imag);
+            out.setValue(j,(complex[2*j]*complex[2*j]+complex[2*j+1]*complex[2*j+1])/((double)n*n));
 
         return out;
     }
@@ -110,17 +111,16 @@ public class PowerCepstrum extends PowerSpectrum{
             int n = (int)MathsPower2.roundPow2(length);
             if(n<length)
                 n*=2;
-            FFT.Complex[] complex=new FFT.Complex[n];
-            for(int j=0;j<length;j++)
-                complex[j]=new FFT.Complex(values[i][j],0);
-            for(int j=length;j<n;j++)
-                complex[j]=new FFT.Complex(0,0);
-
-            //Take inverse FFT
-            inverseFFT(complex,complex.length);
+            FFTEngine engine=FFTEngine.forSize(n);
+            double[] complex=engine.getWorkspace();
+            System.arraycopy(values[i],0,complex,0,length);
+            Arrays.fill(complex,length,n,0);
+
+            //Take inverse FFT. For a real series this is the conjugate of the forward FFT divided by n
+            engine.realForward(complex);
             //Square the terms for the PowerCepstrum 
             for(int j=0; j<length; j++)
-                values[i][j] = complex[j].real*complex[j].real+complex[j].imag*complex[j].imag;
+                values[i][j] = (complex[2*j]*complex[2*j]+complex[2*j+1]*complex[2*j+1])/((double)n*n);
         }
 
         return new TimeSeriesInstance(values, inst.getLabelIndex());
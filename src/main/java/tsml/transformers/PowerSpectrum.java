@@ -24,6 +24,7 @@ import experiments.data.DatasetLoading;
 import fileIO.OutFile;
 import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
+import utilities.FFTEngine;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
@@ -167,15 +168,13 @@ public class PowerSpectrum extends FFT {
         // Check power of 2
         if (((d.length) & (d.length - 1)) != 0) // Not a power of 2
             return null;
-        FFT.Complex[] c = new FFT.Complex[d.length];
-        for (int j = 0; j < d.length; j++) {
-            c[j] = new FFT.Complex(d[j], 0.0);
-        }
-        FFT f = new FFT();
-        f.fft(c, c.length);
-        double[] ps = new double[c.length];
-        for (int i = 0; i < c.length; i++)
-            ps[i] = c[i].getReal() * c[i].getReal() + c[i].getImag() * c[i].getImag();
+        FFTEngine engine = FFTEngine.forSize(d.length);
+        double[] c = engine.getWorkspace();
+        System.arraycopy(d, 0, c, 0, d.length);
+        engine.realForward(c);
+        double[] ps = new double[d.length];
+        for (int i = 0; i < d.length; i++)
+            ps[i] = c[2 * i] * c[2 * i] + c[2 * i + 1] * c[2 * i + 1];
         return ps;
     }
 
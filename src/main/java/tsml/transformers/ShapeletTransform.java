@@ -14,7 +14,9 @@
  */   
 package tsml.transformers;
 
+import tsml.classifiers.MultiThreadable;
 import tsml.classifiers.TrainTimeContractable;
+import tsml.classifiers.distance_based.utils.classifiers.CopierUtils;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
 import tsml.transformers.shapelet_tools.OrderLineObj;
@@ -25,16 +27,26 @@ import tsml.transformers.shapelet_tools.class_value.NormalClassValue;
 import tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance;
 import tsml.transformers.shapelet_tools.quality_measures.ShapeletQuality;
 import tsml.transformers.shapelet_tools.quality_measures.ShapeletQuality.ShapeletQualityChoice;
+import tsml.transformers.shapelet_tools.search_functions.RandomSearch;
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearch;
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearchFactory;
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearchOptions;
 import utilities.NumUtils;
+import utilities.ThreadingUtilities;
 import utilities.class_counts.ClassCounts;
 import utilities.rescalers.SeriesRescaler;
+import utilities.serialisation.Compression;
+import utilities.serialisation.Serialisation;
 import weka.core.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -66,7 +78,7 @@ import java.util.logging.Logger;
  *
  *         Refactored version for
  */
-public class ShapeletTransform implements Serializable, TechnicalInformationHandler, TrainableTransformer {
+public class ShapeletTransform implements Serializable, TechnicalInformationHandler, TrainableTransformer, MultiThreadable {
     // Global defaults. Max should be a lambda set to series length
     public final static int MAXTRANSFORMSIZE = 1000;
     public final static int DEFAULT_MINSHAPELETLENGTH = 3;
@@ -134,6 +146,16 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
                                    // BalancedClassShapeletTransform
     private double beta = 0.2;
 
+    /**
+     * Multi-threading. Threads search different series concurrently, in batches of a fixed number of series. Each batch
+     * is searched against the k best shapelets found before it, then merged in series order, so the shapelets found
+     * do not depend upon the number of threads. The thread count does not change the result, so it is not serialised.
+     * 0 threads means multi-threading has not been enabled, in which case the series are searched one at a time as
+     * before.
+     */
+    private static final int SERIES_PER_BATCH = 16;
+    private transient int numThreads = 0;
+
     /**
      * Default constructor; Quality measure defaults to information gain.
      */
@@ -639,6 +661,8 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
     }
 
     private ArrayList<Shapelet> findBestKShapeletsBalanced(Instances data) {
+        if (isParallelSearch())
+            return findBestKShapeletsInParallel(data, true);
         // If the number of shapelets we can calculate exceeds the total number in the
         // series, we will revert to full search
         ShapeletSearch full = new ShapeletSearch(searchFunction.getOptions());
@@ -863,6 +887,8 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
      * we found this better
      */
     public ArrayList<Shapelet> findBestKShapeletsOriginal(Instances data) {
+        if (isParallelSearch())
+            return findBestKShapeletsInParallel(data, false);
 
         ShapeletSearch full = new ShapeletSearch(searchFunction.getOptions());
 
@@ -946,6 +972,256 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
         return kShapelets;
     }
 
+    /**
+     * whether the search can be split between threads. This requires the choice of candidates to not depend upon the
+     * quality of those already evaluated, which holds for the full and random searches. Subclasses may evaluate
+     * candidates differently, so are searched on a single thread. Once multi-threading is enabled the batched search
+     * is used even for a single thread, so the shapelets found are the same whatever the number of threads.
+     */
+    private boolean isParallelSearch() {
+        return numThreads > 0 && getClass() == ShapeletTransform.class
+                && (searchFunction.getClass() == ShapeletSearch.class || searchFunction.getClass() == RandomSearch.class);
+    }
+
+    /**
+     * a candidate chosen by the search function, to be evaluated later.
+     */
+    private static class Candidate {
+        private final Instance series;
+        private final int start;
+        private final int length;
+        private final int dimension;
+
+        private Candidate(Instance series, int start, int length, int dimension) {
+            this.series = series;
+            this.start = start;
+            this.length = length;
+            this.dimension = dimension;
+        }
+    }
+
+    /**
+     * the candidates of one series, evaluated against the worst of the k best shapelets found beforehand.
+     */
+    private static class SeriesSearch {
+        private final int index;
+        private final Shapelet worstShapelet;
+        private final List<Candidate> candidates = new ArrayList<>();
+        private ArrayList<Shapelet> shapelets;
+        private long earlyAbandons;
+
+        private SeriesSearch(int index, Shapelet worstShapelet) {
+            this.index = index;
+            this.worstShapelet = worstShapelet;
+        }
+    }
+
+    /**
+     * Multi-threaded equivalent of findBestKShapeletsOriginal and findBestKShapeletsBalanced. The search function
+     * chooses the candidates of each series on this thread, so any random choices are made in the same order as a
+     * single threaded search. The candidates of a batch of series are then evaluated concurrently, each thread using
+     * its own copy of the distance, class value and quality functions. The shapelets of each series are merged into
+     * the k best in series order.
+     * <p>
+     * Contracting and adaptive timing work per batch rather than per series. The time per shapelet is measured in
+     * wall clock time across the threads, so the number of shapelets per series is scaled to the throughput of all
+     * the threads together.
+     */
+    private ArrayList<Shapelet> findBestKShapeletsInParallel(Instances data, boolean balanced) {
+        // the pool lasts for the search only
+        ExecutorService executor = ThreadingUtilities.buildExecutorService(getNumThreads());
+        try {
+            return findBestKShapeletsInParallel(data, balanced, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ArrayList<Shapelet> findBestKShapeletsInParallel(Instances data, boolean balanced,
+            ExecutorService executor) {
+        ShapeletSearch full = new ShapeletSearch(searchFunction.getOptions());
+        ShapeletSearch current = searchFunction;
+        boolean contracted = contractTime != 0;
+        boolean keepGoing = true;
+        long startTime = System.nanoTime();
+        long usedTime = 0;
+        int numSeriesToUse = data.numInstances();
+        int proportion = numShapelets;
+        if (balanced) {
+            // construct a map for our K-shapelets lists, on for each classVal.
+            if (kShapeletsMap == null) {
+                kShapeletsMap = new TreeMap<>();
+                for (int i = 0; i < data.numClasses(); i++) {
+                    kShapeletsMap.put((double) i, new ArrayList<>());
+                }
+            }
+            // found out how many shapelets we want from each class, split evenly.
+            proportion = numShapelets / kShapeletsMap.keySet().size();
+        }
+        outputPrint("Processing data for numShapelets " + numShapelets + " with " + getNumThreads() + " threads");
+        int passes = 0;
+        BlockingQueue<ShapeletTransform> workers = new ArrayBlockingQueue<>(getNumThreads());
+        for (int i = 0; i < getNumThreads(); i++) {
+            workers.add(newSearchWorker());
+        }
+
+        while (casesSoFar < numSeriesToUse && keepGoing) {
+            boolean firstPass = passes == 0;
+            // choose the candidates for the next batch of series
+            List<SeriesSearch> batch = new ArrayList<>(SERIES_PER_BATCH);
+            while (batch.size() < SERIES_PER_BATCH && casesSoFar < numSeriesToUse) {
+                Instance series = data.get(casesSoFar);
+                ArrayList<Shapelet> best = balanced ? kShapeletsMap.get(series.classValue()) : kShapelets;
+                Shapelet worst = best.size() == proportion ? best.get(best.size() - 1) : null;
+                SeriesSearch seriesSearch = new SeriesSearch(casesSoFar, worst);
+                current.searchForShapeletsInSeries(series, (candidate, start, length, dimension) -> {
+                    seriesSearch.candidates.add(new Candidate(candidate, start, length, dimension));
+                    return null;
+                });
+                batch.add(seriesSearch);
+                casesSoFar++;
+                // Logic is we have underestimated the contract so can run back through. Mirrors the single threaded
+                // searches, where only the balanced search restricts this to contracts.
+                if ((contracted || !balanced) && casesSoFar == numSeriesToUse - 1
+                        && !searchFunction.getSearchType().equals("FULL")) { /// HORRIBLE!
+                    casesSoFar = 0;
+                    passes++;
+                }
+            }
+
+            // evaluate the batch, each series on a thread of its own
+            long t1 = System.nanoTime();
+            List<Callable<Void>> tasks = new ArrayList<>(batch.size());
+            for (SeriesSearch seriesSearch : batch) {
+                tasks.add(() -> {
+                    ShapeletTransform worker = workers.take();
+                    try {
+                        worker.searchSeries(data, seriesSearch);
+                    } finally {
+                        workers.add(worker);
+                    }
+                    return null;
+                });
+            }
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            long t2 = System.nanoTime();
+
+            // merge in series order
+            long evaluated = 0;
+            long earlyAbandons = 0;
+            for (SeriesSearch seriesSearch : batch) {
+                ArrayList<Shapelet> seriesShapelets = seriesSearch.shapelets;
+                evaluated += seriesShapelets.size();
+                earlyAbandons += seriesSearch.earlyAbandons;
+                Collections.sort(seriesShapelets, shapeletComparator);
+                if (isRemoveSelfSimilar())
+                    seriesShapelets = removeSelfSimilar(seriesShapelets);
+                if (balanced) {
+                    double classVal = data.get(seriesSearch.index).classValue();
+                    kShapeletsMap.put(classVal, combine(proportion, kShapeletsMap.get(classVal), seriesShapelets));
+                } else {
+                    kShapelets = combine(numShapelets, kShapelets, seriesShapelets);
+                }
+            }
+            numShapeletsEvaluated += evaluated;
+            numEarlyAbandons += earlyAbandons;
+
+            if (adaptiveTiming && contracted && firstPass) {
+                double newTimePerShapelet = (double) (t2 - t1) / Math.max(1, evaluated + earlyAbandons);
+                if (balanced) {
+                    // Switch to full enum for next batch if sampling more than there are
+                    if (totalShapeletsPerSeries < (evaluated + earlyAbandons) / batch.size())
+                        current = full;
+                    else
+                        current = searchFunction;
+                }
+                usedTime = System.nanoTime() - startTime;
+                outputPrint(" Est time per shapelet  " + timePerShapelet / 1000000000 + " actual "
+                        + newTimePerShapelet / 1000000000);
+                // as the single threaded searches, count the remaining series from the last one searched
+                int lastIndex = batch.get(batch.size() - 1).index;
+                shapeletsSearchedPerSeries = adjustNumberPerSeries(contractTime - usedTime,
+                        numSeriesToUse - lastIndex, newTimePerShapelet);
+                outputPrint("Changing number of shapelets sampled from " + searchFunction.getNumShapeletsPerSeries()
+                        + " to " + shapeletsSearchedPerSeries);
+                searchFunction.setNumShapeletsPerSeries(shapeletsSearchedPerSeries);
+            }
+            createSerialFile();
+            usedTime = System.nanoTime() - startTime;
+            if (contracted && usedTime > contractTime)
+                keepGoing = false;
+        }
+
+        if (balanced)
+            kShapelets = buildKShapeletsFromMap(kShapeletsMap);
+        this.numShapelets = kShapelets.size();
+
+        if (recordShapelets)
+            recordShapelets(kShapelets, this.ouputFileLocation);
+
+        return kShapelets;
+    }
+
+    /**
+     * a copy of this transform for evaluating candidates on another thread. The data is shared, everything mutated
+     * when evaluating a candidate is copied.
+     */
+    private ShapeletTransform newSearchWorker() {
+        ShapeletTransform worker = new ShapeletTransform();
+        worker.inputData = inputData;
+        worker.dataSourceIDs = dataSourceIDs;
+        worker.useCandidatePruning = useCandidatePruning;
+        worker.candidatePruningStartPercentage = candidatePruningStartPercentage;
+        worker.setQualityMeasure(quality.getChoice());
+        try {
+            worker.shapeletDistance = (ShapeletDistance) CopierUtils.serialisedDeepCopy(shapeletDistance);
+            worker.classValue = (NormalClassValue) CopierUtils.serialisedDeepCopy(classValue);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        return worker;
+    }
+
+    /**
+     * evaluate the candidates of a series, run on a worker.
+     */
+    private void searchSeries(Instances data, SeriesSearch seriesSearch) {
+        casesSoFar = seriesSearch.index;
+        worstShapelet = seriesSearch.worstShapelet;
+        // set the series we're working with.
+        shapeletDistance.setSeries(casesSoFar);
+        // set the class value of the series we're working with.
+        classValue.setShapeletValue(data.get(casesSoFar));
+        long prevEarlyAbandons = numEarlyAbandons;
+        ArrayList<Shapelet> shapelets = new ArrayList<>();
+        for (Candidate candidate : seriesSearch.candidates) {
+            Shapelet shapelet = checkCandidate(candidate.series, candidate.start, candidate.length,
+                    candidate.dimension);
+            if (shapelet != null)
+                shapelets.add(shapelet);
+        }
+        seriesSearch.shapelets = shapelets;
+        seriesSearch.earlyAbandons = numEarlyAbandons - prevEarlyAbandons;
+    }
+
+    @Override
+    public void enableMultiThreading(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public int getNumThreads() {
+        return Math.max(1, numThreads);
+    }
+
     private long adjustNumberPerSeries(long timeRemaining, int seriesRemaining, double lastTimePerShapelet) {
         // reinforce time per shapelet
         timePerShapelet = (1 - beta) * timePerShapelet + beta * lastTimePerShapelet;
@@ -963,20 +1239,10 @@ public class ShapeletTransform implements Serializable, TechnicalInformationHand
             return;
 
         // Serialise the object.
-        ObjectOutputStream out = null;
-        try {
-            out = new ObjectOutputStream(new FileOutputStream(serialName));
-            out.writeObject(this);
+        try (FileOutputStream out = new FileOutputStream(serialName)) {
+            Serialisation.write(this, out, Compression.NONE);
         } catch (IOException ex) {
             System.out.println("Failed to write " + ex);
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException ex) {
-                    System.out.println("Failed to close " + ex);
-                }
-            }
         }
     }
 
@@ -0,0 +1,84 @@
+package tsml.transformers;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.transformers.shapelet_tools.Shapelet;
+import tsml.transformers.shapelet_tools.ShapeletTransformFactory;
+import tsml.transformers.shapelet_tools.ShapeletTransformFactoryOptions.ShapeletTransformOptions;
+import tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance;
+import tsml.transformers.shapelet_tools.quality_measures.ShapeletQuality;
+import tsml.transformers.shapelet_tools.search_functions.ShapeletSearch;
+import tsml.transformers.shapelet_tools.search_functions.ShapeletSearchOptions;
+import weka.core.Instances;
+
+import java.util.List;
+
+/**
+ * Purpose: test searching for shapelets with multiple threads finds the same shapelets whatever the number of threads
+ */
+public class ShapeletTransformTest {
+
+    private static ShapeletTransform buildTransform(Instances data, ShapeletSearch.SearchType searchType,
+        boolean balanced, int numThreads) {
+        final int length = data.numAttributes() - 1;
+        final ShapeletSearchOptions searchOptions = new ShapeletSearchOptions.Builder()
+                                                        .setMin(3)
+                                                        .setMax(length)
+                                                        .setSearchType(searchType)
+                                                        .setNumShapeletsToEvaluate(50)
+                                                        .setSeed(0)
+                                                        .build();
+        final ShapeletTransformOptions options = new ShapeletTransformOptions()
+                                                     .setMinLength(3)
+                                                     .setMaxLength(length)
+                                                     .setKShapelets(20)
+                                                     .setDistanceType(ShapeletDistance.DistanceType.IMPROVED_ONLINE)
+                                                     .setQualityMeasure(
+                                                         ShapeletQuality.ShapeletQualityChoice.INFORMATION_GAIN)
+                                                     .setRescalerType(ShapeletDistance.RescalerType.NORMALISATION)
+                                                     .setRoundRobin(true)
+                                                     .setCandidatePruning(true)
+                                                     .setClassBalancing(balanced)
+                                                     .setBinaryClassValue(balanced)
+                                                     .setSearchOptions(searchOptions);
+        final ShapeletTransform transform = new ShapeletTransformFactory(options.build()).getTransform();
+        transform.enableMultiThreading(numThreads);
+        // don't write the shapelets found to a file in the working directory
+        transform.turnOffLog();
+        return transform;
+    }
+
+    @Test
+    public void testSameShapeletsWithMultipleThreads() throws Exception {
+        final Instances[] data = DatasetLoading.sampleItalyPowerDemand(0);
+        for(ShapeletSearch.SearchType searchType : new ShapeletSearch.SearchType[] {ShapeletSearch.SearchType.FULL,
+            ShapeletSearch.SearchType.RANDOM}) {
+            for(boolean balanced : new boolean[] {false, true}) {
+                if(searchType == ShapeletSearch.SearchType.RANDOM && !balanced) {
+                    // an uncontracted unbalanced random search passes over the series until stopped by a contract
+                    continue;
+                }
+                final ShapeletTransform serial = buildTransform(data[0], searchType, balanced, 1);
+                final Instances serialTrain = serial.fitTransform(data[0]);
+                final ShapeletTransform parallel = buildTransform(data[0], searchType, balanced, 3);
+                final Instances parallelTrain = parallel.fitTransform(data[0]);
+                final List<Shapelet> serialShapelets = serial.getShapelets();
+                final List<Shapelet> parallelShapelets = parallel.getShapelets();
+                Assert.assertEquals(serialShapelets.size(), parallelShapelets.size());
+                for(int i = 0; i < serialShapelets.size(); i++) {
+                    final Shapelet expected = serialShapelets.get(i);
+                    final Shapelet actual = parallelShapelets.get(i);
+                    Assert.assertEquals(expected.getSeriesId(), actual.getSeriesId());
+                    Assert.assertEquals(expected.getStartPos(), actual.getStartPos());
+                    Assert.assertEquals(expected.getLength(), actual.getLength());
+                    Assert.assertEquals(expected.getQualityValue(), actual.getQualityValue(), 0);
+                }
+                for(int i = 0; i < serialTrain.size(); i++) {
+                    Assert.assertArrayEquals(serialTrain.get(i).toDoubleArray(),
+                        parallelTrain.get(i).toDoubleArray(), 0);
+                }
+            }
+        }
+    }
+}
@@ -1,14 +1,11 @@
 package tsml.transformers;
 
 import org.apache.commons.lang3.NotImplementedException;
-import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.DftNormalization;
-import org.apache.commons.math3.transform.FastFourierTransformer;
-import org.apache.commons.math3.transform.TransformType;
 
 import tsml.data_containers.TimeSeries;
 import tsml.data_containers.TimeSeriesInstance;
 import tsml.data_containers.TimeSeriesInstances;
+import utilities.FFTEngine;
 import utilities.multivariate_tools.MultivariateInstanceTools;
 import weka.core.*;
 import weka.filters.SimpleBatchFilter;
@@ -16,6 +13,7 @@ import weka.filters.SimpleBatchFilter;
 import static experiments.data.DatasetLoading.loadDataNullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Spectrogram implements Transformer {
@@ -139,22 +137,19 @@ public class Spectrogram implements Transformer {
     public double[][] spectrogram(double[] signal, int windowWidth, int overlap, int nfft) {
         checkParameters(signal.length);
         int numWindows = getNumWindows(signal.length);
-        FastFourierTransformer fft = new FastFourierTransformer(DftNormalization.STANDARD);
+        FFTEngine fft = FFTEngine.forSize(nfft);
         double[][] spectrogram = new double[numWindows][nfft / 2];
-        Complex[] STFFT = null;
+        double[] STFFT = fft.getWorkspace();
         for (int i = 0; i < numWindows; i++) {
-            STFFT = new Complex[nfft];
-            for (int j = 0; j < nfft; j++) {
-                STFFT[j] = new Complex(0.0, 0.0);
-            }
+            Arrays.fill(STFFT, windowLength, nfft, 0.0);
             for (int j = 0; j < windowLength; j++) {
                 double temp = signal[j + (i * (this.windowLength - this.overlap))]
                         * (0.56 - 0.46 * Math.cos(2 * Math.PI * ((double) j / (double) this.windowLength)));
-                STFFT[j] = new Complex(temp, 0.0);
+                STFFT[j] = temp;
             }
-            STFFT = fft.transform(STFFT, TransformType.FORWARD);
+            fft.realForward(STFFT);
             for (int j = 0; j < nfft / 2; j++) {
-                spectrogram[i][j] = STFFT[j].abs();
+                spectrogram[i][j] = Math.sqrt(STFFT[2 * j] * STFFT[2 * j] + STFFT[2 * j + 1] * STFFT[2 * j + 1]);
             }
         }
         return spectrogram;
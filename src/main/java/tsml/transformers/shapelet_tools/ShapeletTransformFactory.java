@@ -39,9 +39,11 @@ import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistan
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.DIMENSION;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.IMPROVED_ONLINE;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.INDEPENDENT;
+import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.MASS;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.NORMAL;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.ONLINE;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.ONLINE_CACHED;
+import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.SLIDING;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.RescalerType.*;
 
 /**
@@ -52,9 +54,11 @@ public class ShapeletTransformFactory {
      
     private static final Map<DistanceType, Supplier<ShapeletDistance>> distanceFunctions = createDistanceTable();
     private static Map<DistanceType, Supplier<ShapeletDistance>> createDistanceTable(){
-        //DistanceType{NORMAL, ONLINE, IMP_ONLINE, CACHED, ONLINE_CACHED, DEPENDENT, INDEPENDENT};
+        //DistanceType{NORMAL, SLIDING, MASS, ONLINE, IMP_ONLINE, CACHED, ONLINE_CACHED, DEPENDENT, INDEPENDENT};
         Map<DistanceType, Supplier<ShapeletDistance>> dCons = new HashMap<DistanceType, Supplier<ShapeletDistance>>();
         dCons.put(NORMAL, ShapeletDistance::new);
+        dCons.put(SLIDING, SlidingShapeletDistance::new);
+        dCons.put(MASS, MassShapeletDistance::new);
         dCons.put(ONLINE, OnlineShapeletDistance::new);
         dCons.put(IMPROVED_ONLINE, ImprovedOnlineShapeletDistance::new);
         dCons.put(CACHED, CachedShapeletDistance::new);
@@ -19,7 +19,7 @@ import static tsml.transformers.shapelet_tools.quality_measures.ShapeletQuality.
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearch;
 import tsml.transformers.shapelet_tools.search_functions.ShapeletSearchOptions;
 import tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType;
-import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.NORMAL;
+import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.DistanceType.SLIDING;
 import tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.RescalerType;
 import static tsml.transformers.shapelet_tools.distance_functions.ShapeletDistance.RescalerType.NORMALISATION;
 
@@ -223,7 +223,7 @@ public class ShapeletTransformFactoryOptions {
             }
             
             if(dist == null){
-                dist =  NORMAL;
+                dist =  SLIDING;
             }
         }
         public String toString(){
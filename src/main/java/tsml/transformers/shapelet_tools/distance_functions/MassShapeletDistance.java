@@ -0,0 +1,78 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tsml.transformers.shapelet_tools.distance_functions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import tsml.data_containers.TimeSeriesInstances;
+import utilities.DistanceProfile;
+import utilities.rescalers.ZNormalisation;
+import weka.core.Instances;
+
+/**
+ * The same distance as ShapeletDistance (NORMAL), found from the distance profile of the candidate over the series by
+ * MASS (see DistanceProfile), which is O(n log n) per series rather than O(n * length). The spectrum of each series is
+ * kept, so it is only transformed once however many candidates are compared to it. This suits long series, where
+ * there is little early abandoning. The distances match NORMAL up to rounding error.
+ * <p>
+ * Only z-normalisation is supported, any other rescaler falls back to NORMAL.
+ */
+public class MassShapeletDistance extends ShapeletDistance {
+
+    // the series compared to so far, by id
+    protected transient Map<Integer, DistanceProfile.Series> seriesById;
+
+    @Override
+    public void init(Instances data) {
+        super.init(data);
+        seriesById = new HashMap<>();
+    }
+
+    @Override
+    public void init(TimeSeriesInstances data) {
+        super.init(data);
+        seriesById = new HashMap<>();
+    }
+
+    @Override
+    public double calculate(double[] timeSeries, int timeSeriesId) {
+        // as NORMAL, the last value (i.e. the class value) does not start a subsequence
+        final int seriesLength = timeSeries.length - 1;
+        if (!(seriesRescaler instanceof ZNormalisation) || seriesLength < length) {
+            return super.calculate(timeSeries, timeSeriesId);
+        }
+        if (seriesById == null) {
+            seriesById = new HashMap<>();
+        }
+        // the ids are reused by the data transformed after fitting, so check the series is the same one
+        DistanceProfile.Series series = seriesById.get(timeSeriesId);
+        if (series == null || !series.matches(timeSeries, seriesLength)) {
+            series = new DistanceProfile.Series(timeSeries, seriesLength);
+            seriesById.put(timeSeriesId, series);
+        }
+
+        double bestSum = Double.MAX_VALUE;
+        for (double sum : series.mass(cand.getShapeletContent())) {
+            count += length;
+            if (sum < bestSum) {
+                bestSum = sum;
+            }
+        }
+
+        return (bestSum == 0.0) ? 0.0 : (1.0 / length * bestSum);
+    }
+
+}
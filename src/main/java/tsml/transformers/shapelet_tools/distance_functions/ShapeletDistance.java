@@ -36,6 +36,8 @@ public class ShapeletDistance implements Serializable{
 //Each enum represents a class in this package
     public enum DistanceType{
         NORMAL,         // Standard full scan (with early abandon) is this class
+        SLIDING,        // Same distance as NORMAL with running normalisation statistics and no copying, see SlidingShapeletDistance
+        MASS,           // Same distance as NORMAL from an FFT distance profile, for long series, see MassShapeletDistance
         ONLINE,         // Faster normalisation for extracted subsequences (avoids a call to RescalerType
         IMPROVED_ONLINE,     // online calculation with variable start and bespoke abandon SEE DAWAK PAPER
         CACHED,         // Mueen's pre-cached version see Logical Shapelets paper
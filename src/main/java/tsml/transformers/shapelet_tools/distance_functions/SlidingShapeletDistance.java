@@ -0,0 +1,141 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package tsml.transformers.shapelet_tools.distance_functions;
+
+import utilities.rescalers.ZNormalisation;
+
+import static utilities.rescalers.ZNormalisation.ROUNDING_ERROR_CORRECTION;
+
+/**
+ * The same distance as ShapeletDistance (NORMAL), the minimum squared euclidean distance between the z-normalised
+ * candidate and each z-normalised subsequence of the series, calculated without copying any subsequence.
+ * <p>
+ * The mean and standard deviation of each subsequence are kept as running sums, so are O(1) per offset rather than
+ * O(length). Each subsequence is normalised on the fly while summing the distance, which is abandoned once it can no
+ * longer beat the best so far (allowing for the rounding error of the running sums). The few subsequences which are
+ * not abandoned are scored again exactly as NORMAL does, so the distance is identical to NORMAL.
+ * <p>
+ * The running sums are shifted by a value from the series, and recalculated every length offsets, to keep rounding
+ * errors small. Subsequences with (almost) no variance are where the running variance is least accurate, so their
+ * statistics are calculated in full.
+ * <p>
+ * Only z-normalisation is done on the fly, any other rescaler falls back to NORMAL.
+ */
+public class SlidingShapeletDistance extends ShapeletDistance {
+
+    // below this proportion of the mean square the running variance is dominated by rounding error
+    private static final double CANCELLATION_RATIO = 1e-8;
+    // how much the running distance must exceed the best so far by to be abandoned, well beyond its rounding error
+    private static final double ABANDON_SLACK = 1 + 1e-6;
+
+    @Override
+    public double calculate(double[] timeSeries, int timeSeriesId) {
+        if (!(seriesRescaler instanceof ZNormalisation)) {
+            return super.calculate(timeSeries, timeSeriesId);
+        }
+        final double[] candidate = cand.getShapeletContent();
+        final int numOffsets = timeSeries.length - length;
+        double bestSum = Double.MAX_VALUE;
+        double shift = 0;
+        double sum = 0;
+        double sumsq = 0;
+
+        for (int i = 0; i < numOffsets; i++) {
+            if (i % length == 0) {
+                // (re)calculate the running sums from scratch
+                shift = timeSeries[i];
+                sum = 0;
+                sumsq = 0;
+                for (int j = i; j < i + length; j++) {
+                    final double temp = timeSeries[j] - shift;
+                    sum += temp;
+                    sumsq += temp * temp;
+                }
+            } else {
+                final double start = timeSeries[i - 1] - shift;
+                final double end = timeSeries[i - 1 + length] - shift;
+                sum += end - start;
+                sumsq += end * end - start * start;
+            }
+
+            final double shiftedMean = sum / length;
+            double variance = sumsq / length - shiftedMean * shiftedMean;
+            double mean;
+            final boolean exact = variance < CANCELLATION_RATIO * (sumsq / length);
+            if (exact) {
+                // too little variance to trust the running sums
+                mean = exactMean(timeSeries, i);
+                variance = exactVariance(timeSeries, i, mean);
+            } else {
+                mean = shift + shiftedMean;
+            }
+            double stdv = (variance < ROUNDING_ERROR_CORRECTION) ? 0.0 : Math.sqrt(variance);
+
+            final double abandonSum = bestSum * ABANDON_SLACK;
+            double currentSum = distance(timeSeries, i, mean, stdv, candidate, abandonSum);
+            if (currentSum < abandonSum) {
+                // could be the best, so score exactly
+                if (!exact) {
+                    mean = exactMean(timeSeries, i);
+                    variance = exactVariance(timeSeries, i, mean);
+                    stdv = (variance < ROUNDING_ERROR_CORRECTION) ? 0.0 : Math.sqrt(variance);
+                    currentSum = distance(timeSeries, i, mean, stdv, candidate, bestSum);
+                }
+                if (currentSum < bestSum) {
+                    bestSum = currentSum;
+                }
+            }
+        }
+
+        return (bestSum == 0.0) ? 0.0 : (1.0 / length * bestSum);
+    }
+
+    /**
+     * the squared distance between the candidate and the subsequence at offset i once normalised, abandoned once
+     * reaching the given sum.
+     */
+    private double distance(double[] timeSeries, int i, double mean, double stdv, double[] candidate,
+            double abandonSum) {
+        double currentSum = 0;
+        double temp;
+        for (int j = 0; j < length && currentSum < abandonSum; j++) {
+            count++;
+            temp = candidate[j] - ((stdv == 0.0) ? 0.0 : ((timeSeries[i + j] - mean) / stdv));
+            currentSum = currentSum + (temp * temp);
+        }
+        return currentSum;
+    }
+
+    // the mean and variance of the subsequence at offset i, calculated as ZNormalisation does
+
+    private double exactMean(double[] timeSeries, int i) {
+        double total = 0;
+        for (int j = i; j < i + length; j++) {
+            total += timeSeries[j];
+        }
+        return total / (double) length;
+    }
+
+    private double exactVariance(double[] timeSeries, int i, double mean) {
+        double variance = 0;
+        double temp;
+        for (int j = i; j < i + length; j++) {
+            temp = (timeSeries[j] - mean);
+            variance += temp * temp;
+        }
+        return variance / (double) length;
+    }
+
+}
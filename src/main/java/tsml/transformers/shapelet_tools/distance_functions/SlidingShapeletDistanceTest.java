@@ -0,0 +1,54 @@
+package tsml.transformers.shapelet_tools.distance_functions;
+
+import org.junit.Assert;
+import org.junit.Test;
+import utilities.InstanceTools;
+import weka.core.Instances;
+
+import java.util.Random;
+
+/**
+ * Purpose: test the sliding shapelet distance is exactly the same as the normal shapelet distance
+ */
+public class SlidingShapeletDistanceTest {
+
+    private static Instances buildData(Random random, int numSeries, int length) {
+        final double[][] series = new double[numSeries][length];
+        for(int i = 0; i < numSeries; i++) {
+            double value = 0;
+            for(int j = 0; j < length; j++) {
+                // half gaussian noise, half random walks, which drift far from 0
+                value = i % 2 == 0 ? random.nextGaussian() : value + random.nextGaussian();
+                series[i][j] = value;
+            }
+        }
+        // a flat stretch, where the subsequences have no variance
+        for(int j = length / 3; j < length / 2; j++) {
+            series[0][j] = 3;
+        }
+        return InstanceTools.toWekaInstances(series, new double[numSeries]);
+    }
+
+    @Test
+    public void testSameAsNormal() {
+        final Random random = new Random(0);
+        final int length = 200;
+        final Instances data = buildData(random, 6, length);
+        final ShapeletDistance normal = new ShapeletDistance();
+        final ShapeletDistance sliding = new SlidingShapeletDistance();
+        normal.init(data);
+        sliding.init(data);
+        for(int i = 0; i < 200; i++) {
+            final int candidateLength = 3 + random.nextInt(length - 3);
+            final int start = random.nextInt(length - candidateLength + 1);
+            final int seriesId = random.nextInt(data.size());
+            normal.setCandidate(data.get(seriesId), start, candidateLength, 0);
+            sliding.setCandidate(data.get(seriesId), start, candidateLength, 0);
+            normal.setSeries(seriesId);
+            sliding.setSeries(seriesId);
+            for(int j = 0; j < data.size(); j++) {
+                Assert.assertEquals(normal.calculate(data.get(j), j), sliding.calculate(data.get(j), j), 0);
+            }
+        }
+    }
+}
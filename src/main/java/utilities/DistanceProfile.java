@@ -0,0 +1,383 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static utilities.rescalers.ZNormalisation.ROUNDING_ERROR_CORRECTION;
+
+/**
+ * Z-normalised distance profiles, i.e. the squared euclidean distance between a z-normalised query and every
+ * z-normalised subsequence of a series, following the same conventions as ZNormalisation (a subsequence with no
+ * variance normalises to all zeros).
+ * <ul>
+ *     <li>MASS (Mueen's Algorithm for Similarity Search) finds the dot products of the query with every subsequence
+ *     by FFT convolution, so a distance profile is O(n log n) rather than O(n * m). The spectrum of a series can be
+ *     kept (see Series) to answer many queries against the same series.</li>
+ *     <li>STOMP finds the matrix profile of a series (the distance from every subsequence to its nearest non-trivial
+ *     match in the same series) in O(n^2) by updating the dot products of one subsequence from those of the last.
+ *     Rows of the matrix profile are split between threads in blocks, each started by MASS.</li>
+ *     <li>SCRIMP finds the matrix profile one diagonal of the distance matrix at a time, in a random order, so can be
+ *     stopped at any time to give an approximate matrix profile which converges on the exact one.</li>
+ * </ul>
+ * The series are centred on their mean before any dot products are taken, which keeps the rounding error small for
+ * series far from zero. Distances agree with those of a direct calculation up to rounding error, so ties between
+ * (near) equal distances may be broken differently.
+ * <p>
+ * Matrix profiles exclude trivial matches, i.e. subsequences starting within 1.5 window sizes of the query, and ties
+ * are broken by the smallest index. If a subsequence has no non-trivial match its distance is Double.MAX_VALUE and
+ * index -1.
+ */
+public class DistanceProfile {
+
+    // rows of the matrix profile per block in STOMP. Fixed, so the matrix profile does not depend on the thread count
+    private static final int ROWS_PER_BLOCK = 256;
+    // below this proportion of the mean square the running variance is dominated by rounding error
+    private static final double CANCELLATION_RATIO = 1e-8;
+
+    /**
+     * A series ready to be queried, holding its spectrum so only the query need be transformed per query.
+     */
+    public static class Series {
+        private final double[] original;
+        private final double[] values;
+        private final int length;
+        private final int fftSize;
+        private final double[] spectrum;
+
+        /**
+         * @param series the series values
+         * @param length the number of values at the start of the series to use, e.g. to leave out a class value
+         */
+        public Series(double[] series, int length) {
+            this.length = length;
+            original = Arrays.copyOf(series, length);
+            values = centre(original);
+            // big enough to hold the linear convolution with any query no longer than the series
+            fftSize = Math.max(2, FFTEngine.paddedLength(2 * length - 1));
+            spectrum = Arrays.copyOf(values, fftSize);
+            FFTEngine.forSize(fftSize).packedRealForward(spectrum);
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return whether this holds the given values
+         */
+        public boolean matches(double[] series, int length) {
+            if (length != this.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (Double.doubleToLongBits(series[i]) != Double.doubleToLongBits(original[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the dot product of the query with the subsequence at each offset of this (centred) series
+         */
+        public double[] dotProducts(double[] query) {
+            final int m = query.length;
+            final double[] product = new double[fftSize];
+            // convolving with the reversed query gives the dot products
+            for (int i = 0; i < m; i++) {
+                product[i] = query[m - 1 - i];
+            }
+            final FFTEngine fft = FFTEngine.forSize(fftSize);
+            fft.packedRealForward(product);
+            product[0] *= spectrum[0];
+            product[1] *= spectrum[1];
+            for (int k = 2; k < fftSize; k += 2) {
+                final double re = product[k];
+                final double im = product[k + 1];
+                product[k] = re * spectrum[k] - im * spectrum[k + 1];
+                product[k + 1] = re * spectrum[k + 1] + im * spectrum[k];
+            }
+            fft.packedRealInverse(product);
+            return Arrays.copyOfRange(product, m - 1, length);
+        }
+
+        /**
+         * MASS. The query is taken to already be z-normalised, as shapelets are, and is not normalised again.
+         *
+         * @return the squared euclidean distance between the query and each z-normalised subsequence of this series
+         */
+        public double[] mass(double[] normalisedQuery) {
+            final int m = normalisedQuery.length;
+            final double[] dotProducts = dotProducts(normalisedQuery);
+            final double[] means = new double[dotProducts.length];
+            final double[] stdvs = new double[dotProducts.length];
+            windowStatistics(values, length, m, means, stdvs);
+            double querySum = 0;
+            double querySumsq = 0;
+            for (double value : normalisedQuery) {
+                querySum += value;
+                querySumsq += value * value;
+            }
+            final double[] distances = dotProducts;
+            for (int i = 0; i < distances.length; i++) {
+                if (stdvs[i] == 0.0) {
+                    distances[i] = querySumsq;
+                } else {
+                    distances[i] = Math.max(0, querySumsq + m - 2 * (dotProducts[i] - means[i] * querySum) / stdvs[i]);
+                }
+            }
+            return distances;
+        }
+    }
+
+    private static double[] centre(double[] series) {
+        double mean = 0;
+        for (double value : series) {
+            mean += value;
+        }
+        mean /= Math.max(1, series.length);
+        final double[] centred = new double[series.length];
+        for (int i = 0; i < series.length; i++) {
+            centred[i] = series[i] - mean;
+        }
+        return centred;
+    }
+
+    /**
+     * The mean and standard deviation of each subsequence, as ZNormalisation would find them, using running sums.
+     */
+    public static void windowStatistics(double[] series, int length, int windowSize, double[] means,
+            double[] stdvs) {
+        double shift = 0;
+        double sum = 0;
+        double sumsq = 0;
+        for (int i = 0; i <= length - windowSize; i++) {
+            if (i % windowSize == 0) {
+                // (re)calculate the running sums from scratch to stop rounding errors accumulating
+                shift = series[i];
+                sum = 0;
+                sumsq = 0;
+                for (int j = i; j < i + windowSize; j++) {
+                    final double temp = series[j] - shift;
+                    sum += temp;
+                    sumsq += temp * temp;
+                }
+            } else {
+                final double start = series[i - 1] - shift;
+                final double end = series[i - 1 + windowSize] - shift;
+                sum += end - start;
+                sumsq += end * end - start * start;
+            }
+            final double shiftedMean = sum / windowSize;
+            double variance = sumsq / windowSize - shiftedMean * shiftedMean;
+            if (variance < CANCELLATION_RATIO * (sumsq / windowSize)) {
+                // too little variance to trust the running sums, so calculate exactly
+                double mean = 0;
+                for (int j = i; j < i + windowSize; j++) {
+                    mean += series[j];
+                }
+                mean /= windowSize;
+                variance = 0;
+                for (int j = i; j < i + windowSize; j++) {
+                    final double temp = series[j] - mean;
+                    variance += temp * temp;
+                }
+                variance /= windowSize;
+                means[i] = mean;
+            } else {
+                means[i] = shift + shiftedMean;
+            }
+            stdvs[i] = (variance < ROUNDING_ERROR_CORRECTION) ? 0.0 : Math.sqrt(variance);
+        }
+    }
+
+    /**
+     * @return the first offset past the exclusion zone, i.e. subsequences at least this far apart are non-trivial
+     * matches
+     */
+    private static int exclusionZone(int windowSize) {
+        return (int) Math.floor(windowSize * 1.5) + 1;
+    }
+
+    /**
+     * the squared distance between two z-normalised subsequences given their dot product and statistics.
+     */
+    private static double distance(double dotProduct, int windowSize, double meanA, double stdvA, double meanB,
+            double stdvB) {
+        if (stdvA == 0.0) {
+            return stdvB == 0.0 ? 0 : windowSize;
+        } else if (stdvB == 0.0) {
+            return windowSize;
+        }
+        final double correlation = (dotProduct - windowSize * meanA * meanB) / (windowSize * stdvA * stdvB);
+        return Math.max(0, 2 * windowSize * (1 - correlation));
+    }
+
+    /**
+     * STOMP. Find the matrix profile of the first length values of the series.
+     *
+     * @param distances filled with the squared distance of each subsequence to its nearest non-trivial match
+     * @param indices   filled with the index of the nearest non-trivial match of each subsequence
+     * @param executor  the threads to split the rows between, or null to use this thread
+     */
+    public static void stomp(double[] series, int length, int windowSize, double[] distances, int[] indices,
+            ExecutorService executor) {
+        final Series centred = new Series(series, length);
+        final int numWindows = length - windowSize + 1;
+        final double[] means = new double[numWindows];
+        final double[] stdvs = new double[numWindows];
+        windowStatistics(centred.values, length, windowSize, means, stdvs);
+        final List<Callable<Void>> blocks = new ArrayList<>();
+        for (int start = 0; start < numWindows; start += ROWS_PER_BLOCK) {
+            final int blockStart = start;
+            final int blockEnd = Math.min(numWindows, start + ROWS_PER_BLOCK);
+            blocks.add(() -> {
+                stompRows(centred, windowSize, means, stdvs, blockStart, blockEnd, distances, indices);
+                return null;
+            });
+        }
+        try {
+            if (executor == null || blocks.size() == 1) {
+                for (Callable<Void> block : blocks) {
+                    block.call();
+                }
+            } else {
+                for (Future<Void> future : executor.invokeAll(blocks)) {
+                    future.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void stompRows(Series centred, int windowSize, double[] means, double[] stdvs, int start, int end,
+            double[] distances, int[] indices) {
+        final double[] values = centred.values;
+        final int numWindows = means.length;
+        final int exclusion = exclusionZone(windowSize);
+        // the first row of the block comes from MASS, the rest are updated from the row before
+        final double[] dotProducts = centred.dotProducts(Arrays.copyOfRange(values, start, start + windowSize));
+        final double[] firstColumn = start == 0 ? dotProducts.clone() : null;
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                for (int j = numWindows - 1; j > 0; j--) {
+                    dotProducts[j] = dotProducts[j - 1] - values[i - 1] * values[j - 1]
+                            + values[i - 1 + windowSize] * values[j - 1 + windowSize];
+                }
+                // the dot product of subsequence i with subsequence 0, by symmetry
+                double dotProduct = 0;
+                if (firstColumn != null) {
+                    dotProduct = firstColumn[i];
+                } else {
+                    for (int k = 0; k < windowSize; k++) {
+                        dotProduct += values[i + k] * values[k];
+                    }
+                }
+                dotProducts[0] = dotProduct;
+            }
+            double best = Double.MAX_VALUE;
+            int bestIndex = -1;
+            for (int j = 0; j < numWindows; j++) {
+                if (Math.abs(j - i) < exclusion) {
+                    continue;
+                }
+                final double distance = distance(dotProducts[j], windowSize, means[i], stdvs[i], means[j], stdvs[j]);
+                if (distance < best) {
+                    best = distance;
+                    bestIndex = j;
+                }
+            }
+            distances[i] = best;
+            indices[i] = bestIndex;
+        }
+    }
+
+    /**
+     * SCRIMP. Find the matrix profile of the first length values of the series, a diagonal of the distance matrix at
+     * a time in a random order, until all are done or the time limit is reached.
+     *
+     * @param timeLimit the time limit in nanoseconds, 0 for none
+     * @param random    the source of the order of the diagonals
+     * @return the proportion of the distance matrix searched
+     */
+    public static double scrimp(double[] series, int length, int windowSize, double[] distances, int[] indices,
+            long timeLimit, Random random) {
+        final long startTime = System.nanoTime();
+        final double[] values = centre(Arrays.copyOf(series, length));
+        final int numWindows = length - windowSize + 1;
+        final double[] means = new double[numWindows];
+        final double[] stdvs = new double[numWindows];
+        windowStatistics(values, length, windowSize, means, stdvs);
+        Arrays.fill(distances, 0, numWindows, Double.MAX_VALUE);
+        Arrays.fill(indices, 0, numWindows, -1);
+        final int exclusion = exclusionZone(windowSize);
+        if (exclusion >= numWindows) {
+            return 1;
+        }
+        final int[] diagonals = new int[numWindows - exclusion];
+        for (int k = 0; k < diagonals.length; k++) {
+            diagonals[k] = exclusion + k;
+        }
+        for (int k = diagonals.length - 1; k > 0; k--) {
+            final int swap = random.nextInt(k + 1);
+            final int temp = diagonals[k];
+            diagonals[k] = diagonals[swap];
+            diagonals[swap] = temp;
+        }
+        long done = 0;
+        final long total = (long) diagonals.length * (numWindows - exclusion + 1) / 2;
+        for (int diagonal : diagonals) {
+            if (timeLimit > 0 && System.nanoTime() - startTime > timeLimit) {
+                break;
+            }
+            double dotProduct = 0;
+            for (int k = 0; k < windowSize; k++) {
+                dotProduct += values[k] * values[diagonal + k];
+            }
+            for (int i = 0; i + diagonal < numWindows; i++) {
+                final int j = i + diagonal;
+                if (i > 0) {
+                    dotProduct += values[i - 1 + windowSize] * values[j - 1 + windowSize]
+                            - values[i - 1] * values[j - 1];
+                }
+                final double distance = distance(dotProduct, windowSize, means[i], stdvs[i], means[j], stdvs[j]);
+                if (distance < distances[i] || (distance == distances[i] && j < indices[i])) {
+                    distances[i] = distance;
+                    indices[i] = j;
+                }
+                if (distance < distances[j] || (distance == distances[j] && i < indices[j])) {
+                    distances[j] = distance;
+                    indices[j] = i;
+                }
+            }
+            done += numWindows - diagonal;
+        }
+        return (double) done / total;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package utilities;
+
+import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fast Fourier transforms over primitive arrays, for the transformers and classifiers which take many small FFTs
+ * (Catch22, RISE, KShape etc.). Complex values are interleaved in a double[], the real part of term k at 2k and the
+ * imaginary part at 2k+1, so no object is made per term.
+ * <p>
+ * There is one engine per size, made on first use and shared by all callers, which holds the twiddle factors for that
+ * size. The transforms themselves are done by JTransforms, as in WEASEL. Any size is supported, but powers of two are
+ * the fastest. Engines are safe to use from many threads at once. The engines for powers of two are kept for good, as
+ * there are at most 31 of them, but only the MAX_OTHER_ENGINES most recently used engines of other sizes are kept.
+ * <p>
+ * Each engine has a workspace of 2 * size values per thread (see getWorkspace), so a caller which does not need to
+ * keep the result of a transform need not allocate anything per call. The workspaces of an engine no longer kept are
+ * freed along with it.
+ */
+public class FFTEngine {
+
+    // the most engines of sizes other than powers of two kept at once
+    static final int MAX_OTHER_ENGINES = 16;
+    private static final Map<Integer, FFTEngine> ENGINES = new ConcurrentHashMap<>();
+    // the engines of other sizes, least recently used first
+    private static final Map<Integer, FFTEngine> OTHER_ENGINES = Collections.synchronizedMap(
+            new LinkedHashMap<Integer, FFTEngine>(MAX_OTHER_ENGINES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, FFTEngine> eldest) {
+                    return size() > MAX_OTHER_ENGINES;
+                }
+            });
+
+    private final int size;
+    private final DoubleFFT_1D fft;
+    private final ThreadLocal<double[]> workspace;
+
+    private FFTEngine(int size) {
+        this.size = size;
+        fft = new DoubleFFT_1D(size);
+        workspace = ThreadLocal.withInitial(() -> new double[2 * size]);
+    }
+
+    /**
+     * @param size the number of terms transformed
+     * @return the engine for the size
+     */
+    public static FFTEngine forSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("FFT size must be positive: " + size);
+        }
+        if (Integer.bitCount(size) == 1) {
+            return ENGINES.computeIfAbsent(size, FFTEngine::new);
+        }
+        return OTHER_ENGINES.computeIfAbsent(size, FFTEngine::new);
+    }
+
+    /**
+     * @return the smallest power of two at least the length
+     */
+    public static int paddedLength(int length) {
+        return length <= 1 ? 1 : Integer.highestOneBit(length - 1) << 1;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return an array of 2 * size values for the calling thread, reused by every call on that thread. The contents
+     * are whatever the last user left, so must be filled before use and not kept.
+     */
+    public double[] getWorkspace() {
+        return workspace.get();
+    }
+
+    /**
+     * In place forward transform of size complex values.
+     *
+     * @param data size complex values, interleaved real/imaginary
+     */
+    public void forward(double[] data) {
+        fft.complexForward(data);
+    }
+
+    /**
+     * In place inverse transform of size complex values, scaled by 1 / size so inverse(forward(x)) is x.
+     *
+     * @param data size complex values, interleaved real/imaginary
+     */
+    public void inverse(double[] data) {
+        fft.complexInverse(data, true);
+    }
+
+    /**
+     * In place forward transform of size real values, which is about twice as fast as the complex transform.
+     *
+     * @param data at least 2 * size values, the series in the first size. On return holds all size complex terms,
+     *             interleaved real/imaginary (the second half are the conjugates of the first)
+     */
+    public void realForward(double[] data) {
+        fft.realForwardFull(data);
+    }
+
+    /**
+     * In place forward transform of size real values, packed into size values as JTransforms does: data[0] is the
+     * real part of term 0, data[1] the real part of term size / 2 (for even size) and data[2k], data[2k+1] the real and
+     * imaginary parts of term k. Only the first half of the terms are kept, as the second are their conjugates.
+     *
+     * @param data the series, replaced by its packed spectrum
+     */
+    public void packedRealForward(double[] data) {
+        fft.realForward(data);
+    }
+
+    /**
+     * In place inverse of packedRealForward, scaled by 1 / size.
+     *
+     * @param data a packed spectrum, replaced by the real series
+     */
+    public void packedRealInverse(double[] data) {
+        fft.realInverse(data, true);
+    }
+
+}
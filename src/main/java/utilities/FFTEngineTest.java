@@ -0,0 +1,117 @@
+package utilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.transformers.FFT;
+
+import java.util.Random;
+
+/**
+ * Purpose: test the FFT engine gives the same transforms as the float FFT it replaced and a direct DFT
+ */
+public class FFTEngineTest {
+
+    private static final double[][] SERIES = {
+        {1.5, -0.25, 3, 2, -1, 0.5, 4, -2},
+        {0.3, 1.2, -0.7, 2.5, 1.1, -1.8, 0.4, 0.9, -2.2, 1.6, 0.05, -0.6, 3.1, -0.4, 0.8, 1.9}
+    };
+
+    // the transforms of SERIES by the float FFT used before the engine, by the radix 2 and radix 4 paths, interleaved
+    // real/imaginary
+    private static final float[][] FLOAT_FFT_TERMS = {
+        {7.75f, 0.0f, -0.858757f, -1.2980971f, -6.5f, -0.25f, 5.858757f, -3.2980971f, 7.25f, 0.0f, 5.858757f,
+            3.2980971f, -6.5f, 0.25f, -0.858757f, 1.2980971f},
+        {8.15f, 0.0f, 4.5289154f, 1.7783346f, -1.9280701f, -1.049138f, -1.1803601f, 0.757166f, 1.7499996f, 4.0999994f,
+            6.675335f, 3.1308203f, -10.27193f, -4.749138f, -0.023890257f, -3.848011f, -2.4500003f, 0.0f,
+            -0.023890257f, 3.848011f, -10.27193f, 4.749138f, 6.675335f, -3.1308203f, 1.7499996f, -4.0999994f,
+            -1.1803601f, -0.757166f, -1.9280701f, 1.049138f, 4.5289154f, -1.7783346f}
+    };
+
+    private static double[] toComplex(double[] series) {
+        final double[] data = new double[2 * series.length];
+        for(int i = 0; i < series.length; i++) {
+            data[2 * i] = series[i];
+        }
+        return data;
+    }
+
+    private static double[] dft(double[] series) {
+        final int n = series.length;
+        final double[] terms = new double[2 * n];
+        for(int k = 0; k < n; k++) {
+            for(int t = 0; t < n; t++) {
+                final double angle = -2 * Math.PI * k * t / n;
+                terms[2 * k] += series[t] * Math.cos(angle);
+                terms[2 * k + 1] += series[t] * Math.sin(angle);
+            }
+        }
+        return terms;
+    }
+
+    private static void assertClose(double[] expected, double[] actual, double tolerance) {
+        for(int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], actual[i], tolerance * Math.max(1, Math.abs(expected[i])));
+        }
+    }
+
+    @Test
+    public void testSameAsFloatFft() {
+        for(int i = 0; i < SERIES.length; i++) {
+            final double[] expected = new double[FLOAT_FFT_TERMS[i].length];
+            for(int j = 0; j < expected.length; j++) {
+                expected[j] = FLOAT_FFT_TERMS[i][j];
+            }
+            final double[] data = toComplex(SERIES[i]);
+            FFTEngine.forSize(SERIES[i].length).forward(data);
+            assertClose(expected, data, 1e-5);
+            // and through the Complex adapter kept for callers of the old FFT
+            final FFT.Complex[] complex = new FFT.Complex[SERIES[i].length];
+            for(int j = 0; j < complex.length; j++) {
+                complex[j] = new FFT.Complex(SERIES[i][j], 0);
+            }
+            new FFT().fft(complex, complex.length);
+            for(int j = 0; j < complex.length; j++) {
+                Assert.assertEquals(expected[2 * j], complex[j].getReal(),
+                    1e-5 * Math.max(1, Math.abs(expected[2 * j])));
+                Assert.assertEquals(expected[2 * j + 1], complex[j].getImag(),
+                    1e-5 * Math.max(1, Math.abs(expected[2 * j + 1])));
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsDft() {
+        final Random random = new Random(0);
+        // powers of two and otherwise
+        for(int size : new int[] {1, 2, 7, 16, 30, 64, 100}) {
+            final double[] series = new double[size];
+            for(int i = 0; i < size; i++) {
+                series[i] = random.nextGaussian();
+            }
+            final double[] expected = dft(series);
+            final FFTEngine engine = FFTEngine.forSize(size);
+            final double[] complex = toComplex(series);
+            engine.forward(complex);
+            assertClose(expected, complex, 1e-12);
+            final double[] real = new double[2 * size];
+            System.arraycopy(series, 0, real, 0, size);
+            engine.realForward(real);
+            assertClose(expected, real, 1e-12);
+            engine.inverse(complex);
+            assertClose(toComplex(series), complex, 1e-12);
+        }
+    }
+
+    @Test
+    public void testEnginesKept() {
+        Assert.assertSame(FFTEngine.forSize(32), FFTEngine.forSize(32));
+        Assert.assertSame(FFTEngine.forSize(33), FFTEngine.forSize(33));
+        final FFTEngine engine = FFTEngine.forSize(35);
+        // once more engines of other sizes are used than are kept, the least recently used goes
+        for(int size = 36; size < 36 + FFTEngine.MAX_OTHER_ENGINES; size++) {
+            FFTEngine.forSize(size);
+        }
+        Assert.assertNotSame(engine, FFTEngine.forSize(35));
+        Assert.assertSame(FFTEngine.forSize(1024), FFTEngine.forSize(1024));
+    }
+}
@@ -165,7 +165,7 @@ public class FileUtils {
             return !isUnlocked();
         }
 
-        @Override public void close() throws Exception {
+        @Override public void close() {
             unlock();
         }
     }
@@ -24,6 +24,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -38,6 +41,39 @@ public class ThreadingUtilities {
         //todo look into queues etc
         return Executors.newFixedThreadPool(numThreads);
     }
+    
+    /**
+     * Builds a pool of numThreads threads which each end once idle for the given time, so a pool which 
+     * is never shut down only holds on to its threads while it has work. Work already submitted is still 
+     * finished before the JVM exits.
+     */
+    public static ExecutorService buildExecutorService(int numThreads, long keepAliveTime, TimeUnit unit) { 
+        return buildExecutorService(numThreads, keepAliveTime, unit, Executors.defaultThreadFactory());
+    }
+    
+    /**
+     * As buildExecutorService(int, long, TimeUnit), with threads made by the given factory, e.g. daemonThreadFactory 
+     * for a pool which is kept between calls and must never hold up the JVM exiting.
+     */
+    public static ExecutorService buildExecutorService(int numThreads, long keepAliveTime, TimeUnit unit, 
+            ThreadFactory threadFactory) { 
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, keepAliveTime, unit, 
+                new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * Builds a factory of daemon threads, which do not keep the JVM alive once all other threads have ended.
+     */
+    public static ThreadFactory daemonThreadFactory() {
+        ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread thread = defaultFactory.newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
         
     public static void shutdownExecutor(ExecutorService executor) {
         //todo maybe add timer to while, for general expected usecase in this codebase 
@@ -61,6 +97,71 @@ public class ThreadingUtilities {
         return results;
     }
     
+    /**
+     * Runs all given jobs on a pool of up to numThreads threads built just for them, waits for them all 
+     * to finish and returns all the results, in the same order as the jobs. The pool is always shut down 
+     * before returning, so no threads are left behind. If a job fails the rest are cancelled and its 
+     * exception is thrown.
+     */
+    public static <T> List<T> computeAll(int numThreads, List<Callable<T>> jobs) throws InterruptedException, ExecutionException {
+        ExecutorService executor = buildExecutorService(Math.max(1, Math.min(numThreads, jobs.size())));
+        try {
+            return gatherAll(submitAll(executor, jobs));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Runs the tasks on the executor and waits for them all to finish, or runs them in this thread if the executor is 
+     * null or there is only one task. If a task fails the rest are cancelled and its exception is rethrown as it was 
+     * thrown, rather than wrapped in an ExecutionException. The executor is left running for reuse.
+     */
+    public static <T> void runTasks(ExecutorService executor, List<? extends Callable<T>> tasks) throws Exception {
+        if (executor == null || tasks.size() <= 1) {
+            for (Callable<T> task : tasks)
+                task.call();
+            return;
+        }
+        
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks)
+                futures.add(executor.submit(task));
+            for (Future<T> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // no-op for the tasks which finished, stops the rest after a failure
+            for (Future<T> future : futures)
+                future.cancel(true);
+        }
+    }
+    
+    /**
+     * Runs the tasks on a pool of up to numThreads threads built for them, as runTasks(ExecutorService, List), or in 
+     * this thread if numThreads is 1 or less. The pool is shut down before returning.
+     */
+    public static <T> void runTasks(int numThreads, List<? extends Callable<T>> tasks) throws Exception {
+        if (numThreads <= 1 || tasks.size() <= 1) {
+            runTasks(null, tasks);
+            return;
+        }
+        
+        ExecutorService executor = buildExecutorService(Math.min(numThreads, tasks.size()));
+        try {
+            runTasks(executor, tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
     /**
      * Submits all given jobs that do NOT return an object to the executor, wait for them all to 
      * finish and returns any Exceptions thrown in a list parallel with the jobs. This can be inspected
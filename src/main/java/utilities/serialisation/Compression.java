@@ -0,0 +1,66 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package utilities.serialisation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * How serialised objects are compressed. All levels write gzip, so any can be read back with GZIPInputStream.
+ */
+public enum Compression {
+    // no compression
+    NONE(Deflater.NO_COMPRESSION),
+    // the fastest gzip level. Several times quicker to write than DEFAULT for a slightly larger file
+    FAST(Deflater.BEST_SPEED),
+    // gzip's default level, as checkpoints have always been written
+    DEFAULT(Deflater.DEFAULT_COMPRESSION);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int level;
+
+    Compression(int level) {
+        this.level = level;
+    }
+
+    /**
+     * @param out the stream to write the compressed bytes to
+     * @return a stream compressing to out, which must be finished by finish(). Closing it closes out.
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        if (this == NONE) {
+            return out;
+        }
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    /**
+     * Write any remaining compressed bytes of a stream from wrap, without closing the underlying stream.
+     */
+    public void finish(OutputStream compressed) throws IOException {
+        if (compressed instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) compressed).finish();
+        }
+        compressed.flush();
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package utilities.serialisation;
+
+import java.io.*;
+
+/**
+ * Standard Java serialisation, i.e. ObjectOutputStream. Slow and verbose, but handles anything Serializable.
+ */
+public class JavaSerialiser implements Serialiser {
+
+    // ObjectOutputStream's STREAM_MAGIC
+    private static final byte[] MAGIC = {(byte) 0xAC, (byte) 0xED};
+
+    @Override
+    public void serialise(Object object, OutputStream out) throws IOException {
+        // not closed as that would close the underlying stream
+        ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        objectOut.writeObject(object);
+        objectOut.flush();
+    }
+
+    @Override
+    public Object deserialise(InputStream in) throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(in).readObject();
+    }
+
+    @Override
+    public ObjectWriter openWriter(OutputStream out) throws IOException {
+        final ObjectOutputStream objectOut = new ObjectOutputStream(out);
+        objectOut.flush();
+        return object -> {
+            objectOut.writeObject(object);
+            objectOut.flush();
+        };
+    }
+
+    @Override
+    public ObjectReader openReader(InputStream in) throws IOException {
+        return new ObjectInputStream(in)::readObject;
+    }
+
+    @Override
+    public boolean isSerialisedBy(byte[] header) {
+        return header.length >= MAGIC.length && header[0] == MAGIC[0] && header[1] == MAGIC[1];
+    }
+
+    @Override
+    public String toString() {
+        return "java";
+    }
+
+}
@@ -0,0 +1,439 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package utilities.serialisation;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.SerializerFactory;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.*;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Generics;
+import machine_learning.classifiers.TimeSeriesTree;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import tsml.classifiers.dictionary_based.IndividualTDE;
+import tsml.transformers.shapelet_tools.Shapelet;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.*;
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kryo serialisation, which is several times faster than Java serialisation and writes much less, mostly as it does
+ * not write class descriptors. Classes are registered so they are written as an id rather than their name; the types
+ * which make up most of a checkpoint (Instances, the bags of TDE and cBOSS, the trees of TSF and the like, and
+ * shapelets) are registered here. Anything else is written by name.
+ * <p>
+ * Classes need not be Serializable, other than those which Kryo cannot write field by field, i.e. those with custom
+ * Java serialisation or which extend JDK classes. They are written with Java serialisation, so are no faster.
+ * <p>
+ * Registrations are in order of id, so new ones must be added at the end to read what was written before.
+ */
+public class KryoSerialiser implements Serialiser {
+
+    private static final byte[] MAGIC = {'K', 'R', 'Y', 'O'};
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Kryo instances are not thread safe and are costly to set up, so one per thread
+    private final ThreadLocal<Kryo> kryos = ThreadLocal.withInitial(this::buildKryo);
+
+    /**
+     * @return a Kryo with the hot types registered. Subclasses may register more, after those here.
+     */
+    protected Kryo buildKryo() {
+        final Kryo kryo = new FallbackKryo();
+        kryo.setReferences(true);
+        kryo.setRegistrationRequired(false);
+        kryo.setWarnUnregisteredClasses(false);
+        kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        final FieldSerializer.FieldSerializerConfig config = new FieldSerializer.FieldSerializerConfig();
+        // keep the reference from inner classes to their outer instance
+        config.setIgnoreSyntheticFields(false);
+        kryo.setDefaultSerializer(new SerializerFactory.FieldSerializerFactory(config));
+        kryo.register(ClosureSerializer.Closure.class, new LambdaSerializer());
+
+        kryo.register(Instances.class, new InstancesSerializer());
+        kryo.register(DenseInstance.class);
+        kryo.register(IndividualTDE.SPBag.class, new SPBagSerializer());
+        kryo.register(TimeSeriesTree.class);
+        kryo.register(forName("machine_learning.classifiers.TimeSeriesTree$TreeNode"));
+        kryo.register(Shapelet.class);
+        return kryo;
+    }
+
+    private static Class<?> forName(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void serialise(Object object, OutputStream out) throws IOException {
+        out.write(MAGIC);
+        // not closed as that would close the underlying stream
+        final Output output = new Output(out, BUFFER_SIZE);
+        final Kryo kryo = kryos.get();
+        try {
+            kryo.writeClassAndObject(output, object);
+            output.flush();
+        } catch (KryoException e) {
+            // a failed write leaves the references seen so far behind
+            kryo.reset();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public Object deserialise(InputStream in) throws IOException, ClassNotFoundException {
+        final byte[] header = new byte[MAGIC.length];
+        new DataInputStream(in).readFully(header);
+        if (!isSerialisedBy(header)) {
+            throw new StreamCorruptedException("not written by kryo");
+        }
+        final Kryo kryo = kryos.get();
+        try {
+            return kryo.readClassAndObject(new Input(in, BUFFER_SIZE));
+        } catch (KryoException e) {
+            kryo.reset();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public ObjectWriter openWriter(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.flush();
+        final Output output = new Output(out, BUFFER_SIZE);
+        // a Kryo of its own, which keeps the references written so far between writes
+        final Kryo kryo = buildKryo();
+        kryo.setAutoReset(false);
+        return object -> {
+            try {
+                kryo.writeClassAndObject(output, object);
+                output.flush();
+            } catch (KryoException e) {
+                throw new IOException(e);
+            }
+        };
+    }
+
+    @Override
+    public ObjectReader openReader(InputStream in) throws IOException {
+        final byte[] header = new byte[MAGIC.length];
+        new DataInputStream(in).readFully(header);
+        if (!isSerialisedBy(header)) {
+            throw new StreamCorruptedException("not written by kryo");
+        }
+        final Input input = new Input(in, BUFFER_SIZE);
+        final Kryo kryo = buildKryo();
+        kryo.setAutoReset(false);
+        return () -> {
+            try {
+                return kryo.readClassAndObject(input);
+            } catch (KryoException e) {
+                throw new IOException(e);
+            }
+        };
+    }
+
+    @Override
+    public boolean isSerialisedBy(byte[] header) {
+        if (header.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "kryo";
+    }
+
+    /**
+     * Uses Java serialisation for the classes Kryo would write incorrectly by default.
+     */
+    private static class FallbackKryo extends Kryo {
+
+        private final Generics generics = new NoGenerics(this);
+
+        /**
+         * Kryo's tracking of generic types overflows for values nested more than 16 generic types deep, such as the
+         * nodes of the proximity trees, so is turned off. The class of every generically typed value is written.
+         */
+        @Override
+        public Generics getGenerics() {
+            return generics;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes") // Kryo declares the parameter as a raw Class, which an override must match
+        public Serializer<?> getDefaultSerializer(Class type) {
+            // the map and collection serializers only write the entries, so not any other state
+            if ((Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)) && hasOwnFields(type)) {
+                return newDefaultSerializer(type);
+            }
+            return super.getDefaultSerializer(type);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes") // as getDefaultSerializer
+        protected Serializer<?> newDefaultSerializer(Class type) {
+            if (Serializable.class.isAssignableFrom(type) && !type.isArray() && !fieldsSuffice(type)) {
+                return new JavaSerializer();
+            }
+            return super.newDefaultSerializer(type);
+        }
+
+        /**
+         * @return whether the non-transient fields are the whole state of the class, i.e. it has no custom Java
+         * serialisation and does not extend a JDK class (which mostly hold their state in transient fields)
+         */
+        private static boolean fieldsSuffice(Class<?> type) {
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                if (isJdk(c) || declares(c, "writeObject", ObjectOutputStream.class)
+                        || declares(c, "readObject", ObjectInputStream.class)
+                        || declares(c, "writeReplace") || declares(c, "readResolve")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return whether a non-JDK class in the hierarchy has state of its own
+         */
+        private static boolean hasOwnFields(Class<?> type) {
+            for (Class<?> c = type; c != null && !isJdk(c); c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean isJdk(Class<?> c) {
+            final String name = c.getName();
+            return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+                    || name.startsWith("jdk.") || name.startsWith("com.sun.");
+        }
+
+        private static boolean declares(Class<?> c, String name, Class<?>... parameters) {
+            try {
+                c.getDeclaredMethod(name, parameters);
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    }
+
+    private static class NoGenerics extends Generics {
+
+        NoGenerics(Kryo kryo) {
+            super(kryo);
+        }
+
+        @Override
+        public void pushGenericType(GenericType fieldType) {}
+
+        @Override
+        public void popGenericType() {}
+
+        @Override
+        public GenericType[] nextGenericTypes() {
+            return null;
+        }
+
+        @Override
+        public Class<?> nextGenericClass() {
+            return null;
+        }
+
+        @Override
+        public int pushTypeVariables(GenericsHierarchy hierarchy, GenericType[] args) {
+            return 0;
+        }
+
+        @Override
+        public void popTypeVariables(int count) {}
+
+        @Override
+        @SuppressWarnings("rawtypes") // Kryo declares the parameter as a raw TypeVariable, which an override must match
+        public Class<?> resolveTypeVariable(TypeVariable typeVariable) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes serialisable lambdas as their SerializedLambda, as ClosureSerializer does, but without needing
+     * java.lang.invoke opened on Java 9+. Unlike Java serialisation, a lambda capturing an object which references it
+     * can be read back.
+     */
+    private static class LambdaSerializer extends Serializer<Object> {
+
+        @Override
+        public void write(Kryo kryo, Output output, Object lambda) {
+            final SerializedLambda serialized;
+            try {
+                final Method writeReplace = lambda.getClass().getDeclaredMethod("writeReplace");
+                writeReplace.setAccessible(true);
+                serialized = (SerializedLambda) writeReplace.invoke(lambda);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new KryoException("not a serializable lambda: " + lambda.getClass(), e);
+            }
+            output.writeString(serialized.getCapturingClass());
+            output.writeString(serialized.getFunctionalInterfaceClass());
+            output.writeString(serialized.getFunctionalInterfaceMethodName());
+            output.writeString(serialized.getFunctionalInterfaceMethodSignature());
+            output.writeVarInt(serialized.getImplMethodKind(), true);
+            output.writeString(serialized.getImplClass());
+            output.writeString(serialized.getImplMethodName());
+            output.writeString(serialized.getImplMethodSignature());
+            output.writeString(serialized.getInstantiatedMethodType());
+            output.writeVarInt(serialized.getCapturedArgCount(), true);
+            for (int i = 0; i < serialized.getCapturedArgCount(); i++) {
+                kryo.writeClassAndObject(output, serialized.getCapturedArg(i));
+            }
+        }
+
+        @Override
+        public Object read(Kryo kryo, Input input, Class<?> type) {
+            try {
+                final Class<?> capturingClass = Class.forName(input.readString().replace('/', '.'), false,
+                        kryo.getClassLoader());
+                final String functionalInterfaceClass = input.readString();
+                final String functionalInterfaceMethodName = input.readString();
+                final String functionalInterfaceMethodSignature = input.readString();
+                final int implMethodKind = input.readVarInt(true);
+                final String implClass = input.readString();
+                final String implMethodName = input.readString();
+                final String implMethodSignature = input.readString();
+                final String instantiatedMethodType = input.readString();
+                final Object[] capturedArgs = new Object[input.readVarInt(true)];
+                for (int i = 0; i < capturedArgs.length; i++) {
+                    capturedArgs[i] = kryo.readClassAndObject(input);
+                }
+                final SerializedLambda serialized = new SerializedLambda(capturingClass, functionalInterfaceClass,
+                        functionalInterfaceMethodName, functionalInterfaceMethodSignature, implMethodKind, implClass,
+                        implMethodName, implMethodSignature, instantiatedMethodType, capturedArgs);
+                // as SerializedLambda.readResolve does
+                final Method deserialize = capturingClass.getDeclaredMethod("$deserializeLambda$",
+                        SerializedLambda.class);
+                deserialize.setAccessible(true);
+                return deserialize.invoke(null, serialized);
+            } catch (ReflectiveOperationException e) {
+                throw new KryoException(e);
+            }
+        }
+    }
+
+    /**
+     * Instances extends AbstractList, so would otherwise be written as just its instances. The instances are kept as
+     * they are rather than copied by add, so anything else referencing them still does after reading.
+     */
+    private static class InstancesSerializer extends Serializer<Instances> {
+
+        private static final Field INSTANCES;
+
+        static {
+            try {
+                INSTANCES = Instances.class.getDeclaredField("m_Instances");
+                INSTANCES.setAccessible(true);
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void write(Kryo kryo, Output output, Instances data) {
+            output.writeString(data.relationName());
+            final ArrayList<Attribute> attributes = new ArrayList<>(data.numAttributes());
+            for (int i = 0; i < data.numAttributes(); i++) {
+                attributes.add(data.attribute(i));
+            }
+            kryo.writeObject(output, attributes);
+            output.writeVarInt(data.classIndex() + 1, true);
+            output.writeVarInt(data.numInstances(), true);
+            for (Instance instance : data) {
+                kryo.writeClassAndObject(output, instance);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Instances read(Kryo kryo, Input input, Class<? extends Instances> type) {
+            final String name = input.readString();
+            final ArrayList<Attribute> attributes = kryo.readObject(input, ArrayList.class);
+            final int classIndex = input.readVarInt(true) - 1;
+            final int numInstances = input.readVarInt(true);
+            final Instances data = new Instances(name, attributes, numInstances);
+            data.setClassIndex(classIndex);
+            kryo.reference(data);
+            final List<Instance> instances;
+            try {
+                instances = (List<Instance>) INSTANCES.get(data);
+            } catch (IllegalAccessException e) {
+                throw new KryoException(e);
+            }
+            for (int i = 0; i < numInstances; i++) {
+                instances.add((Instance) kryo.readClassAndObject(input));
+            }
+            return data;
+        }
+    }
+
+    /**
+     * Writes the class value of a bag as well as its entries.
+     */
+    private static class SPBagSerializer extends MapSerializer<IndividualTDE.SPBag> {
+
+        @Override
+        public void write(Kryo kryo, Output output, IndividualTDE.SPBag bag) {
+            output.writeDouble(bag.getClassVal());
+            super.write(kryo, output, bag);
+        }
+
+        @Override
+        public IndividualTDE.SPBag read(Kryo kryo, Input input, Class<? extends IndividualTDE.SPBag> type) {
+            final double classVal = input.readDouble();
+            final IndividualTDE.SPBag bag = super.read(kryo, input, type);
+            bag.setClassVal(classVal);
+            return bag;
+        }
+    }
+
+}
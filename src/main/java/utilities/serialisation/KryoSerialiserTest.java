@@ -0,0 +1,48 @@
+package utilities.serialisation;
+
+import experiments.data.DatasetLoading;
+import org.junit.Assert;
+import org.junit.Test;
+import tsml.classifiers.distance_based.proximity.ProximityForest;
+import tsml.classifiers.interval_based.TSF;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Purpose: test a model copied with Kryo predicts the same as the original
+ */
+public class KryoSerialiserTest {
+
+    private static void assertSamePredictions(Classifier classifier, Instances[] data) throws Exception {
+        classifier.buildClassifier(data[0]);
+        final KryoSerialiser serialiser = new KryoSerialiser();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serialiser.serialise(classifier, out);
+        final Classifier copy = (Classifier) serialiser.deserialise(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertNotSame(classifier, copy);
+        for(int i = 0; i < data[1].size(); i++) {
+            Assert.assertArrayEquals(classifier.distributionForInstance(data[1].get(i)),
+                copy.distributionForInstance(data[1].get(i)), 0);
+        }
+    }
+
+    @Test
+    public void testProximityForestRoundTrip() throws Exception {
+        final ProximityForest classifier = new ProximityForest();
+        ProximityForest.Config.PF_R5.configure(classifier);
+        classifier.setNumTreeLimit(10);
+        classifier.setSeed(0);
+        assertSamePredictions(classifier, DatasetLoading.sampleItalyPowerDemand(0));
+    }
+
+    @Test
+    public void testTsfRoundTrip() throws Exception {
+        final TSF classifier = new TSF();
+        classifier.setSeed(0);
+        classifier.setNumTrees(20);
+        assertSamePredictions(classifier, DatasetLoading.sampleItalyPowerDemand(0));
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package utilities.serialisation;
+
+import java.io.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Entry point for writing and reading checkpoints and other serialised objects. Objects are written with the default
+ * serialiser and compression, and read back with whichever serialiser wrote them, compressed or not, so checkpoints
+ * from before a change of default still load.
+ * <p>
+ * The defaults are Java serialisation and gzip's default level, as checkpoints have always been written. They can be
+ * set in code or with the system properties tsml.serialiser (java or kryo) and tsml.serialiser.compression (NONE, FAST
+ * or DEFAULT), e.g. -Dtsml.serialiser=kryo -Dtsml.serialiser.compression=FAST for the quickest checkpoints.
+ * <p>
+ * Other serialisers can be plugged in with register.
+ */
+public class Serialisation {
+
+    private static final Logger LOGGER = Logger.getLogger(Serialisation.class.getName());
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1F, (byte) 0x8B};
+
+    // the serialisers which streams may have been written by
+    private static final List<Serialiser> SERIALISERS = new CopyOnWriteArrayList<>();
+    private static volatile Serialiser serialiser;
+    private static volatile Compression compression;
+
+    static {
+        final Serialiser java = new JavaSerialiser();
+        final Serialiser kryo = new KryoSerialiser();
+        SERIALISERS.add(java);
+        SERIALISERS.add(kryo);
+        serialiser = "kryo".equalsIgnoreCase(System.getProperty("tsml.serialiser")) ? kryo : java;
+        compression = findCompression(System.getProperty("tsml.serialiser.compression", "DEFAULT"));
+    }
+
+    /**
+     * Find the compression with the given name, falling back to DEFAULT if there is none. A bad property value must not
+     * fail the class initialisation, else every later checkpoint would fail too.
+     */
+    static Compression findCompression(String name) {
+        try {
+            return Compression.valueOf(name.trim().toUpperCase());
+        } catch(IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "unknown compression \"" + name + "\" for tsml.serialiser.compression, using "
+                                          + Compression.DEFAULT);
+            return Compression.DEFAULT;
+        }
+    }
+
+    private Serialisation() {}
+
+    /**
+     * Add a serialiser which streams may have been written by, unless one of the same class already is.
+     */
+    public static void register(Serialiser other) {
+        for (Serialiser registered : SERIALISERS) {
+            if (registered.getClass().equals(other.getClass())) {
+                return;
+            }
+        }
+        SERIALISERS.add(other);
+    }
+
+    public static Serialiser getSerialiser() {
+        return serialiser;
+    }
+
+    /**
+     * Set the serialiser objects are written with, registering it if not already.
+     */
+    public static void setSerialiser(Serialiser serialiser) {
+        register(serialiser);
+        Serialisation.serialiser = serialiser;
+    }
+
+    public static Compression getCompression() {
+        return compression;
+    }
+
+    public static void setCompression(Compression compression) {
+        Serialisation.compression = compression;
+    }
+
+    /**
+     * Write the object to the stream with the default serialiser and compression. The stream is not closed.
+     */
+    public static void write(Object object, OutputStream out) throws IOException {
+        write(object, out, compression);
+    }
+
+    /**
+     * Write the object to the stream with the default serialiser and the given compression. The stream is not closed.
+     */
+    public static void write(Object object, OutputStream out, Compression compression) throws IOException {
+        final OutputStream compressed = compression.wrap(out);
+        serialiser.serialise(object, compressed);
+        compression.finish(compressed);
+    }
+
+    /**
+     * Read an object from the stream, whichever registered serialiser wrote it and whether or not it is compressed.
+     */
+    public static Object read(InputStream in) throws IOException, ClassNotFoundException {
+        InputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        if (startsWith(peek(buffered, GZIP_MAGIC.length), GZIP_MAGIC)) {
+            buffered = new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return forHeader(peek(buffered, Serialiser.HEADER_LENGTH)).deserialise(buffered);
+    }
+
+    /**
+     * @return the serialiser which writes streams starting with the header
+     */
+    private static Serialiser forHeader(byte[] header) throws IOException {
+        // the default first, as a subclass of another serialiser may share its header
+        if (serialiser.isSerialisedBy(header)) {
+            return serialiser;
+        }
+        for (Serialiser other : SERIALISERS) {
+            if (other.isSerialisedBy(header)) {
+                return other;
+            }
+        }
+        throw new StreamCorruptedException("not written by any of " + SERIALISERS);
+    }
+
+    /**
+     * Start writing a stream of objects with the default serialiser, uncompressed (see Serialiser.openWriter).
+     */
+    public static Serialiser.ObjectWriter openWriter(OutputStream out) throws IOException {
+        return serialiser.openWriter(out);
+    }
+
+    /**
+     * Start reading a stream of objects, whichever registered serialiser wrote it.
+     */
+    public static Serialiser.ObjectReader openReader(InputStream in) throws IOException {
+        final InputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        return forHeader(peek(buffered, Serialiser.HEADER_LENGTH)).openReader(buffered);
+    }
+
+    /**
+     * Write the object to a file with the default serialiser and compression.
+     */
+    public static void writeToFile(Object object, File file) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            write(object, out);
+        }
+    }
+
+    public static Object readFromFile(File file) throws IOException, ClassNotFoundException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * @return the object in the default serialiser's uncompressed form
+     */
+    public static byte[] serialise(Object object) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(object, out, Compression.NONE);
+        return out.toByteArray();
+    }
+
+    public static Object deserialise(byte[] bytes) throws IOException, ClassNotFoundException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Copy an object and everything it references by serialising it and reading it back.
+     */
+    @SuppressWarnings("unchecked")
+    public static <A> A deepCopy(A object) throws IOException, ClassNotFoundException {
+        return (A) deserialise(serialise(object));
+    }
+
+    /**
+     * @return up to length bytes from the start of the stream, which is left where it was
+     */
+    private static byte[] peek(InputStream in, int length) throws IOException {
+        final byte[] bytes = new byte[length];
+        in.mark(length);
+        int read = 0;
+        while (read < length) {
+            final int n = in.read(bytes, read, length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        in.reset();
+        if (read < length) {
+            final byte[] shorter = new byte[read];
+            System.arraycopy(bytes, 0, shorter, 0, read);
+            return shorter;
+        }
+        return bytes;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
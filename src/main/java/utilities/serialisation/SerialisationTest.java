@@ -0,0 +1,18 @@
+package utilities.serialisation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Purpose: test the compression named by the system property is found, and an unknown name falls back to the default
+ */
+public class SerialisationTest {
+
+    @Test
+    public void testFindCompression() {
+        Assert.assertEquals(Compression.FAST, Serialisation.findCompression("fast"));
+        Assert.assertEquals(Compression.NONE, Serialisation.findCompression(" NONE "));
+        Assert.assertEquals(Compression.DEFAULT, Serialisation.findCompression("lz4"));
+        Assert.assertEquals(Compression.DEFAULT, Serialisation.findCompression(""));
+    }
+}
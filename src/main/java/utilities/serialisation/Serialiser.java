@@ -0,0 +1,74 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package utilities.serialisation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A way of writing objects to and reading them back from a stream, for checkpoints and deep copies. See Serialisation
+ * for picking which is used and for registering others.
+ * <p>
+ * A serialiser must be able to recognise its own output from the first few bytes, so a checkpoint can be read back
+ * whichever serialiser is currently the default.
+ */
+public interface Serialiser {
+
+    /**
+     * the number of leading bytes looked at by isSerialisedBy
+     */
+    int HEADER_LENGTH = 4;
+
+    /**
+     * Write the object and everything it references to the stream. The stream is flushed but not closed.
+     */
+    void serialise(Object object, OutputStream out) throws IOException;
+
+    /**
+     * Read an object written by serialise from the stream.
+     */
+    Object deserialise(InputStream in) throws IOException, ClassNotFoundException;
+
+    /**
+     * Start writing a stream of objects, one at a time, such as the parts of a model as they are built. An object
+     * written after another may reference it, or anything it references, without writing it again, so objects must
+     * not be changed once written. Writing the header is the only thing done to the stream until the first write.
+     */
+    ObjectWriter openWriter(OutputStream out) throws IOException;
+
+    /**
+     * Start reading a stream of objects written by a writer from openWriter.
+     */
+    ObjectReader openReader(InputStream in) throws IOException;
+
+    /**
+     * @param header the first HEADER_LENGTH bytes of a stream (fewer if the stream is shorter)
+     * @return whether the stream was written by this serialiser
+     */
+    boolean isSerialisedBy(byte[] header);
+
+    interface ObjectWriter {
+        /**
+         * Write the object, then flush the stream.
+         */
+        void write(Object object) throws IOException;
+    }
+
+    interface ObjectReader {
+        Object read() throws IOException, ClassNotFoundException;
+    }
+
+}